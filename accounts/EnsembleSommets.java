@@ -0,0 +1,281 @@
+package accounts;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import util.Contract;
+
+/**
+ * Cette classe définit un ensemble de sommets, comparés par identité,
+ * parcouru dans l'ordre d'ajout.
+ *
+ * Les sommets sont rangés dans un tableau dans l'ordre d'ajout ; un sommet retiré
+ * y laisse une case vide, récupérée au prochain agrandissement.
+ * Tant que l'ensemble est petit, les recherches parcourent ce tableau.
+ * Au-delà de INLINE_CAPACITY cases, une table à adressage ouvert de positions (int)
+ * indexe le tableau, et l'appartenance, l'ajout et le retrait se font en temps constant amorti.
+ *
+ * @cons <pre>
+ * $DESC$ Un ensemble vide
+ * $POST$
+ *  size() == 0 </pre>
+ */
+public class EnsembleSommets extends AbstractSet<Sommet> {
+
+    // CONSTANTES
+
+    // Nombre de cases en deçà duquel les recherches se font sans index
+    private static final int INLINE_CAPACITY = 8;
+
+    // ATTRIBUTS
+
+    // Sommets dans l'ordre d'ajout, null pour une case libérée ; seules les cases [0, end[ servent
+    private Sommet[] elements;
+    private int end;
+    private int size;
+
+    // Table à sondage linéaire des positions + 1 dans elements, 0 marque une case vide ;
+    // null tant que l'ensemble est petit
+    private int[] index;
+
+    // Nombre de modifications, pour détecter celles faites pendant un parcours
+    private int modCount;
+
+    // CONSTRUCTEUR
+
+    public EnsembleSommets() {
+        elements = new Sommet[INLINE_CAPACITY];
+        end = 0;
+        size = 0;
+        index = null;
+    }
+
+    // REQUETES
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Object o) {
+        return o instanceof Sommet && find((Sommet) o) >= 0;
+    }
+
+    /** Retourne un itérateur sur les sommets, dans l'ordre d'ajout
+     */
+    public Iterator<Sommet> iterator() {
+        return new Iterator<Sommet>() {
+            private int next = skip(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            public Sommet next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = skip(next + 1);
+
+                return elements[last];
+            }
+
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(last);
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    // COMMANDES
+
+    /** Ajoute s à la fin de l'ensemble s'il n'y est pas déjà
+     * @pre <pre>
+     *  s != null </pre>
+     *
+     * @post <pre>
+     *  contains(s) </pre>
+     */
+    public boolean add(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        if (find(s) >= 0) {
+            return false;
+        }
+
+        if (end == elements.length) {
+            // On récupère les cases libérées plutôt que de grandir si elles sont nombreuses
+            if (end - size >= end / 2) {
+                compact(elements.length);
+            } else {
+                compact(elements.length * 2);
+            }
+        }
+
+        elements[end] = s;
+        end++;
+        size++;
+        modCount++;
+
+        // L'index, dimensionné sur la capacité du tableau, reste au plus à moitié plein
+        if (index != null) {
+            insert(end - 1);
+        } else if (end > INLINE_CAPACITY) {
+            rebuildIndex();
+        }
+
+        return true;
+    }
+
+    public boolean remove(Object o) {
+        if (!(o instanceof Sommet)) {
+            return false;
+        }
+
+        int i = find((Sommet) o);
+        if (i < 0) {
+            return false;
+        }
+        removeAt(i);
+
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(elements, 0, end, null);
+        end = 0;
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    // OUTILS
+
+    private static int hash(Sommet s) {
+        int h = System.identityHashCode(s) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Position de s dans elements, -1 s'il n'y est pas
+    private int find(Sommet s) {
+        if (index == null) {
+            for (int i = 0; i < end; i++) {
+                if (elements[i] == s) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int j = hash(s) & mask; index[j] != 0; j = (j + 1) & mask) {
+            if (elements[index[j] - 1] == s) {
+                return index[j] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    // Première position occupée à partir de i, end s'il n'y en a pas
+    private int skip(int i) {
+        while (i < end && elements[i] == null) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private void removeAt(int i) {
+        if (index != null) {
+            delete(i);
+        }
+        elements[i] = null;
+        size--;
+        modCount++;
+
+        // Les cases libérées en fin de tableau sont reprises immédiatement
+        while (end > 0 && elements[end - 1] == null) {
+            end--;
+        }
+    }
+
+    // Resserre les sommets en tête d'un tableau de capacité donnée, dans le même ordre
+    private void compact(int capacity) {
+        Sommet[] old = elements;
+        elements = new Sommet[capacity];
+        int k = 0;
+        for (int i = 0; i < end; i++) {
+            if (old[i] != null) {
+                elements[k++] = old[i];
+            }
+        }
+        end = k;
+
+        if (index != null) {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() {
+        int capacity = INLINE_CAPACITY * 2;
+        while (capacity < 2 * elements.length) {
+            capacity *= 2;
+        }
+
+        index = new int[capacity];
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != null) {
+                insert(i);
+            }
+        }
+    }
+
+    private void insert(int i) {
+        int mask = index.length - 1;
+        int j = hash(elements[i]) & mask;
+        while (index[j] != 0) {
+            j = (j + 1) & mask;
+        }
+        index[j] = i + 1;
+    }
+
+    // Suppression par décalage arrière, pour ne pas laisser de marqueurs dans la table
+    private void delete(int i) {
+        int mask = index.length - 1;
+        int j = hash(elements[i]) & mask;
+        while (index[j] != i + 1) {
+            j = (j + 1) & mask;
+        }
+
+        int k = j;
+        while (true) {
+            k = (k + 1) & mask;
+            if (index[k] == 0) {
+                break;
+            }
+            int home = hash(elements[index[k] - 1]) & mask;
+            // La case k peut combler le trou j si sa position d'origine n'est pas dans ]j, k]
+            if ((k > j && (home <= j || home > k)) || (k < j && home <= j && home > k)) {
+                index[j] = index[k];
+                j = k;
+            }
+        }
+        index[j] = 0;
+    }
+}
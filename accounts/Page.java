@@ -1,7 +1,9 @@
 package accounts;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import util.Contract;
 
@@ -15,7 +17,8 @@ import util.Contract;
  *  name != null
  *  admins != null
  * $POST$ 
- *  getAdmins() == admins
+ *  getAdmins().equals(admins)
+ *  forall u in admins: u.getAdministeredPages().contains(this)
  *  getName() == name
  * 
  * 
@@ -39,7 +42,10 @@ public class Page extends Sommet {
         super(name);
         Contract.checkCondition(admins != null);
         
-        this.admins = admins;
+        this.admins = new HashSet<Utilisateur>();
+        for (Utilisateur u : admins) {
+            addAdmin(u);
+        }
     }
     
     public Page(String name) {
@@ -50,10 +56,11 @@ public class Page extends Sommet {
     
     // REQUETES
     
-    /** Renvoie l'ensemble des administrateurs de la page
+    /** Renvoie l'ensemble des administrateurs de la page, non modifiable :
+     *  addAdmin et removeAdmin tiennent aussi à jour Utilisateur.getAdministeredPages()
      */
-    public HashSet<Utilisateur> getAdmins() {
-        return admins;
+    public Set<Utilisateur> getAdmins() {
+        return Collections.unmodifiableSet(admins);
     }
     
     public String toString() {
@@ -63,19 +70,19 @@ public class Page extends Sommet {
     /** Renvoie les ID des administrateurs sous forme de chaîne de caractères
      */
     public String getAdminsId() {
-        String str = "";
+        StringBuilder str = new StringBuilder();
         
         Iterator<Utilisateur> it = admins.iterator();
         
         if (it.hasNext()) {
-            str = String.valueOf(it.next().getId());
+            str.append(it.next().getId());
             
             while (it.hasNext()) {
-                str += ", " + it.next().getId();
+                str.append(", ").append(it.next().getId());
             }
         }
         
-        return str;
+        return str.toString();
     }
     
     /*
@@ -96,12 +103,14 @@ public class Page extends Sommet {
      *   u != null </pre>
      *  
      *  @post <pre>
-     *   getAdmins().contains(u); </pre>
+     *   getAdmins().contains(u);
+     *   u.getAdministeredPages().contains(this) </pre>
      */
     public void addAdmin(Utilisateur u) {
         Contract.checkCondition(u != null);
         
         admins.add(u);
+        u.addAdministeredPage(this);
     }
     
     /** Retire un administrateur de la page
@@ -110,12 +119,25 @@ public class Page extends Sommet {
      *  getAdmins().contains(u) </pre>
      * 
      * @post <pre>
-     *  !getAdmins().contains(u) </pre>
+     *  !getAdmins().contains(u)
+     *  !u.getAdministeredPages().contains(this) </pre>
      */
     public void removeAdmin(Utilisateur u) {
         Contract.checkCondition(u != null);
         Contract.checkCondition(admins.contains(u));
         
         admins.remove(u);
+        u.removeAdministeredPage(this);
+    }
+    
+    /** Retire tous les administrateurs de la page
+     * @post <pre>
+     *  getAdmins().size() == 0 </pre>
+     */
+    public void removeAllAdmins() {
+        for (Utilisateur u : admins) {
+            u.removeAdministeredPage(this);
+        }
+        admins.clear();
     }
 }
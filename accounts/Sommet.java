@@ -1,15 +1,18 @@
 package accounts;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
 
 import util.Contract;
 
 /**
  * Cette classe définit les sommets du graphe
  * 
+ * Les sommets ne conservent plus de distances : getDistance(s), setDistance(s, dist)
+ * et clearDistance() ont été retirés. v.getDistance(s), après computeSmallestDistanceFrom(s),
+ * s'écrit désormais graph.getDistance(s, v), qui retourne ResultatDistances.UNREACHABLE
+ * (et non plus 10000000) pour un sommet inaccessible. Les distances sont gardées par le cache
+ * du graphe, invalidé à chaque modification ; graph.getDistanceCache().clear() le vide.
+ * 
  * @cons <pre>
  * $DESC$ Un sommet dont le nom est donné
  * $ARGS$ String name
@@ -18,7 +21,6 @@ import util.Contract;
  * $POST$
  *  getNeighbors() != null
  *  getFollowers() != null
- *  getDistance(Sommet s) != null
  *  getName() != null
  *  getPageRank() == 1 </pre>
  */
@@ -26,36 +28,34 @@ public abstract class Sommet implements Comparable<Sommet> {
 
     // ATTRIBUTS
     
-    private LinkedList<Sommet> neighbors;
-    private LinkedList<Sommet> followers;
+    private EnsembleSommets neighbors;
+    private EnsembleSommets followers;
     private String name;
     private int id;
     private double pageRank;
-    private Map<Sommet, Integer> distance;
     
     // CONSTRUCTEUR
     
     public Sommet(String name) {
         Contract.checkCondition(name != null);
         
-        neighbors = new LinkedList<Sommet>();
-        followers = new LinkedList<Sommet>();
-        distance = new HashMap<Sommet, Integer>();
+        neighbors = new EnsembleSommets();
+        followers = new EnsembleSommets();
         this.name = name;
         this.pageRank = 1;
     }
     
     // REQUETES
     
-    /** Renvoie la liste des sommets voisins sortants
+    /** Renvoie l'ensemble des sommets voisins sortants, dans l'ordre d'ajout
      */
-    public LinkedList<Sommet> getNeighbors() {
+    public EnsembleSommets getNeighbors() {
         return neighbors;
     }
     
-    /** Renvoie la liste des sommets voisins entrants
+    /** Renvoie l'ensemble des sommets voisins entrants, dans l'ordre d'ajout
      */
-    public LinkedList<Sommet> getFollowers() {
+    public EnsembleSommets getFollowers() {
         return followers;
     }
     
@@ -74,19 +74,19 @@ public abstract class Sommet implements Comparable<Sommet> {
     /** Renvoie l'ID des voisins entrants sous forme de chaîne de caractères
      */
     public String getFollowersId() {
-        String str = "";
+        StringBuilder str = new StringBuilder();
         
         Iterator<Sommet> it = getFollowers().iterator();
         
         if (it.hasNext()) {
-            str = String.valueOf(it.next().getId());
+            str.append(it.next().getId());
             
             while (it.hasNext()) {
-                str += ", " + it.next().getId();
+                str.append(", ").append(it.next().getId());
             }
         }
         
-        return str;
+        return str.toString();
     }
     
     /** Renvoie le page rank du sommet
@@ -95,14 +95,6 @@ public abstract class Sommet implements Comparable<Sommet> {
         return pageRank;
     }
     
-    /** Renvoie la distance entre ce sommet et le sommet s
-    */
-    public int getDistance(Sommet s) {
-        Contract.checkCondition(s != null);
-        
-        return distance.get(s);
-    }
-    
     // COMMANDES
     
     /** Ajoute un voisin sortant à ce sommet
@@ -206,27 +198,4 @@ public abstract class Sommet implements Comparable<Sommet> {
         
         pageRank = pr;
     }
-    
-    /** Donne la distance 'dist' entre ce sommet et le sommet s
-     * @pre <pre>
-     *  s != null
-     *  dist >= 0 </pre>
-     * 
-     * @post <pre>
-     *  getDistance(s) == dist </pre>
-     */
-    public void setDistance(Sommet s, int dist) {
-        Contract.checkCondition(s != null);
-        Contract.checkCondition(dist >= 0);
-        
-        distance.put(s, dist);
-    }
-    
-    /** Supprime toutes les distances de ce sommet
-     *  @post <pre>
-     *      distance.size() == 0
-     */
-    public void clearDistance() {
-        distance.clear();
-    }
 }
@@ -1,6 +1,9 @@
 package accounts;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import util.Contract;
 
@@ -17,7 +20,8 @@ import util.Contract;
  *  $POST$
  *      getFirstName() == prenom
  *      getName() == name
- *      getAge() == age </pre>
+ *      getAge() == age
+ *      getAdministeredPages().size() == 0 </pre>
  */
 public class Utilisateur extends Sommet {
     
@@ -26,6 +30,9 @@ public class Utilisateur extends Sommet {
     private String prenom;
     private int age;
     
+    // Pages dont l'utilisateur est administrateur, tenu à jour par Page
+    private HashSet<Page> administeredPages;
+    
     // CONSTRUCTEUR
     
     public Utilisateur(String prenom, String nom, int age) {
@@ -36,6 +43,7 @@ public class Utilisateur extends Sommet {
         
         this.prenom = prenom;
         this.age = age;
+        administeredPages = new HashSet<Page>();
     }
     
     // REQUETES
@@ -58,6 +66,12 @@ public class Utilisateur extends Sommet {
         return age;
     }
     
+    /** Retourne l'ensemble non modifiable des pages dont l'utilisateur est administrateur
+     */
+    public Set<Page> getAdministeredPages() {
+        return Collections.unmodifiableSet(administeredPages);
+    }
+    
     public String toString() {
         return getFullName();
     }
@@ -65,19 +79,19 @@ public class Utilisateur extends Sommet {
     /** Retourne les ID des sommets voisins sous forme de chaîne de caractères 
     */
     public String getNeighborsId() {
-        String str = "";
+        StringBuilder str = new StringBuilder();
         
         Iterator<Sommet> it = getNeighbors().iterator();
         
         if (it.hasNext()) {
-            str = String.valueOf(it.next().getId());
+            str.append(it.next().getId());
             
             while (it.hasNext()) {
-                str += ", " + it.next().getId();
+                str.append(", ").append(it.next().getId());
             }
         }
         
-        return str;
+        return str.toString();
     }
     
     /* Définition de l'ordre de comparaison pour les utilisateurs
@@ -89,4 +103,26 @@ public class Utilisateur extends Sommet {
             return this.getFullName().compareTo(s.getName());
         }
     }
+    
+    // COMMANDES
+    
+    /** Enregistre p parmi les pages administrées ; réservé à Page.addAdmin
+     * @pre <pre>
+     *  p != null </pre>
+     */
+    void addAdministeredPage(Page p) {
+        Contract.checkCondition(p != null);
+        
+        administeredPages.add(p);
+    }
+    
+    /** Retire p des pages administrées ; réservé à Page.removeAdmin
+     * @pre <pre>
+     *  p != null </pre>
+     */
+    void removeAdministeredPage(Page p) {
+        Contract.checkCondition(p != null);
+        
+        administeredPages.remove(p);
+    }
 }
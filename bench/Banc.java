@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cette classe définit le point d'entrée du banc d'essai JMH des opérations de Graphe
+ * (MesuresGraphe), sur les graphes décrits par EtatGraphe.
+ *
+ * Construction et exécution, depuis la racine du dépôt :
+ *  mvn install
+ *  mvn -f bench/pom.xml package
+ *  java -jar bench/target/benchmarks.jar [options JMH]
+ *
+ * Les options sont celles de JMH (-h pour la liste), par exemple :
+ *  -p size=1000,100000 -p distribution=PUISSANCE -p degree=20
+ *  -wi 3 -i 5 -f 1                 échauffement, itérations chronométrées, forks
+ *  -jvmArgsAppend -Xmx8g           pour les graphes d'un million de sommets
+ *  addEdge|getCSR                  ne retient que les mesures dont le nom correspond
+ * Sans option -rf, les résultats sont écrits au format JSON de JMH dans RESULTS :
+ * deux exécutions se comparent avec les outils usuels de JMH.
+ */
+public final class Banc {
+
+    // CONSTANTES
+
+    private static final String RESULTS = "banc.json";
+
+    // CONSTRUCTEUR
+
+    private Banc() {
+    }
+
+    // COMMANDES
+
+    /** Lance JMH avec les options args, et par défaut -rf json -rff RESULTS
+     * @throws <pre>
+     *  Exception: JMH a échoué </pre>
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+            if (!options.contains("-rff")) {
+                options.add(2, "-rff");
+                options.add(3, RESULTS);
+            }
+        }
+
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
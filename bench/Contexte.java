@@ -0,0 +1,217 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import graph.Graphe;
+import graph.LotMutations;
+import util.Contract;
+
+/**
+ * Cette classe définit le graphe sur lequel s'exécutent les mesures d'une configuration :
+ * size sommets, dont un sur PAGE_RATIO est une page, et des arcs tirés selon distribution
+ * avec un degré sortant moyen meanDegree. Le graphe est construit une fois par essai JMH ;
+ * une mesure qui le modifie remet le graphe en état après chaque appel.
+ *
+ * Le tirage est reproductible : deux contextes de même configuration et de même graine
+ * ont les mêmes sommets et les mêmes arcs.
+ *
+ * @cons <pre>
+ * $DESC$ Le contexte de la configuration donnée
+ * $ARGS$ int size, Distribution distribution, int meanDegree, long seed
+ * $PRE$
+ *  size > 1
+ *  distribution != null
+ *  meanDegree >= 0
+ * $POST$
+ *  getGraph().getVerticesNb() == size </pre>
+ */
+public class Contexte {
+
+    // CONSTANTES
+
+    private static final int PAGE_RATIO = 10;
+
+    // Taille des lots de construction du graphe
+    private static final int BUILD_BATCH = 1 << 14;
+
+    // ATTRIBUTS
+
+    private final int size;
+    private final Distribution distribution;
+    private final int meanDegree;
+    private final Random random;
+
+    private final Graphe graph;
+    private final List<Sommet> vertices;
+    private final List<Utilisateur> users;
+
+    // Fichiers temporaires des mesures de sauvegarde et de chargement, créés à la demande
+    private File textFile;
+    private File binaryFile;
+
+    private int created;
+
+    // CONSTRUCTEUR
+
+    public Contexte(int size, Distribution distribution, int meanDegree, long seed) {
+        Contract.checkCondition(size > 1);
+        Contract.checkCondition(distribution != null);
+        Contract.checkCondition(meanDegree >= 0);
+
+        this.size = size;
+        this.distribution = distribution;
+        this.meanDegree = meanDegree;
+        random = new Random(seed);
+
+        graph = new Graphe();
+        vertices = new ArrayList<Sommet>(size);
+        users = new ArrayList<Utilisateur>(size);
+        created = 0;
+
+        LotMutations batch = graph.beginBatch();
+        for (int i = 0; i < size; i++) {
+            Sommet s;
+            if (i % PAGE_RATIO == PAGE_RATIO - 1) {
+                s = new Page("Page" + i);
+            } else {
+                Utilisateur u = new Utilisateur("Prenom" + i, "Nom" + i, 18 + i % 60);
+                users.add(u);
+                s = u;
+            }
+            vertices.add(s);
+            batch.addVertice(s);
+
+            if (batch.size() == BUILD_BATCH) {
+                batch.commit();
+                batch = graph.beginBatch();
+            }
+        }
+        batch.commit();
+
+        for (Utilisateur u : users) {
+            link(u, distribution.degree(random, meanDegree, size - 1));
+        }
+    }
+
+    // REQUETES
+
+    /** Retourne le nombre de sommets du graphe construit
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /** Retourne la distribution des degrés du graphe
+     */
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    /** Retourne le degré sortant moyen visé des utilisateurs
+     */
+    public int getMeanDegree() {
+        return meanDegree;
+    }
+
+    /** Retourne le générateur aléatoire du contexte, pour les tirages des mesures
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /** Retourne le graphe de la configuration
+     */
+    public Graphe getGraph() {
+        return graph;
+    }
+
+    /** Retourne un sommet du graphe, tiré uniformément
+     */
+    public Sommet randomVertice() {
+        return vertices.get(random.nextInt(vertices.size()));
+    }
+
+    /** Retourne un utilisateur du graphe, tiré uniformément
+     */
+    public Utilisateur randomUser() {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    /** Retourne une cible du graphe, tirée selon la distribution
+     */
+    public Sommet randomTarget() {
+        return vertices.get(distribution.target(random, vertices.size()));
+    }
+
+    /** Retourne le fichier texte du graphe, sauvegardé à la première demande
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public File getTextFile() throws IOException {
+        if (textFile == null) {
+            textFile = File.createTempFile("banc", ".txt");
+            textFile.deleteOnExit();
+            graph.saveGraph(textFile);
+        }
+
+        return textFile;
+    }
+
+    /** Retourne le fichier binaire du graphe, sauvegardé à la première demande
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public File getBinaryFile() throws IOException {
+        if (binaryFile == null) {
+            binaryFile = File.createTempFile("banc", ".bin");
+            binaryFile.deleteOnExit();
+            graph.saveGraphBinary(binaryFile);
+        }
+
+        return binaryFile;
+    }
+
+    // COMMANDES
+
+    /** Retourne un nouvel utilisateur, qui n'est pas encore dans le graphe
+     */
+    public Utilisateur newUser() {
+        created++;
+
+        return new Utilisateur("Prenom", "Nouveau" + created, 18 + created % 60);
+    }
+
+    /** Ajoute au plus degree arcs depuis u, vers des cibles tirées selon la distribution
+     * @pre <pre>
+     *  u != null
+     *  getGraph().containsVertice(u) </pre>
+     */
+    public void link(Utilisateur u, int degree) {
+        Contract.checkCondition(u != null);
+
+        for (int k = 0; k < degree; k++) {
+            Sommet v = randomTarget();
+            if (v != u && !u.getNeighbors().contains(v)) {
+                graph.addEdge(u, v);
+            }
+        }
+    }
+
+    /** Supprime les fichiers temporaires
+     */
+    public void dispose() {
+        if (textFile != null) {
+            textFile.delete();
+        }
+        if (binaryFile != null) {
+            binaryFile.delete();
+        }
+    }
+}
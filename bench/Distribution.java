@@ -0,0 +1,65 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * Cette énumération définit les distributions des degrés des graphes de mesure.
+ *
+ * UNIFORME : les degrés sortants sont tirés uniformément autour de la moyenne
+ * et les cibles uniformément parmi les sommets.
+ * PUISSANCE : les degrés sortants suivent une loi de Pareto de même moyenne
+ * et les cibles se concentrent sur les premiers sommets, si bien que quelques
+ * sommets très suivis côtoient une majorité de sommets peu suivis.
+ */
+public enum Distribution {
+
+    UNIFORME {
+        int degree(Random random, int mean, int max) {
+            return Math.min(max, random.nextInt(2 * mean + 1));
+        }
+
+        int target(Random random, int n) {
+            return random.nextInt(n);
+        }
+    },
+
+    PUISSANCE {
+        int degree(Random random, int mean, int max) {
+            // Pareto d'exposant 2 : sa moyenne est le double de son minimum
+            double d = (mean / 2.0) / Math.sqrt(1 - random.nextDouble());
+
+            return (int) Math.min(max, d);
+        }
+
+        int target(Random random, int n) {
+            double u = random.nextDouble();
+
+            return (int) (n * u * u * u);
+        }
+    };
+
+    // REQUETES
+
+    /** Tire un degré sortant de moyenne mean, au plus max
+     * @pre <pre>
+     *  random != null
+     *  mean >= 0
+     *  max >= 0 </pre>
+     */
+    abstract int degree(Random random, int mean, int max);
+
+    /** Tire l'indice d'une cible parmi n sommets
+     * @pre <pre>
+     *  random != null
+     *  n > 0 </pre>
+     */
+    abstract int target(Random random, int n);
+
+    /** Retourne la distribution de nom name, sans tenir compte de la casse
+     * @throws <pre>
+     *  IllegalArgumentException: Aucune distribution ne porte ce nom </pre>
+     */
+    public static Distribution parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cette classe définit l'état JMH partagé par les mesures d'une configuration :
+ * le contexte (Contexte) de size sommets, de degrés tirés selon distribution,
+ * construit une fois par essai (fork et jeu de paramètres).
+ *
+ * Les paramètres se fixent en ligne de commande, par exemple
+ *  -p size=1000,1000000 -p distribution=PUISSANCE -p degree=20
+ * Le tirage du graphe est reproductible : la graine est la même à chaque essai.
+ */
+@State(Scope.Benchmark)
+public class EtatGraphe {
+
+    // CONSTANTES
+
+    private static final long SEED = 42;
+
+    // ATTRIBUTS
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"UNIFORME", "PUISSANCE"})
+    public Distribution distribution;
+
+    @Param({"10"})
+    public int degree;
+
+    private Contexte context;
+
+    // REQUETES
+
+    /** Retourne le contexte de l'essai
+     */
+    public Contexte getContext() {
+        return context;
+    }
+
+    // COMMANDES
+
+    @Setup(Level.Trial)
+    public void build() {
+        context = new Contexte(size, distribution, degree, SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        context.dispose();
+        context = null;
+    }
+}
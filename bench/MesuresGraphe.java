@@ -0,0 +1,442 @@
+package bench;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import accounts.Sommet;
+import accounts.Utilisateur;
+import graph.Chemin;
+import graph.CurseurSommets;
+import graph.Graphe;
+import graph.GrapheCSR;
+import graph.InstantaneGraphe;
+import graph.LotMutations;
+import graph.MoteurPageRank;
+import graph.OrdreSommets;
+import graph.ProfilGraphe;
+import graph.ResultatPageRank;
+
+/**
+ * Cette classe définit les mesures JMH des opérations publiques de Graphe,
+ * sur le graphe de l'état EtatGraphe.
+ *
+ * Les consultations rapides (recherche par ID ou par nom, plus court chemin) tirent
+ * leurs arguments, à chaque appel, dans un tableau préparé une fois par essai.
+ * Les mutations sont exécutées par lots de BATCH par appel, préparés et défaits hors
+ * chronométrage par un état de niveau Invocation : le graphe reste le même d'un appel à l'autre.
+ * Une opération qui dépend du numéro de modification (instantanés, distances) est précédée,
+ * hors chronométrage, d'une modification qui invalide ce qui a été calculé avant.
+ * Les résultats sont retournés, pour que JMH les consomme.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MesuresGraphe {
+
+    // CONSTANTES
+
+    // Mutations par appel des mesures de mutations
+    private static final int BATCH = 1000;
+
+    // Arguments préparés par les consultations rapides (puissance de 2)
+    private static final int DRAWS = 1 << 10;
+
+    // MUTATIONS
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addVertice(EtatGraphe g, Nouveaux n) {
+        Graphe graph = g.getContext().getGraph();
+        for (Utilisateur u : n.users) {
+            graph.addVertice(u);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void removeVertice(EtatGraphe g, NouveauxAjoutes n) {
+        Graphe graph = g.getContext().getGraph();
+        for (Utilisateur u : n.users) {
+            graph.removeVertice(u);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addEdge(EtatGraphe g, ArcsAbsents a) {
+        Graphe graph = g.getContext().getGraph();
+        for (int i = 0; i < BATCH; i++) {
+            graph.addEdge(a.sources[i], a.targets[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void removeEdge(EtatGraphe g, ArcsAjoutes a) {
+        Graphe graph = g.getContext().getGraph();
+        for (int i = 0; i < BATCH; i++) {
+            graph.removeEdge(a.sources[i], a.targets[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void commitBatch(EtatGraphe g, ArcsAbsents a) {
+        LotMutations batch = g.getContext().getGraph().beginBatch();
+        for (int i = 0; i < BATCH; i++) {
+            batch.addEdge(a.sources[i], a.targets[i]);
+        }
+        batch.commit();
+    }
+
+    // CONSULTATIONS
+
+    @Benchmark
+    public Sommet getVerticeById(EtatGraphe g, Tirages t) {
+        return g.getContext().getGraph().getVerticeById(t.ids[t.next()]);
+    }
+
+    @Benchmark
+    public Sommet getVerticeByName(EtatGraphe g, Tirages t) {
+        return g.getContext().getGraph().getVerticeByName(t.names[t.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Chemin getShortestPath(EtatGraphe g, Tirages t) {
+        int i = t.next();
+
+        return g.getContext().getGraph().getShortestPath(t.from[i], t.to[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void computeSmallestDistanceFrom(EtatGraphe g, ModifieCSR m, Tirages t) {
+        g.getContext().getGraph().computeSmallestDistanceFrom(t.from[t.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public InstantaneGraphe snapshot(EtatGraphe g, Modifie m) {
+        return g.getContext().getGraph().snapshot();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public GrapheCSR getCSR(EtatGraphe g, Modifie m) {
+        return g.getContext().getGraph().getCSR();
+    }
+
+    // Aucun index du page rank n'est construit : parcours avec un tas borné
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Sommet> getTopVerticesPageRank(EtatGraphe g) {
+        return g.getContext().getGraph().getTopVertices(OrdreSommets.PAGE_RANK, Utilisateur.class, 0, 100);
+    }
+
+    // L'index est construit au premier appel, pendant l'échauffement
+    @Benchmark
+    public List<Sommet> getVerticesCursorOutDegree(EtatGraphe g) {
+        CurseurSommets c = g.getContext().getGraph().getVerticesCursor(OrdreSommets.OUT_DEGREE, 100);
+
+        return c.nextPage();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ProfilGraphe getProfile(EtatGraphe g) {
+        return g.getContext().getGraph().getProfile();
+    }
+
+    // PAGE RANK
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void generatePageRank(EtatGraphe g) {
+        g.getContext().getGraph().generatePageRank();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ResultatPageRank generatePageRankParallel(EtatGraphe g, Moteur e) {
+        return g.getContext().getGraph().generatePageRank(e.engine);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void generatePageRankIncremental(EtatGraphe g, PageRankIncremental p) {
+        g.getContext().getGraph().generatePageRank();
+    }
+
+    // FICHIERS
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveGraph(EtatGraphe g) throws Exception {
+        Contexte c = g.getContext();
+        c.getGraph().saveGraph(c.getTextFile());
+    }
+
+    // Le graphe relu est distinct de celui du contexte, qui reste intact
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Graphe loadGraph(EtatGraphe g) throws Exception {
+        Graphe graph = new Graphe();
+        graph.loadGraph(g.getContext().getTextFile());
+
+        return graph;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveGraphBinary(EtatGraphe g) throws Exception {
+        Contexte c = g.getContext();
+        c.getGraph().saveGraphBinary(c.getBinaryFile());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Graphe loadGraphBinary(EtatGraphe g) throws Exception {
+        Graphe graph = new Graphe();
+        graph.loadGraphBinary(g.getContext().getBinaryFile());
+
+        return graph;
+    }
+
+    // ETATS
+
+    /**
+     * BATCH nouveaux utilisateurs, hors du graphe pendant l'appel
+     */
+    @State(Scope.Thread)
+    public static class Nouveaux {
+        Utilisateur[] users;
+
+        @Setup(Level.Invocation)
+        public void create(EtatGraphe g) {
+            users = new Utilisateur[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                users[i] = g.getContext().newUser();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove(EtatGraphe g) {
+            Graphe graph = g.getContext().getGraph();
+            for (Utilisateur u : users) {
+                graph.removeVertice(u);
+            }
+        }
+    }
+
+    /**
+     * BATCH nouveaux utilisateurs, ajoutés au graphe avec leurs arcs avant l'appel
+     */
+    @State(Scope.Thread)
+    public static class NouveauxAjoutes {
+        Utilisateur[] users;
+
+        @Setup(Level.Invocation)
+        public void create(EtatGraphe g) {
+            Contexte c = g.getContext();
+            users = new Utilisateur[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                users[i] = c.newUser();
+                c.getGraph().addVertice(users[i]);
+                c.link(users[i], c.getDistribution().degree(c.getRandom(), c.getMeanDegree(), c.getSize() - 1));
+            }
+            // Les nouveaux sommets sont aussi suivis, comme les autres
+            for (Utilisateur u : users) {
+                Utilisateur f = c.randomUser();
+                if (!f.getNeighbors().contains(u)) {
+                    c.getGraph().addEdge(f, u);
+                }
+            }
+        }
+    }
+
+    /**
+     * BATCH arcs absents du graphe avant l'appel, retirés après
+     */
+    @State(Scope.Thread)
+    public static class ArcsAbsents {
+        Utilisateur[] sources = new Utilisateur[BATCH];
+        Sommet[] targets = new Sommet[BATCH];
+
+        @Setup(Level.Invocation)
+        public void pick(EtatGraphe g) {
+            MesuresGraphe.pick(g.getContext(), sources, targets);
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove(EtatGraphe g) {
+            Graphe graph = g.getContext().getGraph();
+            for (int i = 0; i < BATCH; i++) {
+                graph.removeEdge(sources[i], targets[i]);
+            }
+        }
+    }
+
+    /**
+     * BATCH arcs ajoutés au graphe avant l'appel
+     */
+    @State(Scope.Thread)
+    public static class ArcsAjoutes {
+        Utilisateur[] sources = new Utilisateur[BATCH];
+        Sommet[] targets = new Sommet[BATCH];
+
+        @Setup(Level.Invocation)
+        public void add(EtatGraphe g) {
+            Graphe graph = g.getContext().getGraph();
+            MesuresGraphe.pick(g.getContext(), sources, targets);
+            for (int i = 0; i < BATCH; i++) {
+                graph.addEdge(sources[i], targets[i]);
+            }
+        }
+    }
+
+    /**
+     * Les arguments des consultations rapides, tirés une fois par essai
+     */
+    @State(Scope.Thread)
+    public static class Tirages {
+        int[] ids = new int[DRAWS];
+        String[] names = new String[DRAWS];
+        Sommet[] from = new Sommet[DRAWS];
+        Sommet[] to = new Sommet[DRAWS];
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void draw(EtatGraphe g) {
+            Contexte c = g.getContext();
+            for (int i = 0; i < DRAWS; i++) {
+                Sommet s = c.randomVertice();
+                ids[i] = s.getId();
+                names[i] = s.getName();
+                from[i] = c.randomUser();
+                to[i] = c.randomVertice();
+            }
+            cursor = 0;
+        }
+
+        int next() {
+            return cursor++ & (DRAWS - 1);
+        }
+    }
+
+    /**
+     * Un arc ajouté puis retiré avant l'appel, ce qui change deux fois le numéro de modification
+     */
+    @State(Scope.Thread)
+    public static class Modifie {
+
+        @Setup(Level.Invocation)
+        public void touch(EtatGraphe g) {
+            MesuresGraphe.touch(g.getContext());
+        }
+    }
+
+    /**
+     * Comme Modifie, puis l'instantané CSR est reconstruit : seul le parcours reste à mesurer
+     */
+    @State(Scope.Thread)
+    public static class ModifieCSR {
+
+        @Setup(Level.Invocation)
+        public void touch(EtatGraphe g) {
+            MesuresGraphe.touch(g.getContext());
+            g.getContext().getGraph().getCSR();
+        }
+    }
+
+    /**
+     * Le moteur du page rank parallèle ; l'instantané CSR est construit avant la mesure
+     */
+    @State(Scope.Thread)
+    public static class Moteur {
+        final MoteurPageRank engine = new MoteurPageRank();
+
+        @Setup(Level.Trial)
+        public void prepare(EtatGraphe g) {
+            g.getContext().getGraph().getCSR();
+        }
+    }
+
+    /**
+     * Un page rank incrémental à jour, puis BATCH / 10 arcs ajoutés avant l'appel
+     */
+    @State(Scope.Thread)
+    public static class PageRankIncremental {
+        Utilisateur[] sources = new Utilisateur[BATCH / 10];
+        Sommet[] targets = new Sommet[BATCH / 10];
+
+        @Setup(Level.Invocation)
+        public void add(EtatGraphe g) {
+            Graphe graph = g.getContext().getGraph();
+            graph.setIncrementalPageRank(true);
+            graph.generatePageRank();
+
+            MesuresGraphe.pick(g.getContext(), sources, targets);
+            for (int i = 0; i < sources.length; i++) {
+                graph.addEdge(sources[i], targets[i]);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove(EtatGraphe g) {
+            Graphe graph = g.getContext().getGraph();
+            for (int i = 0; i < sources.length; i++) {
+                graph.removeEdge(sources[i], targets[i]);
+            }
+            graph.setIncrementalPageRank(false);
+        }
+    }
+
+    // OUTILS
+
+    // Tire des arcs absents du graphe, deux à deux distincts
+    private static void pick(Contexte c, Utilisateur[] sources, Sommet[] targets) {
+        Set<Long> picked = new HashSet<Long>();
+
+        for (int i = 0; i < sources.length; i++) {
+            Utilisateur s;
+            Sommet v;
+            do {
+                s = c.randomUser();
+                v = c.randomTarget();
+            } while (s == v || s.getNeighbors().contains(v)
+                    || !picked.add(((long) s.getId() << 32) | v.getId()));
+
+            sources[i] = s;
+            targets[i] = v;
+        }
+    }
+
+    // Ajoute puis retire un arc, ce qui change deux fois le numéro de modification
+    private static void touch(Contexte c) {
+        Utilisateur[] s = new Utilisateur[1];
+        Sommet[] v = new Sommet[1];
+        pick(c, s, v);
+
+        c.getGraph().addEdge(s[0], v[0]);
+        c.getGraph().removeEdge(s[0], v[0]);
+    }
+}
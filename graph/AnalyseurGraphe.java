@@ -0,0 +1,174 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit l'analyseur qui calcule le profil (ProfilGraphe) d'un instantané du graphe.
+ *
+ * Tous les comptes sont relevés en un seul parcours de l'instantané CSR, découpé en tranches
+ * de sommets traitées dans un ForkJoinPool. Chaque tranche cumule ses comptes à part,
+ * sans synchronisation ; les comptes des tranches sont fusionnés en remontant le découpage.
+ * La réciprocité d'un arc u -> v se teste par dichotomie de v parmi les sources des arcs
+ * entrants de u : le parcours coûte O(V + E log(degré)).
+ *
+ * @cons <pre>
+ * $DESC$ Un analyseur qui découpe le calcul dans le pool commun
+ * $POST$
+ *  getPool() == ForkJoinPool.commonPool() </pre>
+ */
+public class AnalyseurGraphe {
+
+    // CONSTANTES
+
+    // Nombre minimal de sommets + arcs traités par une tâche
+    private static final int GRAIN = 1 << 14;
+
+    // ATTRIBUTS
+
+    private ForkJoinPool pool;
+
+    // CONSTRUCTEUR
+
+    public AnalyseurGraphe() {
+        pool = ForkJoinPool.commonPool();
+    }
+
+    // REQUETES
+
+    /** Retourne le pool dans lequel le calcul est découpé
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /** Calcule le profil de l'instantané snap
+     * @pre <pre>
+     *  snap != null </pre>
+     * @post <pre>
+     *  result.getEpoch() == snap.getEpoch()
+     *  result.getVerticesNb() == snap.getVerticesNb()
+     *  result.getEdgesNb() == snap.getEdgesNb() </pre>
+     */
+    public ProfilGraphe compute(InstantaneGraphe snap) {
+        Contract.checkCondition(snap != null);
+
+        long start = System.nanoTime();
+        GrapheCSR g = snap.getCSR();
+
+        ProfilGraphe.Cumul c = g.getVerticesNb() == 0
+            ? new ProfilGraphe.Cumul()
+            : pool.invoke(new Tranche(snap, g, 0, g.getVerticesNb()));
+        c.trimHistograms();
+
+        return new ProfilGraphe(snap.getEpoch(), System.nanoTime() - start, c);
+    }
+
+    // COMMANDES
+
+    /** Fixe le pool dans lequel le calcul est découpé
+     * @pre <pre>
+     *  pool != null </pre>
+     */
+    public void setPool(ForkJoinPool pool) {
+        Contract.checkCondition(pool != null);
+
+        this.pool = pool;
+    }
+
+    // OUTILS
+
+    /**
+     * Les comptes des sommets [from, to[ de l'instantané
+     */
+    @SuppressWarnings("serial")
+    private static class Tranche extends RecursiveTask<ProfilGraphe.Cumul> {
+
+        private final InstantaneGraphe snap;
+        private final GrapheCSR g;
+        private final int from;
+        private final int to;
+
+        Tranche(InstantaneGraphe snap, GrapheCSR g, int from, int to) {
+            this.snap = snap;
+            this.g = g;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected ProfilGraphe.Cumul compute() {
+            int work = (to - from) + (g.getOutEnd(to - 1) - g.getOutStart(from));
+            if (to - from > 1 && work > GRAIN) {
+                int mid = (from + to) >>> 1;
+                Tranche left = new Tranche(snap, g, from, mid);
+                Tranche right = new Tranche(snap, g, mid, to);
+                left.fork();
+                ProfilGraphe.Cumul r = right.compute();
+                ProfilGraphe.Cumul l = left.join();
+                l.merge(r);
+
+                return l;
+            }
+
+            return count();
+        }
+
+        private ProfilGraphe.Cumul count() {
+            ProfilGraphe.Cumul c = new ProfilGraphe.Cumul();
+            int[] out = g.getOutTargets();
+            int[] in = g.getInTargets();
+
+            for (int i = from; i < to; i++) {
+                Sommet s = g.getVertice(i);
+                int outDegree = g.getOutDegree(i);
+                int inDegree = g.getInDegree(i);
+
+                c.edges += outDegree;
+                c.outDegrees[ProfilGraphe.bucket(outDegree)]++;
+                c.inDegrees[ProfilGraphe.bucket(inDegree)]++;
+                c.maxOutDegree = Math.max(c.maxOutDegree, outDegree);
+                c.maxInDegree = Math.max(c.maxInDegree, inDegree);
+                if (outDegree == 0) {
+                    c.dangling++;
+                    if (inDegree == 0) {
+                        c.isolated++;
+                    }
+                }
+
+                // Les sources des arcs entrants de i sont rangées par indice croissant
+                for (int k = g.getOutStart(i); k < g.getOutEnd(i); k++) {
+                    int j = out[k];
+                    if (j == i) {
+                        c.selfLoops++;
+                    } else if (Arrays.binarySearch(in, g.getInStart(i), g.getInEnd(i), j) >= 0) {
+                        c.reciprocal++;
+                    }
+                }
+
+                if (s instanceof Utilisateur) {
+                    int age = ((Utilisateur) s).getAge();
+                    c.users++;
+                    c.ageSum += age;
+                    c.ages = ProfilGraphe.Cumul.increment(c.ages, age);
+                    if (outDegree == 0) {
+                        c.danglingUsers++;
+                    }
+                } else {
+                    // s vient de l'instantané : inutile de vérifier qu'il lui appartient
+                    int admins = snap.admins((Page) s).size();
+                    c.pages++;
+                    c.adminLinks += admins;
+                    c.admins = ProfilGraphe.Cumul.increment(c.admins, admins);
+                }
+            }
+
+            return c;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package graph;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit un cache borné des distances calculées depuis une source.
+ *
+ * Chaque entrée conserve le tableau de distances d'une source (4 octets par sommet)
+ * et le numéro de modification du graphe au moment du calcul. Elle garde aussi en vie
+ * l'instantané CSR sur lequel les distances ont été calculées : la mémoire de chaque
+ * instantané est comptée une fois, tant qu'une entrée au moins s'y rapporte.
+ * Les entrées sont évincées de la moins récemment utilisée à la plus récente dès que
+ * le nombre d'entrées ou la mémoire occupée dépasse sa borne, et toutes invalidées
+ * au premier accès qui suit une modification du graphe.
+ * Les numéros de modification ne font qu'avancer : un accès portant un numéro plus
+ * ancien que le dernier vu (un calcul qui a croisé une modification) ne vide pas le cache,
+ * et ses distances ne sont pas enregistrées.
+ * Les méthodes sont synchronisées : le cache peut être consulté depuis plusieurs threads.
+ *
+ * @cons <pre>
+ * $DESC$ Un cache vide de bornes données
+ * $ARGS$ int maxEntries, long maxBytes
+ * $PRE$
+ *  maxEntries > 0
+ *  maxBytes > 0
+ * $POST$
+ *  getMaxEntries() == maxEntries
+ *  getMaxBytes() == maxBytes
+ *  size() == 0 </pre>
+ */
+public class CacheDistances {
+
+    // CONSTANTES
+
+    // Coût approximatif d'une entrée hors tableau de distances
+    private static final long ENTRY_OVERHEAD = 96;
+
+    // Coût approximatif d'un instantané CSR : par sommet, sa case dans le tableau des sommets,
+    // son entrée dans la table des indices et ses deux positions ; par arc, ses deux cibles
+    private static final long CSR_OVERHEAD = 64;
+    private static final long CSR_BYTES_PER_VERTEX = 8 + 48 + 8;
+    private static final long CSR_BYTES_PER_EDGE = 8;
+
+    // ATTRIBUTS
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Ordre d'accès : la première entrée est la moins récemment utilisée
+    private final LinkedHashMap<Sommet, Entree> entries;
+    private long bytes;
+
+    // Nombre d'entrées par instantané CSR gardé en vie
+    private final Map<GrapheCSR, Integer> graphs;
+
+    // Numéro de modification du graphe vu lors du dernier accès
+    private long epoch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    // CONSTRUCTEUR
+
+    public CacheDistances(int maxEntries, long maxBytes) {
+        Contract.checkCondition(maxEntries > 0);
+        Contract.checkCondition(maxBytes > 0);
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<Sommet, Entree>(16, 0.75f, true);
+        graphs = new IdentityHashMap<GrapheCSR, Integer>();
+        bytes = 0;
+    }
+
+    // REQUETES
+
+    /** Retourne le nombre maximal d'entrées
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /** Retourne la mémoire maximale occupée par les entrées, en octets
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Retourne le nombre d'entrées
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Retourne l'estimation de la mémoire occupée par les entrées et les instantanés
+     *  qu'elles gardent en vie, en octets
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /** Retourne le nombre de recherches satisfaites par le cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Retourne le nombre de recherches non satisfaites par le cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Retourne la proportion de recherches satisfaites, 0 si aucune recherche
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** Retourne le nombre d'entrées évincées pour respecter les bornes
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Retourne le nombre d'entrées ignorées car calculées sur un graphe modifié depuis
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /** Retourne les distances depuis source calculées au numéro de modification epoch,
+     *  null si elles ne sont pas dans le cache
+     * @pre <pre>
+     *  source != null </pre>
+     */
+    public synchronized ResultatDistances get(Sommet source, long epoch) {
+        Contract.checkCondition(source != null);
+
+        sync(epoch);
+        Entree e = epoch == this.epoch ? entries.get(source) : null;
+
+        if (e == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return e.result;
+    }
+
+    public synchronized String toString() {
+        return "{entries = " + entries.size() + ", bytes = " + bytes
+            + ", hits = " + hits + ", misses = " + misses
+            + ", evictions = " + evictions + ", invalidations = " + invalidations + "}";
+    }
+
+    // COMMANDES
+
+    /** Enregistre les distances depuis source calculées au numéro de modification epoch,
+     *  sauf si le cache a déjà vu un numéro plus récent
+     * @pre <pre>
+     *  source != null
+     *  result != null </pre>
+     * @post <pre>
+     *  size() <= getMaxEntries()
+     *  getBytes() <= getMaxBytes() || size() == 1 </pre>
+     */
+    public synchronized void put(Sommet source, ResultatDistances result, long epoch) {
+        Contract.checkCondition(source != null);
+        Contract.checkCondition(result != null);
+
+        sync(epoch);
+        if (epoch != this.epoch) {
+            return;
+        }
+
+        Entree old = entries.get(source);
+        if (old != null) {
+            remove(source, old);
+        }
+
+        Entree e = new Entree(result);
+        entries.put(source, e);
+        retain(e);
+
+        // On garde toujours la dernière entrée, même si elle dépasse seule la borne
+        Iterator<Map.Entry<Sommet, Entree>> it = entries.entrySet().iterator();
+        while (entries.size() > 1 && (entries.size() > maxEntries || bytes > maxBytes)) {
+            Map.Entry<Sommet, Entree> eldest = it.next();
+            it.remove();
+            release(eldest.getValue());
+            evictions++;
+        }
+    }
+
+    /** Vide le cache, sans remettre à zéro les statistiques
+     * @post <pre>
+     *  size() == 0 </pre>
+     */
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        graphs.clear();
+        bytes = 0;
+    }
+
+    // OUTILS
+
+    // Le graphe a changé depuis le dernier accès : toutes les entrées sont périmées,
+    // on libère leur mémoire d'un coup. Un numéro plus ancien ne change rien
+    private void sync(long epoch) {
+        if (epoch > this.epoch) {
+            clear();
+            this.epoch = epoch;
+        }
+    }
+
+    private void remove(Sommet source, Entree e) {
+        entries.remove(source);
+        release(e);
+    }
+
+    // Compte la mémoire de l'entrée e, et celle de son instantané s'il n'était pas déjà gardé
+    private void retain(Entree e) {
+        GrapheCSR g = e.result.getGraph();
+        Integer n = graphs.get(g);
+
+        graphs.put(g, n == null ? 1 : n + 1);
+        bytes += e.bytes + (n == null ? csrBytes(g) : 0);
+    }
+
+    // Décompte la mémoire de l'entrée e, et celle de son instantané si plus rien ne le garde
+    private void release(Entree e) {
+        GrapheCSR g = e.result.getGraph();
+        int n = graphs.get(g);
+
+        if (n == 1) {
+            graphs.remove(g);
+            bytes -= csrBytes(g);
+        } else {
+            graphs.put(g, n - 1);
+        }
+        bytes -= e.bytes;
+    }
+
+    private static long csrBytes(GrapheCSR g) {
+        return CSR_OVERHEAD + CSR_BYTES_PER_VERTEX * g.getVerticesNb() + CSR_BYTES_PER_EDGE * g.getEdgesNb();
+    }
+
+    private static class Entree {
+        final ResultatDistances result;
+        final long bytes;
+
+        Entree(ResultatDistances result) {
+            this.result = result;
+            this.bytes = ENTRY_OVERHEAD + 4L * result.getGraph().getVerticesNb();
+        }
+    }
+}
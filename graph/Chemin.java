@@ -0,0 +1,66 @@
+package graph;
+
+import java.util.Collections;
+import java.util.List;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit un plus court chemin entre deux sommets du graphe
+ *
+ * @cons <pre>
+ * $DESC$ Le chemin passant par les sommets donnés, dans l'ordre
+ * $ARGS$ List<Sommet> vertices
+ * $PRE$
+ *  vertices != null
+ *  vertices.size() > 0
+ * $POST$
+ *  getVertices().equals(vertices)
+ *  getDistance() == vertices.size() - 1 </pre>
+ */
+public class Chemin {
+
+    // ATTRIBUTS
+
+    private final List<Sommet> vertices;
+
+    // CONSTRUCTEUR
+
+    public Chemin(List<Sommet> vertices) {
+        Contract.checkCondition(vertices != null);
+        Contract.checkCondition(vertices.size() > 0);
+
+        this.vertices = Collections.unmodifiableList(vertices);
+    }
+
+    // REQUETES
+
+    /** Retourne le sommet de départ
+     */
+    public Sommet getSource() {
+        return vertices.get(0);
+    }
+
+    /** Retourne le sommet d'arrivée
+     */
+    public Sommet getTarget() {
+        return vertices.get(vertices.size() - 1);
+    }
+
+    /** Retourne la longueur du chemin en nombre d'arcs
+     */
+    public int getDistance() {
+        return vertices.size() - 1;
+    }
+
+    /** Retourne les sommets du chemin, du départ à l'arrivée
+     */
+    public List<Sommet> getVertices() {
+        return vertices;
+    }
+
+    public String toString() {
+        return vertices.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package graph;
+
+import java.util.List;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit le contenu d'un graphe relu depuis un fichier :
+ * ses sommets, déjà reliés entre eux, leur registre, le prochain ID à attribuer
+ * et le numéro de la dernière mutation journalisée qu'il contient
+ *
+ * @cons <pre>
+ * $DESC$ Le contenu formé des sommets, du registre, du prochain ID et du numéro de mutation donnés
+ * $ARGS$ List<Sommet> vertices, RegistreSommets registry, int nextId, long lsn
+ * $PRE$
+ *  vertices != null
+ *  registry != null
+ *  nextId > 0
+ *  lsn >= 0 </pre>
+ */
+class ContenuGraphe {
+
+    // ATTRIBUTS
+
+    private final List<Sommet> vertices;
+    private final RegistreSommets registry;
+    private final int nextId;
+    private final long lsn;
+
+    // CONSTRUCTEUR
+
+    ContenuGraphe(List<Sommet> vertices, RegistreSommets registry, int nextId, long lsn) {
+        Contract.checkCondition(vertices != null);
+        Contract.checkCondition(registry != null);
+        Contract.checkCondition(nextId > 0);
+        Contract.checkCondition(lsn >= 0);
+
+        this.vertices = vertices;
+        this.registry = registry;
+        this.nextId = nextId;
+        this.lsn = lsn;
+    }
+
+    // REQUETES
+
+    /** Retourne les sommets, dans l'ordre du fichier
+     */
+    List<Sommet> getVertices() {
+        return vertices;
+    }
+
+    /** Retourne le registre des sommets
+     */
+    RegistreSommets getRegistry() {
+        return registry;
+    }
+
+    /** Retourne le prochain ID à attribuer
+     */
+    int getNextId() {
+        return nextId;
+    }
+
+    /** Retourne le numéro de la dernière mutation journalisée contenue, 0 si aucune
+     */
+    long getLsn() {
+        return lsn;
+    }
+}
@@ -0,0 +1,95 @@
+package graph;
+
+import java.util.List;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit un curseur en lecture seule sur les sommets du graphe
+ * dans l'ordre d'un index, qui les retourne par pages de getPageSize() sommets.
+ *
+ * Le curseur retient le dernier sommet retourné, et non une position : chaque page
+ * reprend juste après lui dans l'index, tel qu'il est au moment de la lecture.
+ * Les mutations faites entre deux pages ne décalent donc pas les suivantes ;
+ * seul un sommet dont la clé change entre deux pages peut être retourné deux fois, ou omis.
+ * Un curseur ne doit être utilisé que par un thread à la fois.
+ *
+ * @cons <pre>
+ * $DESC$ Un curseur au début de l'index index, par pages de pageSize sommets
+ * $ARGS$ IndexSommets index, int pageSize
+ * $PRE$
+ *  index != null
+ *  pageSize > 0
+ * $POST$
+ *  getOrder() == index.getOrder()
+ *  getPageSize() == pageSize
+ *  getPosition() == 0 </pre>
+ */
+public final class CurseurSommets {
+
+    // ATTRIBUTS
+
+    private final IndexSommets index;
+    private final int pageSize;
+
+    // Dernière entrée retournée, null au début de l'index
+    private IndexSommets.Entree last;
+    private int position;
+
+    // CONSTRUCTEUR
+
+    CurseurSommets(IndexSommets index, int pageSize) {
+        Contract.checkCondition(index != null);
+        Contract.checkCondition(pageSize > 0);
+
+        this.index = index;
+        this.pageSize = pageSize;
+        last = null;
+        position = 0;
+    }
+
+    // REQUETES
+
+    /** Retourne l'ordre des sommets du curseur
+     */
+    public OrdreSommets getOrder() {
+        return index.getOrder();
+    }
+
+    /** Retourne le nombre maximal de sommets d'une page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** Retourne le nombre de sommets déjà retournés par le curseur
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /** Indique si au moins un sommet suit le dernier sommet retourné
+     */
+    public boolean hasNextPage() {
+        return index.after(last) != null;
+    }
+
+    // COMMANDES
+
+    /** Retourne la page suivante, en lecture seule : au plus getPageSize() sommets,
+     *  aucun si le curseur est à la fin de l'index
+     * @post <pre>
+     *  result.size() <= getPageSize()
+     *  getPosition() == (old) getPosition() + result.size() </pre>
+     */
+    public List<Sommet> nextPage() {
+        IndexSommets.Entree[] end = new IndexSommets.Entree[] {last};
+        List<Sommet> page = index.page(last, pageSize, end);
+
+        last = end[0];
+        position += page.size();
+
+        return page;
+    }
+}
@@ -0,0 +1,371 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import accounts.Sommet;
+import metrics.Compteur;
+import util.Contract;
+
+/**
+ * Cette classe définit la diffusion des événements d'un graphe à ses écouteurs.
+ *
+ * Le graphe publie chaque événement sous les verrous de la modification, ce qui range les événements
+ * de chaque écouteur dans l'ordre des changements, puis les livre (flush) une fois ses verrous relâchés.
+ * Un écouteur synchrone reçoit ainsi ses événements dans le thread qui modifie le graphe, hors de tout
+ * verrou du graphe, sauf pendant une retenue (hold) : il reçoit alors tous les événements retenus d'un coup.
+ * Les appels d'un même écouteur ne se chevauchent pas et se suivent dans l'ordre des changements :
+ * les événements publiés pendant un appel, même par l'écouteur, sont livrés par l'appel suivant.
+ * Un écouteur asynchrone reçoit, par son Executor, les événements regroupés sur une fenêtre :
+ * le premier événement d'une fenêtre vide programme la livraison après window millisecondes.
+ *
+ * Dans une fenêtre, les changements qui s'annulent sont omis : ajout puis suppression
+ * d'un même arc ou d'un même lien d'administration, et ajout puis suppression d'un même
+ * sommet, avec les événements qui le concernent entre les deux. GRAPH_RELOADED remplace
+ * tous les événements qui le précèdent, et une fenêtre trop longue se réduit à GRAPH_RELOADED.
+ *
+ * @cons <pre>
+ * $DESC$ Une diffusion sans écouteur
+ * $POST$
+ *  !isHeld() </pre>
+ */
+class DiffusionEvenements {
+
+    // CONSTANTES
+
+    // Au-delà, il est plus simple pour un écouteur de tout relire
+    private static final int MAX_WINDOW_EVENTS = 1 << 16;
+
+    // ATTRIBUTS
+
+    private final List<Abonnement> subscriptions;
+    private volatile int held;
+
+    // Programmation des livraisons asynchrones, créée au premier abonnement asynchrone
+    private ScheduledExecutorService scheduler;
+
+    // Nombre d'événements livrés, null s'ils ne sont pas comptés
+    private volatile Compteur delivered;
+
+    // CONSTRUCTEUR
+
+    DiffusionEvenements() {
+        subscriptions = new CopyOnWriteArrayList<Abonnement>();
+        held = 0;
+        scheduler = null;
+        delivered = null;
+    }
+
+    // REQUETES
+
+    /** Indique si les livraisons synchrones sont retenues
+     */
+    boolean isHeld() {
+        return held > 0;
+    }
+
+    // COMMANDES
+
+    /** Abonne l'écouteur synchrone listener
+     * @pre <pre>
+     *  listener != null </pre>
+     */
+    void subscribe(EcouteurGraphe listener) {
+        Contract.checkCondition(listener != null);
+
+        subscriptions.add(new Abonnement(listener, null, 0));
+    }
+
+    /** Abonne l'écouteur listener, livré par executor avec une fenêtre de window millisecondes
+     * @pre <pre>
+     *  listener != null
+     *  executor != null
+     *  window >= 0 </pre>
+     */
+    synchronized void subscribe(EcouteurGraphe listener, Executor executor, long window) {
+        Contract.checkCondition(listener != null);
+        Contract.checkCondition(executor != null);
+        Contract.checkCondition(window >= 0);
+
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "graphe-événements");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            s.setRemoveOnCancelPolicy(true);
+            scheduler = s;
+        }
+
+        subscriptions.add(new Abonnement(listener, executor, window));
+    }
+
+    /** Désabonne l'écouteur listener ; ses événements non livrés sont perdus
+     */
+    void unsubscribe(EcouteurGraphe listener) {
+        for (Abonnement a : subscriptions) {
+            if (a.listener == listener) {
+                subscriptions.remove(a);
+                synchronized (a) {
+                    a.window.drain();
+                }
+            }
+        }
+    }
+
+    /** Range l'événement e parmi ceux à livrer aux écouteurs ; les écouteurs asynchrones
+     *  le reçoivent à la fin de leur fenêtre, les écouteurs synchrones au prochain flush()
+     * @pre <pre>
+     *  e != null </pre>
+     */
+    void publish(EvenementGraphe e) {
+        Contract.checkCondition(e != null);
+
+        for (Abonnement a : subscriptions) {
+            boolean schedule;
+            synchronized (a) {
+                a.window.add(e);
+                schedule = a.executor != null && !a.scheduled;
+                if (schedule) {
+                    a.scheduled = true;
+                }
+            }
+
+            if (schedule) {
+                scheduler.schedule(a, a.delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Livre aux écouteurs synchrones les événements publiés, sauf pendant une retenue ;
+     *  à appeler sans tenir aucun verrou du graphe
+     */
+    void flush() {
+        if (held > 0) {
+            return;
+        }
+
+        for (Abonnement a : subscriptions) {
+            if (a.executor == null) {
+                a.deliver();
+            }
+        }
+    }
+
+    /** Compte dans counter les événements livrés aux écouteurs ; null arrête de les compter
+     */
+    void setDeliveryCounter(Compteur counter) {
+        delivered = counter;
+    }
+
+    /** Retient les livraisons synchrones jusqu'à l'appel correspondant de release() ;
+     *  appelé sous le verrou du graphe en écriture
+     */
+    void hold() {
+        held++;
+    }
+
+    /** Met fin à une retenue ; le flush() suivant la dernière livre les événements retenus.
+     *  Appelé sous le verrou du graphe en écriture
+     * @pre <pre>
+     *  isHeld() </pre>
+     */
+    void release() {
+        Contract.checkCondition(held > 0);
+
+        held--;
+    }
+
+    // OUTILS
+
+    /**
+     * Un écouteur et sa fenêtre d'événements non livrés.
+     * Exécuté par le programmateur à la fin de la fenêtre, il confie la livraison à l'Executor.
+     */
+    private class Abonnement implements Runnable {
+        final EcouteurGraphe listener;
+        final Executor executor;
+        final long delay;
+        final Fenetre window;
+        boolean scheduled;
+
+        // Vrai pendant un appel de l'écouteur : les appels ne se chevauchent pas
+        boolean delivering;
+
+        Abonnement(EcouteurGraphe listener, Executor executor, long delay) {
+            this.listener = listener;
+            this.executor = executor;
+            this.delay = delay;
+            window = new Fenetre();
+            scheduled = false;
+            delivering = false;
+        }
+
+        public void run() {
+            executor.execute(new Runnable() {
+                public void run() {
+                    deliver();
+                }
+            });
+        }
+
+        // Les événements arrivés d'ici la livraison rejoignent le même appel. Pendant un appel,
+        // celui qui le fait livre aussi ce qui arrive entre-temps, y compris les changements faits
+        // par l'écouteur lui-même : l'appel suivant les porte, sans attendre ni imbriquer d'appel.
+        // Une retenue commencée depuis flush() est vue ici : ses événements sont publiés après held++
+        void deliver() {
+            while (true) {
+                List<EvenementGraphe> events;
+                synchronized (this) {
+                    if (delivering || (executor == null && held > 0)) {
+                        return;
+                    }
+                    events = window.drain();
+                    scheduled = false;
+                    if (events.isEmpty()) {
+                        return;
+                    }
+                    delivering = true;
+                }
+
+                try {
+                    listener.graphChanged(events);
+                } finally {
+                    synchronized (this) {
+                        delivering = false;
+                    }
+                }
+
+                Compteur c = delivered;
+                if (c != null) {
+                    c.add(events.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Les événements d'une fenêtre ; un événement annulé laisse une case null
+     */
+    private static class Fenetre {
+        private List<EvenementGraphe> events = new ArrayList<EvenementGraphe>();
+
+        // Position du dernier événement de chaque sommet, arc ou lien d'administration
+        private Map<Cle, Integer> last = new HashMap<Cle, Integer>();
+        private int count = 0;
+
+        void add(EvenementGraphe e) {
+            if (e.getType() == EvenementGraphe.Type.GRAPH_RELOADED || events.size() >= MAX_WINDOW_EVENTS) {
+                reload(e.getEpoch());
+                return;
+            }
+
+            Cle key = new Cle(e);
+            Integer i = last.get(key);
+            EvenementGraphe previous = i != null ? events.get(i) : null;
+
+            if (previous != null && previous.isAdded() && !e.isAdded()) {
+                if (e.getType() == EvenementGraphe.Type.VERTEX_REMOVED) {
+                    // Le sommet n'a existé que dans la fenêtre : on oublie tout ce qui le concerne
+                    for (int k = i; k < events.size(); k++) {
+                        if (events.get(k) != null && events.get(k).concerns(e.getSource())) {
+                            events.set(k, null);
+                            count--;
+                        }
+                    }
+                } else {
+                    events.set(i, null);
+                    count--;
+                }
+                last.remove(key);
+                return;
+            }
+
+            if (previous != null && !previous.isAdded() && e.isAdded()
+                    && e.getType() != EvenementGraphe.Type.VERTEX_ADDED) {
+                // Arc ou lien retiré puis rétabli
+                events.set(i, null);
+                count--;
+                last.remove(key);
+                return;
+            }
+
+            last.put(key, events.size());
+            events.add(e);
+            count++;
+        }
+
+        List<EvenementGraphe> drain() {
+            List<EvenementGraphe> result = new ArrayList<EvenementGraphe>(count);
+            for (EvenementGraphe e : events) {
+                if (e != null) {
+                    result.add(e);
+                }
+            }
+
+            events = new ArrayList<EvenementGraphe>();
+            last.clear();
+            count = 0;
+
+            return result;
+        }
+
+        private void reload(long epoch) {
+            events.clear();
+            last.clear();
+            events.add(EvenementGraphe.graphReloaded(epoch));
+            count = 1;
+        }
+    }
+
+    /**
+     * Ce que désigne un événement : un sommet, un arc ou un lien d'administration,
+     * les sommets étant comparés par identité
+     */
+    private static class Cle {
+        final int kind;
+        final Sommet source;
+        final Sommet target;
+
+        Cle(EvenementGraphe e) {
+            switch (e.getType()) {
+                case VERTEX_ADDED:
+                case VERTEX_REMOVED:
+                    kind = 0;
+                    break;
+                case EDGE_ADDED:
+                case EDGE_REMOVED:
+                    kind = 1;
+                    break;
+                default:
+                    kind = 2;
+                    break;
+            }
+            source = e.getSource();
+            target = e.getTarget();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Cle)) {
+                return false;
+            }
+            Cle c = (Cle) o;
+
+            return kind == c.kind && source == c.source && target == c.target;
+        }
+
+        public int hashCode() {
+            return (kind * 31 + System.identityHashCode(source)) * 31 + System.identityHashCode(target);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package graph;
+
+import java.util.List;
+
+/**
+ * Cette interface définit les écouteurs des changements d'un graphe
+ */
+public interface EcouteurGraphe {
+
+    /** Reçoit, dans l'ordre où ils sont survenus, les changements du graphe depuis l'appel précédent.
+     *  Les changements qui s'annulent dans une même fenêtre de regroupement sont omis.
+     * @pre <pre>
+     *  events != null && !events.isEmpty() </pre>
+     */
+    void graphChanged(List<EvenementGraphe> events);
+}
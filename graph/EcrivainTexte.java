@@ -0,0 +1,358 @@
+package graph;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit l'écriture du format texte du graphe, relu par LecteurTexte.
+ *
+ * Les enregistrements sont écrits directement dans un tampon réutilisé,
+ * vidé dans le canal dès qu'il est plein : aucune chaîne intermédiaire
+ * n'est construite, les entiers sont encodés chiffre par chiffre et seuls
+ * les noms passent par l'encodeur du jeu de caractères.
+ * Tout le texte écrit forme une seule suite pour l'encodeur : un jeu de caractères qui commence
+ * par une marque d'ordre des octets (UTF-16) ne l'écrit qu'au début. Pour un tel jeu, les
+ * fragments fixes et les chiffres, dont l'encodage dépend de ce qui précède, passent aussi par l'encodeur.
+ * L'avancement est signalé, en sommets écrits, tous les PROGRESS_STEP sommets.
+ * Des enregistrements isolés, sans sommet derrière eux, peuvent aussi être écrits
+ * entre begin() et end() : c'est ainsi que GenerateurGraphe produit un fichier sans construire le graphe.
+ *
+ * @cons <pre>
+ * $DESC$ Un écrivain dans le jeu de caractères charset
+ * $ARGS$ Charset charset
+ * $PRE$
+ *  charset != null
+ *  charset.canEncode() </pre>
+ */
+final class EcrivainTexte {
+
+    // CONSTANTES
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_STEP = 1 << 12;
+
+    // Fragments fixes du format
+    private static final String ID = "{id = ";
+    private static final String NAME = ", name = ";
+    private static final String FIRSTNAME = ", firstname = ";
+    private static final String AGE = ", age = ";
+    private static final String NEIGHBORS = ", neighbors = [";
+    private static final String ADMINS = ", admins = [";
+    private static final String SEPARATOR = ", ";
+    private static final String END = "]}\n";
+
+    // ATTRIBUTS
+
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+
+    // Fragments fixes du format, encodés une fois pour toutes ; null si leur encodage dépend de ce qui précède
+    private final byte[] id;
+    private final byte[] name;
+    private final byte[] firstname;
+    private final byte[] age;
+    private final byte[] neighbors;
+    private final byte[] admins;
+    private final byte[] separator;
+    private final byte[] end;
+
+    // Encodage des chiffres 0 à 9, null s'ils ne tiennent pas chacun sur un octet
+    private final byte[] digits;
+    private final byte[] scratch;
+
+    private WritableByteChannel channel;
+
+    // CONSTRUCTEUR
+
+    EcrivainTexte(Charset charset) {
+        Contract.checkCondition(charset != null);
+        Contract.checkCondition(charset.canEncode());
+
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        boolean stateless = encode(ID + END).length == encode(ID).length + encode(END).length;
+
+        id = stateless ? encode(ID) : null;
+        name = stateless ? encode(NAME) : null;
+        firstname = stateless ? encode(FIRSTNAME) : null;
+        age = stateless ? encode(AGE) : null;
+        neighbors = stateless ? encode(NEIGHBORS) : null;
+        admins = stateless ? encode(ADMINS) : null;
+        separator = stateless ? encode(SEPARATOR) : null;
+        end = stateless ? encode(END) : null;
+
+        byte[] d = encode("0123456789");
+        digits = stateless && d.length == 10 ? d : null;
+        scratch = new byte[10];
+    }
+
+    // COMMANDES
+
+    /** Écrit les sommets de l'instantané snapshot dans channel, une ligne par sommet,
+     *  et signale l'avancement à progress s'il n'est pas null
+     * @pre <pre>
+     *  snapshot != null
+     *  channel != null && channel.isOpen() </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie, InterruptedIOException si le thread est interrompu </pre>
+     */
+    void write(InstantaneGraphe snapshot, WritableByteChannel channel, Progression progress)
+            throws IOException {
+        Contract.checkCondition(snapshot != null);
+        Contract.checkCondition(channel != null && channel.isOpen());
+
+        this.channel = channel;
+        buffer.clear();
+        encoder.reset();
+
+        long total = snapshot.getVerticesNb();
+        long done = 0;
+
+        try {
+            for (Sommet s : snapshot.getVertices()) {
+                if (done % PROGRESS_STEP == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Écriture interrompue");
+                    }
+                    if (progress != null) {
+                        progress.progressed(done, total);
+                    }
+                }
+                done++;
+
+                if (s instanceof Utilisateur) {
+                    Utilisateur u = (Utilisateur) s;
+                    put(id, ID);
+                    putInt(u.getId());
+                    put(name, NAME);
+                    putString(u.getName());
+                    put(firstname, FIRSTNAME);
+                    putString(u.getFirstName());
+                    put(age, AGE);
+                    putInt(u.getAge());
+                    put(neighbors, NEIGHBORS);
+                    putIds(snapshot.neighbors(u).iterator());
+                    put(end, END);
+                } else if (s instanceof Page) {
+                    Page p = (Page) s;
+                    put(id, ID);
+                    putInt(p.getId());
+                    put(name, NAME);
+                    putString(p.getName());
+                    put(admins, ADMINS);
+                    putIds(snapshot.admins(p).iterator());
+                    put(end, END);
+                }
+            }
+
+            finish();
+
+            if (progress != null) {
+                progress.progressed(total, total);
+            }
+        } finally {
+            this.channel = null;
+        }
+    }
+
+    /** Commence l'écriture d'enregistrements isolés dans channel, par writeUser() et writePage()
+     * @pre <pre>
+     *  channel != null && channel.isOpen() </pre>
+     */
+    void begin(WritableByteChannel channel) {
+        Contract.checkCondition(channel != null && channel.isOpen());
+
+        this.channel = channel;
+        buffer.clear();
+        encoder.reset();
+    }
+
+    /** Écrit la ligne d'un utilisateur, de voisins les count premiers ID de neighbors
+     * @pre <pre>
+     *  name != null && firstName != null
+     *  neighbors != null && 0 <= count <= neighbors.length
+     *  begin() a été appelé </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    void writeUser(int vid, String name, String firstName, int userAge, int[] neighbors, int count)
+            throws IOException {
+        Contract.checkCondition(name != null && firstName != null);
+        Contract.checkCondition(neighbors != null && count >= 0 && count <= neighbors.length);
+        Contract.checkCondition(channel != null);
+
+        put(id, ID);
+        putInt(vid);
+        put(this.name, NAME);
+        putString(name);
+        put(firstname, FIRSTNAME);
+        putString(firstName);
+        put(age, AGE);
+        putInt(userAge);
+        put(this.neighbors, NEIGHBORS);
+        putIds(neighbors, count);
+        put(end, END);
+    }
+
+    /** Écrit la ligne d'une page, d'administrateurs les count premiers ID de admins
+     * @pre <pre>
+     *  name != null
+     *  admins != null && 0 <= count <= admins.length
+     *  begin() a été appelé </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    void writePage(int vid, String name, int[] admins, int count) throws IOException {
+        Contract.checkCondition(name != null);
+        Contract.checkCondition(admins != null && count >= 0 && count <= admins.length);
+        Contract.checkCondition(channel != null);
+
+        put(id, ID);
+        putInt(vid);
+        put(this.name, NAME);
+        putString(name);
+        put(this.admins, ADMINS);
+        putIds(admins, count);
+        put(end, END);
+    }
+
+    /** Termine l'écriture commencée par begin() : le tampon est vidé dans le canal, qui n'est pas fermé
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    void end() throws IOException {
+        Contract.checkCondition(channel != null);
+
+        try {
+            finish();
+        } finally {
+            channel = null;
+        }
+    }
+
+    // OUTILS
+
+    private void putIds(int[] ids, int count) throws IOException {
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                put(separator, SEPARATOR);
+            }
+            putInt(ids[k]);
+        }
+    }
+
+    private void putIds(Iterator<? extends Sommet> it) throws IOException {
+        if (it.hasNext()) {
+            putInt(it.next().getId());
+
+            while (it.hasNext()) {
+                put(separator, SEPARATOR);
+                putInt(it.next().getId());
+            }
+        }
+    }
+
+    // Écrit le fragment fixe text, d'encodage bytes s'il ne dépend pas de ce qui précède
+    private void put(byte[] bytes, String text) throws IOException {
+        if (bytes == null) {
+            putString(text);
+            return;
+        }
+
+        if (buffer.remaining() < bytes.length) {
+            flush();
+        }
+        buffer.put(bytes);
+    }
+
+    // Les chiffres sont produits de droite à gauche dans scratch, puis copiés d'un bloc
+    private void putInt(int value) throws IOException {
+        if (digits == null || value < 0) {
+            putString(String.valueOf(value));
+            return;
+        }
+
+        int p = scratch.length;
+        do {
+            scratch[--p] = digits[value % 10];
+            value /= 10;
+        } while (value != 0);
+
+        if (buffer.remaining() < scratch.length - p) {
+            flush();
+        }
+        buffer.put(scratch, p, scratch.length - p);
+    }
+
+    // Poursuit la suite encodée depuis le dernier reset() de l'encodeur
+    private void putString(String str) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(str);
+
+        CoderResult r = encoder.encode(chars, buffer, false);
+        while (r.isOverflow()) {
+            flush();
+            r = encoder.encode(chars, buffer, false);
+        }
+    }
+
+    // Termine la suite encodée, puis vide le tampon dans le canal
+    private void finish() throws IOException {
+        CharBuffer none = CharBuffer.allocate(0);
+
+        CoderResult r = encoder.encode(none, buffer, true);
+        while (r.isOverflow()) {
+            flush();
+            r = encoder.encode(none, buffer, true);
+        }
+
+        r = encoder.flush(buffer);
+        while (r.isOverflow()) {
+            flush();
+            r = encoder.flush(buffer);
+        }
+
+        flush();
+    }
+
+    // Encodage de str seul, par l'encodeur du jeu de caractères
+    private byte[] encode(String str) {
+        try {
+            ByteBuffer bytes = encoder.encode(CharBuffer.wrap(str));
+            byte[] result = new byte[bytes.remaining()];
+            bytes.get(result);
+
+            return result;
+        } catch (CharacterCodingException e) {
+            // Impossible : l'encodeur remplace les caractères qu'il ne peut pas encoder
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
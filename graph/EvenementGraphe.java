@@ -0,0 +1,145 @@
+package graph;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit un changement du graphe, transmis aux écouteurs du graphe.
+ *
+ * Selon le type de l'événement :
+ *  VERTEX_ADDED, VERTEX_REMOVED : getSource() est le sommet ; la suppression d'un sommet
+ *                                 emporte ses arcs et ses liens d'administration,
+ *                                 sans événement séparé
+ *  EDGE_ADDED, EDGE_REMOVED     : l'arc va de getSource() à getTarget()
+ *  ADMIN_CHANGED                : getTarget() devient (isAdded()) ou cesse d'être
+ *                                 administrateur de la page getSource()
+ *  GRAPH_RELOADED               : tout le contenu a changé, il faut le relire
+ *  GRAPH_SAVED                  : le contenu, au numéro de modification getEpoch(),
+ *                                 a été sauvegardé (saveGraph, saveGraphBinary) ;
+ *                                 il n'a pas changé
+ *
+ * Les événements sont créés par le graphe.
+ */
+public final class EvenementGraphe {
+
+    // CONSTANTES
+
+    /**
+     * Les types de changement
+     */
+    public enum Type {
+        VERTEX_ADDED, VERTEX_REMOVED, EDGE_ADDED, EDGE_REMOVED, ADMIN_CHANGED, GRAPH_RELOADED, GRAPH_SAVED
+    }
+
+    // ATTRIBUTS
+
+    private final Type type;
+    private final Sommet source;
+    private final Sommet target;
+    private final boolean added;
+    private final long epoch;
+
+    // CONSTRUCTEUR
+
+    private EvenementGraphe(Type type, Sommet source, Sommet target, boolean added, long epoch) {
+        this.type = type;
+        this.source = source;
+        this.target = target;
+        this.added = added;
+        this.epoch = epoch;
+    }
+
+    // REQUETES
+
+    /** Retourne le type du changement
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /** Retourne le sommet ajouté ou supprimé, l'origine de l'arc ou la page ;
+     *  null pour GRAPH_RELOADED et GRAPH_SAVED
+     */
+    public Sommet getSource() {
+        return source;
+    }
+
+    /** Retourne la cible de l'arc ou l'administrateur ; null pour les autres types
+     */
+    public Sommet getTarget() {
+        return target;
+    }
+
+    /** Indique si le changement est un ajout (sommet, arc ou administrateur)
+     */
+    public boolean isAdded() {
+        return added;
+    }
+
+    /** Retourne le numéro de modification du graphe après le changement
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /** Indique si l'événement concerne le sommet s
+     */
+    public boolean concerns(Sommet s) {
+        return s != null && (source == s || target == s);
+    }
+
+    public String toString() {
+        switch (type) {
+            case GRAPH_RELOADED:
+            case GRAPH_SAVED:
+                return type.toString();
+            case VERTEX_ADDED:
+            case VERTEX_REMOVED:
+                return type + "(" + source + ")";
+            default:
+                return type + "(" + source + ", " + target + (type == Type.ADMIN_CHANGED ? (added ? ", +" : ", -") : "") + ")";
+        }
+    }
+
+    // OUTILS
+
+    static EvenementGraphe vertexAdded(Sommet s, long epoch) {
+        Contract.checkCondition(s != null);
+
+        return new EvenementGraphe(Type.VERTEX_ADDED, s, null, true, epoch);
+    }
+
+    static EvenementGraphe vertexRemoved(Sommet s, long epoch) {
+        Contract.checkCondition(s != null);
+
+        return new EvenementGraphe(Type.VERTEX_REMOVED, s, null, false, epoch);
+    }
+
+    static EvenementGraphe edgeAdded(Sommet s, Sommet v, long epoch) {
+        Contract.checkCondition(s != null && v != null);
+
+        return new EvenementGraphe(Type.EDGE_ADDED, s, v, true, epoch);
+    }
+
+    static EvenementGraphe edgeRemoved(Sommet s, Sommet v, long epoch) {
+        Contract.checkCondition(s != null && v != null);
+
+        return new EvenementGraphe(Type.EDGE_REMOVED, s, v, false, epoch);
+    }
+
+    static EvenementGraphe adminChanged(Page p, Utilisateur u, boolean added, long epoch) {
+        Contract.checkCondition(p != null && u != null);
+
+        return new EvenementGraphe(Type.ADMIN_CHANGED, p, u, added, epoch);
+    }
+
+    static EvenementGraphe graphReloaded(long epoch) {
+        return new EvenementGraphe(Type.GRAPH_RELOADED, null, null, false, epoch);
+    }
+
+    static EvenementGraphe graphSaved(long epoch) {
+        return new EvenementGraphe(Type.GRAPH_SAVED, null, null, false, epoch);
+    }
+}
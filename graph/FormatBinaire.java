@@ -0,0 +1,492 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+import util.Contract;
+
+/**
+ * Cette classe définit le format binaire de sauvegarde du graphe.
+ *
+ * Un fichier est composé de :
+ *  - un en-tête de HEADER_SIZE octets (nombre magique, version, tailles, position des sections,
+ *    numéro de la dernière mutation journalisée incluse)
+ *  - une table des chaînes : pour chaque nom, sa longueur puis ses octets UTF-8
+ *  - un enregistrement de taille fixe par sommet : id, type, âge, position du nom et du prénom
+ *  - les arcs au format CSR : int[N + 1] positions puis int[M] indices des cibles
+ *  - les administrateurs au format CSR : int[N + 1] positions puis int[A] indices des administrateurs
+ * Les sommets sont désignés par leur indice dans l'ordre des enregistrements.
+ *
+ * Le fichier est écrit par un FileChannel et relu par projection en mémoire,
+ * sans analyse de texte. Il est écrit à côté de sa destination puis substitué d'un bloc :
+ * une sauvegarde interrompue laisse le fichier précédent intact.
+ * La relecture reconstruit les sommets et leurs ensembles de voisins, sur lesquels
+ * le graphe travaille : les tableaux CSR ne servent qu'à les relier sans recherche par ID.
+ */
+final class FormatBinaire {
+
+    // CONSTANTES
+
+    static final int MAGIC = 0x53534E47; // "SSNG"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 88;
+    static final int RECORD_SIZE = 20;
+
+    private static final int TYPE_USER = 0;
+    private static final int TYPE_PAGE = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // CONSTRUCTEUR
+
+    private FormatBinaire() {
+    }
+
+    // REQUETES
+
+    /** Relit le graphe contenu dans file
+     * @pre <pre>
+     *  file != null </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie
+     *  BadSyntaxException: Le fichier n'est pas au format binaire ou est corrompu </pre>
+     */
+    static ContenuGraphe read(File file) throws IOException, BadSyntaxException {
+        Contract.checkCondition(file != null);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new BadSyntaxException("En-tête binaire tronqué");
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new BadSyntaxException("Ce fichier n'est pas un graphe binaire");
+            }
+            if (header.getInt() != VERSION) {
+                throw new BadSyntaxException("Version de graphe binaire non supportée");
+            }
+
+            int n = header.getInt();
+            int m = header.getInt();
+            int a = header.getInt();
+            int nextId = header.getInt();
+            long stringsOffset = header.getLong();
+            long stringsSize = header.getLong();
+            long recordsOffset = header.getLong();
+            long edgeOffsetsOffset = header.getLong();
+            long edgeTargetsOffset = header.getLong();
+            long adminOffsetsOffset = header.getLong();
+            long adminTargetsOffset = header.getLong();
+            long lsn = header.getLong();
+
+            if (n < 0 || lsn < 0 || m < 0 || a < 0 || nextId <= 0
+                    || adminTargetsOffset + 4L * a > size
+                    || stringsOffset + stringsSize > size
+                    || recordsOffset + (long) RECORD_SIZE * n > size) {
+                throw new BadSyntaxException("Tailles incohérentes dans l'en-tête binaire");
+            }
+
+            ByteBuffer strings = map(channel, stringsOffset, stringsSize);
+            ByteBuffer records = map(channel, recordsOffset, (long) RECORD_SIZE * n);
+            IntBuffer edgeOffsets = map(channel, edgeOffsetsOffset, 4L * (n + 1)).asIntBuffer();
+            IntBuffer edgeTargets = map(channel, edgeTargetsOffset, 4L * m).asIntBuffer();
+            IntBuffer adminOffsets = map(channel, adminOffsetsOffset, 4L * (n + 1)).asIntBuffer();
+            IntBuffer adminTargets = map(channel, adminTargetsOffset, 4L * a).asIntBuffer();
+
+            // Sommets
+            Sommet[] vertices = new Sommet[n];
+            RegistreSommets registry = new RegistreSommets();
+            int highestId = 0;
+            for (int i = 0; i < n; i++) {
+                int id = records.getInt();
+                int type = records.getInt();
+                int age = records.getInt();
+                int nameRef = records.getInt();
+                int firstNameRef = records.getInt();
+
+                if (id <= 0) {
+                    throw new BadSyntaxException("ID invalide pour le sommet " + i);
+                }
+
+                if (type == TYPE_USER) {
+                    if (age <= 0) {
+                        throw new BadSyntaxException("Âge invalide pour le sommet " + i);
+                    }
+                    vertices[i] = new Utilisateur(string(strings, firstNameRef), string(strings, nameRef), age);
+                } else if (type == TYPE_PAGE) {
+                    vertices[i] = new Page(string(strings, nameRef));
+                } else {
+                    throw new BadSyntaxException("Type inconnu pour le sommet " + i);
+                }
+                if (registry.getById(id) != null) {
+                    throw new BadSyntaxException("ID " + id + " en double");
+                }
+                vertices[i].setId(id);
+                registry.add(vertices[i]);
+                highestId = Math.max(highestId, id);
+            }
+
+            // Arcs
+            checkOffsets(edgeOffsets, n, m);
+            for (int i = 0; i < n; i++) {
+                Sommet s = vertices[i];
+                for (int k = edgeOffsets.get(i); k < edgeOffsets.get(i + 1); k++) {
+                    Sommet v = vertices[index(edgeTargets.get(k), n)];
+                    if (!(s instanceof Utilisateur) || s.getNeighbors().contains(v)) {
+                        throw new BadSyntaxException("Arc invalide depuis le sommet " + i);
+                    }
+                    s.addNeighbor(v);
+                    v.addFollower(s);
+                }
+            }
+
+            // Administrateurs
+            checkOffsets(adminOffsets, n, a);
+            for (int i = 0; i < n; i++) {
+                for (int k = adminOffsets.get(i); k < adminOffsets.get(i + 1); k++) {
+                    Sommet u = vertices[index(adminTargets.get(k), n)];
+                    if (!(vertices[i] instanceof Page) || !(u instanceof Utilisateur)) {
+                        throw new BadSyntaxException("Administrateur invalide pour le sommet " + i);
+                    }
+                    ((Page) vertices[i]).addAdmin((Utilisateur) u);
+                }
+            }
+
+            return new ContenuGraphe(Arrays.asList(vertices), registry,
+                                     Math.max(nextId, highestId + 1), lsn);
+
+        } finally {
+            raf.close();
+        }
+    }
+
+    // COMMANDES
+
+    /** Écrit dans file les sommets de l'instantané snap, dans l'ordre de son instantané CSR.
+     *  Le contenu est d'abord écrit et forcé sur disque dans un fichier temporaire du même
+     *  répertoire, qui remplace ensuite file d'un bloc.
+     * @pre <pre>
+     *  snap != null
+     *  file != null
+     *  nextId > 0 </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    static void write(InstantaneGraphe snap, int nextId, File file) throws IOException {
+        Contract.checkCondition(file != null);
+
+        Image image = capture(snap, nextId, 0);
+        File tmp = File.createTempFile(file.getName() + ".part", ".tmp", file.getAbsoluteFile().getParentFile());
+
+        try {
+            image.write(tmp, true);
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            // Sans effet si le fichier a été substitué
+            tmp.delete();
+        }
+    }
+
+    /** Fige le contenu de l'instantané snap dans une image prête à être écrite,
+     *  qui ne dépend plus des sommets : elle peut être écrite par un autre thread
+     *  pendant que le graphe continue d'être modifié.
+     *  Les arcs et les administrateurs sont lus dans l'instantané, au même numéro de modification.
+     * @pre <pre>
+     *  snap != null
+     *  nextId > 0
+     *  lsn >= 0 </pre>
+     */
+    static Image capture(InstantaneGraphe snap, int nextId, long lsn) {
+        Contract.checkCondition(snap != null);
+        Contract.checkCondition(nextId > 0);
+        Contract.checkCondition(lsn >= 0);
+
+        GrapheCSR g = snap.getCSR();
+        int n = g.getVerticesNb();
+
+        // Table des chaînes et enregistrements
+        ByteArray strings = new ByteArray();
+        int[] records = new int[n * (RECORD_SIZE / 4)];
+        int[] adminOffsets = new int[n + 1];
+        List<int[]> admins = new ArrayList<int[]>();
+
+        for (int i = 0; i < n; i++) {
+            Sommet s = g.getVertice(i);
+            int r = i * (RECORD_SIZE / 4);
+
+            records[r] = s.getId();
+            records[r + 3] = strings.addString(s.getName());
+
+            if (s instanceof Utilisateur) {
+                Utilisateur u = (Utilisateur) s;
+                records[r + 1] = TYPE_USER;
+                records[r + 2] = u.getAge();
+                records[r + 4] = strings.addString(u.getFirstName());
+                adminOffsets[i + 1] = adminOffsets[i];
+            } else {
+                records[r + 1] = TYPE_PAGE;
+                records[r + 4] = -1;
+
+                // s vient de l'instantané : inutile de vérifier qu'il lui appartient
+                List<Utilisateur> list = snap.admins((Page) s);
+                int[] pageAdmins = new int[list.size()];
+                int k = 0;
+                for (Utilisateur u : list) {
+                    int j = g.indexOf(u);
+                    Contract.checkCondition(j >= 0);
+                    pageAdmins[k++] = j;
+                }
+                admins.add(pageAdmins);
+                adminOffsets[i + 1] = adminOffsets[i] + pageAdmins.length;
+            }
+        }
+
+        int a = adminOffsets[n];
+        int[] adminTargets = new int[a];
+        int k = 0;
+        for (int[] pageAdmins : admins) {
+            System.arraycopy(pageAdmins, 0, adminTargets, k, pageAdmins.length);
+            k += pageAdmins.length;
+        }
+
+        int[] edgeOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            edgeOffsets[i + 1] = g.getOutEnd(i);
+        }
+
+        return new Image(n, nextId, lsn, strings, records, edgeOffsets, g.getOutTargets(),
+                         adminOffsets, adminTargets);
+    }
+
+    // OUTILS
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long size)
+            throws IOException, BadSyntaxException {
+        if (offset < HEADER_SIZE || size < 0 || size > Integer.MAX_VALUE
+                || offset + size > channel.size()) {
+            throw new BadSyntaxException("Section binaire hors du fichier");
+        }
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+    }
+
+    private static String string(ByteBuffer strings, int ref) throws BadSyntaxException {
+        if (ref < 0 || ref + 4 > strings.limit()) {
+            throw new BadSyntaxException("Référence de chaîne invalide");
+        }
+
+        int length = strings.getInt(ref);
+        if (length < 0 || ref + 4 + length > strings.limit()) {
+            throw new BadSyntaxException("Chaîne tronquée");
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer view = strings.duplicate();
+        view.position(ref + 4);
+        view.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int index(int i, int n) throws BadSyntaxException {
+        if (i < 0 || i >= n) {
+            throw new BadSyntaxException("Indice de sommet invalide : " + i);
+        }
+
+        return i;
+    }
+
+    private static void checkOffsets(IntBuffer offsets, int n, int total) throws BadSyntaxException {
+        if (offsets.get(0) != 0 || offsets.get(n) != total) {
+            throw new BadSyntaxException("Table de positions incohérente");
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets.get(i) > offsets.get(i + 1)) {
+                throw new BadSyntaxException("Table de positions incohérente");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int length)
+            throws IOException {
+        buffer.clear();
+        IntBuffer ints = buffer.asIntBuffer();
+        int i = 0;
+
+        while (i < length) {
+            int count = Math.min(ints.capacity(), length - i);
+            ints.clear();
+            ints.put(values, i, count);
+
+            buffer.clear();
+            buffer.limit(count * 4);
+            writeFully(channel, buffer);
+
+            i += count;
+        }
+    }
+
+    /**
+     * Le contenu figé d'un graphe, prêt à être écrit au format binaire.
+     * Les tableaux CSR des arcs sont partagés avec l'instantané, qui est immuable.
+     */
+    static class Image {
+        private final int n;
+        private final int nextId;
+        private final long lsn;
+        private final ByteArray strings;
+        private final int[] records;
+        private final int[] edgeOffsets;
+        private final int[] edgeTargets;
+        private final int[] adminOffsets;
+        private final int[] adminTargets;
+
+        private Image(int n, int nextId, long lsn, ByteArray strings, int[] records,
+                int[] edgeOffsets, int[] edgeTargets, int[] adminOffsets, int[] adminTargets) {
+            this.n = n;
+            this.nextId = nextId;
+            this.lsn = lsn;
+            this.strings = strings;
+            this.records = records;
+            this.edgeOffsets = edgeOffsets;
+            this.edgeTargets = edgeTargets;
+            this.adminOffsets = adminOffsets;
+            this.adminTargets = adminTargets;
+        }
+
+        /** Retourne le numéro de la dernière mutation journalisée incluse dans l'image
+         */
+        long getLsn() {
+            return lsn;
+        }
+
+        /** Écrit l'image dans file, en place ; si force, attend que le contenu soit sur disque
+         * @throws <pre>
+         *  IOException: Erreur d'entrée/sortie </pre>
+         */
+        void write(File file, boolean force) throws IOException {
+            int m = edgeOffsets[n];
+            int a = adminOffsets[n];
+
+            // Position des sections
+            long stringsOffset = HEADER_SIZE;
+            long recordsOffset = stringsOffset + strings.size();
+            long edgeOffsetsOffset = recordsOffset + (long) RECORD_SIZE * n;
+            long edgeTargetsOffset = edgeOffsetsOffset + 4L * (n + 1);
+            long adminOffsetsOffset = edgeTargetsOffset + 4L * m;
+            long adminTargetsOffset = adminOffsetsOffset + 4L * (n + 1);
+
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+            try {
+                FileChannel channel = raf.getChannel();
+                channel.truncate(0);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(n).putInt(m).putInt(a).putInt(nextId)
+                    .putLong(stringsOffset).putLong(strings.size())
+                    .putLong(recordsOffset)
+                    .putLong(edgeOffsetsOffset).putLong(edgeTargetsOffset)
+                    .putLong(adminOffsetsOffset).putLong(adminTargetsOffset)
+                    .putLong(lsn);
+                header.flip();
+                writeFully(channel, header);
+
+                writeFully(channel, ByteBuffer.wrap(strings.bytes(), 0, strings.size()));
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                writeInts(channel, buffer, records, records.length);
+                writeInts(channel, buffer, edgeOffsets, n + 1);
+                writeInts(channel, buffer, edgeTargets, m);
+                writeInts(channel, buffer, adminOffsets, n + 1);
+                writeInts(channel, buffer, adminTargets, a);
+
+                if (force) {
+                    channel.force(true);
+                }
+
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Tableau d'octets extensible servant à construire la table des chaînes
+     */
+    private static class ByteArray {
+        private byte[] bytes = new byte[BUFFER_SIZE];
+        private int size = 0;
+
+        // Les noms répétés ne sont stockés qu'une fois
+        private Map<String, Integer> refs = new HashMap<String, Integer>();
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        // Ajoute la chaîne et retourne sa position dans la table
+        int addString(String str) {
+            Integer known = refs.get(str);
+            if (known != null) {
+                return known;
+            }
+
+            byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+            int ref = size;
+
+            ensure(size + 4 + utf8.length);
+            bytes[size++] = (byte) (utf8.length >>> 24);
+            bytes[size++] = (byte) (utf8.length >>> 16);
+            bytes[size++] = (byte) (utf8.length >>> 8);
+            bytes[size++] = (byte) utf8.length;
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+            refs.put(str, ref);
+
+            return ref;
+        }
+
+        private void ensure(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package graph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit un générateur de graphes sociaux synthétiques, pour les essais de charge.
+ *
+ * Les sommets ont les ID 1 à getVerticesNb(). Le type, l'âge et les noms d'un sommet
+ * ne dépendent que de la graine et de son ID ; les arcs et les administrateurs sont tirés
+ * par un générateur aléatoire de même graine. Deux générations de mêmes paramètres
+ * donnent donc le même graphe.
+ *
+ * Seuls les utilisateurs suivent d'autres sommets ; leur degré sortant moyen est getMeanDegree().
+ * Les arcs sont tirés selon le modèle :
+ *  - BARABASI_ALBERT : les sommets arrivent dans l'ordre des ID, chaque utilisateur suit
+ *    des sommets déjà arrivés, choisis avec une probabilité proportionnelle à leur nombre
+ *    de suiveurs plus un. Le nombre de suiveurs suit une loi de puissance, et les premiers
+ *    sommets, pages comprises, deviennent des célébrités ;
+ *  - RMAT : chaque arc tombe dans l'un des quatre quarts de la matrice d'adjacence selon
+ *    les probabilités a, b, c, d, récursivement. Degrés entrants et sortants sont asymétriques
+ *    et concentrés sur les petits ID ;
+ *  - ERDOS_RENYI : chaque arc depuis un utilisateur existe indépendamment avec la même
+ *    probabilité. Les degrés sont concentrés autour de la moyenne.
+ * Chaque page reçoit entre 1 et getMaxAdmins() administrateurs tirés parmi les utilisateurs,
+ * et chaque âge suit une loi normale tronquée à [getMinAge(), getMaxAge()].
+ *
+ * Les arcs sont produits sommet par sommet : write() écrit le fichier au fil de la génération,
+ * sans construire le graphe. Seul BARABASI_ALBERT garde en mémoire la cible de chaque arc,
+ * soit 4 octets par arc.
+ *
+ * @cons <pre>
+ * $DESC$ Un générateur de graphes à verticesNb sommets selon le modèle model, de graine seed
+ * $ARGS$ Modele model, int verticesNb, long seed
+ * $PRE$
+ *  model != null
+ *  verticesNb > 0
+ * $POST$
+ *  getModel() == model
+ *  getVerticesNb() == verticesNb
+ *  getSeed() == seed
+ *  getMeanDegree() == 10
+ *  getPageRatio() == 0.05
+ *  getMaxAdmins() == 3
+ *  getMinAge() == 13 && getMaxAge() == 90
+ *  getAgeMean() == 32 && getAgeStdDev() == 12
+ *  getRmatA() == 0.57 && getRmatB() == 0.19 && getRmatC() == 0.19 </pre>
+ */
+public class GenerateurGraphe {
+
+    // CONSTANTES
+
+    /**
+     * Les modèles de génération des arcs ; voir la description de la classe
+     */
+    public enum Modele {
+        BARABASI_ALBERT,
+        RMAT,
+        ERDOS_RENYI
+    }
+
+    private static final String[] FIRST_NAMES = {
+        "Camille", "Louis", "Emma", "Gabriel", "Jade", "Léo", "Louise", "Raphaël", "Alice", "Arthur",
+        "Chloé", "Jules", "Lina", "Adam", "Rose", "Hugo", "Léa", "Lucas", "Manon", "Nathan"
+    };
+
+    private static final String[] NAMES = {
+        "Martin", "Bernard", "Thomas", "Petit", "Robert", "Richard", "Durand", "Dubois", "Moreau", "Laurent",
+        "Simon", "Michel", "Lefebvre", "Leroy", "Roux", "David", "Bertrand", "Morel", "Fournier", "Girard"
+    };
+
+    // Tirages maximaux par cible ou administrateur demandé, avant d'y renoncer
+    private static final int MAX_ATTEMPTS = 32;
+
+    // Sels des attributs tirés à partir de l'ID
+    private static final long TYPE = 1;
+    private static final long AGE = 2;
+    private static final long FIRST_NAME = 3;
+    private static final long NAME = 4;
+
+    // ATTRIBUTS
+
+    private final Modele model;
+    private final int verticesNb;
+    private final long seed;
+
+    private double meanDegree;
+    private double pageRatio;
+    private int maxAdmins;
+    private int minAge;
+    private int maxAge;
+    private double ageMean;
+    private double ageStdDev;
+    private double rmatA;
+    private double rmatB;
+    private double rmatC;
+
+    // CONSTRUCTEUR
+
+    public GenerateurGraphe(Modele model, int verticesNb, long seed) {
+        Contract.checkCondition(model != null);
+        Contract.checkCondition(verticesNb > 0);
+
+        this.model = model;
+        this.verticesNb = verticesNb;
+        this.seed = seed;
+        meanDegree = 10;
+        pageRatio = 0.05;
+        maxAdmins = 3;
+        minAge = 13;
+        maxAge = 90;
+        ageMean = 32;
+        ageStdDev = 12;
+        rmatA = 0.57;
+        rmatB = 0.19;
+        rmatC = 0.19;
+    }
+
+    // REQUETES
+
+    /** Retourne le modèle de génération des arcs
+     */
+    public Modele getModel() {
+        return model;
+    }
+
+    /** Retourne le nombre de sommets générés
+     */
+    public int getVerticesNb() {
+        return verticesNb;
+    }
+
+    /** Retourne la graine des tirages
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Retourne le degré sortant moyen des utilisateurs
+     */
+    public double getMeanDegree() {
+        return meanDegree;
+    }
+
+    /** Retourne la proportion de pages parmi les sommets
+     */
+    public double getPageRatio() {
+        return pageRatio;
+    }
+
+    /** Retourne le nombre maximal d'administrateurs d'une page
+     */
+    public int getMaxAdmins() {
+        return maxAdmins;
+    }
+
+    /** Retourne l'âge minimal des utilisateurs
+     */
+    public int getMinAge() {
+        return minAge;
+    }
+
+    /** Retourne l'âge maximal des utilisateurs
+     */
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /** Retourne la moyenne de la loi normale des âges, avant troncature
+     */
+    public double getAgeMean() {
+        return ageMean;
+    }
+
+    /** Retourne l'écart type de la loi normale des âges, avant troncature
+     */
+    public double getAgeStdDev() {
+        return ageStdDev;
+    }
+
+    /** Retourne la probabilité du quart haut gauche de RMAT
+     */
+    public double getRmatA() {
+        return rmatA;
+    }
+
+    /** Retourne la probabilité du quart haut droit de RMAT
+     */
+    public double getRmatB() {
+        return rmatB;
+    }
+
+    /** Retourne la probabilité du quart bas gauche de RMAT ;
+     *  celle du quart bas droit est 1 - a - b - c
+     */
+    public double getRmatC() {
+        return rmatC;
+    }
+
+    /** Indique si le sommet d'ID vid est une page
+     * @pre <pre>
+     *  1 <= vid <= getVerticesNb() </pre>
+     */
+    public boolean isPage(int vid) {
+        Contract.checkCondition(vid >= 1 && vid <= verticesNb);
+
+        return unit(hash(vid, TYPE)) < pageRatio;
+    }
+
+    // COMMANDES
+
+    /** Fixe le degré sortant moyen des utilisateurs
+     * @pre <pre>
+     *  degree >= 0 </pre>
+     */
+    public void setMeanDegree(double degree) {
+        Contract.checkCondition(degree >= 0);
+
+        meanDegree = degree;
+    }
+
+    /** Fixe la proportion de pages parmi les sommets
+     * @pre <pre>
+     *  0 <= ratio <= 1 </pre>
+     */
+    public void setPageRatio(double ratio) {
+        Contract.checkCondition(ratio >= 0 && ratio <= 1);
+
+        pageRatio = ratio;
+    }
+
+    /** Fixe le nombre maximal d'administrateurs d'une page ; 0 : aucun administrateur
+     * @pre <pre>
+     *  max >= 0 </pre>
+     */
+    public void setMaxAdmins(int max) {
+        Contract.checkCondition(max >= 0);
+
+        maxAdmins = max;
+    }
+
+    /** Fixe la loi des âges : normale de moyenne mean et d'écart type stdDev, tronquée à [min, max]
+     * @pre <pre>
+     *  0 < min <= max
+     *  stdDev >= 0 </pre>
+     */
+    public void setAgeDistribution(int min, int max, double mean, double stdDev) {
+        Contract.checkCondition(min > 0 && min <= max);
+        Contract.checkCondition(stdDev >= 0);
+
+        minAge = min;
+        maxAge = max;
+        ageMean = mean;
+        ageStdDev = stdDev;
+    }
+
+    /** Fixe les probabilités des quarts de RMAT ; celle du quart bas droit est 1 - a - b - c
+     * @pre <pre>
+     *  a > 0 && b >= 0 && c >= 0
+     *  a + b + c < 1 </pre>
+     */
+    public void setRmatProbabilities(double a, double b, double c) {
+        Contract.checkCondition(a > 0 && b >= 0 && c >= 0);
+        Contract.checkCondition(a + b + c < 1);
+
+        rmatA = a;
+        rmatB = b;
+        rmatC = c;
+    }
+
+    /** Remplace le contenu du graphe g par un graphe généré
+     * @pre <pre>
+     *  g != null </pre>
+     *
+     * @post <pre>
+     *  g.getVerticesNb() == getVerticesNb() </pre>
+     *
+     * @throws <pre>
+     *  IOException: g est journalisé et son journal n'a pu être compacté </pre>
+     */
+    public void generate(Graphe g) throws IOException {
+        Contract.checkCondition(g != null);
+
+        final Sommet[] vertices = new Sommet[verticesNb];
+        RegistreSommets registry = new RegistreSommets();
+
+        for (int vid = 1; vid <= verticesNb; vid++) {
+            Sommet s = isPage(vid) ? new Page(pageName(vid)) : new Utilisateur(firstName(vid), name(vid), age(vid));
+            s.setId(vid);
+            registry.add(s);
+            vertices[vid - 1] = s;
+        }
+
+        emit(new Sortie() {
+            public void user(int vid, int[] neighbors, int count) {
+                Sommet s = vertices[vid - 1];
+                for (int k = 0; k < count; k++) {
+                    Sommet v = vertices[neighbors[k] - 1];
+                    s.addNeighbor(v);
+                    v.addFollower(s);
+                }
+            }
+
+            public void page(int vid, int[] admins, int count) {
+                Page p = (Page) vertices[vid - 1];
+                for (int k = 0; k < count; k++) {
+                    p.addAdmin((Utilisateur) vertices[admins[k] - 1]);
+                }
+            }
+        });
+
+        g.replace(new ContenuGraphe(Arrays.asList(vertices), registry, verticesNb + 1, 0));
+    }
+
+    /** Écrit un graphe généré dans file, au format texte relu par Graphe.loadGraph()
+     * @pre <pre>
+     *  file != null </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public void write(File file) throws IOException {
+        Contract.checkCondition(file != null);
+
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            write(output.getChannel());
+        } finally {
+            output.close();
+        }
+    }
+
+    /** Écrit un graphe généré dans channel, sans le fermer, au format texte relu par Graphe.loadGraph()
+     * @pre <pre>
+     *  channel != null && channel.isOpen() </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        Contract.checkCondition(channel != null && channel.isOpen());
+
+        final EcrivainTexte writer = new EcrivainTexte(Graphe.TEXT_CHARSET);
+        writer.begin(channel);
+
+        emit(new Sortie() {
+            public void user(int vid, int[] neighbors, int count) throws IOException {
+                writer.writeUser(vid, name(vid), firstName(vid), age(vid), neighbors, count);
+            }
+
+            public void page(int vid, int[] admins, int count) throws IOException {
+                writer.writePage(vid, pageName(vid), admins, count);
+            }
+        });
+
+        writer.end();
+    }
+
+    // OUTILS
+
+    /**
+     * La destination des enregistrements générés, dans l'ordre des ID
+     */
+    private interface Sortie {
+        void user(int vid, int[] neighbors, int count) throws IOException;
+        void page(int vid, int[] admins, int count) throws IOException;
+    }
+
+    // Génère les enregistrements de tous les sommets selon le modèle
+    private void emit(Sortie out) throws IOException {
+        Random random = new Random(seed);
+        Marques marks = new Marques();
+        int[] ids = new int[16];
+
+        // Cibles de tous les arcs déjà tirés (Barabási-Albert)
+        int[] endpoints = model == Modele.BARABASI_ALBERT ? new int[1024] : null;
+        int endpointsNb = 0;
+
+        // Probabilité d'un arc (Erdős-Rényi)
+        double p = verticesNb > 1 ? Math.min(1, meanDegree / (verticesNb - 1)) : 0;
+        double logQ = Math.log(1 - p);
+
+        // Niveaux et normalisation des degrés sortants (RMAT)
+        int levels = 0;
+        double rowScale = 0;
+        if (model == Modele.RMAT) {
+            while ((1L << levels) < verticesNb) {
+                levels++;
+            }
+            double total = 0;
+            long users = 0;
+            for (int vid = 1; vid <= verticesNb; vid++) {
+                if (!isPage(vid)) {
+                    total += rowProbability(vid - 1, levels);
+                    users++;
+                }
+            }
+            rowScale = total > 0 ? meanDegree * users / total : 0;
+        }
+
+        for (int vid = 1; vid <= verticesNb; vid++) {
+            marks.clear();
+            int count = 0;
+
+            if (isPage(vid)) {
+                int wanted = maxAdmins > 0 ? 1 + random.nextInt(maxAdmins) : 0;
+                for (int attempt = 0; count < wanted && attempt < wanted * MAX_ATTEMPTS; attempt++) {
+                    int u = 1 + random.nextInt(verticesNb);
+                    if (!isPage(u) && marks.add(u)) {
+                        ids = append(ids, count++, u);
+                    }
+                }
+                out.page(vid, ids, count);
+                continue;
+            }
+
+            switch (model) {
+                case BARABASI_ALBERT: {
+                    int wanted = (int) Math.min(vid - 1, draw(random, meanDegree));
+                    if (wanted == vid - 1) {
+                        // Tous les sommets déjà arrivés
+                        for (int v = 1; v < vid; v++) {
+                            ids = append(ids, count++, v);
+                        }
+                    } else {
+                        while (count < wanted) {
+                            // Proportionnel au nombre de suiveurs plus un
+                            int r = random.nextInt(endpointsNb + vid - 1);
+                            int v = r < endpointsNb ? endpoints[r] : r - endpointsNb + 1;
+                            if (marks.add(v)) {
+                                ids = append(ids, count++, v);
+                            }
+                        }
+                    }
+
+                    if (endpointsNb + count > endpoints.length) {
+                        endpoints = Arrays.copyOf(endpoints, Math.max(endpoints.length * 2, endpointsNb + count));
+                    }
+                    System.arraycopy(ids, 0, endpoints, endpointsNb, count);
+                    endpointsNb += count;
+                    break;
+                }
+
+                case ERDOS_RENYI: {
+                    // Saut géométrique d'un candidat retenu au suivant ; le candidat c désigne
+                    // l'ID c + 1, en sautant vid
+                    for (long c = skip(random, p, logQ); c < verticesNb - 1; c += 1 + skip(random, p, logQ)) {
+                        int v = (int) c + 1;
+                        ids = append(ids, count++, v < vid ? v : v + 1);
+                    }
+                    break;
+                }
+
+                case RMAT: {
+                    int row = vid - 1;
+                    int wanted = (int) Math.min(verticesNb - 1,
+                        poisson(random, rowScale * rowProbability(row, levels)));
+                    for (int attempt = 0; count < wanted && attempt < wanted * MAX_ATTEMPTS; attempt++) {
+                        long col = column(random, row, levels);
+                        if (col < verticesNb && col != row && marks.add((int) col + 1)) {
+                            ids = append(ids, count++, (int) col + 1);
+                        }
+                    }
+                    break;
+                }
+            }
+
+            out.user(vid, ids, count);
+        }
+    }
+
+    // Probabilité que RMAT place un arc sur la ligne row
+    private double rowProbability(int row, int levels) {
+        double top = rmatA + rmatB;
+        double prob = 1;
+
+        for (int l = levels - 1; l >= 0; l--) {
+            prob *= ((row >>> l) & 1) == 0 ? top : 1 - top;
+        }
+
+        return prob;
+    }
+
+    // Colonne d'un arc de la ligne row : à chaque niveau, le quart est tiré sachant la ligne
+    private long column(Random random, int row, int levels) {
+        double rmatD = 1 - rmatA - rmatB - rmatC;
+        long col = 0;
+
+        for (int l = levels - 1; l >= 0; l--) {
+            boolean bottom = ((row >>> l) & 1) != 0;
+            double left = bottom ? rmatC / (rmatC + rmatD) : rmatA / (rmatA + rmatB);
+            col = (col << 1) | (random.nextDouble() < left ? 0 : 1);
+        }
+
+        return col;
+    }
+
+    // Nombre de candidats sautés avant le prochain arc d'Erdős-Rényi
+    private static long skip(Random random, double p, double logQ) {
+        if (p <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        if (p >= 1) {
+            return 0;
+        }
+
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+    }
+
+    // Entier de moyenne mean : sa partie entière, plus un avec la probabilité de sa partie fractionnaire
+    private static long draw(Random random, double mean) {
+        long floor = (long) Math.floor(mean);
+
+        return floor + (random.nextDouble() < mean - floor ? 1 : 0);
+    }
+
+    // Tirage d'une loi de Poisson de moyenne mean, approchée par une loi normale au-delà de 30
+    private static long poisson(Random random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        if (mean > 30) {
+            return Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        long k = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            k++;
+        }
+
+        return k;
+    }
+
+    private static int[] append(int[] ids, int count, int vid) {
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[count] = vid;
+
+        return ids;
+    }
+
+    private int age(int vid) {
+        // Box-Muller sur deux tirages déduits de l'ID
+        double u1 = 1 - unit(hash(vid, AGE));
+        double u2 = unit(hash(vid, AGE + 16));
+        double gaussian = Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+        long a = Math.round(ageMean + ageStdDev * gaussian);
+
+        return (int) Math.max(minAge, Math.min(maxAge, a));
+    }
+
+    private String firstName(int vid) {
+        return FIRST_NAMES[(int) (unit(hash(vid, FIRST_NAME)) * FIRST_NAMES.length)];
+    }
+
+    private String name(int vid) {
+        return NAMES[(int) (unit(hash(vid, NAME)) * NAMES.length)] + vid;
+    }
+
+    private static String pageName(int vid) {
+        return "Page " + vid;
+    }
+
+    // Mélange SplitMix64 de la graine, de l'attribut et de l'ID
+    private long hash(int vid, long salt) {
+        long z = seed + salt * 0x9E3779B97F4A7C15L + vid * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    // Réel uniforme de [0, 1[ tiré des 53 bits de poids fort de h
+    private static double unit(long h) {
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Un ensemble d'ID non nuls, vidé en temps proportionnel à sa taille :
+     * la table à sondage linéaire ne retrouve que les cases occupées depuis le dernier clear()
+     */
+    private static class Marques {
+        private int[] keys = new int[64];
+        private int[] used = new int[32];
+        private int size = 0;
+
+        boolean add(int vid) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+
+            int mask = keys.length - 1;
+            int i = (vid * 0x9E3779B9) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == vid) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+
+            keys[i] = vid;
+            if (size == used.length) {
+                used = Arrays.copyOf(used, used.length * 2);
+            }
+            used[size++] = i;
+
+            return true;
+        }
+
+        void clear() {
+            for (int k = 0; k < size; k++) {
+                keys[used[k]] = 0;
+            }
+            size = 0;
+        }
+
+        private void grow() {
+            int[] old = new int[size];
+            for (int k = 0; k < size; k++) {
+                old[k] = keys[used[k]];
+            }
+
+            keys = new int[keys.length * 2];
+            size = 0;
+            for (int vid : old) {
+                add(vid);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit une génération d'instantanés du graphe : l'état de ses sommets
+ * au numéro de modification getEpoch(), relevé par copie sur écriture.
+ *
+ * L'état d'un sommet a trois côtés : ses voisins (NEIGHBORS), ses suiveurs (FOLLOWERS)
+ * et, pour une page, ses administrateurs (ADMINS). Tant qu'elle est la dernière génération
+ * du graphe, celui-ci y copie un côté d'un sommet juste avant de le modifier pour la première
+ * fois, et seulement ce côté : ajouter un arc copie les voisins de sa source et les suiveurs
+ * de sa cible, pas les suiveurs de la source. Un côté absent d'une génération n'a donc
+ * pas changé avant la création de la suivante : il se lit dans une génération plus récente
+ * ou, à défaut, sur le sommet lui-même. Les côtés jamais modifiés sont ainsi partagés
+ * entre le graphe et tous ses instantanés.
+ *
+ * Chaque génération désigne la suivante : elle est conservée tant qu'un instantané
+ * la désigne, directement ou par une génération plus ancienne.
+ * Les états sont rangés par tranche de verrou et ne sont consultés que sous celle-ci.
+ *
+ * @cons <pre>
+ * $DESC$ Une génération vide au numéro de modification epoch, découpée en stripes tranches
+ * $ARGS$ long epoch, int stripes
+ * $PRE$
+ *  stripes > 0
+ * $POST$
+ *  getEpoch() == epoch
+ *  getNext() == null </pre>
+ */
+final class GenerationSommets {
+
+    // CONSTANTES
+
+    // Côtés de l'état d'un sommet
+    static final int NEIGHBORS = 0;
+    static final int FOLLOWERS = 1;
+    static final int ADMINS = 2;
+
+    // ATTRIBUTS
+
+    private final long epoch;
+    private final List<Map<Sommet, Etat>> states;
+    private GenerationSommets next;
+
+    // CONSTRUCTEUR
+
+    GenerationSommets(long epoch, int stripes) {
+        Contract.checkCondition(stripes > 0);
+
+        this.epoch = epoch;
+        states = new ArrayList<Map<Sommet, Etat>>(Collections.<Map<Sommet, Etat>>nCopies(stripes, null));
+        next = null;
+    }
+
+    // REQUETES
+
+    /** Retourne le numéro de modification du graphe à la création de la génération
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
+    /** Retourne la génération suivante, null si c'est la dernière
+     */
+    GenerationSommets getNext() {
+        return next;
+    }
+
+    /** Retourne le côté side de s au numéro de modification de cette génération,
+     *  null s'il n'a pas changé depuis ; appelé sous le verrou de la tranche stripe
+     * @pre <pre>
+     *  s != null
+     *  side == NEIGHBORS || side == FOLLOWERS || side == ADMINS </pre>
+     */
+    List<? extends Sommet> find(int stripe, Sommet s, int side) {
+        Contract.checkCondition(s != null);
+
+        for (GenerationSommets g = this; g != null; g = g.next) {
+            Map<Sommet, Etat> m = g.states.get(stripe);
+            Etat state = m != null ? m.get(s) : null;
+            List<? extends Sommet> l = state != null ? state.get(side) : null;
+            if (l != null) {
+                return l;
+            }
+        }
+
+        return null;
+    }
+
+    /** Retourne une copie du côté side courant de s, une liste vide pour les administrateurs
+     *  d'un utilisateur ; appelé sous le verrou de la tranche de s
+     * @pre <pre>
+     *  s != null
+     *  side == NEIGHBORS || side == FOLLOWERS || side == ADMINS </pre>
+     */
+    static List<? extends Sommet> current(Sommet s, int side) {
+        Contract.checkCondition(s != null);
+
+        switch (side) {
+            case NEIGHBORS:
+                return copy(s.getNeighbors());
+            case FOLLOWERS:
+                return copy(s.getFollowers());
+            default:
+                return s instanceof Page
+                    ? copy(((Page) s).getAdmins())
+                    : Collections.<Utilisateur>emptyList();
+        }
+    }
+
+    // COMMANDES
+
+    /** Chaîne la génération suivante
+     * @pre <pre>
+     *  g != null
+     *  getNext() == null </pre>
+     */
+    void setNext(GenerationSommets g) {
+        Contract.checkCondition(g != null);
+        Contract.checkCondition(next == null);
+
+        next = g;
+    }
+
+    /** Copie le côté side courant de s s'il n'est pas déjà relevé ;
+     *  appelé avant toute modification de ce côté, sous le verrou de la tranche stripe
+     * @pre <pre>
+     *  s != null
+     *  side == NEIGHBORS || side == FOLLOWERS || side == ADMINS </pre>
+     */
+    void preserve(int stripe, Sommet s, int side) {
+        Contract.checkCondition(s != null);
+
+        Map<Sommet, Etat> m = states.get(stripe);
+        if (m == null) {
+            m = new IdentityHashMap<Sommet, Etat>();
+            states.set(stripe, m);
+        }
+
+        Etat state = m.get(s);
+        if (state == null) {
+            state = new Etat();
+            m.put(s, state);
+        }
+
+        if (state.get(side) == null) {
+            state.set(side, current(s, side));
+        }
+    }
+
+    // OUTILS
+
+    private static <T extends Sommet> List<T> copy(Collection<T> vs) {
+        if (vs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        @SuppressWarnings("unchecked")
+        T[] a = (T[]) vs.toArray(new Sommet[vs.size()]);
+
+        return Collections.unmodifiableList(Arrays.asList(a));
+    }
+
+    /**
+     * Les côtés relevés d'un sommet, null pour ceux qui ne l'ont pas été
+     */
+    private static final class Etat {
+        private List<? extends Sommet> neighbors;
+        private List<? extends Sommet> followers;
+        private List<? extends Sommet> admins;
+
+        List<? extends Sommet> get(int side) {
+            return side == NEIGHBORS ? neighbors : side == FOLLOWERS ? followers : admins;
+        }
+
+        void set(int side, List<? extends Sommet> l) {
+            if (side == NEIGHBORS) {
+                neighbors = l;
+            } else if (side == FOLLOWERS) {
+                followers = l;
+            } else {
+                admins = l;
+            }
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package graph;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -16,48 +20,164 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Observable;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.StringTokenizer;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import accounts.Page;
 import accounts.Sommet;
 import accounts.Utilisateur;
 import exception.BadSyntaxException;
+import metrics.RegistreMetriques;
 import util.Contract;
 
 /**
  * Cette classe définit le modèle du graphe
  *
+ * Le graphe peut être lu et modifié depuis plusieurs threads :
+ *  - l'ajout et la suppression de sommets, le chargement, les lots et le calcul du page rank
+ *    prennent le verrou du graphe en écriture, et s'exécutent donc seuls ;
+ *  - les autres opérations le prennent en lecture. Un arc ou un lien d'administration est
+ *    modifié sous les verrous des tranches de ses deux extrémités, si bien que les mises à jour
+ *    d'arcs disjoints se font en parallèle ;
+ *  - les lectures qui ne portent que sur un sommet prennent le verrou de sa tranche ;
+ *    le plus court chemin, qui ne visite que le voisinage de ses extrémités, prend ainsi
+ *    tour à tour le verrou de chaque sommet qu'il développe ;
+ *    celles qui parcourent les arcs de tout le graphe (instantané CSR, sauvegarde) se font
+ *    sur un instantané (snapshot()), sans bloquer les modifications.
+ * Une lecture ne voit donc jamais un arc à moitié ajouté ou retiré.
+ *
+ * Les instantanés reposent sur la copie sur écriture : tant qu'un instantané est utilisé,
+ * le graphe copie l'état d'un sommet juste avant de le modifier pour la première fois
+ * depuis l'instantané le plus récent (voir GenerationSommets). Sans instantané en cours,
+ * les modifications ne copient rien.
+ * Les ensembles retournés par les sommets eux-mêmes (getNeighbors(), getFollowers(), ...)
+ * ne sont pas protégés : ils ne doivent être parcourus que si aucune modification n'est en cours.
+ *
  * @cons <pre>
  *  $DESC$ Crée un modèle du graphe
  *  $POST$
  *      getVertices() != null
  *      id == 1
  */
-public class Graphe extends Observable {
+public class Graphe {
     
     // CONSTANTES
     
-    private static final Pattern REGEX_USER 
-        = Pattern.compile("^\\{id = (?<id>[0-9]+), name = (?<name>.+), firstname = (?<firstname>.+), age = (?<age>[0-9]+), neighbors = \\[(?<neighbors>(([0-9]+, )+[0-9]+)|[0-9]*)\\]\\}$");
+    private static final double DEFAULT_PAGE_RANK_TOLERANCE = 1e-10;
+    private static final double DEFAULT_PAGE_RANK_MAX_DELTA = 0.5;
+    private static final int PAGE_RANK_ITERATIONS = 100;
+    
+    private static final int DEFAULT_DISTANCE_CACHE_ENTRIES = 64;
+    private static final long DEFAULT_DISTANCE_CACHE_BYTES = 64L * 1024 * 1024;
+    
+    // Nombre de tranches de verrous des sommets, puissance de 2
+    private static final int LOCK_STRIPES = 64;
     
-    private static final Pattern REGEX_PAGE 
-        = Pattern.compile("^\\{id = (?<id>[0-9]+), name = (?<name>.+), admins = \\[(?<admins>(([0-9]+, )+[0-9]+)|[0-9]*)\\]\\}$");
+    // Jeu de caractères du format texte, à l'écriture comme à la lecture, quelle que soit
+    // la plateforme : un fichier en ASCII, ou écrit par défaut sur une plateforme UTF-8, reste lisible
+    static final Charset TEXT_CHARSET = StandardCharsets.UTF_8;
         
     // ATTRIBUTS
     
     private HashSet<Sommet> vertices;
-    private int id;
+    private RegistreSommets registry;
+    private final AtomicInteger id;
+    private final AtomicInteger edgesNb;
+    
+    // Statistiques tenues à jour, changées sous le verrou du graphe en écriture
+    private final AtomicInteger usersNb;
+    private final AtomicInteger pagesNb;
+    private final AtomicLong ageSum;
+    
+    // Vrai si les statistiques sont vérifiées par un parcours complet à chaque lecture
+    private volatile boolean statisticsCheck;
+    
+    // Numéro de modification, incrémenté à chaque changement de structure
+    private final AtomicLong epoch;
+    
+    // Instantané CSR de la dernière structure calculée et son numéro de modification
+    private volatile GrapheCSR csr;
+    private volatile long csrEpoch;
+    
+    // Dernier instantané et dernière génération, tant qu'ils sont utilisés
+    private volatile WeakReference<InstantaneGraphe> snapshot;
+    private WeakReference<GenerationSommets> generation;
+    
+    // Sommets du dernier instantané, partagés par les suivants tant qu'aucun sommet ne change
+    private Sommet[] snapshotVertices;
+    private boolean verticesChanged;
+    
+    // Copie en lecture seule des sommets retournée par getVertices(), null si un sommet a changé depuis
+    private volatile Set<Sommet> verticesView;
+    
+    // Verrou du graphe et verrous des tranches de sommets ; voir la description de la classe
+    private final ReentrantReadWriteLock lock;
+    private final ReentrantLock[] stripes;
+    
+    // Moteur de page rank incrémental, null si le mode incrémental est désactivé
+    private volatile PageRankIncremental incrementalPageRank;
+    
+    // Distances déjà calculées, par source
+    private CacheDistances distanceCache;
+    
+    // Journal des mutations, null si le graphe n'est pas journalisé
+    private volatile JournalMutations journal;
+    
+    // Vrai pendant le rejeu du journal : ni journalisation, ni événement
+    private boolean replaying;
+    
+    // Vrai pendant l'application d'un lot : les événements sont livrés ensemble à la fin
+    private boolean batching;
+    
+    // Diffusion des changements aux écouteurs
+    private final DiffusionEvenements events;
+    
+    // Index ordonnés des sommets, par OrdreSommets ; null tant qu'un index n'est pas demandé.
+    // Lus sous le verrou du graphe, remplacés sous le verrou en écriture
+    private final IndexSommets[] indexes;
+    
+    // Métriques du graphe, null si l'instrumentation est désactivée
+    private volatile InstrumentationGraphe metrics;
     
     // CONSTRUCTEUR
     
     public Graphe() {
         vertices = new LinkedHashSet<Sommet>();
-        id = 1;
+        registry = new RegistreSommets();
+        id = new AtomicInteger(1);
+        edgesNb = new AtomicInteger(0);
+        usersNb = new AtomicInteger(0);
+        pagesNb = new AtomicInteger(0);
+        ageSum = new AtomicLong(0);
+        statisticsCheck = Boolean.getBoolean("graph.checkStatistics");
+        epoch = new AtomicLong(0);
+        csr = null;
+        snapshot = null;
+        generation = null;
+        snapshotVertices = null;
+        verticesChanged = true;
+        verticesView = null;
+        lock = new ReentrantReadWriteLock();
+        stripes = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        incrementalPageRank = null;
+        distanceCache = new CacheDistances(DEFAULT_DISTANCE_CACHE_ENTRIES, DEFAULT_DISTANCE_CACHE_BYTES);
+        journal = null;
+        replaying = false;
+        batching = false;
+        events = new DiffusionEvenements();
+        indexes = new IndexSommets[OrdreSommets.values().length];
+        metrics = null;
     }
     
     // REQUETES
@@ -65,19 +185,105 @@ public class Graphe extends Observable {
     /** Retourne le nombre de sommets dans le graphe.
      */
     public int getVerticesNb() {
-        return vertices.size();
+        lock.readLock().lock();
+        try {
+            return vertices.size();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
-    /** Retourne le nombre d'arcs dans le graphe.
+    /** Retourne le nombre d'arcs dans le graphe, tenu à jour à chaque mutation.
      */
     public int getEdgesNb() {
-        int nb = 0;
+        if (statisticsCheck) {
+            verifyStatistics();
+        }
         
-        for (Sommet s : vertices) {
-            nb += s.getNeighbors().size();
+        return edgesNb.get();
+    }
+    
+    /** Retourne le numéro de modification du graphe.
+     *  Il change à chaque ajout ou suppression de sommet, d'arc ou d'administrateur.
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+    
+    /** Retourne un instantané CSR immuable de la structure courante du graphe.
+     *  L'instantané est conservé tant que le graphe n'est pas modifié ;
+     *  il est construit depuis snapshot(), sans bloquer les modifications.
+     * @post <pre>
+     *  result.getVerticesNb() == getVerticesNb() </pre>
+     */
+    public GrapheCSR getCSR() {
+        // csrEpoch est écrit après csr : s'il est à jour, csr l'est aussi
+        if (csrEpoch == epoch.get() && csr != null) {
+            return csr;
+        }
+        
+        InstantaneGraphe snap = snapshot();
+        GrapheCSR g = snap.getCSR();
+        cacheCSR(g, snap.getEpoch());
+        
+        return g;
+    }
+    
+    /** Retourne un instantané en lecture seule du graphe dans son état courant.
+     *  L'instantané reste cohérent pendant que le graphe continue d'être modifié ;
+     *  il est partagé par les appels suivants tant que le graphe n'est pas modifié.
+     * @post <pre>
+     *  result.getEpoch() == getEpoch() au moment de l'appel
+     *  result.getVerticesNb() == getVerticesNb() au moment de l'appel </pre>
+     */
+    public InstantaneGraphe snapshot() {
+        WeakReference<InstantaneGraphe> r = snapshot;
+        InstantaneGraphe last = r != null ? r.get() : null;
+        if (last != null && last.getEpoch() == epoch.get()) {
+            return last;
         }
         
-        return nb;
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        // Sous toutes les tranches, aucun arc ne change pendant la création
+        lock.readLock().lock();
+        lockAllStripes();
+        try {
+            long e = epoch.get();
+            r = snapshot;
+            last = r != null ? r.get() : null;
+            if (last != null && last.getEpoch() == e) {
+                return last;
+            }
+            
+            if (verticesChanged) {
+                snapshotVertices = vertices.toArray(new Sommet[vertices.size()]);
+                verticesChanged = false;
+            }
+            
+            GenerationSommets previous = generation != null ? generation.get() : null;
+            GenerationSommets g = previous;
+            if (g == null || g.getEpoch() != e) {
+                g = new GenerationSommets(e, LOCK_STRIPES);
+                if (previous != null) {
+                    previous.setNext(g);
+                }
+                generation = new WeakReference<GenerationSommets>(g);
+            }
+            
+            last = new InstantaneGraphe(this, g, snapshotVertices, edgesNb.get());
+            snapshot = new WeakReference<InstantaneGraphe>(last);
+            
+            if (m != null) {
+                InstrumentationGraphe.record(m.snapshot, start);
+            }
+            
+            return last;
+        } finally {
+            unlockAllStripes();
+            lock.readLock().unlock();
+        }
     }
     
     /** Retourne le degré sortant du sommet s
@@ -87,60 +293,233 @@ public class Graphe extends Observable {
     public int getVerticeOutDegree(Sommet s) {
         Contract.checkCondition(s != null);
         
-        return s.getNeighbors().size();
+        ReentrantLock l = stripe(s);
+        l.lock();
+        try {
+            return s.getNeighbors().size();
+        } finally {
+            l.unlock();
+        }
+    }
+
+    /** Indique si le page rank est maintenu de façon incrémentale
+     */
+    public boolean isIncrementalPageRank() {
+        return incrementalPageRank != null;
+    }
+
+    /** Retourne le cache des distances, pour consulter ses statistiques
+     */
+    public CacheDistances getDistanceCache() {
+        return distanceCache;
+    }
+
+    /** Indique si les mutations du graphe sont journalisées
+     */
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
+    /** Retourne le journal des mutations, null si le graphe n'est pas journalisé
+     */
+    public JournalMutations getJournal() {
+        return journal;
+    }
+
+    /** Retourne le registre des métriques du graphe, null si l'instrumentation est désactivée
+     */
+    public RegistreMetriques getMetrics() {
+        InstrumentationGraphe m = metrics;
+        
+        return m != null ? m.getRegistry() : null;
     }
 
-    /** Retourne l'ensemble des sommets du graphe
+    /** Retourne l'ensemble des sommets du graphe au moment de l'appel, en lecture seule.
+     *  C'est une copie, qui peut être parcourue pendant que le graphe est modifié ;
+     *  elle est partagée par les appels suivants tant qu'aucun sommet n'est ajouté ni supprimé.
      */
     public Set<Sommet> getVertices() {
-        return vertices;
+        Set<Sommet> view = verticesView;
+        if (view != null) {
+            return view;
+        }
+        
+        lock.readLock().lock();
+        try {
+            // Plusieurs lecteurs peuvent faire la même copie : la dernière écrite est gardée
+            view = Collections.unmodifiableSet(new LinkedHashSet<Sommet>(vertices));
+            verticesView = view;
+            
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /** Indique si le sommet s est dans le graphe
+     */
+    public boolean containsVertice(Sommet s) {
+        lock.readLock().lock();
+        try {
+            return vertices.contains(s);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
-    /** Retourne l'ensemble des sommets triés par nom
+    /** Retourne l'ensemble des sommets triés par nom (voir OrdreSommets.NAME).
+     *  C'est une vue en lecture seule de l'index des noms, tenu à jour par le graphe,
+     *  et non une copie ; getVerticesCursor() la parcourt par pages.
      */
     public Set<Sommet> getVerticesSortedByName() {
-        return new TreeSet<Sommet> (vertices);
+        return sortedView(OrdreSommets.NAME);
     }
 
-    /** Retourne l'ensemble des sommets triés par degré sortant
+    /** Retourne l'ensemble des sommets triés par degré sortant décroissant,
+     *  vue en lecture seule de l'index correspondant comme getVerticesSortedByName()
      */
     public Set<Sommet> getVerticesSortedByOutDegree() {
-        LinkedList<Sommet> verticesList = new LinkedList<Sommet>(vertices);
-        Collections.sort(verticesList, new Comparator<Sommet>() {
-            public int compare(Sommet s1, Sommet s2) {
-                int s1Neighbors = s1.getNeighbors().size();
-                int s2Neighbors = s2.getNeighbors().size();
-                
-                return (s1Neighbors > s2Neighbors ? -1 : (s1Neighbors == s2Neighbors ? 0 : 1));
-            }
-        });
-        
-        return new LinkedHashSet<Sommet>(verticesList);
+        return sortedView(OrdreSommets.OUT_DEGREE);
     }
     
-    /** Retourne l'ensemble des sommets triés par page rank
+    /** Retourne l'ensemble des sommets triés par degré entrant (nombre de suiveurs) décroissant,
+     *  vue en lecture seule de l'index correspondant comme getVerticesSortedByName()
+     */
+    public Set<Sommet> getVerticesSortedByInDegree() {
+        return sortedView(OrdreSommets.IN_DEGREE);
+    }
+    
+    /** Retourne l'ensemble des sommets triés par page rank décroissant,
+     *  vue en lecture seule de l'index correspondant comme getVerticesSortedByName().
+     *  L'index est reconstruit à la première demande qui suit un calcul du page rank.
      */
     public Set<Sommet> getVerticesSortedByPageRank() {
-        LinkedList<Sommet> verticesList = new LinkedList<Sommet>(vertices);
-        Collections.sort(verticesList, new Comparator<Sommet>() {
+        return sortedView(OrdreSommets.PAGE_RANK);
+    }
+    
+    /** Retourne un curseur au début des sommets dans l'ordre order, par pages de pageSize sommets.
+     *  Un index n'est construit qu'à sa première demande, en O(V log V) ; il est ensuite
+     *  tenu à jour à chaque mutation, en O(log V), si bien que les demandes suivantes
+     *  ne coûtent que la lecture des pages.
+     * @pre <pre>
+     *  order != null
+     *  pageSize > 0 </pre>
+     * @post <pre>
+     *  result.getOrder() == order
+     *  result.getPosition() == 0 </pre>
+     */
+    public CurseurSommets getVerticesCursor(OrdreSommets order, int pageSize) {
+        Contract.checkCondition(order != null);
+        Contract.checkCondition(pageSize > 0);
+        
+        return new CurseurSommets(index(order), pageSize);
+    }
+    
+    /** Retourne, en lecture seule, les count sommets de type type qui suivent les offset premiers
+     *  dans l'ordre order : les premiers du classement si offset == 0, puis page par page.
+     *  Si l'index de l'ordre est construit (voir getVerticesCursor()), il est lu jusqu'au
+     *  dernier sommet retourné ; sinon, un tas borné aux offset + count meilleurs sommets
+     *  est tenu pendant un seul parcours du graphe, en O(V log(offset + count)), sans tri complet
+     *  ni construction d'index. Les modifications d'arcs attendent la fin de ce parcours.
+     * @pre <pre>
+     *  order != null
+     *  type != null
+     *  offset >= 0
+     *  count >= 0 </pre>
+     * @post <pre>
+     *  result.size() <= count
+     *  forall s in result: type.isInstance(s) </pre>
+     */
+    public List<Sommet> getTopVertices(final OrdreSommets order, Class<? extends Sommet> type,
+                                       int offset, int count) {
+        Contract.checkCondition(order != null);
+        Contract.checkCondition(type != null);
+        Contract.checkCondition(offset >= 0 && count >= 0);
+        
+        List<Sommet> result = new ArrayList<Sommet>(Math.min(count, 1024));
+        if (count == 0) {
+            return Collections.unmodifiableList(result);
+        }
+        
+        IndexSommets x;
+        lock.readLock().lock();
+        try {
+            x = indexes[order.ordinal()];
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        if (x != null) {
+            Iterator<Sommet> it = x.iterator();
+            int skipped = 0;
+            while (result.size() < count && it.hasNext()) {
+                Sommet s = it.next();
+                if (type.isInstance(s)) {
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        result.add(s);
+                    }
+                }
+            }
+            
+            return Collections.unmodifiableList(result);
+        }
+        
+        // Le pire des sommets retenus est en tête du tas
+        int k = (int) Math.min((long) offset + count, Integer.MAX_VALUE);
+        PriorityQueue<Sommet> heap = new PriorityQueue<Sommet>(Math.min(k, 1024) + 1, new Comparator<Sommet>() {
             public int compare(Sommet s1, Sommet s2) {
-                double s1PageRank = s1.getPageRank();
-                double s2PageRank = s2.getPageRank();
-                
-                return (s1PageRank > s2PageRank ? -1 : (s1PageRank == s2PageRank ? 0 : 1));
+                return order.compare(s2, s1);
             }
         });
         
-        return new LinkedHashSet<Sommet>(verticesList);
+        // Les degrés ne changent pas pendant le parcours
+        boolean degrees = order == OrdreSommets.OUT_DEGREE || order == OrdreSommets.IN_DEGREE;
+        lock.readLock().lock();
+        if (degrees) {
+            lockAllStripes();
+        }
+        try {
+            for (Sommet s : vertices) {
+                if (!type.isInstance(s)) {
+                    continue;
+                }
+                if (heap.size() < k) {
+                    heap.add(s);
+                } else if (order.compare(s, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(s);
+                }
+            }
+            
+            Sommet[] top = heap.toArray(new Sommet[heap.size()]);
+            Arrays.sort(top, new Comparator<Sommet>() {
+                public int compare(Sommet s1, Sommet s2) {
+                    return order.compare(s1, s2);
+                }
+            });
+            for (int i = offset; i < top.length; i++) {
+                result.add(top[i]);
+            }
+        } finally {
+            if (degrees) {
+                unlockAllStripes();
+            }
+            lock.readLock().unlock();
+        }
+        
+        return Collections.unmodifiableList(result);
     }
     
-    /** Retourne les arcs du graphe sous forme d'une table de hachage (Sommet, Liste des sommets associés)
+    /** Retourne les arcs du graphe sous forme d'une table de hachage (Sommet, Ensemble des sommets associés)
      */
-    public Map<Sommet, List<Sommet>> getEdges() {
-        HashMap<Sommet, List<Sommet>> edges = new HashMap<Sommet, List<Sommet>>();
+    public Map<Sommet, Set<Sommet>> getEdges() {
+        HashMap<Sommet, Set<Sommet>> edges = new HashMap<Sommet, Set<Sommet>>();
+        InstantaneGraphe snap = snapshot();
         
-        for (Sommet s : vertices) {
-            edges.put(s, s.getNeighbors());
+        for (Sommet s : snap.getVertices()) {
+            edges.put(s, Collections.unmodifiableSet(new LinkedHashSet<Sommet>(snap.neighbors(s))));
         }
         
         return edges;
@@ -152,13 +531,31 @@ public class Graphe extends Observable {
      *  name != null </pre>
      */
     public Sommet getVerticeByName(String name) {
-        for (Sommet s : vertices) {
-            if (s.getName().equals(name)) {
-                return s;
-            }
+        Contract.checkCondition(name != null);
+        
+        lock.readLock().lock();
+        try {
+            return registry.getByName(name);
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+    
+    /** Retourne le sommet de nom complet 'fullName' si il existe
+     *  (prénom et nom pour un utilisateur, nom pour une page),
+     *  Retourne null sinon
+     * @pre <pre>
+     *  fullName != null </pre>
+     */
+    public Sommet getVerticeByFullName(String fullName) {
+        Contract.checkCondition(fullName != null);
         
-        return null;
+        lock.readLock().lock();
+        try {
+            return registry.getByFullName(fullName);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
     /** Retourne un sommet d'id 'id' si il existe,
@@ -170,61 +567,59 @@ public class Graphe extends Observable {
     public Sommet getVerticeById(int id) {
         Contract.checkCondition(id > 0);
         
-        for (Sommet s : vertices) {
-            if (s.getId() == id) {
-                return s;
-            }
+        lock.readLock().lock();
+        try {
+            return registry.getById(id);
+        } finally {
+            lock.readLock().unlock();
         }
-        
-        return null;
     }
     
-    /** Retourne le nombre de comptes de type Page
+    /** Retourne le nombre de comptes de type Page, tenu à jour à chaque mutation
      */
     public int getPagesNb() {
-        int nb = 0;
-        
-        for (Sommet s : vertices) {
-            if (s instanceof Page) {
-                nb++;
-            }
+        if (statisticsCheck) {
+            verifyStatistics();
         }
         
-        return nb;
+        return pagesNb.get();
     }
     
-    /** Retourne le nombre de comptes de type Utilisateur
+    /** Retourne le nombre de comptes de type Utilisateur, tenu à jour à chaque mutation
      */
-    
     public int getUsersNb() {
-        int nb = 0;
-        
-        for (Sommet s : vertices) {
-            if (s instanceof Utilisateur) {
-                nb++;
-            }
+        if (statisticsCheck) {
+            verifyStatistics();
         }
         
-        return nb;
+        return usersNb.get();
     }
     
-    /** Retourne l'age moyen des utilisateurs
+    /** Retourne l'age moyen des utilisateurs, NaN s'il n'y en a aucun ;
+     *  la somme des âges est tenue à jour à chaque mutation
      */
     public float getAverageAge() {
-        float age = 0;
-        float nb = 0;
-        
-        for (Sommet s : vertices) {
-            if (s instanceof Utilisateur) {
-                age += ((Utilisateur) s).getAge();
-                nb++;
-            }
+        if (statisticsCheck) {
+            verifyStatistics();
         }
         
-        return age / nb;
+        // La somme et le nombre doivent être relevés ensemble
+        lock.readLock().lock();
+        try {
+            return (float) ageSum.get() / usersNb.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /** Indique si les statistiques tenues à jour sont vérifiées par un parcours complet
+     *  à chaque lecture
+     */
+    public boolean isStatisticsCheck() {
+        return statisticsCheck;
     }
     
-    /** Retourne l'ensemble des comptes administrateurs de la page p
+    /** Retourne une copie de l'ensemble des comptes administrateurs de la page p
      * @pre <pre>
      *  p != null
      *  p instanceof Page
@@ -233,9 +628,64 @@ public class Graphe extends Observable {
     public Set<Utilisateur> getPageAdmins(Sommet p) {
         Contract.checkCondition(p != null);
         Contract.checkCondition(p instanceof Page);
-        Contract.checkCondition(vertices.contains(p));
+        Contract.checkCondition(containsVertice(p));
+        
+        ReentrantLock l = stripe(p);
+        l.lock();
+        try {
+            return new HashSet<Utilisateur>(((Page) p).getAdmins());
+        } finally {
+            l.unlock();
+        }
+    }
+    
+    /** Retourne un plus court chemin du sommet from au sommet to,
+     *  null si to n'est pas accessible depuis from
+     * @pre <pre>
+     *  from != null
+     *  to != null
+     *  getVertices().contains(from)
+     *  getVertices().contains(to) </pre>
+     */
+    public Chemin getShortestPath(Sommet from, Sommet to) {
+        return getShortestPath(from, to, Integer.MAX_VALUE);
+    }
+    
+    /** Retourne un plus court chemin du sommet from au sommet to d'au plus maxHops arcs,
+     *  null s'il n'en existe pas.
+     *  La recherche est bidirectionnelle : elle avance par les arcs sortants depuis from
+     *  et par les arcs entrants depuis to, en développant toujours le côté le moins coûteux,
+     *  et ne visite donc que le voisinage des deux sommets.
+     *  Elle parcourt directement les arcs des sommets atteints : les arcs peuvent être
+     *  modifiés pendant ce temps, mais pas les sommets.
+     * @pre <pre>
+     *  from != null
+     *  to != null
+     *  getVertices().contains(from)
+     *  getVertices().contains(to)
+     *  maxHops >= 0 </pre>
+     */
+    public Chemin getShortestPath(Sommet from, Sommet to, int maxHops) {
+        Contract.checkCondition(from != null && to != null);
+        Contract.checkCondition(maxHops >= 0);
         
-        return ((Page) p).getAdmins();  
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        lock.readLock().lock();
+        try {
+            Contract.checkCondition(vertices.contains(from) && vertices.contains(to));
+            
+            Chemin path = shortestPath(from, to, maxHops);
+            
+            if (m != null) {
+                InstrumentationGraphe.record(m.getShortestPath, start);
+            }
+            
+            return path;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
     // COMMANDES
@@ -249,17 +699,30 @@ public class Graphe extends Observable {
      * @post <pre>
      *  getVertices().contains(s)
      *  id == (old) id + 1 </pre>
+     * 
+     * @throws <pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
      */
     
     public void addVertice(Sommet s) {
         Contract.checkCondition(s != null);
-        Contract.checkCondition(!vertices.contains(s));
         
-        vertices.add(s);
-        s.setId(id++);
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        lock.writeLock().lock();
+        try {
+            Contract.checkCondition(!vertices.contains(s));
+            
+            insertVertice(s, id.get());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flushEvents();
         
-        setChanged();
-        notifyObservers();
+        if (m != null) {
+            InstrumentationGraphe.record(m.addVertice, start);
+        }
     }
     
     /** Enlève un sommet du graphe.
@@ -276,59 +739,90 @@ public class Graphe extends Observable {
      * 
      *      v instance of Page && s instanceof Utilisateur && v.getAdmins().contains(s) ==>
      *          !v.getAdmins().contains(s)
-     *          
+     *  
+     *  Le coût est proportionnel au degré de s et au nombre de pages qu'il administre.
+     * 
+     * @throws <pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
      */
     
     public void removeVertice(Sommet s) {
         Contract.checkCondition(s != null);
-        Contract.checkCondition(vertices.contains(s));
         
-        for (Sommet v : vertices) {
-            if (v.getNeighbors().contains(s)) {
-                v.removeNeighbor(s);
-            }
-            
-            if (v.getFollowers().contains(s)) {
-                v.removeFollower(s);
-            }
-            
-            if (v instanceof Page && s instanceof Utilisateur) {
-                Page p = (Page) v;
-                if (p.getAdmins().contains(s)) {
-                    p.removeAdmin((Utilisateur) s);
-                }
-            }
-        }
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
         
-        s.removeAllNeighbors();
-        s.removeAllFollowers();
+        lock.writeLock().lock();
+        try {
+            Contract.checkCondition(vertices.contains(s));
             
-        vertices.remove(s);
+            deleteVertice(s);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flushEvents();
         
-        setChanged();
-        notifyObservers();
+        if (m != null) {
+            InstrumentationGraphe.record(m.removeVertice, start);
+        }
     }
     
     /** Ajoute un arc entre le sommet s et v
      * @pre <pre>
      *  s != null
      *  v != null 
-     *  s instanceof Utilisateur </pre>
+     *  s instanceof Utilisateur
+     *  !s.getNeighbors().contains(v) </pre>
      *    
      * @post <pre>
      *  s.getNeighbors().contains(v) 
      *  v.getFollowers().contains(s) </pre>
+     * 
+     * @throws <pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
      */
     public void addEdge(Sommet s, Sommet v) {
         Contract.checkCondition(s != null);
         Contract.checkCondition(v != null);
         Contract.checkCondition(s instanceof Utilisateur);
         
-        s.addNeighbor(v);
-        v.addFollower(s);
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        lock.readLock().lock();
+        lockStripes(s, v);
+        try {
+            Contract.checkCondition(!s.getNeighbors().contains(v));
+            
+            if (checkJournal()) {
+                journal.logEdge(true, s, v);
+            }
+            
+            preserve(s, GenerationSommets.NEIGHBORS);
+            preserve(v, GenerationSommets.FOLLOWERS);
+            s.addNeighbor(v);
+            v.addFollower(s);
+            reindex(OrdreSommets.OUT_DEGREE, s, s.getNeighbors().size() - 1);
+            reindex(OrdreSommets.IN_DEGREE, v, v.getFollowers().size() - 1);
+            edgesNb.incrementAndGet();
+            long e = epoch.incrementAndGet();
+            
+            if (incrementalPageRank != null) {
+                synchronized (incrementalPageRank) {
+                    incrementalPageRank.edgeAdded(s, v);
+                }
+            }
+            
+            fire(EvenementGraphe.edgeAdded(s, v, e));
+        } finally {
+            unlockStripes(s, v);
+            lock.readLock().unlock();
+        }
+        flushEvents();
         
-        setChanged();
-        notifyObservers();
+        if (m != null) {
+            InstrumentationGraphe.record(m.addEdge, start);
+        }
     }
     
     /** Supprime un arc entre le sommet s et v
@@ -340,288 +834,1481 @@ public class Graphe extends Observable {
      * @post <pre>
      *  !s.getNeighbors().contains(v) 
      *  !v.getFollowers().contains(s) </pre>
+     * 
+     * @throws <pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
      */
     public void removeEdge(Sommet s, Sommet v) {
         Contract.checkCondition(s != null);
         Contract.checkCondition(v != null);
-        Contract.checkCondition(s.getNeighbors().contains(v));
         
-        s.removeNeighbor(v);
-        v.removeFollower(s);
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        lock.readLock().lock();
+        lockStripes(s, v);
+        try {
+            Contract.checkCondition(s.getNeighbors().contains(v));
+            
+            if (checkJournal()) {
+                journal.logEdge(false, s, v);
+            }
+            
+            preserve(s, GenerationSommets.NEIGHBORS);
+            preserve(v, GenerationSommets.FOLLOWERS);
+            s.removeNeighbor(v);
+            v.removeFollower(s);
+            reindex(OrdreSommets.OUT_DEGREE, s, s.getNeighbors().size() + 1);
+            reindex(OrdreSommets.IN_DEGREE, v, v.getFollowers().size() + 1);
+            edgesNb.decrementAndGet();
+            long e = epoch.incrementAndGet();
+            
+            if (incrementalPageRank != null) {
+                synchronized (incrementalPageRank) {
+                    incrementalPageRank.edgeRemoved(s, v);
+                }
+            }
+            
+            fire(EvenementGraphe.edgeRemoved(s, v, e));
+        } finally {
+            unlockStripes(s, v);
+            lock.readLock().unlock();
+        }
+        flushEvents();
         
-        setChanged();
-        notifyObservers();
+        if (m != null) {
+            InstrumentationGraphe.record(m.removeEdge, start);
+        }
     }
     
-    /** Sauvegarde le graphe dans un fichier.
-     * 
+    /** Ajoute l'utilisateur u aux administrateurs de la page p
      * @pre <pre>
-     *  file != null </pre>
+     *  p != null
+     *  u != null </pre>
      * 
      * @post <pre>
-     *  le contenu du graphe est sauvegardé dans file </pre>
+     *  p.getAdmins().contains(u) </pre>
      * 
      * @throws <pre>
-     *  IOException: Erreur d'entrée/sortie </pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
      */
-    
-    public void saveGraph(File file) throws IOException {
-        Contract.checkCondition(file != null);
-        
-        PrintWriter output 
-            = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    public void addAdmin(Page p, Utilisateur u) {
+        Contract.checkCondition(p != null);
+        Contract.checkCondition(u != null);
         
+        lock.readLock().lock();
+        lockStripes(p, u);
         try {
+            if (checkJournal()) {
+                journal.logAdmin(true, p, u);
+            }
+            
+            preserve(p, GenerationSommets.ADMINS);
+            p.addAdmin(u);
+            long e = epoch.incrementAndGet();
+            
+            fire(EvenementGraphe.adminChanged(p, u, true, e));
+        } finally {
+            unlockStripes(p, u);
+            lock.readLock().unlock();
+        }
+        flushEvents();
+    }
+    
+    /** Retire l'utilisateur u des administrateurs de la page p
+     * @pre <pre>
+     *  p != null
+     *  u != null
+     *  p.getAdmins().contains(u) </pre>
+     * 
+     * @post <pre>
+     *  !p.getAdmins().contains(u) </pre>
+     * 
+     * @throws <pre>
+     *  UncheckedIOException: Le journal refuse la mutation, qui n'est pas appliquée </pre>
+     */
+    public void removeAdmin(Page p, Utilisateur u) {
+        Contract.checkCondition(p != null);
+        Contract.checkCondition(u != null);
         
-            String str = "";
+        lock.readLock().lock();
+        lockStripes(p, u);
+        try {
+            Contract.checkCondition(p.getAdmins().contains(u));
             
-            for (Sommet s : vertices) {
-                str = "";
+            if (checkJournal()) {
+                journal.logAdmin(false, p, u);
+            }
+            
+            preserve(p, GenerationSommets.ADMINS);
+            p.removeAdmin(u);
+            long e = epoch.incrementAndGet();
+            
+            fire(EvenementGraphe.adminChanged(p, u, false, e));
+        } finally {
+            unlockStripes(p, u);
+            lock.readLock().unlock();
+        }
+        flushEvents();
+    }
+    
+    /** Abonne l'écouteur listener aux changements du graphe.
+     *  Il est appelé par un thread qui modifie le graphe, à la fin de la modification,
+     *  et reçoit une seule fois tous les changements d'un lot. Il l'est une fois les verrous
+     *  de la modification relâchés : il peut lire et modifier le graphe. Ses appels ne se
+     *  chevauchent pas et suivent l'ordre des changements : ceux faits pendant un appel,
+     *  par l'écouteur lui-même ou par un autre thread, sont livrés par l'appel suivant,
+     *  dans le thread qui fait l'appel en cours.
+     * @pre <pre>
+     *  listener != null </pre>
+     */
+    public void addGraphListener(EcouteurGraphe listener) {
+        events.subscribe(listener);
+    }
+    
+    /** Abonne l'écouteur listener aux changements du graphe, appelé par executor.
+     *  Les changements sont regroupés sur une fenêtre de window millisecondes
+     *  ouverte par le premier d'entre eux, ceux qui s'annulent étant omis.
+     * @pre <pre>
+     *  listener != null
+     *  executor != null
+     *  window >= 0 </pre>
+     */
+    public void addGraphListener(EcouteurGraphe listener, Executor executor, long window) {
+        events.subscribe(listener, executor, window);
+    }
+    
+    /** Désabonne l'écouteur listener ; les changements qu'il n'a pas encore reçus sont perdus
+     */
+    public void removeGraphListener(EcouteurGraphe listener) {
+        events.unsubscribe(listener);
+    }
+    
+    /** Retourne un nouveau lot de mutations du graphe, appliquées ensemble
+     *  par commit() avec une seule livraison aux écouteurs synchrones
+     * @post <pre>
+     *  result.getGraph() == this
+     *  result.size() == 0 </pre>
+     */
+    public LotMutations beginBatch() {
+        return new LotMutations(this);
+    }
+    
+    /** Active ou désactive le page rank incrémental.
+     *  En mode incrémental, generatePageRank() ne propage que les résidus
+     *  dus aux modifications faites depuis l'appel précédent.
+     * @post <pre>
+     *  isIncrementalPageRank() == enabled </pre>
+     */
+    public void setIncrementalPageRank(boolean enabled) {
+        lock.writeLock().lock();
+        try {
+            if (!enabled) {
+                incrementalPageRank = null;
+            } else if (incrementalPageRank == null) {
+                incrementalPageRank = new PageRankIncremental(DEFAULT_PAGE_RANK_TOLERANCE,
+                                                              DEFAULT_PAGE_RANK_MAX_DELTA);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Fixe la tolérance du page rank incrémental : un sommet n'est propagé
+     *  que si son résidu de page rank dépasse tolerance
+     * @pre <pre>
+     *  isIncrementalPageRank()
+     *  tolerance > 0 </pre>
+     */
+    public void setPageRankTolerance(double tolerance) {
+        Contract.checkCondition(isIncrementalPageRank());
+        Contract.checkCondition(tolerance > 0);
+        
+        lock.writeLock().lock();
+        try {
+            incrementalPageRank.setTolerance(tolerance);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Fixe la fraction de la taille du graphe (sommets + arcs) au-delà de laquelle
+     *  le page rank incrémental est abandonné au profit d'un recalcul complet
+     * @pre <pre>
+     *  isIncrementalPageRank()
+     *  ratio > 0 </pre>
+     */
+    public void setPageRankMaxDelta(double ratio) {
+        Contract.checkCondition(isIncrementalPageRank());
+        Contract.checkCondition(ratio > 0);
+        
+        lock.writeLock().lock();
+        try {
+            incrementalPageRank.setMaxDeltaRatio(ratio);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Active ou désactive la vérification des statistiques (nombres d'arcs, d'utilisateurs
+     *  et de pages, âge moyen) : chaque lecture les compare alors à celles d'un parcours complet
+     *  du graphe, et échoue si elles diffèrent. Réservé à la mise au point : chaque lecture
+     *  coûte un parcours. Par défaut, elle est active si la propriété système
+     *  graph.checkStatistics vaut true.
+     * @post <pre>
+     *  isStatisticsCheck() == enabled </pre>
+     */
+    public void setStatisticsCheck(boolean enabled) {
+        statisticsCheck = enabled;
+    }
+    
+    /** Active l'instrumentation du graphe : la durée des principales opérations,
+     *  les mutations et les événements sont mesurés dans registry, et la taille du graphe
+     *  y est exposée par des jauges ; registry null désactive l'instrumentation.
+     *  Désactivée, elle ne coûte qu'une lecture de champ par opération.
+     * @post <pre>
+     *  getMetrics() == registry </pre>
+     */
+    public void setMetrics(RegistreMetriques registry) {
+        setMetrics(registry, "");
+    }
+    
+    /** Active l'instrumentation du graphe comme setMetrics(registry), les métriques étant
+     *  nommées sous le préfixe prefix pour distinguer plusieurs graphes d'un même registre
+     * @pre <pre>
+     *  prefix != null </pre>
+     * @post <pre>
+     *  getMetrics() == registry </pre>
+     */
+    public void setMetrics(RegistreMetriques registry, String prefix) {
+        Contract.checkCondition(prefix != null);
+        
+        InstrumentationGraphe m = registry != null ? new InstrumentationGraphe(this, registry, prefix) : null;
+        metrics = m;
+        events.setDeliveryCounter(m != null ? m.eventsDelivered : null);
+    }
+    
+    /** Sauvegarde le graphe dans un fichier.
+     * 
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  le contenu du graphe est sauvegardé dans file
+     *  les écouteurs reçoivent GRAPH_SAVED </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    
+    public void saveGraph(File file) throws IOException {
+        saveGraph(file, null);
+    }
+    
+    /** Sauvegarde le graphe dans un fichier, en signalant l'avancement à progress
+     *  s'il n'est pas null. L'interruption du thread appelant annule la sauvegarde.
+     * 
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  le contenu du graphe est sauvegardé dans file
+     *  les écouteurs reçoivent GRAPH_SAVED </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie, ou sauvegarde interrompue </pre>
+     */
+    public void saveGraph(File file, Progression progress) throws IOException {
+        Contract.checkCondition(file != null);
+        
+        FileOutputStream output = new FileOutputStream(file);
+        long e;
+        
+        try {
+            e = write(output.getChannel(), progress);
+        } finally {
+            output.close();
+        }
+        
+        fire(EvenementGraphe.graphSaved(e));
+        flushEvents();
+    }
+    
+    /** Sauvegarde le graphe au format texte dans un canal, sans le fermer.
+     *  Le texte est encodé en UTF-8, dans lequel le relit loadGraph.
+     * 
+     * @pre <pre>
+     *  channel != null && channel.isOpen() </pre>
+     * 
+     * @post <pre>
+     *  le contenu du graphe est écrit dans channel
+     *  les écouteurs reçoivent GRAPH_SAVED </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public void saveGraph(WritableByteChannel channel) throws IOException {
+        Contract.checkCondition(channel != null && channel.isOpen());
+        
+        fire(EvenementGraphe.graphSaved(write(channel, null)));
+        flushEvents();
+    }
+    
+    /** Charge le graphe depuis un fichier
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  Le graphe est chargé avec le contenu du fichier 
+     *  this.id == max(forall v in vertices: v.getId()) + 1</pre> 
+     *          
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie
+     *  BadSyntaxException: La ligne lue dans le fichier ne correspond ni à un utilisateur, ni à une page, 
+     *                      le fichier est donc corrompu </pre>
+    */
+    
+    public void loadGraph(File file) throws IOException, BadSyntaxException {
+        loadGraph(file, null);
+    }
+    
+    /** Charge le graphe depuis un fichier, en signalant l'avancement à progress
+     *  s'il n'est pas null. Le graphe n'est remplacé qu'une fois le fichier entièrement lu :
+     *  en cas d'erreur ou d'interruption du thread appelant, il est inchangé.
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  Le graphe est chargé avec le contenu du fichier 
+     *  this.id == max(forall v in vertices: v.getId()) + 1</pre> 
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie, ou lecture interrompue
+     *  BadSyntaxException: La ligne lue dans le fichier ne correspond ni à un utilisateur, ni à une page, 
+     *                      le fichier est donc corrompu </pre>
+     */
+    public void loadGraph(File file, Progression progress) throws IOException, BadSyntaxException {
+        Contract.checkCondition(file != null);
+        
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        replace(LecteurTexte.read(file, TEXT_CHARSET, ForkJoinPool.commonPool(), progress));
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.loadGraph, start);
+        }
+    }
+    
+    /** Sauvegarde le graphe dans un fichier au format binaire.
+     *  Le format texte de saveGraph reste le format d'échange.
+     * 
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  le contenu du graphe est sauvegardé dans file
+     *  les écouteurs reçoivent GRAPH_SAVED </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie </pre>
+     */
+    public void saveGraphBinary(File file) throws IOException {
+        Contract.checkCondition(file != null);
+        
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        InstantaneGraphe snap = snapshot();
+        FormatBinaire.write(snap, id.get(), file);
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.saveGraphBinary, start);
+        }
+        
+        fire(EvenementGraphe.graphSaved(snap.getEpoch()));
+        flushEvents();
+    }
+    
+    /** Charge le graphe depuis un fichier au format binaire
+     * @pre <pre>
+     *  file != null </pre>
+     * 
+     * @post <pre>
+     *  Le graphe est chargé avec le contenu du fichier 
+     *  this.id > max(forall v in vertices: v.getId())</pre> 
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie
+     *  BadSyntaxException: Le fichier n'est pas au format binaire ou est corrompu </pre>
+     */
+    public void loadGraphBinary(File file) throws IOException, BadSyntaxException {
+        Contract.checkCondition(file != null);
+        
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        replace(FormatBinaire.read(file));
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.loadGraphBinary, start);
+        }
+    }
+    
+    /** Remplace le contenu du graphe par celui journalisé dans directory, puis journalise
+     *  les mutations suivantes : l'instantané du répertoire est relu, les mutations postérieures
+     *  rejouées, et un répertoire vide ou absent donne un graphe vide.
+     *  Chaque mutation est journalisée avant d'être appliquée, et refusée si le journal est en échec ;
+     *  elle est forcée sur disque en arrière-plan, par lots : getJournal().sync() attend qu'elles le soient toutes.
+     * @pre <pre>
+     *  directory != null
+     *  !isJournaled() </pre>
+     * 
+     * @post <pre>
+     *  isJournaled()
+     *  getJournal().getDirectory() == directory </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie
+     *  BadSyntaxException: L'instantané ou un segment du journal est corrompu </pre>
+     */
+    public void openJournal(File directory) throws IOException, BadSyntaxException {
+        Contract.checkCondition(directory != null);
+        
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Impossible de créer le répertoire " + directory);
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Contract.checkCondition(!isJournaled());
+            
+            this.clear();
+            
+            long lsn = 0;
+            File snapshot = new File(directory, JournalMutations.SNAPSHOT);
+            if (snapshot.exists()) {
+                ContenuGraphe content = FormatBinaire.read(snapshot);
+                install(content);
+                lsn = content.getLsn();
+            }
+            
+            replaying = true;
+            try {
+                lsn = JournalMutations.replay(directory, lsn, new Rejeu());
+            } finally {
+                replaying = false;
+            }
+            
+            journal = new JournalMutations(directory, lsn);
+            
+            fire(EvenementGraphe.graphReloaded(epoch.get()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flushEvents();
+    }
+    
+    /** Remplace l'instantané du journal par le contenu courant du graphe et supprime
+     *  les segments qu'il couvre. Le graphe est figé pendant l'appel, l'écriture se fait
+     *  en arrière-plan ; le résultat permet d'attendre sa fin.
+     * @pre <pre>
+     *  isJournaled() </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Le compactage précédent a échoué, ou le journal est en échec </pre>
+     */
+    public Future<Void> compactJournal() throws IOException {
+        // L'instantané et le numéro de la dernière mutation journalisée doivent se correspondre :
+        // aucune mutation ne doit avoir lieu entre les deux
+        lock.readLock().lock();
+        lockAllStripes();
+        try {
+            Contract.checkCondition(isJournaled());
+            
+            return journal.compact(snapshot(), id.get());
+        } finally {
+            unlockAllStripes();
+            lock.readLock().unlock();
+        }
+    }
+    
+    /** Force les mutations journalisées sur disque et arrête la journalisation
+     * @pre <pre>
+     *  isJournaled() </pre>
+     * 
+     * @post <pre>
+     *  !isJournaled() </pre>
+     * 
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie ; le journal reste alors attaché au graphe, fermé,
+     *  et refuse toute mutation : un nouvel appel le détache </pre>
+     */
+    public void closeJournal() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Contract.checkCondition(isJournaled());
+            
+            journal.close();
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Génère le page rank pour chaque sommet.
+     *  En mode incrémental, seules les modifications faites depuis le dernier appel
+     *  sont propagées, avec un recalcul complet si elles touchent une trop grande part du graphe.
+    */
+    
+    public void generatePageRank() {
+        generatePageRank((Progression) null);
+    }
+    
+    /** Génère le page rank pour chaque sommet comme generatePageRank(), en signalant
+     *  l'avancement d'un recalcul complet, en itérations, à progress s'il n'est pas null.
+     *  Si le thread appelant est interrompu pendant un recalcul complet, celui-ci est abandonné
+     *  sans changer les page ranks.
+     * 
+     * @throws <pre>
+     *  CancellationException: Le recalcul a été interrompu </pre>
+     */
+    public void generatePageRank(Progression progress) {
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        lock.writeLock().lock();
+        try {
+            if (incrementalPageRank == null || incrementalPageRank.needsFullRecompute()
+                    || !incrementalPageRank.update(edgesNb.get())) {
+                GrapheCSR g = currentCSR();
+                double[] pr = computePageRank(g, progress);
+                
+                for (int s = 0; s < pr.length; s++) {
+                    g.getVertice(s).setPageRank(pr[s]);
+                }
+                
+                if (incrementalPageRank != null) {
+                    incrementalPageRank.reset(g, pr);
+                }
+            }
+            
+            // Les page ranks ont changé : l'index sera reconstruit à sa prochaine demande
+            indexes[OrdreSommets.PAGE_RANK.ordinal()] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.generatePageRank, start);
+        }
+    }
+    
+    
+    /** Génère le page rank pour chaque sommet avec le moteur parallèle engine,
+     *  et retourne le résultat du calcul (itérations, résidu, durée).
+     *  Les page ranks obtenus sont à la même échelle que ceux de generatePageRank() :
+     *  c'est le même point fixe, atteint à la tolérance du moteur près.
+     * @pre <pre>
+     *  engine != null </pre>
+     * @post <pre>
+     *  forall s in getVertices(): s.getPageRank() == result.getRank(s) </pre>
+     */
+    public ResultatPageRank generatePageRank(MoteurPageRank engine) {
+        Contract.checkCondition(engine != null);
+        
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        // Le calcul se fait sur l'instantané, sans bloquer le graphe
+        GrapheCSR g = getCSR();
+        ResultatPageRank result = engine.compute(g);
+        
+        lock.writeLock().lock();
+        try {
+            for (int s = 0; s < g.getVerticesNb(); s++) {
+                g.getVertice(s).setPageRank(result.getRank(s));
+            }
+            
+            // Les valeurs publiées ne sont plus celles suivies par le moteur incrémental
+            if (incrementalPageRank != null) {
+                incrementalPageRank.invalidate();
+            }
+            
+            indexes[OrdreSommets.PAGE_RANK.ordinal()] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.generatePageRankParallel, start);
+        }
+        
+        return result;
+    }
+    
+    
+    /** Calcule la plus petite distance entre le sommet s et les sommets du graphe,
+     *  et la conserve dans le cache des distances pour getDistance(s, v)
+     * @pre <pre>
+     *  s != null
+     *  getVertices().contains(s) </pre>
+     */
+    public void computeSmallestDistanceFrom(Sommet s) {
+        Contract.checkCondition(s != null);
+        
+        getDistancesFrom(s);
+    }
+    
+    /** Retourne les plus petites distances entre le sommet s et les sommets du graphe,
+     *  calculées par un parcours en largeur ou lues dans le cache des distances
+     * @pre <pre>
+     *  s != null
+     *  getVertices().contains(s) </pre>
+     */
+    public ResultatDistances getDistancesFrom(Sommet s) {
+        Contract.checkCondition(s != null);
+        
+        // L'instantané est au moins aussi récent que e
+        long e = epoch.get();
+        ResultatDistances result = distanceCache.get(s, e);
+        if (result != null) {
+            return result;
+        }
+        
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        GrapheCSR g = getCSR();
+        int source = g.indexOf(s);
+        Contract.checkCondition(source >= 0);
+        
+        result = new ParcoursLargeur().compute(g, source);
+        distanceCache.put(s, result, e);
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.computeDistances, start);
+        }
+        
+        return result;
+    }
+    
+    /** Retourne le profil du graphe dans son état courant (distributions des degrés,
+     *  réciprocité, âges, administrateurs, sommets sans arc sortant), calculé en un seul
+     *  parcours parallèle d'un instantané, sans bloquer le graphe
+     * @post <pre>
+     *  result.getVerticesNb() == getVerticesNb() au moment de l'appel </pre>
+     */
+    public ProfilGraphe getProfile() {
+        return getProfile(new AnalyseurGraphe());
+    }
+    
+    /** Retourne le profil du graphe dans son état courant comme getProfile(),
+     *  calculé par l'analyseur analyzer
+     * @pre <pre>
+     *  analyzer != null </pre>
+     */
+    public ProfilGraphe getProfile(AnalyseurGraphe analyzer) {
+        Contract.checkCondition(analyzer != null);
+        
+        return analyzer.compute(snapshot());
+    }
+    
+    /** Retourne la plus petite distance entre le sommet s et le sommet v,
+     *  ResultatDistances.UNREACHABLE si v n'est pas accessible depuis s
+     *  ou n'était pas encore dans le graphe quand les distances ont été calculées.
+     *  Remplace v.getDistance(s), retiré de Sommet (voir sa documentation)
+     * @pre <pre>
+     *  s != null
+     *  v != null
+     *  getVertices().contains(s) </pre>
+     */
+    public int getDistance(Sommet s, Sommet v) {
+        Contract.checkCondition(v != null);
+        
+        return getDistancesFrom(s).getDistance(v);
+    }
+    
+    // OUTILS
+    
+    // Recherche de getShortestPath, sous le verrou du graphe en lecture : aucun sommet n'est
+    // retiré pendant ce temps, et les arcs d'un sommet sont lus sous le verrou de sa tranche
+    private Chemin shortestPath(Sommet from, Sommet to, int maxHops) {
+        if (from == to) {
+            return new Chemin(Collections.singletonList(from));
+        }
+        
+        // Les sommets de profondeur courante sont les derniers visités de chaque côté,
+        // à partir des numéros forwardStart et backwardStart
+        VisitesSommets forwardVisits = new VisitesSommets();
+        VisitesSommets backwardVisits = new VisitesSommets();
+        forwardVisits.add(from, -1, 0);
+        backwardVisits.add(to, -1, 0);
+        
+        int forwardStart = 0;
+        int backwardStart = 0;
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+        
+        while (forwardStart < forwardVisits.size() && backwardStart < backwardVisits.size()
+                && forwardDepth + backwardDepth < maxHops) {
+            
+            boolean forward = frontierCost(forwardVisits, forwardStart, true)
+                    <= frontierCost(backwardVisits, backwardStart, false);
+            VisitesSommets visits = forward ? forwardVisits : backwardVisits;
+            VisitesSommets others = forward ? backwardVisits : forwardVisits;
+            int start = forward ? forwardStart : backwardStart;
+            int end = visits.size();
+            int depth = (forward ? forwardDepth : backwardDepth) + 1;
+            
+            Sommet meeting = null;
+            int best = Integer.MAX_VALUE;
+            
+            for (int i = start; i < end; i++) {
+                Sommet u = visits.getVertice(i);
+                ReentrantLock l = stripe(u);
+                l.lock();
+                try {
+                    for (Sommet v : forward ? u.getNeighbors() : u.getFollowers()) {
+                        if (visits.indexOf(v) < 0) {
+                            visits.add(v, i, depth);
+                            
+                            int other = others.indexOf(v);
+                            if (other >= 0 && depth + others.getDepth(other) < best) {
+                                best = depth + others.getDepth(other);
+                                meeting = v;
+                            }
+                        }
+                    }
+                } finally {
+                    l.unlock();
+                }
+            }
+            
+            if (meeting != null) {
+                return best <= maxHops ? buildPath(meeting, forwardVisits, backwardVisits) : null;
+            }
+            
+            if (forward) {
+                forwardStart = end;
+                forwardDepth = depth;
+            } else {
+                backwardStart = end;
+                backwardDepth = depth;
+            }
+        }
+        
+        return null;
+    }
+    
+    // Nombre d'arcs à examiner pour développer les sommets visités à partir du numéro start
+    private long frontierCost(VisitesSommets visits, int start, boolean forward) {
+        long cost = 0;
+        
+        for (int i = start; i < visits.size(); i++) {
+            Sommet s = visits.getVertice(i);
+            ReentrantLock l = stripe(s);
+            l.lock();
+            try {
+                cost += forward ? s.getNeighbors().size() : s.getFollowers().size();
+            } finally {
+                l.unlock();
+            }
+        }
+        
+        return cost;
+    }
+    
+    private static Chemin buildPath(Sommet meeting, VisitesSommets forwardVisits,
+            VisitesSommets backwardVisits) {
+        LinkedList<Sommet> path = new LinkedList<Sommet>();
+        
+        for (int i = forwardVisits.indexOf(meeting); i >= 0; i = forwardVisits.getParent(i)) {
+            path.addFirst(forwardVisits.getVertice(i));
+        }
+        for (int i = backwardVisits.getParent(backwardVisits.indexOf(meeting)); i >= 0;
+                i = backwardVisits.getParent(i)) {
+            path.addLast(backwardVisits.getVertice(i));
+        }
+        
+        return new Chemin(path);
+    }
+    
+    private static double[] computePageRank(GrapheCSR g, Progression progress) {
+        int n = g.getVerticesNb();
+        int[] in = g.getInTargets();
+        
+        // Initialisation du page rank à 1
+        double[] pr = new double[n];
+        for (int s = 0; s < n; s++) {
+            pr[s] = 1;
+        }
+        
+        int i = 0;
+
+        // Calcul du page rank
+        while (i <= PAGE_RANK_ITERATIONS) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Calcul du page rank interrompu");
+            }
+            if (progress != null) {
+                progress.progressed(i, PAGE_RANK_ITERATIONS + 1);
+            }
+            
+            for (int s = 0; s < n; s++) {
+                double followersPr = 0;
                 
-                if (s instanceof Utilisateur) {
-                    Utilisateur u = (Utilisateur) s;
-                    str = "{id = " + u.getId() + ", name = " + u.getName() + ", firstname = " + u.getFirstName() 
-                        + ", age = " + u.getAge() + ", neighbors = [" 
-                        + u.getNeighborsId() + "]}\n"; 
-                } else if (s instanceof Page) {
-                    Page p = (Page) s;
-                    str = "{id = " + p.getId() + ", name = " + p.getName() 
-                        + ", admins = [" + p.getAdminsId() + "]}\n";
+                for (int k = g.getInStart(s); k < g.getInEnd(s); k++) {
+                    int v = in[k];
+                    followersPr += pr[v] / g.getOutDegree(v);
                 }
                 
-                output.print(str);
+                pr[s] = (0.15 / n) + (0.85 * followersPr);
             }
-
-        } finally {
-            output.close();
+            
+            i++;
         }
         
-        setChanged();
-        notifyObservers();
+        return pr;
     }
     
-    /** Charge le graphe depuis un fichier
-     * @pre <pre>
-     *  file != null </pre>
-     * 
-     * @post <pre>
-     *  Le graphe est chargé avec le contenu du fichier 
-     *  this.id == max(forall v in vertices: v.getId()) + 1</pre> 
-     *          
-     *
-     * @throws <pre>
-     *  IOException: Erreur d'entrée/sortie
-     *  BadSyntaxException: La ligne lue dans le fichier ne correspond ni à un utilisateur, ni à une page, 
-     *                      le fichier est donc corrompu </pre>
-    */
+    // Ajoute s sous l'ID vid, le prochain ID attribué restant supérieur à tous les autres ;
+    // appelé sous le verrou du graphe en écriture
+    private void insertVertice(Sommet s, int vid) {
+        boolean logged = checkJournal();
+        s.setId(vid);
+        if (logged) {
+            journal.logAddVertice(s);
+        }
+        
+        vertices.add(s);
+        verticesChanged = true;
+        verticesView = null;
+        if (id.get() <= vid) {
+            id.set(vid + 1);
+        }
+        registry.add(s);
+        count(s, 1);
+        long e = epoch.incrementAndGet();
+        
+        if (incrementalPageRank != null) {
+            incrementalPageRank.vertexAdded(s);
+        }
+        
+        for (IndexSommets x : indexes) {
+            if (x != null) {
+                x.add(s);
+            }
+        }
+        
+        fire(EvenementGraphe.vertexAdded(s, e));
+    }
     
-    public void loadGraph(File file) throws IOException, BadSyntaxException {
-        Contract.checkCondition(file != null);
+    // Retire s et ses arcs ; appelé sous le verrou du graphe en écriture
+    private void deleteVertice(Sommet s) {
+        if (checkJournal()) {
+            journal.logRemoveVertice(s);
+        }
+        
+        if (incrementalPageRank != null) {
+            incrementalPageRank.vertexRemoving(s);
+        }
+        
+        // Les instantanés conservent s et ses voisins tels qu'ils étaient
+        preserveAll(s);
+        for (Sommet v : s.getFollowers()) {
+            preserve(v, GenerationSommets.NEIGHBORS);
+        }
+        for (Sommet v : s.getNeighbors()) {
+            preserve(v, GenerationSommets.FOLLOWERS);
+        }
+        if (s instanceof Utilisateur) {
+            for (Page p : ((Utilisateur) s).getAdministeredPages()) {
+                preserve(p, GenerationSommets.ADMINS);
+            }
+        }
+        
+        // s sort des index sous ses clés courantes, avant que ses degrés ne changent
+        for (IndexSommets x : indexes) {
+            if (x != null) {
+                x.remove(s, x.getOrder().key(s));
+            }
+        }
+        
+        // Une boucle sur s compte parmi ses voisins et parmi ses suiveurs
+        int degree = s.getNeighbors().size() + s.getFollowers().size();
+        if (s.getNeighbors().contains(s)) {
+            degree--;
+        }
+        edgesNb.addAndGet(-degree);
+        
+        // Seuls les sommets adjacents à s sont visités
+        for (Sommet v : s.getFollowers()) {
+            v.removeNeighbor(s);
+            if (v != s) {
+                reindex(OrdreSommets.OUT_DEGREE, v, v.getNeighbors().size() + 1);
+            }
+        }
+        
+        for (Sommet v : s.getNeighbors()) {
+            v.removeFollower(s);
+            if (v != s) {
+                reindex(OrdreSommets.IN_DEGREE, v, v.getFollowers().size() + 1);
+            }
+        }
         
-        this.clear();
+        if (s instanceof Utilisateur) {
+            Utilisateur u = (Utilisateur) s;
+            for (Page p : new ArrayList<Page>(u.getAdministeredPages())) {
+                p.removeAdmin(u);
+            }
+        } else {
+            ((Page) s).removeAllAdmins();
+        }
         
-        BufferedReader input
-            = new BufferedReader(new FileReader(file));
+        s.removeAllNeighbors();
+        s.removeAllFollowers();
+            
+        vertices.remove(s);
+        verticesChanged = true;
+        verticesView = null;
+        registry.remove(s);
+        count(s, -1);
+        long e = epoch.incrementAndGet();
         
-        Map<Integer, List<Integer>> neighborsMap = new HashMap<Integer, List<Integer>>();
+        fire(EvenementGraphe.vertexRemoved(s, e));
+    }
+    
+    
+    // Index de l'ordre order, construit s'il ne l'est pas encore
+    private IndexSommets index(OrdreSommets order) {
+        int i = order.ordinal();
         
-        int highestId = 0;
+        lock.readLock().lock();
+        try {
+            if (indexes[i] != null) {
+                return indexes[i];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
         
+        // Aucune clé ne change pendant la construction
+        lock.writeLock().lock();
         try {
-            String line = input.readLine();
+            if (indexes[i] == null) {
+                indexes[i] = new IndexSommets(order, vertices);
+            }
             
-            while (line != null) {
-                
-                if (REGEX_USER.matcher(line).matches()) {
-                    // La ligne correspond à un utilisateur
-                    Matcher m = REGEX_USER.matcher(line);
-                    if (m.find()) {
-                        int id = Integer.parseInt(m.group("id"));
-                        String name = m.group("name");
-                        int age = Integer.parseInt(m.group("age"));
-                        String firstname = m.group("firstname");
-                        String strneighbors = m.group("neighbors");
-                        
-                        Utilisateur u = new Utilisateur(firstname, name, age);
-                        u.setId(id);
-                        
-                        
-                        if (!strneighbors.isEmpty()) {
-                            LinkedList<Integer> neighborsList = new LinkedList<Integer>();
-                            StringTokenizer st = new StringTokenizer(strneighbors, ",");
-                            
-                            while (st.hasMoreTokens()) {
-                                String s = st.nextToken();
-                                neighborsList.add(Integer.parseInt(s.trim()));
-                            }
-                            
-                            neighborsMap.put(id, neighborsList);
-                            
-                        }
-                        
-                        vertices.add(u);
-                        
-                        highestId = highestId > id ? highestId : id;
-                    }
-                    
-                } else if (REGEX_PAGE.matcher(line).matches()) {
-                    // La ligne correspond à une page
-                    Matcher m = REGEX_PAGE.matcher(line);
-                    if (m.find()) {
-                        int id = Integer.parseInt(m.group("id"));
-                        String name = m.group("name");
-                        String stradmins = m.group("admins");
-                        
-                        Page p = new Page(name);
-                        p.setId(id);
-                        
-                        if (!stradmins.isEmpty()) {
-                        
-                            LinkedList<Integer> adminsList = new LinkedList<Integer>();
-                            StringTokenizer st = new StringTokenizer(stradmins, ",");
-                            
-                            while (st.hasMoreTokens()) {
-                                String s = st.nextToken();
-                                adminsList.add(Integer.parseInt(s.trim()));
-                            }
-                            
-                            neighborsMap.put(id, adminsList);
-                        }
-                        
-                        vertices.add(p);
-                        
-                        highestId = highestId > id ? highestId : id;
-                    }
-                
-                } else {
-                    this.clear();
-                    throw new BadSyntaxException();
-                }
-                
-                line = input.readLine();
+            return indexes[i];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Vue en lecture seule de l'index de l'ordre order
+    private Set<Sommet> sortedView(OrdreSommets order) {
+        final IndexSommets x = index(order);
+        
+        return new AbstractSet<Sommet>() {
+            public Iterator<Sommet> iterator() {
+                return x.iterator();
             }
             
-        for (int i : neighborsMap.keySet()) {
-            Sommet s = getVerticeById(i);
+            public int size() {
+                return getVerticesNb();
+            }
             
-            if (s instanceof Utilisateur) {
-                for (int id : neighborsMap.get(i)) {
-                    s.addNeighbor(getVerticeById(id));
-                    getVerticeById(id).addFollower(s);
-                }
-            } else {
-                for (int id : neighborsMap.get(i)) {
-                    ((Page) s).addAdmin((Utilisateur) getVerticeById(id));
-                }
+            public boolean contains(Object o) {
+                return o instanceof Sommet && containsVertice((Sommet) o);
             }
+        };
+    }
+    
+    // Range v dans l'index de l'ordre order, s'il est construit, à la place de sa clé oldKey ;
+    // appelé sous le verrou de la tranche de v
+    private void reindex(OrdreSommets order, Sommet v, double oldKey) {
+        IndexSommets x = indexes[order.ordinal()];
+        if (x != null) {
+            x.update(v, oldKey);
+        }
+    }
+    
+    // Compte s dans les statistiques, sign valant 1 pour un ajout et -1 pour un retrait ;
+    // appelé sous le verrou du graphe en écriture
+    private void count(Sommet s, int sign) {
+        if (s instanceof Utilisateur) {
+            usersNb.addAndGet(sign);
+            ageSum.addAndGet(sign * ((Utilisateur) s).getAge());
+        } else {
+            pagesNb.addAndGet(sign);
+        }
+    }
+    
+    // Compare les statistiques tenues à jour à celles d'un parcours complet, sans qu'aucune
+    // mutation ne s'intercale ; les sommes des degrés sortants et entrants valent le nombre d'arcs
+    private void verifyStatistics() {
+        int users = 0;
+        int pages = 0;
+        long ages = 0;
+        long outDegrees = 0;
+        long inDegrees = 0;
+        
+        // Prendre toutes les tranches en en tenant déjà une inverserait leur ordre : les écouteurs
+        // sont appelés hors des verrous, et aucune lecture ne vérifie les statistiques sous une tranche
+        for (ReentrantLock l : stripes) {
+            Contract.checkCondition(!l.isHeldByCurrentThread(),
+                "vérification des statistiques sous le verrou d'une tranche");
         }
         
-        this.id = highestId + 1;
+        lock.readLock().lock();
+        lockAllStripes();
+        try {
+            for (Sommet s : vertices) {
+                if (s instanceof Utilisateur) {
+                    users++;
+                    ages += ((Utilisateur) s).getAge();
+                } else {
+                    pages++;
+                }
+                outDegrees += s.getNeighbors().size();
+                inDegrees += s.getFollowers().size();
+            }
             
+            Contract.checkCondition(users == usersNb.get(),
+                "utilisateurs : " + usersNb.get() + " comptés, " + users + " dans le graphe");
+            Contract.checkCondition(pages == pagesNb.get(),
+                "pages : " + pagesNb.get() + " comptées, " + pages + " dans le graphe");
+            Contract.checkCondition(ages == ageSum.get(),
+                "somme des âges : " + ageSum.get() + " comptée, " + ages + " dans le graphe");
+            Contract.checkCondition(outDegrees == edgesNb.get() && inDegrees == edgesNb.get(),
+                "arcs : " + edgesNb.get() + " comptés, degrés sortants " + outDegrees
+                + ", degrés entrants " + inDegrees);
         } finally {
-            input.close();
+            unlockAllStripes();
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Vérifie que le journal accepte une mutation, avant de la journaliser puis de l'appliquer,
+    // et retourne vrai si elle doit être journalisée ; un lot est vérifié une fois, avant sa première mutation
+    private boolean checkJournal() {
+        if (journal == null || replaying) {
+            return false;
+        }
+        if (!batching) {
+            journal.check();
         }
         
-        setChanged();
-        notifyObservers();
+        return true;
     }
     
+    // Publie un changement pour les écouteurs et le compte, sauf pendant le rejeu du journal ;
+    // appelé sous les verrous de la modification, pour que les changements se suivent dans leur ordre
+    private void fire(EvenementGraphe e) {
+        if (!replaying) {
+            events.publish(e);
+            
+            InstrumentationGraphe m = metrics;
+            if (m != null) {
+                m.count(e);
+            }
+        }
+    }
     
-    /** Génère le page rank pour chaque sommet
-    */
+    // Livre les changements publiés aux écouteurs synchrones une fois tous les verrous du graphe
+    // relâchés, si bien qu'un écouteur peut modifier le graphe ; sous un verrou (lot, rejeu du journal),
+    // la livraison attend l'appel qui le relâche
+    private void flushEvents() {
+        if (lock.getReadHoldCount() == 0 && !lock.isWriteLockedByCurrentThread()) {
+            events.flush();
+        }
+    }
     
-    public void generatePageRank() {
+    // Vérifie puis applique les mutations d'un lot, sans qu'aucune autre modification
+    // ne s'intercale ; les écouteurs synchrones reçoivent ensuite tous ses changements en un seul appel
+    void apply(LotMutations batch) {
+        Contract.checkCondition(batch.getGraph() == this);
         
-        // Initialisation du page rank à 1
-        for (Sommet s : vertices) {
-            s.setPageRank(1);
-        }
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
         
-        int i = 0;
-
-        // Calcul du page rank
-        while (i <= 100) {
-            for (Sommet s : vertices) {
-                double followersPr = 0;
-                
-                for (Sommet v : s.getFollowers()) {
-                    followersPr += v.getPageRank() / this.getVerticeOutDegree(v);
+        lock.writeLock().lock();
+        try {
+            Contract.checkCondition(!batching);
+            
+            batch.validate();
+            if (journal != null) {
+                journal.check();
+            }
+            
+            batching = true;
+            events.hold();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.applyTo(i);
                 }
-                
-                s.setPageRank((0.15 / vertices.size()) + (0.85 * followersPr));
+            } finally {
+                batching = false;
+                events.release();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flushEvents();
+        
+        if (m != null) {
+            m.batches.increment();
+            InstrumentationGraphe.record(m.commitBatch, start);
+        }
+    }
+    
+    // Remplace le contenu du graphe par celui relu depuis un fichier ou généré ; un graphe journalisé
+    // n'est remplacé qu'une fois le contenu écrit comme instantané du journal, et reste inchangé sinon
+    void replace(ContenuGraphe content) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                Graphe staged = new Graphe();
+                staged.install(content);
+                journal.compact(staged.snapshot(), content.getNextId());
+                journal.awaitCompaction();
             }
             
-            i++;
+            this.clear();
+            
+            install(content);
+            
+            fire(EvenementGraphe.graphReloaded(epoch.get()));
+        } finally {
+            lock.writeLock().unlock();
         }
+        flushEvents();
     }
     
+    // Écrit au format texte dans channel un instantané du graphe, qui reste modifiable pendant l'écriture,
+    // et retourne le numéro de modification de l'instantané écrit
+    private long write(WritableByteChannel channel, Progression progress) throws IOException {
+        InstrumentationGraphe m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
+        InstantaneGraphe snap = snapshot();
+        new EcrivainTexte(TEXT_CHARSET).write(snap, channel, progress);
+        
+        if (m != null) {
+            InstrumentationGraphe.record(m.saveGraph, start);
+        }
+        
+        return snap.getEpoch();
+    }
     
-    /** Calcule la plus petite distance entre le sommet s et les sommets du graphe
-     * @pre <pre>
-     *  s != null </pre>
-     */
-    public void computeSmallestDistanceFrom(Sommet s) {
-        Contract.checkCondition(s != null);
+    // Instantané CSR à jour ; appelé sous le verrou du graphe et toutes les tranches,
+    // ou sous le verrou du graphe en écriture
+    private GrapheCSR currentCSR() {
+        long e = epoch.get();
+        GrapheCSR g = csr;
+        if (g == null || csrEpoch != e) {
+            g = new GrapheCSR(vertices);
+            cacheCSR(g, e);
+        }
+        
+        return g;
+    }
+    
+    // Conserve l'instantané CSR g du numéro de modification e, s'il est plus récent que le précédent
+    private synchronized void cacheCSR(GrapheCSR g, long e) {
+        if (csr == null || csrEpoch < e) {
+            csr = g;
+            csrEpoch = e;
+        }
+    }
+    
+    // Côté side de s dans la génération g : le premier relevé depuis g, à défaut une copie
+    // de son côté courant
+    List<? extends Sommet> sideOf(GenerationSommets g, Sommet s, int side) {
+        int i = stripeIndex(s);
         
-        // Initialisation des distances entre chaque sommet et la source à 10000000
-        for (Sommet u : vertices) {
-            u.setDistance(s, 10000000);
+        lock.readLock().lock();
+        stripes[i].lock();
+        try {
+            List<? extends Sommet> l = g.find(i, s, side);
+            
+            return l != null ? l : GenerationSommets.current(s, side);
+        } finally {
+            stripes[i].unlock();
+            lock.readLock().unlock();
         }
+    }
+    
+    // Range dans targets les indices (selon indexes) des voisins des sommets vertices dans la génération g,
+    // ceux de vertices[i] à partir de offsets[i], et fixe offsets : les sommets sont traités par tranche,
+    // chaque tranche n'est prise qu'une fois pour relever les degrés, puis une fois pour les voisins.
+    // Entre les deux, un côté modifié est d'abord relevé dans une génération plus récente que g :
+    // les deux passes lisent donc le même état
+    void fillNeighbors(GenerationSommets g, Sommet[] vertices, Map<Sommet, Integer> indexes,
+                       int[] offsets, int[] targets) {
+        int n = vertices.length;
         
-        // Initialisation de la distance de s à 0
-        s.clearDistance();
+        // Sommets rangés par tranche : ceux de la tranche t sont order[first[t]..first[t + 1][
+        int[] stripeOf = new int[n];
+        int[] first = new int[LOCK_STRIPES + 1];
+        for (int i = 0; i < n; i++) {
+            stripeOf[i] = stripeIndex(vertices[i]);
+            first[stripeOf[i] + 1]++;
+        }
+        for (int t = 0; t < LOCK_STRIPES; t++) {
+            first[t + 1] += first[t];
+        }
+        int[] order = new int[n];
+        int[] cursors = Arrays.copyOf(first, LOCK_STRIPES);
+        for (int i = 0; i < n; i++) {
+            order[cursors[stripeOf[i]]++] = i;
+        }
         
-        // p prend l'ensemble des sommets du graphe
-        HashSet<Sommet> p = new HashSet<Sommet>(vertices);
+        for (int t = 0; t < LOCK_STRIPES; t++) {
+            lock.readLock().lock();
+            stripes[t].lock();
+            try {
+                for (int k = first[t]; k < first[t + 1]; k++) {
+                    int i = order[k];
+                    offsets[i + 1] = neighborsAt(g, t, vertices[i]).size();
+                }
+            } finally {
+                stripes[t].unlock();
+                lock.readLock().unlock();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        Contract.checkCondition(offsets[n] == targets.length);
         
-        // Calcul de la plus petite distance entre le sommet et la source
-        while (!p.isEmpty()) {
-            // On prend le sommet u le plus proche de la source
-            Sommet u = getClosestVertice(s, p);
-            if (u != null) {
-                // On supprime u de p
-                p.remove(u);
-                
-                for (Sommet v : u.getNeighbors()) {
-                    int alt = u.getDistance(s) + 1;
-                    if (alt <= v.getDistance(s)) {
-                        v.setDistance(s, alt);
+        for (int t = 0; t < LOCK_STRIPES; t++) {
+            lock.readLock().lock();
+            stripes[t].lock();
+            try {
+                for (int k = first[t]; k < first[t + 1]; k++) {
+                    int i = order[k];
+                    int c = offsets[i];
+                    for (Sommet v : neighborsAt(g, t, vertices[i])) {
+                        Integer j = indexes.get(v);
+                        Contract.checkCondition(j != null);
+                        
+                        targets[c++] = j;
                     }
                 }
+            } finally {
+                stripes[t].unlock();
+                lock.readLock().unlock();
             }
         }
     }
     
-    // OUTILS
+    // Voisins de s, de la tranche stripe, dans la génération g, sans les copier ;
+    // appelé sous le verrou du graphe et celui de la tranche
+    private static Collection<? extends Sommet> neighborsAt(GenerationSommets g, int stripe, Sommet s) {
+        Collection<? extends Sommet> l = g.find(stripe, s, GenerationSommets.NEIGHBORS);
+        
+        return l != null ? l : s.getNeighbors();
+    }
+    
+    // Copie le côté side de s dans la dernière génération avant de le modifier, si elle est utilisée ;
+    // appelé sous le verrou de la tranche de s ou sous le verrou du graphe en écriture
+    private void preserve(Sommet s, int side) {
+        WeakReference<GenerationSommets> r = generation;
+        GenerationSommets g = r != null ? r.get() : null;
+        
+        if (g != null) {
+            g.preserve(stripeIndex(s), s, side);
+        }
+    }
+    
+    // Copie tous les côtés de s, avant de le retirer du graphe
+    private void preserveAll(Sommet s) {
+        preserve(s, GenerationSommets.NEIGHBORS);
+        preserve(s, GenerationSommets.FOLLOWERS);
+        if (s instanceof Page) {
+            preserve(s, GenerationSommets.ADMINS);
+        }
+    }
+    
+    // Verrou de la tranche du sommet s
+    private ReentrantLock stripe(Sommet s) {
+        return stripes[stripeIndex(s)];
+    }
+    
+    private static int stripeIndex(Sommet s) {
+        int h = System.identityHashCode(s) * 0x9E3779B9;
+        
+        return (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
+    
+    // Les tranches sont toujours prises dans l'ordre de leurs indices, pour éviter les interblocages
+    private void lockStripes(Sommet s, Sommet v) {
+        int a = stripeIndex(s);
+        int b = stripeIndex(v);
+        
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+    
+    private void unlockStripes(Sommet s, Sommet v) {
+        int a = stripeIndex(s);
+        int b = stripeIndex(v);
+        
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+    
+    private void lockAllStripes() {
+        for (ReentrantLock l : stripes) {
+            l.lock();
+        }
+    }
+    
+    private void unlockAllStripes() {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+    
+    // Adopte les sommets relus depuis un fichier, le graphe étant vide
+    private void install(ContenuGraphe content) {
+        vertices.addAll(content.getVertices());
+        verticesChanged = true;
+        verticesView = null;
+        registry = content.getRegistry();
+        id.set(content.getNextId());
+        epoch.incrementAndGet();
+        
+        int nb = 0;
+        for (Sommet s : vertices) {
+            nb += s.getNeighbors().size();
+            count(s, 1);
+        }
+        edgesNb.set(nb);
+        
+        if (incrementalPageRank != null) {
+            incrementalPageRank.invalidate();
+        }
+        
+        // Les index seront reconstruits à leur prochaine demande
+        Arrays.fill(indexes, null);
+    }
     
     private void clear() {
         for (Sommet s : vertices) {
+            preserveAll(s);
             s.removeAllNeighbors();
             s.removeAllFollowers();
         }
         
         vertices.clear();
+        verticesChanged = true;
+        verticesView = null;
+        registry.clear();
+        edgesNb.set(0);
+        usersNb.set(0);
+        pagesNb.set(0);
+        ageSum.set(0);
+        epoch.incrementAndGet();
+        
+        if (incrementalPageRank != null) {
+            incrementalPageRank.invalidate();
+        }
+        
+        Arrays.fill(indexes, null);
     }
     
-    private Sommet getClosestVertice(Sommet s, Set<Sommet> verticesSet) {
-        Sommet result = null;
-        int dist;
+    /**
+     * Le rejeu des mutations du journal sur ce graphe.
+     * Les mutations incohérentes avec le graphe sont signalées au lieu d'être vérifiées par contrat.
+     */
+    private class Rejeu implements JournalMutations.Rejeu {
         
-        Iterator<Sommet> it = verticesSet.iterator();
+        public void addUser(int vid, String name, String firstName, int age) throws BadSyntaxException {
+            if (age <= 0) {
+                throw new BadSyntaxException("âge invalide");
+            }
+            insertVertice(new Utilisateur(firstName, name, age), checkFree(vid));
+        }
         
-        if (it.hasNext()) {
-            result = it.next();
-            dist = result.getDistance(s);
-
-            while (it.hasNext()) {
-                Sommet v = it.next();
-                if (v.getDistance(s) < dist) {
-                    result = v;
-                    dist = v.getDistance(s);
-                }
+        public void addPage(int vid, String name) throws BadSyntaxException {
+            insertVertice(new Page(name), checkFree(vid));
+        }
+        
+        public void removeVertice(int vid) throws BadSyntaxException {
+            Graphe.this.removeVertice(vertice(vid));
+        }
+        
+        public void addEdge(int from, int to) throws BadSyntaxException {
+            Sommet s = vertice(from);
+            if (!(s instanceof Utilisateur)) {
+                throw new BadSyntaxException("arc depuis une page");
+            }
+            Sommet v = vertice(to);
+            if (s.getNeighbors().contains(v)) {
+                throw new BadSyntaxException("arc déjà présent");
             }
+            Graphe.this.addEdge(s, v);
         }
         
-        return result;
+        public void removeEdge(int from, int to) throws BadSyntaxException {
+            Sommet s = vertice(from);
+            Sommet v = vertice(to);
+            if (!s.getNeighbors().contains(v)) {
+                throw new BadSyntaxException("arc inexistant");
+            }
+            Graphe.this.removeEdge(s, v);
+        }
+        
+        public void addAdmin(int page, int user) throws BadSyntaxException {
+            Graphe.this.addAdmin(page(page), user(user));
+        }
+        
+        public void removeAdmin(int page, int user) throws BadSyntaxException {
+            Page p = page(page);
+            Utilisateur u = user(user);
+            if (!p.getAdmins().contains(u)) {
+                throw new BadSyntaxException("administrateur inexistant");
+            }
+            Graphe.this.removeAdmin(p, u);
+        }
+        
+        private int checkFree(int vid) throws BadSyntaxException {
+            if (vid <= 0 || registry.getById(vid) != null) {
+                throw new BadSyntaxException("ID " + vid + " invalide ou déjà pris");
+            }
+            return vid;
+        }
+        
+        private Sommet vertice(int vid) throws BadSyntaxException {
+            Sommet s = vid > 0 ? registry.getById(vid) : null;
+            if (s == null) {
+                throw new BadSyntaxException("aucun sommet d'ID " + vid);
+            }
+            return s;
+        }
+        
+        private Page page(int vid) throws BadSyntaxException {
+            Sommet s = vertice(vid);
+            if (!(s instanceof Page)) {
+                throw new BadSyntaxException("le sommet " + vid + " n'est pas une page");
+            }
+            return (Page) s;
+        }
+        
+        private Utilisateur user(int vid) throws BadSyntaxException {
+            Sommet s = vertice(vid);
+            if (!(s instanceof Utilisateur)) {
+                throw new BadSyntaxException("le sommet " + vid + " n'est pas un utilisateur");
+            }
+            return (Utilisateur) s;
+        }
     }
 }
@@ -0,0 +1,219 @@
+package graph;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit un instantané immuable du graphe au format CSR
+ * (Compressed Sparse Row).
+ *
+ * Chaque sommet reçoit un indice dense entre 0 et getVerticesNb() - 1,
+ * dans l'ordre d'itération de l'ensemble des sommets du graphe.
+ * Les arcs sortants du sommet d'indice i sont les cases
+ * [getOutStart(i), getOutEnd(i)[ du tableau getOutTargets(), dans l'ordre d'itération
+ * de ses voisins ; ses arcs entrants sont les cases [getInStart(i), getInEnd(i)[
+ * du tableau getInTargets(), rangés par indice de source croissant : l'existence
+ * d'un arc (u, v) se teste par dichotomie parmi les arcs entrants de v.
+ *
+ * Les tableaux retournés ne doivent pas être modifiés.
+ *
+ * @cons <pre>
+ * $DESC$ Un instantané des sommets donnés et de leurs arcs
+ * $ARGS$ Collection<Sommet> vertices
+ * $PRE$
+ *  vertices != null
+ *  forall s in vertices:
+ *      forall v in s.getNeighbors(): vertices.contains(v)
+ * $POST$
+ *  getVerticesNb() == vertices.size()
+ *  getEdgesNb() == somme des s.getNeighbors().size() </pre>
+ */
+public class GrapheCSR {
+
+    // ATTRIBUTS
+
+    private final Sommet[] vertices;
+    private final Map<Sommet, Integer> indexes;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inTargets;
+
+    // CONSTRUCTEUR
+
+    public GrapheCSR(Collection<Sommet> vertices) {
+        Contract.checkCondition(vertices != null);
+
+        int n = vertices.size();
+
+        this.vertices = vertices.toArray(new Sommet[n]);
+        indexes = index(this.vertices);
+
+        // Arcs sortants
+        outOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            outOffsets[i + 1] = outOffsets[i] + this.vertices[i].getNeighbors().size();
+        }
+
+        outTargets = new int[outOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            int k = outOffsets[i];
+            for (Sommet v : this.vertices[i].getNeighbors()) {
+                Integer j = indexes.get(v);
+                Contract.checkCondition(j != null);
+
+                outTargets[k++] = j;
+            }
+        }
+
+        inOffsets = new int[n + 1];
+        inTargets = new int[outTargets.length];
+        transpose(outOffsets, outTargets, inOffsets, inTargets);
+    }
+
+    /** Un instantané des sommets vertices, d'indices indexes (voir index()), dont les arcs
+     *  sortants sont déjà au format CSR ; les tableaux sont repris tels quels
+     * @pre <pre>
+     *  vertices != null
+     *  indexes != null
+     *  outOffsets != null && outOffsets.length == vertices.length + 1
+     *  outTargets != null && outTargets.length == outOffsets[vertices.length] </pre>
+     */
+    GrapheCSR(Sommet[] vertices, Map<Sommet, Integer> indexes, int[] outOffsets, int[] outTargets) {
+        Contract.checkCondition(vertices != null);
+        Contract.checkCondition(indexes != null);
+        Contract.checkCondition(outOffsets != null && outOffsets.length == vertices.length + 1);
+        Contract.checkCondition(outTargets != null && outTargets.length == outOffsets[vertices.length]);
+
+        this.vertices = vertices;
+        this.indexes = indexes;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+
+        inOffsets = new int[vertices.length + 1];
+        inTargets = new int[outTargets.length];
+        transpose(outOffsets, outTargets, inOffsets, inTargets);
+    }
+
+    // REQUETES
+
+    /** Retourne le nombre de sommets de l'instantané
+     */
+    public int getVerticesNb() {
+        return vertices.length;
+    }
+
+    /** Retourne le nombre d'arcs de l'instantané
+     */
+    public int getEdgesNb() {
+        return outTargets.length;
+    }
+
+    /** Retourne le sommet d'indice i
+     * @pre <pre>
+     *  0 <= i < getVerticesNb() </pre>
+     */
+    public Sommet getVertice(int i) {
+        Contract.checkCondition(i >= 0 && i < vertices.length);
+
+        return vertices[i];
+    }
+
+    /** Retourne l'indice du sommet s, -1 si s n'appartient pas à l'instantané
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    public int indexOf(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        Integer i = indexes.get(s);
+
+        return i == null ? -1 : i;
+    }
+
+    /** Retourne le degré sortant du sommet d'indice i
+     */
+    public int getOutDegree(int i) {
+        return outOffsets[i + 1] - outOffsets[i];
+    }
+
+    /** Retourne le degré entrant du sommet d'indice i
+     */
+    public int getInDegree(int i) {
+        return inOffsets[i + 1] - inOffsets[i];
+    }
+
+    /** Retourne la première case des arcs sortants du sommet d'indice i
+     */
+    public int getOutStart(int i) {
+        return outOffsets[i];
+    }
+
+    /** Retourne la case suivant le dernier arc sortant du sommet d'indice i
+     */
+    public int getOutEnd(int i) {
+        return outOffsets[i + 1];
+    }
+
+    /** Retourne la première case des arcs entrants du sommet d'indice i
+     */
+    public int getInStart(int i) {
+        return inOffsets[i];
+    }
+
+    /** Retourne la case suivant le dernier arc entrant du sommet d'indice i
+     */
+    public int getInEnd(int i) {
+        return inOffsets[i + 1];
+    }
+
+    /** Retourne les indices des cibles des arcs sortants
+     */
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+
+    /** Retourne les indices des sources des arcs entrants
+     */
+    public int[] getInTargets() {
+        return inTargets;
+    }
+
+    // OUTILS
+
+    /** Retourne la table des indices des sommets vertices : l'indice de vertices[i] est i
+     */
+    static Map<Sommet, Integer> index(Sommet[] vertices) {
+        Map<Sommet, Integer> indexes = new IdentityHashMap<Sommet, Integer>(vertices.length);
+        for (int i = 0; i < vertices.length; i++) {
+            indexes.put(vertices[i], i);
+        }
+
+        return indexes;
+    }
+
+    // Arcs entrants, déduits des arcs sortants : les sources sont rangées par indice croissant
+    private static void transpose(int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inTargets) {
+        int n = outOffsets.length - 1;
+
+        for (int k = 0; k < outTargets.length; k++) {
+            inOffsets[outTargets[k] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        int[] cursors = new int[n];
+        System.arraycopy(inOffsets, 0, cursors, 0, n);
+
+        for (int i = 0; i < n; i++) {
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+                inTargets[cursors[outTargets[k]]++] = i;
+            }
+        }
+    }
+}
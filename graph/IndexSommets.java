@@ -0,0 +1,169 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit un index ordonné des sommets du graphe, tenu à jour par le graphe
+ * à chaque mutation qui change la clé d'un sommet.
+ *
+ * Chaque sommet y figure sous une entrée (clé, ID) immuable : changer sa clé revient
+ * à retirer l'entrée de l'ancienne clé et à ajouter celle de la nouvelle. Les parcours
+ * peuvent donc se faire pendant les mutations ; ils voient chaque entrée au plus une fois,
+ * mais un sommet dont la clé change pendant le parcours peut être vu deux fois, ou pas du tout.
+ *
+ * @cons <pre>
+ * $DESC$ L'index des sommets vertices dans l'ordre order, selon leurs clés courantes
+ * $ARGS$ OrdreSommets order, Collection<Sommet> vertices
+ * $PRE$
+ *  order != null
+ *  vertices != null
+ * $POST$
+ *  getOrder() == order </pre>
+ */
+final class IndexSommets {
+
+    // ATTRIBUTS
+
+    private final OrdreSommets order;
+    private final ConcurrentSkipListSet<Entree> entries;
+
+    // CONSTRUCTEUR
+
+    IndexSommets(final OrdreSommets order, Collection<Sommet> vertices) {
+        Contract.checkCondition(order != null);
+        Contract.checkCondition(vertices != null);
+
+        this.order = order;
+        entries = new ConcurrentSkipListSet<Entree>(new Comparator<Entree>() {
+            public int compare(Entree e1, Entree e2) {
+                int c = order == OrdreSommets.NAME
+                    ? e1.vertex.compareTo(e2.vertex)
+                    : Double.compare(e2.key, e1.key);
+
+                return c != 0 ? c : Integer.compare(e1.id, e2.id);
+            }
+        });
+
+        for (Sommet s : vertices) {
+            add(s);
+        }
+    }
+
+    // REQUETES
+
+    /** Retourne l'ordre de l'index
+     */
+    OrdreSommets getOrder() {
+        return order;
+    }
+
+    /** Retourne la première entrée qui suit after, ou la première de l'index si after est null ;
+     *  null s'il n'y en a pas
+     */
+    Entree after(Entree after) {
+        return after == null ? firstOrNull() : entries.higher(after);
+    }
+
+    /** Retourne au plus max sommets, dans l'ordre, à partir de l'entrée qui suit after
+     *  (du début si after est null), et range dans last[0] la dernière entrée retournée
+     * @pre <pre>
+     *  max >= 0
+     *  last != null && last.length == 1 </pre>
+     */
+    List<Sommet> page(Entree after, int max, Entree[] last) {
+        Contract.checkCondition(max >= 0);
+        Contract.checkCondition(last != null && last.length == 1);
+
+        NavigableSet<Entree> tail = after == null ? entries : entries.tailSet(after, false);
+        List<Sommet> page = new ArrayList<Sommet>(Math.min(max, 1024));
+
+        Iterator<Entree> it = tail.iterator();
+        while (page.size() < max && it.hasNext()) {
+            Entree e = it.next();
+            page.add(e.vertex);
+            last[0] = e;
+        }
+
+        return Collections.unmodifiableList(page);
+    }
+
+    /** Retourne un itérateur en lecture seule sur les sommets de l'index, dans l'ordre
+     */
+    Iterator<Sommet> iterator() {
+        final Iterator<Entree> it = entries.iterator();
+
+        return new Iterator<Sommet>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public Sommet next() {
+                return it.next().vertex;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    // COMMANDES
+
+    /** Ajoute s sous sa clé courante
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void add(Sommet s) {
+        entries.add(new Entree(order.key(s), s));
+    }
+
+    /** Retire s, indexé sous la clé key
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void remove(Sommet s, double key) {
+        entries.remove(new Entree(key, s));
+    }
+
+    /** Range s sous sa clé courante, à la place de l'ancienne clé oldKey
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void update(Sommet s, double oldKey) {
+        remove(s, oldKey);
+        add(s);
+    }
+
+    // OUTILS
+
+    private Entree firstOrNull() {
+        Iterator<Entree> it = entries.iterator();
+
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Un sommet, sa clé et son ID au moment où il a été indexé
+     */
+    static final class Entree {
+        final double key;
+        final int id;
+        final Sommet vertex;
+
+        Entree(double key, Sommet vertex) {
+            this.key = key;
+            this.id = vertex.getId();
+            this.vertex = vertex;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit un instantané en lecture seule du graphe, tel qu'il était
+ * au numéro de modification getEpoch().
+ *
+ * Un instantané ne recopie pas le graphe : il partage avec lui les côtés des sommets
+ * (voisins, suiveurs, administrateurs) que le graphe n'a pas modifiés depuis, et lit les autres
+ * dans les copies faites par le graphe juste avant de les modifier (voir GenerationSommets).
+ * Sa création ne coûte qu'une copie de la liste des sommets, elle-même partagée tant
+ * qu'aucun sommet n'est ajouté ou retiré.
+ * Les lectures ne prennent que le verrou d'un sommet à la fois : un long parcours
+ * de l'instantané n'empêche pas le graphe d'être modifié pendant ce temps.
+ *
+ * Les listes retournées ne sont pas modifiables.
+ *
+ * @cons <pre>
+ * $DESC$ L'instantané du graphe graph pour la génération generation
+ * $ARGS$ Graphe graph, GenerationSommets generation, Sommet[] vertices, int edgesNb
+ * $PRE$
+ *  graph != null
+ *  generation != null
+ *  vertices != null
+ *  edgesNb >= 0
+ * $POST$
+ *  getEpoch() == generation.getEpoch()
+ *  getVerticesNb() == vertices.length
+ *  getEdgesNb() == edgesNb </pre>
+ */
+public final class InstantaneGraphe {
+
+    // ATTRIBUTS
+
+    private final Graphe graph;
+    private final GenerationSommets generation;
+    private final Sommet[] array;
+    private final List<Sommet> vertices;
+    private final int edgesNb;
+
+    // Calculés à la première demande
+    private Set<Sommet> members;
+    private GrapheCSR csr;
+
+    // CONSTRUCTEUR
+
+    InstantaneGraphe(Graphe graph, GenerationSommets generation, Sommet[] vertices, int edgesNb) {
+        Contract.checkCondition(graph != null);
+        Contract.checkCondition(generation != null);
+        Contract.checkCondition(vertices != null);
+        Contract.checkCondition(edgesNb >= 0);
+
+        this.graph = graph;
+        this.generation = generation;
+        array = vertices;
+        this.vertices = Collections.unmodifiableList(Arrays.asList(vertices));
+        this.edgesNb = edgesNb;
+        members = null;
+        csr = null;
+    }
+
+    // REQUETES
+
+    /** Retourne le numéro de modification du graphe au moment de l'instantané
+     */
+    public long getEpoch() {
+        return generation.getEpoch();
+    }
+
+    /** Retourne le nombre de sommets de l'instantané
+     */
+    public int getVerticesNb() {
+        return vertices.size();
+    }
+
+    /** Retourne le nombre d'arcs de l'instantané
+     */
+    public int getEdgesNb() {
+        return edgesNb;
+    }
+
+    /** Retourne les sommets de l'instantané, dans l'ordre d'itération du graphe
+     */
+    public List<Sommet> getVertices() {
+        return vertices;
+    }
+
+    /** Indique si le sommet s appartient à l'instantané
+     */
+    public boolean contains(Sommet s) {
+        return members().contains(s);
+    }
+
+    /** Retourne les voisins du sommet s au moment de l'instantané
+     * @pre <pre>
+     *  s != null
+     *  contains(s) </pre>
+     */
+    public List<Sommet> getNeighbors(Sommet s) {
+        Contract.checkCondition(s != null && contains(s));
+
+        return neighbors(s);
+    }
+
+    /** Retourne les suiveurs du sommet s au moment de l'instantané
+     * @pre <pre>
+     *  s != null
+     *  contains(s) </pre>
+     */
+    public List<Sommet> getFollowers(Sommet s) {
+        Contract.checkCondition(s != null && contains(s));
+
+        return followers(s);
+    }
+
+    /** Retourne les administrateurs de la page p au moment de l'instantané
+     * @pre <pre>
+     *  p != null
+     *  contains(p) </pre>
+     */
+    public List<Utilisateur> getAdmins(Page p) {
+        Contract.checkCondition(p != null && contains(p));
+
+        return admins(p);
+    }
+
+    /** Retourne l'instantané CSR de cet instantané, calculé à la première demande.
+     *  Les arcs y sont rangés directement depuis les côtés relevés ou courants des sommets,
+     *  sans copie intermédiaire, en ne prenant qu'une fois par passe le verrou de chaque tranche.
+     * @post <pre>
+     *  result.getVerticesNb() == getVerticesNb()
+     *  result.getEdgesNb() == getEdgesNb() </pre>
+     */
+    public synchronized GrapheCSR getCSR() {
+        if (csr == null) {
+            int n = array.length;
+            Map<Sommet, Integer> indexes = GrapheCSR.index(array);
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[edgesNb];
+            graph.fillNeighbors(generation, array, indexes, offsets, targets);
+
+            csr = new GrapheCSR(array, indexes, offsets, targets);
+        }
+
+        return csr;
+    }
+
+    // OUTILS
+
+    // Voisins, suiveurs et administrateurs de s, sans vérifier qu'il appartient à l'instantané
+    @SuppressWarnings("unchecked")
+    List<Sommet> neighbors(Sommet s) {
+        return (List<Sommet>) graph.sideOf(generation, s, GenerationSommets.NEIGHBORS);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Sommet> followers(Sommet s) {
+        return (List<Sommet>) graph.sideOf(generation, s, GenerationSommets.FOLLOWERS);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Utilisateur> admins(Page p) {
+        return (List<Utilisateur>) graph.sideOf(generation, p, GenerationSommets.ADMINS);
+    }
+
+    private synchronized Set<Sommet> members() {
+        if (members == null) {
+            members = Collections.newSetFromMap(new IdentityHashMap<Sommet, Boolean>(vertices.size()));
+            members.addAll(vertices);
+        }
+
+        return members;
+    }
+}
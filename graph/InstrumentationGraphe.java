@@ -0,0 +1,174 @@
+package graph;
+
+import metrics.Compteur;
+import metrics.Histogramme;
+import metrics.Jauge;
+import metrics.RegistreMetriques;
+import util.Contract;
+
+/**
+ * Cette classe définit les métriques d'un graphe, demandées une fois pour toutes à un registre.
+ *
+ * Les histogrammes mesurent la durée des opérations réussies, en nanosecondes ;
+ * les compteurs, les mutations et les événements ; les jauges, la taille du graphe.
+ * Toutes les métriques sont nommées graph.*, sous le préfixe prefix s'il n'est pas vide,
+ * pour distinguer plusieurs graphes dans un même registre.
+ *
+ * @cons <pre>
+ * $DESC$ Les métriques du graphe graph, enregistrées dans registry
+ * $ARGS$ Graphe graph, RegistreMetriques registry, String prefix
+ * $PRE$
+ *  graph != null
+ *  registry != null
+ *  prefix != null </pre>
+ */
+final class InstrumentationGraphe {
+
+    // ATTRIBUTS
+
+    private final RegistreMetriques registry;
+
+    final Histogramme addVertice;
+    final Histogramme removeVertice;
+    final Histogramme addEdge;
+    final Histogramme removeEdge;
+    final Histogramme commitBatch;
+    final Histogramme loadGraph;
+    final Histogramme loadGraphBinary;
+    final Histogramme saveGraph;
+    final Histogramme saveGraphBinary;
+    final Histogramme generatePageRank;
+    final Histogramme generatePageRankParallel;
+    final Histogramme computeDistances;
+    final Histogramme getShortestPath;
+    final Histogramme snapshot;
+
+    final Compteur verticesAdded;
+    final Compteur verticesRemoved;
+    final Compteur edgesAdded;
+    final Compteur edgesRemoved;
+    final Compteur adminsChanged;
+    final Compteur reloads;
+    final Compteur batches;
+    final Compteur eventsPublished;
+    final Compteur eventsDelivered;
+
+    // CONSTRUCTEUR
+
+    InstrumentationGraphe(final Graphe graph, RegistreMetriques registry, String prefix) {
+        Contract.checkCondition(graph != null);
+        Contract.checkCondition(registry != null);
+        Contract.checkCondition(prefix != null);
+
+        this.registry = registry;
+        String p = prefix.isEmpty() ? "graph." : prefix + ".graph.";
+
+        addVertice = registry.histogram(p + "addVertice");
+        removeVertice = registry.histogram(p + "removeVertice");
+        addEdge = registry.histogram(p + "addEdge");
+        removeEdge = registry.histogram(p + "removeEdge");
+        commitBatch = registry.histogram(p + "commitBatch");
+        loadGraph = registry.histogram(p + "loadGraph");
+        loadGraphBinary = registry.histogram(p + "loadGraphBinary");
+        saveGraph = registry.histogram(p + "saveGraph");
+        saveGraphBinary = registry.histogram(p + "saveGraphBinary");
+        generatePageRank = registry.histogram(p + "generatePageRank");
+        generatePageRankParallel = registry.histogram(p + "generatePageRankParallel");
+        computeDistances = registry.histogram(p + "computeSmallestDistanceFrom");
+        getShortestPath = registry.histogram(p + "getShortestPath");
+        snapshot = registry.histogram(p + "snapshot");
+
+        verticesAdded = registry.counter(p + "vertices.added");
+        verticesRemoved = registry.counter(p + "vertices.removed");
+        edgesAdded = registry.counter(p + "edges.added");
+        edgesRemoved = registry.counter(p + "edges.removed");
+        adminsChanged = registry.counter(p + "admins.changed");
+        reloads = registry.counter(p + "reloads");
+        batches = registry.counter(p + "batches");
+        eventsPublished = registry.counter(p + "events.published");
+        eventsDelivered = registry.counter(p + "events.delivered");
+
+        registry.gauge(p + "vertices", new Jauge() {
+            public long getValue() {
+                return graph.getVerticesNb();
+            }
+        });
+        registry.gauge(p + "edges", new Jauge() {
+            public long getValue() {
+                return graph.getEdgesNb();
+            }
+        });
+        registry.gauge(p + "users", new Jauge() {
+            public long getValue() {
+                return graph.getUsersNb();
+            }
+        });
+        registry.gauge(p + "pages", new Jauge() {
+            public long getValue() {
+                return graph.getPagesNb();
+            }
+        });
+        registry.gauge(p + "epoch", new Jauge() {
+            public long getValue() {
+                return graph.getEpoch();
+            }
+        });
+        registry.gauge(p + "distanceCache.hits", new Jauge() {
+            public long getValue() {
+                return graph.getDistanceCache().getHits();
+            }
+        });
+        registry.gauge(p + "distanceCache.misses", new Jauge() {
+            public long getValue() {
+                return graph.getDistanceCache().getMisses();
+            }
+        });
+    }
+
+    // REQUETES
+
+    /** Retourne le registre des métriques
+     */
+    RegistreMetriques getRegistry() {
+        return registry;
+    }
+
+    // COMMANDES
+
+    /** Compte l'événement publié e et la mutation qu'il décrit
+     * @pre <pre>
+     *  e != null </pre>
+     */
+    void count(EvenementGraphe e) {
+        eventsPublished.increment();
+
+        switch (e.getType()) {
+            case VERTEX_ADDED:
+                verticesAdded.increment();
+                break;
+            case VERTEX_REMOVED:
+                verticesRemoved.increment();
+                break;
+            case EDGE_ADDED:
+                edgesAdded.increment();
+                break;
+            case EDGE_REMOVED:
+                edgesRemoved.increment();
+                break;
+            case ADMIN_CHANGED:
+                adminsChanged.increment();
+                break;
+            default:
+                reloads.increment();
+                break;
+        }
+    }
+
+    // OUTILS
+
+    /** Enregistre dans h la durée écoulée depuis start, relevé par System.nanoTime()
+     */
+    static void record(Histogramme h, long start) {
+        h.record(System.nanoTime() - start);
+    }
+}
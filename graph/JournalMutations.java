@@ -0,0 +1,799 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+import util.Contract;
+
+/**
+ * Cette classe définit le journal des mutations d'un graphe.
+ *
+ * Le répertoire du journal contient un instantané binaire (SNAPSHOT, au format de FormatBinaire)
+ * et des segments journal-<numéro>.log où chaque mutation est ajoutée sous forme
+ * d'un enregistrement binaire :
+ *  longueur (int) | type (octet) | numéro de mutation (long) | données | CRC32 (int)
+ * Le numéro de mutation (LSN) croît de 1 à chaque enregistrement ; un segment est nommé
+ * d'après le numéro de son premier enregistrement.
+ *
+ * Le journal est écrit avant le graphe : le graphe vérifie le journal (check()), puis y ajoute
+ * une mutation avant de l'appliquer. Un journal en échec ou fermé refuse la mutation, qui n'est
+ * alors pas appliquée ; une mutation appliquée a donc toujours son enregistrement.
+ * Les mutations sont ajoutées à un tampon en mémoire, sans entrée/sortie. Un thread d'écriture
+ * vide le tampon dans le segment courant puis force son contenu sur disque : toutes les mutations
+ * arrivées pendant un forçage sont écrites et forcées ensemble au tour suivant (validation groupée).
+ * La durabilité est donc différée : sync() attend que les mutations déjà ajoutées soient sur disque,
+ * et signale l'échec du thread d'écriture s'il n'a pas pu les y mettre.
+ *
+ * Le compactage fige le graphe dans une image, dont l'écriture se fait en arrière-plan,
+ * remplace l'instantané puis supprime les segments qu'il couvre entièrement.
+ * Au démarrage, l'instantané est relu puis les enregistrements postérieurs rejoués.
+ *
+ * @cons <pre>
+ * $DESC$ Un journal dans directory, dont la dernière mutation connue porte le numéro lastLsn
+ * $ARGS$ File directory, long lastLsn
+ * $PRE$
+ *  directory != null && directory.isDirectory()
+ *  lastLsn >= 0
+ * $POST$
+ *  getDirectory() == directory
+ *  getLastLsn() == lastLsn
+ *  getDurableLsn() == lastLsn </pre>
+ */
+public class JournalMutations {
+
+    // CONSTANTES
+
+    static final String SNAPSHOT = "snapshot.bin";
+
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte ADD_USER = 1;
+    private static final byte ADD_PAGE = 2;
+    private static final byte REMOVE_VERTICE = 3;
+    private static final byte ADD_EDGE = 4;
+    private static final byte REMOVE_EDGE = 5;
+    private static final byte ADD_ADMIN = 6;
+    private static final byte REMOVE_ADMIN = 7;
+
+    // Type et numéro de mutation, en tête de chaque enregistrement
+    private static final int RECORD_HEADER = 1 + 8;
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Taille du tampon au-delà de laquelle les mutations attendent le thread d'écriture
+    private static final int MAX_PENDING = 16 * 1024 * 1024;
+
+    // ATTRIBUTS
+
+    private final File directory;
+    private long segmentSize;
+
+    // Protège les tampons et les numéros de mutation, partagés avec le thread d'écriture
+    private final Object lock;
+
+    // Enregistrements en attente, et lot en cours d'écriture
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private final CRC32 crc;
+
+    private long pendingFirstLsn;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean rollRequested;
+    private long snapshotLsn;
+    private boolean closed;
+    private IOException failure;
+
+    // Segment courant, utilisé seulement par le thread d'écriture
+    private FileChannel segment;
+    private long segmentBytes;
+
+    private final Thread flusher;
+    private final ExecutorService compactor;
+    private Future<Void> compaction;
+
+    // CONSTRUCTEUR
+
+    JournalMutations(File directory, long lastLsn) {
+        Contract.checkCondition(directory != null && directory.isDirectory());
+        Contract.checkCondition(lastLsn >= 0);
+
+        this.directory = directory;
+        segmentSize = DEFAULT_SEGMENT_SIZE;
+        lock = new Object();
+        pending = ByteBuffer.allocate(BUFFER_SIZE);
+        writing = ByteBuffer.allocate(BUFFER_SIZE);
+        crc = new CRC32();
+        this.lastLsn = lastLsn;
+        durableLsn = lastLsn;
+        snapshotLsn = 0;
+
+        ThreadFactory daemons = new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "journal-compactage");
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        compactor = Executors.newSingleThreadExecutor(daemons);
+
+        flusher = new Thread(new Runnable() {
+            public void run() {
+                flushLoop();
+            }
+        }, "journal-écriture");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // REQUETES
+
+    /** Retourne le répertoire du journal
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** Retourne le numéro de la dernière mutation ajoutée
+     */
+    public long getLastLsn() {
+        synchronized (lock) {
+            return lastLsn;
+        }
+    }
+
+    /** Retourne le numéro de la dernière mutation écrite et forcée sur disque
+     */
+    public long getDurableLsn() {
+        synchronized (lock) {
+            return durableLsn;
+        }
+    }
+
+    /** Retourne la taille au-delà de laquelle un nouveau segment est commencé
+     */
+    public long getSegmentSize() {
+        synchronized (lock) {
+            return segmentSize;
+        }
+    }
+
+    /** Indique si un compactage est en cours
+     */
+    public boolean isCompacting() {
+        synchronized (lock) {
+            return compaction != null && !compaction.isDone();
+        }
+    }
+
+    /** Retourne l'erreur qui a arrêté le thread d'écriture, null s'il n'y en a pas
+     */
+    public IOException getFailure() {
+        synchronized (lock) {
+            return failure;
+        }
+    }
+
+    /** Rejoue les segments de directory sur target, en ignorant les mutations
+     *  de numéro inférieur ou égal à afterLsn, et retourne le numéro de la dernière mutation.
+     *  Un enregistrement incomplet en fin de dernier segment, laissé par un arrêt brutal,
+     *  est tronqué.
+     * @pre <pre>
+     *  directory != null
+     *  afterLsn >= 0
+     *  target != null </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie
+     *  BadSyntaxException: Un segment est corrompu, ou il manque des mutations après afterLsn </pre>
+     */
+    static long replay(File directory, long afterLsn, Rejeu target)
+            throws IOException, BadSyntaxException {
+        Contract.checkCondition(directory != null);
+        Contract.checkCondition(afterLsn >= 0);
+        Contract.checkCondition(target != null);
+
+        List<File> segments = segments(directory);
+        long expected = afterLsn + 1;
+
+        for (int i = 0; i < segments.size(); i++) {
+            File file = segments.get(i);
+            boolean last = i == segments.size() - 1;
+
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new BadSyntaxException("Segment trop grand : " + file.getName());
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // lecture du segment entier
+                }
+                buffer.flip();
+
+                CRC32 crc = new CRC32();
+                while (buffer.hasRemaining()) {
+                    int start = buffer.position();
+                    ByteBuffer record = nextRecord(buffer, crc);
+
+                    if (record == null) {
+                        if (!last) {
+                            throw new BadSyntaxException("Journal corrompu : " + file.getName());
+                        }
+                        // Fin déchirée par un arrêt brutal : on la retire
+                        channel.truncate(start);
+                        break;
+                    }
+
+                    byte type = record.get();
+                    long lsn = record.getLong();
+                    if (lsn > expected) {
+                        throw new BadSyntaxException("Journal incomplet : mutation " + expected + " manquante");
+                    }
+                    if (lsn == expected) {
+                        apply(type, record, target, lsn);
+                        expected++;
+                    }
+                }
+            } finally {
+                raf.close();
+            }
+        }
+
+        return expected - 1;
+    }
+
+    // COMMANDES
+
+    /** Fixe la taille au-delà de laquelle un nouveau segment est commencé
+     * @pre <pre>
+     *  size > 0 </pre>
+     */
+    public void setSegmentSize(long size) {
+        Contract.checkCondition(size > 0);
+
+        synchronized (lock) {
+            segmentSize = size;
+        }
+    }
+
+    /** Attend que toutes les mutations déjà ajoutées soient écrites et forcées sur disque
+     * @post <pre>
+     *  getDurableLsn() == getLastLsn() au moment de l'appel </pre>
+     *
+     * @throws <pre>
+     *  IOException: Le thread d'écriture s'est arrêté sur une erreur, ou l'attente a été interrompue </pre>
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = lastLsn;
+            while (durableLsn < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Attente du journal interrompue");
+                }
+            }
+            if (durableLsn < target) {
+                throw new IOException("Échec de l'écriture du journal", failure);
+            }
+        }
+    }
+
+    /** Force les mutations sur disque, attend la fin du compactage en cours et ferme le journal.
+     *  Aucune mutation ne peut plus être ajoutée, même si la fermeture échoue.
+     *  Fermer un journal déjà fermé est sans effet.
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie, des mutations ajoutées ne sont peut-être pas sur disque </pre>
+     */
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+        }
+
+        try {
+            sync();
+            awaitCompaction();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            compactor.shutdown();
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Remplace l'instantané par l'image de l'instantané du graphe snap, dont le prochain ID
+     *  est nextId, puis supprime les segments qu'il couvre. L'image est figée dans le thread appelant,
+     *  qui ne doit pas modifier le graphe pendant l'appel ; son écriture se fait en arrière-plan.
+     *  Un compactage encore en cours est d'abord attendu.
+     * @pre <pre>
+     *  snap != null
+     *  nextId > 0 </pre>
+     *
+     * @throws <pre>
+     *  IOException: Le compactage précédent a échoué, ou le journal est fermé </pre>
+     */
+    Future<Void> compact(InstantaneGraphe snap, int nextId) throws IOException {
+        Contract.checkCondition(snap != null);
+        Contract.checkCondition(nextId > 0);
+
+        awaitCompaction();
+
+        long lsn;
+        synchronized (lock) {
+            checkOpen();
+            lsn = lastLsn;
+            // Les mutations suivantes partent dans un nouveau segment, que l'instantané ne couvre pas
+            rollRequested = true;
+        }
+
+        final FormatBinaire.Image image = FormatBinaire.capture(snap, nextId, lsn);
+        Future<Void> f = compactor.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                writeSnapshot(image);
+                return null;
+            }
+        });
+
+        synchronized (lock) {
+            compaction = f;
+        }
+
+        return f;
+    }
+
+    /** Vérifie que le journal accepte des mutations ; à appeler avant de journaliser
+     *  puis d'appliquer une mutation, aucune n'étant appliquée s'il les refuse
+     * @throws <pre>
+     *  UncheckedIOException: Le thread d'écriture s'est arrêté sur une erreur, ou le journal est fermé </pre>
+     */
+    void check() {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new UncheckedIOException("Échec de l'écriture du journal", failure);
+            }
+            if (closed) {
+                throw new UncheckedIOException(new IOException("Journal fermé"));
+            }
+        }
+    }
+
+    /** Journalise l'ajout du sommet s, qui a déjà reçu son ID
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void logAddVertice(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        synchronized (lock) {
+            if (s instanceof Utilisateur) {
+                Utilisateur u = (Utilisateur) s;
+                int start = begin(ADD_USER);
+                pending.putInt(u.getId()).putInt(u.getAge());
+                putString(u.getName());
+                putString(u.getFirstName());
+                end(start);
+            } else {
+                int start = begin(ADD_PAGE);
+                pending.putInt(s.getId());
+                putString(s.getName());
+                end(start);
+            }
+        }
+    }
+
+    /** Journalise la suppression du sommet s
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void logRemoveVertice(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        synchronized (lock) {
+            int start = begin(REMOVE_VERTICE);
+            pending.putInt(s.getId());
+            end(start);
+        }
+    }
+
+    /** Journalise l'ajout (added) ou la suppression de l'arc de s vers v
+     * @pre <pre>
+     *  s != null
+     *  v != null </pre>
+     */
+    void logEdge(boolean added, Sommet s, Sommet v) {
+        Contract.checkCondition(s != null);
+        Contract.checkCondition(v != null);
+
+        synchronized (lock) {
+            int start = begin(added ? ADD_EDGE : REMOVE_EDGE);
+            pending.putInt(s.getId()).putInt(v.getId());
+            end(start);
+        }
+    }
+
+    /** Journalise l'ajout (added) ou le retrait de l'administrateur u de la page p
+     * @pre <pre>
+     *  p != null
+     *  u != null </pre>
+     */
+    void logAdmin(boolean added, Page p, Utilisateur u) {
+        Contract.checkCondition(p != null);
+        Contract.checkCondition(u != null);
+
+        synchronized (lock) {
+            int start = begin(added ? ADD_ADMIN : REMOVE_ADMIN);
+            pending.putInt(p.getId()).putInt(u.getId());
+            end(start);
+        }
+    }
+
+    // OUTILS
+
+    /**
+     * La cible du rejeu des mutations, désignant les sommets par leur ID
+     */
+    interface Rejeu {
+        void addUser(int id, String name, String firstName, int age) throws BadSyntaxException;
+        void addPage(int id, String name) throws BadSyntaxException;
+        void removeVertice(int id) throws BadSyntaxException;
+        void addEdge(int from, int to) throws BadSyntaxException;
+        void removeEdge(int from, int to) throws BadSyntaxException;
+        void addAdmin(int page, int user) throws BadSyntaxException;
+        void removeAdmin(int page, int user) throws BadSyntaxException;
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Échec de l'écriture du journal", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal fermé");
+        }
+    }
+
+    /** Attend la fin du compactage en cours ; son échec n'est signalé qu'une fois
+     * @throws <pre>
+     *  IOException: Le compactage a échoué, ou l'attente a été interrompue </pre>
+     */
+    void awaitCompaction() throws IOException {
+        Future<Void> f;
+        synchronized (lock) {
+            f = compaction;
+        }
+        if (f == null) {
+            return;
+        }
+
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente du compactage interrompue");
+        } catch (ExecutionException e) {
+            synchronized (lock) {
+                if (compaction == f) {
+                    compaction = null;
+                }
+            }
+            throw new IOException("Échec du compactage du journal", e.getCause());
+        }
+    }
+
+    // Commence un enregistrement dans le tampon ; appelé avec lock. N'échoue pas : le graphe
+    // a vérifié le journal avant, et un échec survenu depuis sera signalé par sync()
+    private int begin(byte type) {
+        Contract.checkCondition(!closed);
+
+        // Le tampon ne grossit pas sans limite si le disque ne suit pas
+        while (pending.position() > MAX_PENDING && failure == null) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // En-tête et au plus deux ID ; les chaînes réservent leur propre place
+        ensure(4 + RECORD_HEADER + 8);
+        int start = pending.position();
+        if (start == 0) {
+            pendingFirstLsn = lastLsn + 1;
+        }
+        pending.putInt(0).put(type).putLong(lastLsn + 1);
+
+        return start;
+    }
+
+    // Termine l'enregistrement commencé en start : longueur, CRC32, numéro de mutation
+    private void end(int start) {
+        int length = pending.position() - start - 4;
+        pending.putInt(start, length);
+
+        crc.reset();
+        crc.update(pending.array(), start + 4, length);
+        ensure(4);
+        pending.putInt((int) crc.getValue());
+
+        lastLsn++;
+        lock.notifyAll();
+    }
+
+    private void putString(String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        pending.putInt(bytes.length).put(bytes);
+    }
+
+    private void ensure(int more) {
+        if (pending.remaining() < more) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + more));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    // Boucle du thread d'écriture : un lot par tour, un forçage par lot
+    private void flushLoop() {
+        while (true) {
+            long first;
+            long last;
+            long limit;
+            long covered;
+            boolean roll;
+
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // seule la fermeture arrête le thread
+                    }
+                }
+                if (pending.position() == 0) {
+                    break;
+                }
+
+                ByteBuffer tmp = writing;
+                writing = pending;
+                pending = tmp;
+                pending.clear();
+
+                first = pendingFirstLsn;
+                last = lastLsn;
+                limit = segmentSize;
+                covered = snapshotLsn;
+                roll = rollRequested;
+                rollRequested = false;
+                lock.notifyAll();
+            }
+
+            try {
+                writing.flip();
+                if (segment == null || roll || segmentBytes >= limit) {
+                    openSegment(first);
+                    if (first <= covered + 1) {
+                        deleteSegmentsBefore(first);
+                    }
+                }
+                segmentBytes += writing.remaining();
+                while (writing.hasRemaining()) {
+                    segment.write(writing);
+                }
+                segment.force(false);
+                writing.clear();
+
+                synchronized (lock) {
+                    durableLsn = last;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                break;
+            }
+        }
+
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+
+        File file = new File(directory, SEGMENT_PREFIX + String.format("%020d", firstLsn) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        segmentBytes = 0;
+    }
+
+    // Écrit l'image à côté de l'instantané, la substitue d'un bloc puis retire les segments couverts
+    private void writeSnapshot(FormatBinaire.Image image) throws IOException {
+        File tmp = new File(directory, SNAPSHOT_TMP);
+        image.write(tmp, true);
+        Files.move(tmp.toPath(), new File(directory, SNAPSHOT).toPath(),
+                   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        synchronized (lock) {
+            snapshotLsn = image.getLsn();
+        }
+
+        // Un segment est couvert si le suivant commence au plus tard juste après l'instantané.
+        // Si le segment suivant n'est pas encore ouvert, le thread d'écriture fera le ménage en l'ouvrant.
+        List<File> segments = segments(directory);
+        for (int i = segments.size() - 1; i > 0; i--) {
+            long first = firstLsn(segments.get(i));
+            if (first <= image.getLsn() + 1) {
+                deleteSegmentsBefore(first);
+                break;
+            }
+        }
+    }
+
+    // Supprime les segments dont le premier numéro de mutation précède firstLsn
+    private void deleteSegmentsBefore(long firstLsn) throws IOException {
+        for (File f : segments(directory)) {
+            if (firstLsn(f) < firstLsn) {
+                Files.deleteIfExists(f.toPath());
+            }
+        }
+    }
+
+    // Segments du répertoire, dans l'ordre de leur premier numéro de mutation
+    private static List<File> segments(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Répertoire de journal illisible : " + directory);
+        }
+
+        List<File> segments = new ArrayList<File>();
+        for (File f : files) {
+            String name = f.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) && firstLsn(f) > 0) {
+                segments.add(f);
+            }
+        }
+        // Les numéros sont écrits sur 20 chiffres : l'ordre des noms est celui des numéros
+        Collections.sort(segments);
+
+        return segments;
+    }
+
+    private static long firstLsn(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                                 name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // L'enregistrement suivant, null s'il est incomplet ou si son CRC32 est faux
+    private static ByteBuffer nextRecord(ByteBuffer buffer, CRC32 crc) {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+
+        int length = buffer.getInt();
+        if (length < RECORD_HEADER || length > buffer.remaining() - 4) {
+            return null;
+        }
+
+        int start = buffer.position();
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, length);
+        if ((int) crc.getValue() != buffer.getInt(start + length)) {
+            return null;
+        }
+
+        ByteBuffer record = buffer.duplicate();
+        record.limit(start + length);
+        buffer.position(start + length + 4);
+
+        return record;
+    }
+
+    private static void apply(byte type, ByteBuffer record, Rejeu target, long lsn)
+            throws BadSyntaxException {
+        try {
+            switch (type) {
+                case ADD_USER:
+                    int id = record.getInt();
+                    int age = record.getInt();
+                    String name = getString(record);
+                    target.addUser(id, name, getString(record), age);
+                    break;
+                case ADD_PAGE:
+                    id = record.getInt();
+                    target.addPage(id, getString(record));
+                    break;
+                case REMOVE_VERTICE:
+                    target.removeVertice(record.getInt());
+                    break;
+                case ADD_EDGE:
+                    target.addEdge(record.getInt(), record.getInt());
+                    break;
+                case REMOVE_EDGE:
+                    target.removeEdge(record.getInt(), record.getInt());
+                    break;
+                case ADD_ADMIN:
+                    target.addAdmin(record.getInt(), record.getInt());
+                    break;
+                case REMOVE_ADMIN:
+                    target.removeAdmin(record.getInt(), record.getInt());
+                    break;
+                default:
+                    throw new BadSyntaxException("Type inconnu");
+            }
+        } catch (BadSyntaxException e) {
+            throw new BadSyntaxException("Mutation " + lsn + " : " + e.getMessage());
+        } catch (BufferUnderflowException e) {
+            // Données plus courtes que leur type ne l'exige
+            throw new BadSyntaxException("Mutation " + lsn + " : enregistrement tronqué");
+        }
+    }
+
+    private static String getString(ByteBuffer record) throws BadSyntaxException {
+        int length = record.getInt();
+        if (length < 0) {
+            throw new BadSyntaxException("longueur de chaîne invalide");
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
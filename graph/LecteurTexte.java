@@ -0,0 +1,450 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+import util.Contract;
+
+/**
+ * Cette classe définit la lecture du format texte du graphe :
+ *  {id = 1, name = Nom, firstname = Prénom, age = 20, neighbors = [2, 3]}
+ *  {id = 2, name = Nom de page, admins = [1]}
+ *
+ * Chaque ligne est analysée en une seule passe, sans expression régulière,
+ * et les listes d'ID sont lues directement dans des tableaux d'int.
+ * Le fichier est découpé en tranches de lignes analysées en parallèle,
+ * puis les sommets sont créés et reliés dans l'ordre du fichier.
+ * L'avancement est signalé, en octets lus, à chaque tranche.
+ *
+ * Une ligne est acceptée exactement quand elle correspond aux expressions
+ *  ^\{id = [0-9]+, name = .+, firstname = .+, age = [0-9]+, neighbors = \[liste\]\}$
+ *  ^\{id = [0-9]+, name = .+, admins = \[liste\]\}$
+ * où liste vaut (([0-9]+, )+[0-9]+)|[0-9]* ; comme pour ces expressions,
+ * le nom s'étend jusqu'au dernier ", firstname = " possible.
+ */
+final class LecteurTexte {
+
+    // CONSTANTES
+
+    private static final int CHUNK_LINES = 8192;
+
+    private static final String ID = "{id = ";
+    private static final String NAME = ", name = ";
+    private static final String FIRSTNAME = ", firstname = ";
+    private static final String AGE = ", age = ";
+    private static final String NEIGHBORS = ", neighbors = [";
+    private static final String ADMINS = ", admins = [";
+    private static final String END = "]}";
+
+    // CONSTRUCTEUR
+
+    private LecteurTexte() {
+    }
+
+    // REQUETES
+
+    /** Relit le graphe contenu dans file, écrit dans le jeu de caractères charset,
+     *  en analysant les tranches dans executor, et signale l'avancement à progress s'il n'est pas null
+     * @pre <pre>
+     *  file != null
+     *  charset != null
+     *  executor != null </pre>
+     *
+     * @throws <pre>
+     *  IOException: Erreur d'entrée/sortie, InterruptedIOException si le thread est interrompu
+     *  BadSyntaxException: Une ligne ne correspond ni à un utilisateur, ni à une page,
+     *                      ou désigne un sommet inexistant </pre>
+     */
+    static ContenuGraphe read(File file, Charset charset, ExecutorService executor, Progression progress)
+            throws IOException, BadSyntaxException {
+        Contract.checkCondition(file != null);
+        Contract.checkCondition(charset != null);
+        Contract.checkCondition(executor != null);
+
+        List<Future<Tranche>> chunks = new ArrayList<Future<Tranche>>();
+        long length = file.length();
+        Compteur counter = new Compteur(new FileInputStream(file));
+        BufferedReader input = new BufferedReader(new InputStreamReader(counter, charset));
+
+        try {
+            int lineNb = 1;
+            String[] lines = new String[CHUNK_LINES];
+            int count = 0;
+            String line = input.readLine();
+
+            while (line != null) {
+                lines[count++] = line;
+                if (count == CHUNK_LINES) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        cancel(chunks);
+                        throw new InterruptedIOException("Lecture interrompue");
+                    }
+                    if (progress != null) {
+                        progress.progressed(Math.min(counter.count, length), length);
+                    }
+                    chunks.add(executor.submit(new Analyse(lines, count, lineNb)));
+                    lineNb += count;
+                    lines = new String[CHUNK_LINES];
+                    count = 0;
+                }
+                line = input.readLine();
+            }
+
+            if (count > 0) {
+                chunks.add(executor.submit(new Analyse(lines, count, lineNb)));
+            }
+
+        } finally {
+            input.close();
+        }
+
+        // Les tranches sont reprises dans l'ordre : la première erreur est celle de la plus petite ligne
+        List<Tranche> parsed = new ArrayList<Tranche>(chunks.size());
+        try {
+            for (Future<Tranche> f : chunks) {
+                parsed.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            cancel(chunks);
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Lecture interrompue");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            cancel(chunks);
+            // Un ForkJoinPool enveloppe les exceptions vérifiées, on cherche la cause d'origine
+            for (Throwable c = e.getCause(); c != null; c = c.getCause()) {
+                if (c instanceof BadSyntaxException) {
+                    throw (BadSyntaxException) c;
+                }
+            }
+            throw new IOException(e.getCause());
+        }
+
+        if (progress != null) {
+            progress.progressed(length, length);
+        }
+
+        return link(parsed);
+    }
+
+    // OUTILS
+
+    private static void cancel(List<Future<Tranche>> chunks) {
+        for (Future<Tranche> f : chunks) {
+            f.cancel(true);
+        }
+    }
+
+    // Création des sommets dans l'ordre du fichier, puis des arcs et des administrateurs
+    private static ContenuGraphe link(List<Tranche> parsed) throws BadSyntaxException {
+        int total = 0;
+        for (Tranche t : parsed) {
+            total += t.count;
+        }
+
+        Sommet[] vertices = new Sommet[total];
+        RegistreSommets registry = new RegistreSommets();
+        int highestId = 0;
+        int v = 0;
+
+        for (Tranche t : parsed) {
+            for (int i = 0; i < t.count; i++) {
+                Sommet s;
+                if (t.firstnames[i] != null) {
+                    s = new Utilisateur(t.firstnames[i], t.names[i], t.ages[i]);
+                } else {
+                    s = new Page(t.names[i]);
+                }
+
+                if (registry.getById(t.ids[i]) != null) {
+                    throw error(t.firstLine + i, "ID " + t.ids[i] + " en double");
+                }
+                s.setId(t.ids[i]);
+                registry.add(s);
+                vertices[v++] = s;
+                highestId = highestId > t.ids[i] ? highestId : t.ids[i];
+            }
+        }
+
+        v = 0;
+        for (Tranche t : parsed) {
+            for (int i = 0; i < t.count; i++) {
+                Sommet s = vertices[v++];
+                int line = t.firstLine + i;
+
+                for (int k = t.listOffsets[i]; k < t.listOffsets[i + 1]; k++) {
+                    int id = t.lists[k];
+                    Sommet target = id > 0 ? registry.getById(id) : null;
+                    if (target == null) {
+                        throw error(line, "aucun sommet d'ID " + id);
+                    }
+
+                    if (s instanceof Utilisateur) {
+                        if (s.getNeighbors().contains(target)) {
+                            throw error(line, "arc vers " + id + " en double");
+                        }
+                        s.addNeighbor(target);
+                        target.addFollower(s);
+                    } else {
+                        if (!(target instanceof Utilisateur)) {
+                            throw error(line, "l'administrateur " + id + " n'est pas un utilisateur");
+                        }
+                        ((Page) s).addAdmin((Utilisateur) target);
+                    }
+                }
+            }
+        }
+
+        return new ContenuGraphe(Arrays.asList(vertices), registry, highestId + 1, 0);
+    }
+
+    private static BadSyntaxException error(int line, String message) {
+        return new BadSyntaxException("Ligne " + line + " : " + message);
+    }
+
+    /**
+     * Les enregistrements d'une tranche de lignes.
+     * firstnames[i] est null pour une page ; la liste d'ID de l'enregistrement i
+     * (voisins ou administrateurs) occupe lists[listOffsets[i] .. listOffsets[i + 1][.
+     */
+    private static class Tranche {
+        final int firstLine;
+        int count;
+        final int[] ids;
+        final String[] names;
+        final String[] firstnames;
+        final int[] ages;
+        final int[] listOffsets;
+        int[] lists;
+
+        Tranche(int capacity, int firstLine) {
+            this.firstLine = firstLine;
+            ids = new int[capacity];
+            names = new String[capacity];
+            firstnames = new String[capacity];
+            ages = new int[capacity];
+            listOffsets = new int[capacity + 1];
+            lists = new int[capacity * 4];
+        }
+
+        void addId(int id) {
+            int k = listOffsets[count + 1];
+            if (k == lists.length) {
+                lists = Arrays.copyOf(lists, lists.length * 2);
+            }
+            lists[k] = id;
+            listOffsets[count + 1] = k + 1;
+        }
+    }
+
+    /**
+     * Le nombre d'octets lus dans un flot
+     */
+    private static class Compteur extends FilterInputStream {
+        long count;
+
+        Compteur(InputStream in) {
+            super(in);
+            count = 0;
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            long k = super.skip(n);
+            count += k;
+            return k;
+        }
+    }
+
+    /**
+     * L'analyse d'une tranche de lignes
+     */
+    private static class Analyse implements Callable<Tranche> {
+        private final String[] lines;
+        private final int count;
+        private final int firstLine;
+
+        Analyse(String[] lines, int count, int firstLine) {
+            this.lines = lines;
+            this.count = count;
+            this.firstLine = firstLine;
+        }
+
+        public Tranche call() throws BadSyntaxException {
+            Tranche t = new Tranche(count, firstLine);
+
+            for (int i = 0; i < count; i++) {
+                t.listOffsets[t.count + 1] = t.listOffsets[t.count];
+                if (!parseLine(lines[i], t)) {
+                    throw error(firstLine + i, "ni un utilisateur, ni une page");
+                }
+                t.count++;
+            }
+
+            return t;
+        }
+    }
+
+    // Analyse une ligne et ajoute son enregistrement à t ; retourne false si elle est invalide
+    private static boolean parseLine(String line, Tranche t) {
+        int len = line.length();
+
+        if (!line.startsWith(ID) || !line.endsWith(END)) {
+            return false;
+        }
+
+        int p = ID.length();
+        int idEnd = digits(line, p, len);
+        if (idEnd == p || !line.startsWith(NAME, idEnd)) {
+            return false;
+        }
+        int id = parseInt(line, p, idEnd);
+        if (id <= 0) {
+            return false;
+        }
+        int nameStart = idEnd + NAME.length();
+        int listEnd = len - END.length();
+
+        // Utilisateur : la liste des voisins suit la dernière occurrence de ", neighbors = ["
+        int k = line.lastIndexOf(NEIGHBORS, listEnd);
+        if (k >= nameStart && parseList(line, k + NEIGHBORS.length(), listEnd, t)) {
+            int ageEnd = k;
+            int ageStart = ageEnd;
+            while (ageStart > 0 && isDigit(line.charAt(ageStart - 1))) {
+                ageStart--;
+            }
+            int sep = ageStart - AGE.length();
+            if (ageStart < ageEnd && sep >= nameStart && line.startsWith(AGE, sep)) {
+                int age = parseInt(line, ageStart, ageEnd);
+
+                // Le nom s'étend jusqu'au dernier ", firstname = " laissant un prénom non vide
+                int f = line.lastIndexOf(FIRSTNAME, sep - FIRSTNAME.length() - 1);
+                while (f > nameStart) {
+                    if (isText(line, nameStart, f) && isText(line, f + FIRSTNAME.length(), sep)) {
+                        if (age <= 0) {
+                            return false;
+                        }
+                        t.ids[t.count] = id;
+                        t.names[t.count] = line.substring(nameStart, f);
+                        t.firstnames[t.count] = line.substring(f + FIRSTNAME.length(), sep);
+                        t.ages[t.count] = age;
+                        return true;
+                    }
+                    f = line.lastIndexOf(FIRSTNAME, f - 1);
+                }
+            }
+            t.listOffsets[t.count + 1] = t.listOffsets[t.count];
+        }
+
+        // Page : la liste des administrateurs suit la dernière occurrence de ", admins = ["
+        k = line.lastIndexOf(ADMINS, listEnd);
+        if (k > nameStart && isText(line, nameStart, k)
+                && parseList(line, k + ADMINS.length(), listEnd, t)) {
+            t.ids[t.count] = id;
+            t.names[t.count] = line.substring(nameStart, k);
+            t.firstnames[t.count] = null;
+            return true;
+        }
+
+        return false;
+    }
+
+    // Lit une liste "a, b, c" (éventuellement vide) entre from et to ; false si elle est invalide
+    private static boolean parseList(String line, int from, int to, Tranche t) {
+        t.listOffsets[t.count + 1] = t.listOffsets[t.count];
+        if (from == to) {
+            return true;
+        }
+
+        int p = from;
+        while (true) {
+            int end = digits(line, p, to);
+            if (end == p) {
+                return false;
+            }
+            t.addId(parseInt(line, p, end));
+            if (end == to) {
+                return true;
+            }
+            if (end + 2 > to || line.charAt(end) != ',' || line.charAt(end + 1) != ' ') {
+                return false;
+            }
+            p = end + 2;
+        }
+    }
+
+    private static int digits(String line, int from, int to) {
+        int p = from;
+        while (p < to && isDigit(line.charAt(p))) {
+            p++;
+        }
+
+        return p;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Entier décimal entre from et to, -1 s'il dépasse Integer.MAX_VALUE
+    private static int parseInt(String line, int from, int to) {
+        long value = 0;
+        for (int p = from; p < to; p++) {
+            value = value * 10 + (line.charAt(p) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+
+        return (int) value;
+    }
+
+    // Texte non vide, sans fin de ligne, comme le '.+' des expressions régulières
+    private static boolean isText(String line, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int p = from; p < to; p++) {
+            char c = line.charAt(p);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
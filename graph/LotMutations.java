@@ -0,0 +1,400 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit un lot de mutations d'un graphe, appliquées ensemble.
+ *
+ * Les mutations sont enregistrées dans l'ordre, sans toucher au graphe.
+ * commit() vérifie d'abord les préconditions de toutes les mutations, chacune
+ * en tenant compte des précédentes du lot ; si l'une n'est pas satisfaite,
+ * aucune n'est appliquée. Sinon elles sont toutes appliquées, puis les écouteurs
+ * synchrones du graphe reçoivent tous leurs changements en un seul appel.
+ * Le verrou du graphe est pris en écriture pendant tout commit() : aucune autre
+ * modification ne s'intercale entre la vérification et l'application du lot.
+ *
+ * @cons <pre>
+ * $DESC$ Un lot vide de mutations du graphe g
+ * $ARGS$ Graphe g
+ * $PRE$
+ *  g != null
+ * $POST$
+ *  getGraph() == g
+ *  size() == 0
+ *  !isCommitted() </pre>
+ */
+public class LotMutations {
+
+    // CONSTANTES
+
+    private static final int ADD_VERTICE = 0;
+    private static final int REMOVE_VERTICE = 1;
+    private static final int ADD_EDGE = 2;
+    private static final int REMOVE_EDGE = 3;
+    private static final int ADD_ADMIN = 4;
+    private static final int REMOVE_ADMIN = 5;
+
+    // ATTRIBUTS
+
+    private final Graphe graph;
+    private final List<Mutation> mutations;
+    private final int[] counts;
+    private boolean committed;
+
+    // CONSTRUCTEUR
+
+    public LotMutations(Graphe g) {
+        Contract.checkCondition(g != null);
+
+        graph = g;
+        mutations = new ArrayList<Mutation>();
+        counts = new int[REMOVE_ADMIN + 1];
+        committed = false;
+    }
+
+    // REQUETES
+
+    /** Retourne le graphe modifié par le lot
+     */
+    public Graphe getGraph() {
+        return graph;
+    }
+
+    /** Retourne le nombre de mutations du lot
+     */
+    public int size() {
+        return mutations.size();
+    }
+
+    /** Indique si le lot a été appliqué
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /** Retourne le nombre de sommets ajoutés par le lot
+     */
+    public int getAddedVerticesNb() {
+        return counts[ADD_VERTICE];
+    }
+
+    /** Retourne le nombre de sommets supprimés par le lot
+     */
+    public int getRemovedVerticesNb() {
+        return counts[REMOVE_VERTICE];
+    }
+
+    /** Retourne le nombre d'arcs ajoutés par le lot
+     */
+    public int getAddedEdgesNb() {
+        return counts[ADD_EDGE];
+    }
+
+    /** Retourne le nombre d'arcs supprimés par le lot, hors arcs des sommets supprimés
+     */
+    public int getRemovedEdgesNb() {
+        return counts[REMOVE_EDGE];
+    }
+
+    /** Retourne le nombre d'administrateurs ajoutés ou retirés par le lot
+     */
+    public int getAdminChangesNb() {
+        return counts[ADD_ADMIN] + counts[REMOVE_ADMIN];
+    }
+
+    public String toString() {
+        return "{vertices = +" + counts[ADD_VERTICE] + "/-" + counts[REMOVE_VERTICE]
+            + ", edges = +" + counts[ADD_EDGE] + "/-" + counts[REMOVE_EDGE]
+            + ", admins = +" + counts[ADD_ADMIN] + "/-" + counts[REMOVE_ADMIN] + "}";
+    }
+
+    // COMMANDES
+
+    /** Ajoute au lot l'ajout du sommet s
+     * @pre <pre>
+     *  s != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations addVertice(Sommet s) {
+        return record(ADD_VERTICE, s, null);
+    }
+
+    /** Ajoute au lot l'ajout de chacun des sommets de vs, dans l'ordre
+     * @pre <pre>
+     *  vs != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations addVertices(Collection<? extends Sommet> vs) {
+        Contract.checkCondition(vs != null);
+
+        for (Sommet s : vs) {
+            addVertice(s);
+        }
+
+        return this;
+    }
+
+    /** Ajoute au lot la suppression du sommet s
+     * @pre <pre>
+     *  s != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations removeVertice(Sommet s) {
+        return record(REMOVE_VERTICE, s, null);
+    }
+
+    /** Ajoute au lot l'ajout de l'arc de s vers v
+     * @pre <pre>
+     *  s != null
+     *  v != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations addEdge(Sommet s, Sommet v) {
+        Contract.checkCondition(v != null);
+
+        return record(ADD_EDGE, s, v);
+    }
+
+    /** Ajoute au lot l'ajout des arcs de s vers chacun des sommets de targets, dans l'ordre
+     * @pre <pre>
+     *  s != null
+     *  targets != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations addEdges(Sommet s, Collection<? extends Sommet> targets) {
+        Contract.checkCondition(targets != null);
+
+        for (Sommet v : targets) {
+            addEdge(s, v);
+        }
+
+        return this;
+    }
+
+    /** Ajoute au lot la suppression de l'arc de s vers v
+     * @pre <pre>
+     *  s != null
+     *  v != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations removeEdge(Sommet s, Sommet v) {
+        Contract.checkCondition(v != null);
+
+        return record(REMOVE_EDGE, s, v);
+    }
+
+    /** Ajoute au lot l'ajout de l'administrateur u à la page p
+     * @pre <pre>
+     *  p != null
+     *  u != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations addAdmin(Page p, Utilisateur u) {
+        Contract.checkCondition(u != null);
+
+        return record(ADD_ADMIN, p, u);
+    }
+
+    /** Ajoute au lot le retrait de l'administrateur u de la page p
+     * @pre <pre>
+     *  p != null
+     *  u != null
+     *  !isCommitted() </pre>
+     */
+    public LotMutations removeAdmin(Page p, Utilisateur u) {
+        Contract.checkCondition(u != null);
+
+        return record(REMOVE_ADMIN, p, u);
+    }
+
+    /** Vérifie puis applique toutes les mutations du lot au graphe,
+     *  et livre une seule fois leurs changements à ses écouteurs synchrones
+     * @pre <pre>
+     *  !isCommitted()
+     *  chaque mutation satisfait les préconditions de la méthode correspondante de Graphe,
+     *  dans l'état laissé par les mutations qui la précèdent dans le lot </pre>
+     *
+     * @post <pre>
+     *  isCommitted() </pre>
+     */
+    public void commit() {
+        Contract.checkCondition(!committed);
+
+        graph.apply(this);
+        committed = true;
+    }
+
+    // OUTILS
+
+    /** Applique la mutation i au graphe ; réservé à Graphe.apply
+     */
+    void applyTo(int i) {
+        Mutation m = mutations.get(i);
+
+        switch (m.type) {
+            case ADD_VERTICE:
+                graph.addVertice(m.a);
+                break;
+            case REMOVE_VERTICE:
+                graph.removeVertice(m.a);
+                break;
+            case ADD_EDGE:
+                graph.addEdge(m.a, m.b);
+                break;
+            case REMOVE_EDGE:
+                graph.removeEdge(m.a, m.b);
+                break;
+            case ADD_ADMIN:
+                graph.addAdmin((Page) m.a, (Utilisateur) m.b);
+                break;
+            default:
+                graph.removeAdmin((Page) m.a, (Utilisateur) m.b);
+                break;
+        }
+    }
+
+    private LotMutations record(int type, Sommet a, Sommet b) {
+        Contract.checkCondition(a != null);
+        Contract.checkCondition(!committed);
+
+        mutations.add(new Mutation(type, a, b));
+        counts[type]++;
+
+        return this;
+    }
+
+    /*
+     * Vérification de tout le lot avant d'appliquer quoi que ce soit ;
+     * appelée par Graphe.apply, sous le verrou du graphe en écriture.
+     * Les sommets et les arcs ne sont pas modifiés : l'effet des mutations déjà vérifiées
+     * est noté à part. Chaque suppression d'un sommet lui donne une nouvelle génération,
+     * les arcs notés pour une génération antérieure n'existant plus.
+     */
+    void validate() {
+        Map<Sommet, Boolean> present = new IdentityHashMap<Sommet, Boolean>();
+        Map<Sommet, Integer> generations = new IdentityHashMap<Sommet, Integer>();
+        Map<Lien, Boolean> edges = new HashMap<Lien, Boolean>();
+        Map<Lien, Boolean> admins = new HashMap<Lien, Boolean>();
+
+        for (int i = 0; i < mutations.size(); i++) {
+            Mutation m = mutations.get(i);
+            String where = "Mutation " + i + " du lot : ";
+
+            switch (m.type) {
+                case ADD_VERTICE:
+                    Contract.checkCondition(!isPresent(present, m.a), where + m.a + " est déjà dans le graphe");
+                    present.put(m.a, Boolean.TRUE);
+                    break;
+
+                case REMOVE_VERTICE:
+                    Contract.checkCondition(isPresent(present, m.a), where + m.a + " n'est pas dans le graphe");
+                    present.put(m.a, Boolean.FALSE);
+                    generations.put(m.a, generation(generations, m.a) + 1);
+                    break;
+
+                case ADD_EDGE:
+                case REMOVE_EDGE:
+                    Contract.checkCondition(isPresent(present, m.a) && isPresent(present, m.b),
+                                            where + "l'arc " + m.a + " -> " + m.b + " relie un sommet absent");
+                    Lien e = new Lien(m.a, generation(generations, m.a), m.b, generation(generations, m.b));
+                    boolean exists = isLinked(edges, e, m.a.getNeighbors().contains(m.b));
+                    if (m.type == ADD_EDGE) {
+                        Contract.checkCondition(m.a instanceof Utilisateur, where + m.a + " n'est pas un utilisateur");
+                        Contract.checkCondition(!exists, where + "l'arc " + m.a + " -> " + m.b + " existe déjà");
+                    } else {
+                        Contract.checkCondition(exists, where + "l'arc " + m.a + " -> " + m.b + " n'existe pas");
+                    }
+                    edges.put(e, m.type == ADD_EDGE);
+                    break;
+
+                default:
+                    Contract.checkCondition(isPresent(present, m.a) && isPresent(present, m.b),
+                                            where + m.a + " ou " + m.b + " n'est pas dans le graphe");
+                    Lien l = new Lien(m.a, generation(generations, m.a), m.b, generation(generations, m.b));
+                    if (m.type == REMOVE_ADMIN) {
+                        boolean admin = isLinked(admins, l, ((Page) m.a).getAdmins().contains(m.b));
+                        Contract.checkCondition(admin, where + m.b + " n'administre pas " + m.a);
+                    }
+                    admins.put(l, m.type == ADD_ADMIN);
+                    break;
+            }
+        }
+    }
+
+    private boolean isPresent(Map<Sommet, Boolean> present, Sommet s) {
+        Boolean p = present.get(s);
+
+        return p != null ? p : graph.containsVertice(s);
+    }
+
+    private static int generation(Map<Sommet, Integer> generations, Sommet s) {
+        Integer g = generations.get(s);
+
+        return g != null ? g : 0;
+    }
+
+    // État du lien l : celui noté par le lot, sinon celui du graphe si ses extrémités n'ont pas été supprimées
+    private static boolean isLinked(Map<Lien, Boolean> links, Lien l, boolean inGraph) {
+        Boolean b = links.get(l);
+        if (b != null) {
+            return b;
+        }
+
+        return l.fromGeneration == 0 && l.toGeneration == 0 && inGraph;
+    }
+
+    private static class Mutation {
+        final int type;
+        final Sommet a;
+        final Sommet b;
+
+        Mutation(int type, Sommet a, Sommet b) {
+            this.type = type;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * Un arc ou un lien d'administration entre deux générations de sommets,
+     * les sommets étant comparés par identité
+     */
+    private static class Lien {
+        final Sommet from;
+        final int fromGeneration;
+        final Sommet to;
+        final int toGeneration;
+
+        Lien(Sommet from, int fromGeneration, Sommet to, int toGeneration) {
+            this.from = from;
+            this.fromGeneration = fromGeneration;
+            this.to = to;
+            this.toGeneration = toGeneration;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Lien)) {
+                return false;
+            }
+            Lien l = (Lien) o;
+
+            return from == l.from && to == l.to
+                && fromGeneration == l.fromGeneration && toGeneration == l.toGeneration;
+        }
+
+        public int hashCode() {
+            return (System.identityHashCode(from) * 31 + System.identityHashCode(to)) * 31
+                + fromGeneration * 7 + toGeneration;
+        }
+    }
+}
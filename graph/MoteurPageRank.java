@@ -0,0 +1,226 @@
+package graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import util.Contract;
+
+/**
+ * Cette classe définit un moteur de page rank parallèle.
+ *
+ * Le calcul se fait par itérations de Jacobi sur deux tableaux alternés :
+ *  PR'(s) = (1 - d) / N + d * somme(PR(v) / degréSortant(v)) pour v suivant s
+ * où d est le facteur d'amortissement. C'est le point fixe calculé par Graphe.generatePageRank() :
+ * les page ranks des deux calculs sont comparables. Les sommets sans arc sortant
+ * ne redistribuent pas leur page rank, qui ne somme donc à 1 que s'il n'y en a aucun.
+ *
+ * Chaque itération est découpée en tranches de sommets traitées dans un ForkJoinPool.
+ * Le calcul s'arrête dès que la distance L1 entre deux itérations passe sous la tolérance,
+ * ou après le nombre maximal d'itérations.
+ *
+ * @cons <pre>
+ * $DESC$ Un moteur avec les paramètres par défaut
+ * $POST$
+ *  getDamping() == 0.85
+ *  getMaxIterations() == 100
+ *  getTolerance() == 1e-9
+ *  getPool() == ForkJoinPool.commonPool() </pre>
+ */
+public class MoteurPageRank {
+
+    // CONSTANTES
+
+    // Nombre minimal de sommets + arcs traités par une tâche
+    private static final int GRAIN = 1 << 14;
+
+    // ATTRIBUTS
+
+    private double damping;
+    private int maxIterations;
+    private double tolerance;
+    private ForkJoinPool pool;
+
+    // CONSTRUCTEUR
+
+    public MoteurPageRank() {
+        damping = 0.85;
+        maxIterations = 100;
+        tolerance = 1e-9;
+        pool = ForkJoinPool.commonPool();
+    }
+
+    // REQUETES
+
+    /** Retourne le facteur d'amortissement
+     */
+    public double getDamping() {
+        return damping;
+    }
+
+    /** Retourne le nombre maximal d'itérations
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /** Retourne la tolérance sur la distance L1 entre deux itérations
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /** Retourne le pool dans lequel le calcul est découpé
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /** Calcule le page rank des sommets de l'instantané g
+     * @pre <pre>
+     *  g != null </pre>
+     * @post <pre>
+     *  result.getIterations() <= getMaxIterations() </pre>
+     */
+    public ResultatPageRank compute(GrapheCSR g) {
+        Contract.checkCondition(g != null);
+
+        long start = System.nanoTime();
+        int n = g.getVerticesNb();
+
+        double[] current = new double[n];
+        double[] next = new double[n];
+        double[] invOutDegree = new double[n];
+
+        // Les inverses des degrés sortants évitent une division par arc
+        for (int i = 0; i < n; i++) {
+            current[i] = 1.0 / n;
+            int d = g.getOutDegree(i);
+            if (d > 0) {
+                invOutDegree[i] = 1.0 / d;
+            }
+        }
+
+        int iterations = 0;
+        double residual = Double.POSITIVE_INFINITY;
+
+        while (iterations < maxIterations && residual > tolerance && n > 0) {
+            double base = (1 - damping) / n;
+            residual = pool.invoke(new Sweep(g, current, next, invOutDegree, damping, base, 0, n));
+            iterations++;
+
+            double[] tmp = current;
+            current = next;
+            next = tmp;
+        }
+
+        return new ResultatPageRank(g, current, iterations, n > 0 ? residual : 0,
+                                    residual <= tolerance || n == 0, System.nanoTime() - start);
+    }
+
+    // COMMANDES
+
+    /** Fixe le facteur d'amortissement
+     * @pre <pre>
+     *  0 < damping < 1 </pre>
+     */
+    public void setDamping(double damping) {
+        Contract.checkCondition(damping > 0 && damping < 1);
+
+        this.damping = damping;
+    }
+
+    /** Fixe le nombre maximal d'itérations
+     * @pre <pre>
+     *  maxIterations > 0 </pre>
+     */
+    public void setMaxIterations(int maxIterations) {
+        Contract.checkCondition(maxIterations > 0);
+
+        this.maxIterations = maxIterations;
+    }
+
+    /** Fixe la tolérance sur la distance L1 entre deux itérations
+     * @pre <pre>
+     *  tolerance >= 0 </pre>
+     */
+    public void setTolerance(double tolerance) {
+        Contract.checkCondition(tolerance >= 0);
+
+        this.tolerance = tolerance;
+    }
+
+    /** Fixe le pool dans lequel le calcul est découpé
+     * @pre <pre>
+     *  pool != null </pre>
+     */
+    public void setPool(ForkJoinPool pool) {
+        Contract.checkCondition(pool != null);
+
+        this.pool = pool;
+    }
+
+    // OUTILS
+
+    /**
+     * Une itération de Jacobi sur les sommets [from, to[.
+     * Retourne la distance L1 sur la tranche.
+     */
+    @SuppressWarnings("serial")
+    private static class Sweep extends RecursiveTask<Double> {
+
+        private final GrapheCSR g;
+        private final double[] current;
+        private final double[] next;
+        private final double[] invOutDegree;
+        private final double damping;
+        private final double base;
+        private final int from;
+        private final int to;
+
+        Sweep(GrapheCSR g, double[] current, double[] next, double[] invOutDegree,
+                double damping, double base, int from, int to) {
+            this.g = g;
+            this.current = current;
+            this.next = next;
+            this.invOutDegree = invOutDegree;
+            this.damping = damping;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Double compute() {
+            int work = (to - from) + (g.getInEnd(to - 1) - g.getInStart(from));
+            if (to - from > 1 && work > GRAIN) {
+                int mid = (from + to) >>> 1;
+                Sweep left = new Sweep(g, current, next, invOutDegree, damping, base, from, mid);
+                Sweep right = new Sweep(g, current, next, invOutDegree, damping, base, mid, to);
+                left.fork();
+                double r = right.compute();
+
+                return left.join() + r;
+            }
+
+            return sweep();
+        }
+
+        private double sweep() {
+            int[] in = g.getInTargets();
+            double residual = 0;
+
+            for (int i = from; i < to; i++) {
+                double sum = 0;
+                for (int k = g.getInStart(i); k < g.getInEnd(i); k++) {
+                    int v = in[k];
+                    sum += current[v] * invOutDegree[v];
+                }
+
+                double pr = base + damping * sum;
+                next[i] = pr;
+                residual += Math.abs(pr - current[i]);
+            }
+
+            return residual;
+        }
+    }
+}
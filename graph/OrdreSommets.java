@@ -0,0 +1,58 @@
+package graph;
+
+import accounts.Sommet;
+
+/**
+ * Cette énumération définit les ordres des index de sommets du graphe.
+ *
+ * NAME : ordre naturel des sommets (nom complet), croissant.
+ * OUT_DEGREE, IN_DEGREE, PAGE_RANK : degré sortant, degré entrant (nombre de suiveurs)
+ * ou page rank, décroissant.
+ * Dans tous les cas, les ex aequo sont rangés par ID croissant : l'ordre est total
+ * et aucun sommet n'est confondu avec un autre.
+ */
+public enum OrdreSommets {
+
+    NAME {
+        double key(Sommet s) {
+            return 0;
+        }
+    },
+
+    OUT_DEGREE {
+        double key(Sommet s) {
+            return s.getNeighbors().size();
+        }
+    },
+
+    IN_DEGREE {
+        double key(Sommet s) {
+            return s.getFollowers().size();
+        }
+    },
+
+    PAGE_RANK {
+        double key(Sommet s) {
+            return s.getPageRank();
+        }
+    };
+
+    // REQUETES
+
+    /** Retourne la clé courante de s dans cet ordre ; NAME ne compare pas de clé
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    abstract double key(Sommet s);
+
+    /** Compare s1 et s2 selon leurs clés courantes dans cet ordre, puis leurs ID
+     * @pre <pre>
+     *  s1 != null
+     *  s2 != null </pre>
+     */
+    int compare(Sommet s1, Sommet s2) {
+        int c = this == NAME ? s1.compareTo(s2) : Double.compare(key(s2), key(s1));
+
+        return c != 0 ? c : Integer.compare(s1.getId(), s2.getId());
+    }
+}
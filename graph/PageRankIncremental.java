@@ -0,0 +1,485 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe maintient le page rank du graphe entre deux modifications
+ * par propagation de résidus (push / delta page rank).
+ *
+ * Le page rank calculé par Graphe est le point fixe de
+ *  PR(s) = 0.15 / N + 0.85 * somme(PR(v) / degréSortant(v)) pour v suivant s.
+ * On maintient y = N * PR, solution de y = 0.15 + 0.85 * P y, qui ne dépend pas de N :
+ * l'ajout d'un sommet n'a donc qu'un effet local.
+ *
+ * Pour chaque sommet u on conserve une estimation p(u) et un résidu r(u) tels que
+ *  r = 0.15 + 0.85 * P p - p.
+ * Une modification d'arc u -> w ne change que la colonne u de P, donc seulement
+ * les résidus des voisins sortants de u. Pousser le résidu d'un sommet
+ * (p(u) += r(u), puis 0.85 * r(u) / degréSortant(u) vers chaque voisin sortant)
+ * ne touche que le voisinage des sommets modifiés.
+ *
+ * Si le travail fait depuis la dernière publication dépasse une fraction
+ * maxDeltaRatio de la taille du graphe (sommets + arcs), le moteur abandonne
+ * et demande un recalcul complet.
+ *
+ * @cons <pre>
+ * $DESC$ Un moteur incrémental de tolérance et de seuil de repli donnés
+ * $ARGS$ double tolerance, double maxDeltaRatio
+ * $PRE$
+ *  tolerance > 0
+ *  maxDeltaRatio > 0
+ * $POST$
+ *  getTolerance() == tolerance
+ *  getMaxDeltaRatio() == maxDeltaRatio
+ *  needsFullRecompute() </pre>
+ */
+class PageRankIncremental {
+
+    // CONSTANTES
+
+    private static final double DAMPING = 0.85;
+    private static final double BASE = 0.15;
+
+    // ATTRIBUTS
+
+    private double tolerance;
+    private double maxDeltaRatio;
+
+    // Indices denses des sommets, les cases libérées sont réutilisées
+    private Map<Sommet, Integer> slots;
+    private Sommet[] vertices;
+    private double[] p;
+    private double[] r;
+    private boolean[] queued;
+    private int[] freeSlots;
+    private int freeNb;
+    private int slotsNb;
+
+    // File des sommets dont le résidu dépasse la tolérance (tampon circulaire)
+    private int[] queue;
+    private int queueHead;
+    private int queueSize;
+
+    // Sommets dont l'estimation a changé depuis la dernière publication
+    private int[] touched;
+    private int touchedNb;
+    private boolean[] isTouched;
+    private int publishedVerticesNb;
+
+    private boolean dirty;
+    private long pendingWork;
+
+    // CONSTRUCTEUR
+
+    PageRankIncremental(double tolerance, double maxDeltaRatio) {
+        Contract.checkCondition(tolerance > 0);
+        Contract.checkCondition(maxDeltaRatio > 0);
+
+        this.tolerance = tolerance;
+        this.maxDeltaRatio = maxDeltaRatio;
+        allocate(16);
+        dirty = true;
+    }
+
+    // REQUETES
+
+    /** Retourne la tolérance sur le résidu de page rank d'un sommet
+     */
+    double getTolerance() {
+        return tolerance;
+    }
+
+    /** Retourne la fraction du graphe au-delà de laquelle on recalcule tout
+     */
+    double getMaxDeltaRatio() {
+        return maxDeltaRatio;
+    }
+
+    /** Indique si un recalcul complet est nécessaire
+     */
+    boolean needsFullRecompute() {
+        return dirty;
+    }
+
+    // COMMANDES
+
+    /** Fixe la tolérance sur le résidu de page rank d'un sommet
+     * @pre <pre>
+     *  tolerance > 0 </pre>
+     */
+    void setTolerance(double tolerance) {
+        Contract.checkCondition(tolerance > 0);
+
+        this.tolerance = tolerance;
+    }
+
+    /** Fixe la fraction du graphe au-delà de laquelle on recalcule tout
+     * @pre <pre>
+     *  maxDeltaRatio > 0 </pre>
+     */
+    void setMaxDeltaRatio(double maxDeltaRatio) {
+        Contract.checkCondition(maxDeltaRatio > 0);
+
+        this.maxDeltaRatio = maxDeltaRatio;
+    }
+
+    /** Oublie l'état courant, le prochain calcul sera complet
+     * @post <pre>
+     *  needsFullRecompute() </pre>
+     */
+    void invalidate() {
+        dirty = true;
+    }
+
+    /** Repart du page rank pr calculé sur l'instantané g
+     * @pre <pre>
+     *  g != null
+     *  pr != null
+     *  pr.length == g.getVerticesNb() </pre>
+     * @post <pre>
+     *  !needsFullRecompute() </pre>
+     */
+    void reset(GrapheCSR g, double[] pr) {
+        Contract.checkCondition(g != null);
+        Contract.checkCondition(pr != null && pr.length == g.getVerticesNb());
+
+        int n = g.getVerticesNb();
+        int[] out = g.getOutTargets();
+
+        allocate(Math.max(16, n));
+        for (int i = 0; i < n; i++) {
+            vertices[i] = g.getVertice(i);
+            slots.put(vertices[i], i);
+            p[i] = pr[i] * n;
+            r[i] = BASE - p[i];
+        }
+        slotsNb = n;
+
+        // Résidus exacts : r = 0.15 + 0.85 * P p - p
+        for (int u = 0; u < n; u++) {
+            int d = g.getOutDegree(u);
+            if (d > 0) {
+                double share = DAMPING * p[u] / d;
+                for (int k = g.getOutStart(u); k < g.getOutEnd(u); k++) {
+                    r[out[k]] += share;
+                }
+            }
+        }
+
+        for (int u = 0; u < n; u++) {
+            enqueue(u);
+        }
+
+        publishedVerticesNb = n;
+        touchedNb = 0;
+        pendingWork = 0;
+        dirty = false;
+    }
+
+    /** Prend en compte l'ajout du sommet s
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void vertexAdded(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        if (dirty) {
+            return;
+        }
+
+        int u = slotOf(s);
+        r[u] = BASE;
+        enqueue(u);
+        charge(1);
+    }
+
+    /** Prend en compte la suppression prochaine du sommet s,
+     *  à appeler avant de détacher ses arcs
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void vertexRemoving(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        if (dirty) {
+            return;
+        }
+
+        Integer slot = slots.get(s);
+        if (slot == null) {
+            return;
+        }
+        int u = slot;
+
+        // Chaque arc f -> s disparaît : la colonne f perd la cible s
+        for (Sommet f : s.getFollowers()) {
+            if (f != s) {
+                Integer fSlot = slots.get(f);
+                if (fSlot != null) {
+                    int d = f.getNeighbors().size();
+                    rescaleColumn(fSlot, f, s, d, d - 1);
+                    charge(d);
+                }
+            }
+        }
+
+        // Les voisins sortants de s perdent sa contribution
+        int d = s.getNeighbors().size();
+        if (d > 0) {
+            double share = DAMPING * p[u] / d;
+            for (Sommet w : s.getNeighbors()) {
+                if (w != s) {
+                    addResidual(w, -share);
+                }
+            }
+            charge(d);
+        }
+
+        releaseSlot(s, u);
+    }
+
+    /** Prend en compte l'ajout de l'arc u -> w, à appeler après l'ajout
+     * @pre <pre>
+     *  u != null
+     *  w != null
+     *  u.getNeighbors().contains(w) </pre>
+     */
+    void edgeAdded(Sommet u, Sommet w) {
+        Contract.checkCondition(u != null && w != null);
+
+        if (dirty) {
+            return;
+        }
+
+        int su = slotOf(u);
+        int d = u.getNeighbors().size();
+        rescaleColumn(su, u, w, d - 1, d);
+        addResidual(w, DAMPING * p[su] / d);
+        charge(d);
+    }
+
+    /** Prend en compte la suppression de l'arc u -> w, à appeler après la suppression
+     * @pre <pre>
+     *  u != null
+     *  w != null
+     *  !u.getNeighbors().contains(w) </pre>
+     */
+    void edgeRemoved(Sommet u, Sommet w) {
+        Contract.checkCondition(u != null && w != null);
+
+        if (dirty) {
+            return;
+        }
+
+        int su = slotOf(u);
+        int d = u.getNeighbors().size();
+        rescaleColumn(su, u, null, d + 1, d);
+        addResidual(w, -DAMPING * p[su] / (d + 1));
+        charge(d + 1);
+    }
+
+    /** Propage les résidus en attente et publie le page rank dans les sommets.
+     *  Retourne false si la propagation dépasse le seuil de repli,
+     *  un recalcul complet est alors nécessaire.
+     * @pre <pre>
+     *  !needsFullRecompute()
+     *  edgesNb >= 0 </pre>
+     */
+    boolean update(int edgesNb) {
+        Contract.checkCondition(!dirty);
+        Contract.checkCondition(edgesNb >= 0);
+
+        int n = slots.size();
+        double threshold = tolerance * Math.max(n, 1);
+        long budget = (long) (maxDeltaRatio * (n + edgesNb)) + 1;
+        long work = pendingWork;
+
+        while (queueSize > 0) {
+            int u = dequeue();
+            double ru = r[u];
+            if (Math.abs(ru) <= threshold) {
+                continue;
+            }
+
+            p[u] += ru;
+            r[u] = 0;
+            touch(u);
+
+            Sommet s = vertices[u];
+            int d = s.getNeighbors().size();
+            if (d > 0) {
+                double share = DAMPING * ru / d;
+                for (Sommet w : s.getNeighbors()) {
+                    Integer slot = slots.get(w);
+                    if (slot == null) {
+                        continue;
+                    }
+                    int sw = slot;
+                    r[sw] += share;
+                    if (Math.abs(r[sw]) > threshold) {
+                        enqueue(sw);
+                    }
+                }
+            }
+
+            work += d + 1;
+            if (work > budget) {
+                dirty = true;
+                return false;
+            }
+        }
+
+        publish(n);
+        pendingWork = 0;
+
+        return true;
+    }
+
+    // OUTILS
+
+    private void allocate(int capacity) {
+        slots = new IdentityHashMap<Sommet, Integer>(capacity);
+        vertices = new Sommet[capacity];
+        p = new double[capacity];
+        r = new double[capacity];
+        queued = new boolean[capacity];
+        isTouched = new boolean[capacity];
+        touched = new int[capacity];
+        freeSlots = new int[capacity];
+        queue = new int[capacity];
+        freeNb = 0;
+        slotsNb = 0;
+        queueHead = 0;
+        queueSize = 0;
+        touchedNb = 0;
+    }
+
+    // La colonne u passe d'un degré sortant oldDegree à newDegree ;
+    // 'skip' est la cible ajoutée ou retirée, traitée à part par l'appelant
+    private void rescaleColumn(int u, Sommet s, Sommet skip, int oldDegree, int newDegree) {
+        if (oldDegree == 0 || newDegree == 0) {
+            return;
+        }
+
+        double delta = DAMPING * p[u] * (1.0 / newDegree - 1.0 / oldDegree);
+        for (Sommet z : s.getNeighbors()) {
+            if (z != skip) {
+                addResidual(z, delta);
+            }
+        }
+    }
+
+    private void addResidual(Sommet s, double delta) {
+        Integer slot = slots.get(s);
+        if (slot != null) {
+            r[slot] += delta;
+            enqueue(slot);
+        }
+    }
+
+    // Comptabilise le travail déjà fait pour les modifications en attente
+    private void charge(long work) {
+        pendingWork += work;
+    }
+
+    private int slotOf(Sommet s) {
+        Integer slot = slots.get(s);
+        if (slot != null) {
+            return slot;
+        }
+
+        int u;
+        if (freeNb > 0) {
+            u = freeSlots[--freeNb];
+        } else {
+            if (slotsNb == vertices.length) {
+                grow(vertices.length * 2);
+            }
+            u = slotsNb++;
+        }
+
+        vertices[u] = s;
+        p[u] = 0;
+        r[u] = 0;
+        slots.put(s, u);
+
+        return u;
+    }
+
+    private void releaseSlot(Sommet s, int u) {
+        slots.remove(s);
+        vertices[u] = null;
+        p[u] = 0;
+        r[u] = 0;
+        freeSlots[freeNb++] = u;
+    }
+
+    private void grow(int capacity) {
+        vertices = Arrays.copyOf(vertices, capacity);
+        p = Arrays.copyOf(p, capacity);
+        r = Arrays.copyOf(r, capacity);
+        queued = Arrays.copyOf(queued, capacity);
+        isTouched = Arrays.copyOf(isTouched, capacity);
+        touched = Arrays.copyOf(touched, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+
+        int[] q = new int[capacity];
+        for (int i = 0; i < queueSize; i++) {
+            q[i] = queue[(queueHead + i) % queue.length];
+        }
+        queue = q;
+        queueHead = 0;
+    }
+
+    private void enqueue(int u) {
+        if (!queued[u]) {
+            queued[u] = true;
+            queue[(queueHead + queueSize) % queue.length] = u;
+            queueSize++;
+        }
+    }
+
+    private int dequeue() {
+        int u = queue[queueHead];
+        queueHead = (queueHead + 1) % queue.length;
+        queueSize--;
+        queued[u] = false;
+
+        return u;
+    }
+
+    private void touch(int u) {
+        if (!isTouched[u]) {
+            isTouched[u] = true;
+            touched[touchedNb++] = u;
+        }
+    }
+
+    // Si le nombre de sommets a changé, tous les PR = y / N changent
+    private void publish(int n) {
+        if (n != publishedVerticesNb) {
+            for (int u = 0; u < slotsNb; u++) {
+                if (vertices[u] != null) {
+                    vertices[u].setPageRank(Math.max(p[u] / n, Double.MIN_VALUE));
+                }
+                isTouched[u] = false;
+            }
+        } else {
+            for (int i = 0; i < touchedNb; i++) {
+                int u = touched[i];
+                if (vertices[u] != null) {
+                    vertices[u].setPageRank(Math.max(p[u] / n, Double.MIN_VALUE));
+                }
+                isTouched[u] = false;
+            }
+        }
+
+        touchedNb = 0;
+        publishedVerticesNb = n;
+    }
+}
@@ -0,0 +1,168 @@
+package graph;
+
+import java.util.Arrays;
+
+import util.Contract;
+
+/**
+ * Cette classe définit un parcours en largeur à direction optimisée
+ * (top-down / bottom-up) sur un instantané CSR du graphe.
+ *
+ * Tant que la frontière est petite, on explore les arcs sortants de ses sommets (top-down).
+ * Quand les arcs sortants de la frontière dépassent une fraction 1 / alpha des arcs
+ * des sommets non visités, on cherche plutôt pour chaque sommet non visité un arc entrant
+ * venant de la frontière (bottom-up), ce qui évite d'examiner les arcs vers des sommets
+ * déjà atteints. On revient en top-down quand la frontière repasse sous N / beta sommets.
+ *
+ * @cons <pre>
+ * $DESC$ Un parcours avec les seuils usuels
+ * $POST$
+ *  getAlpha() == 14
+ *  getBeta() == 24 </pre>
+ */
+public class ParcoursLargeur {
+
+    // ATTRIBUTS
+
+    private int alpha;
+    private int beta;
+
+    // CONSTRUCTEUR
+
+    public ParcoursLargeur() {
+        alpha = 14;
+        beta = 24;
+    }
+
+    // REQUETES
+
+    /** Retourne le seuil de passage en bottom-up
+     */
+    public int getAlpha() {
+        return alpha;
+    }
+
+    /** Retourne le seuil de retour en top-down
+     */
+    public int getBeta() {
+        return beta;
+    }
+
+    /** Calcule les distances depuis le sommet d'indice source de l'instantané g
+     * @pre <pre>
+     *  g != null
+     *  0 <= source < g.getVerticesNb() </pre>
+     */
+    public ResultatDistances compute(GrapheCSR g, int source) {
+        Contract.checkCondition(g != null);
+        Contract.checkCondition(source >= 0 && source < g.getVerticesNb());
+
+        int n = g.getVerticesNb();
+        int[] out = g.getOutTargets();
+        int[] in = g.getInTargets();
+
+        int[] dist = new int[n];
+        Arrays.fill(dist, ResultatDistances.UNREACHABLE);
+        dist[source] = 0;
+
+        // La frontière est une liste en top-down, un tableau de marques en bottom-up
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        boolean[] inFrontier = new boolean[n];
+        boolean[] inNext = new boolean[n];
+        frontier[0] = source;
+        int frontierNb = 1;
+
+        long unexploredEdges = g.getEdgesNb() - g.getOutDegree(source);
+        long frontierEdges = g.getOutDegree(source);
+        boolean bottomUp = false;
+        int level = 0;
+
+        while (frontierNb > 0) {
+            if (!bottomUp && frontierEdges > unexploredEdges / alpha) {
+                bottomUp = true;
+                for (int i = 0; i < frontierNb; i++) {
+                    inFrontier[frontier[i]] = true;
+                }
+            } else if (bottomUp && frontierNb < n / beta) {
+                bottomUp = false;
+                frontierNb = 0;
+                for (int v = 0; v < n; v++) {
+                    if (inFrontier[v]) {
+                        frontier[frontierNb++] = v;
+                        inFrontier[v] = false;
+                    }
+                }
+            }
+
+            int nextNb = 0;
+            long nextEdges = 0;
+
+            if (bottomUp) {
+                for (int v = 0; v < n; v++) {
+                    if (dist[v] == ResultatDistances.UNREACHABLE) {
+                        for (int k = g.getInStart(v); k < g.getInEnd(v); k++) {
+                            if (inFrontier[in[k]]) {
+                                dist[v] = level + 1;
+                                inNext[v] = true;
+                                nextNb++;
+                                nextEdges += g.getOutDegree(v);
+                                break;
+                            }
+                        }
+                    }
+                }
+
+                boolean[] tmp = inFrontier;
+                inFrontier = inNext;
+                inNext = tmp;
+                Arrays.fill(inNext, false);
+            } else {
+                for (int i = 0; i < frontierNb; i++) {
+                    int u = frontier[i];
+                    for (int k = g.getOutStart(u); k < g.getOutEnd(u); k++) {
+                        int v = out[k];
+                        if (dist[v] == ResultatDistances.UNREACHABLE) {
+                            dist[v] = level + 1;
+                            next[nextNb++] = v;
+                            nextEdges += g.getOutDegree(v);
+                        }
+                    }
+                }
+
+                int[] tmp = frontier;
+                frontier = next;
+                next = tmp;
+            }
+
+            frontierNb = nextNb;
+            frontierEdges = nextEdges;
+            unexploredEdges -= nextEdges;
+            level++;
+        }
+
+        return new ResultatDistances(g, source, dist);
+    }
+
+    // COMMANDES
+
+    /** Fixe le seuil de passage en bottom-up
+     * @pre <pre>
+     *  alpha > 0 </pre>
+     */
+    public void setAlpha(int alpha) {
+        Contract.checkCondition(alpha > 0);
+
+        this.alpha = alpha;
+    }
+
+    /** Fixe le seuil de retour en top-down
+     * @pre <pre>
+     *  beta > 0 </pre>
+     */
+    public void setBeta(int beta) {
+        Contract.checkCondition(beta > 0);
+
+        this.beta = beta;
+    }
+}
@@ -0,0 +1,309 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import util.Contract;
+
+/**
+ * Cette classe définit le profil d'un instantané du graphe, calculé par AnalyseurGraphe :
+ * distributions des degrés, réciprocité des arcs, âges des utilisateurs,
+ * administrateurs des pages et sommets sans arc sortant.
+ *
+ * Les distributions des degrés sont regroupées par puissances de 2 : la case 0 compte
+ * les sommets de degré 0, la case k > 0 ceux dont le degré est dans [2^(k-1), 2^k[.
+ * Les âges et les nombres d'administrateurs sont comptés valeur par valeur : la case k
+ * compte les utilisateurs d'âge k, ou les pages à k administrateurs.
+ * Les tableaux retournés sont des copies.
+ */
+public final class ProfilGraphe {
+
+    // CONSTANTES
+
+    // Cases des distributions des degrés : 0, puis une par puissance de 2 d'un int
+    private static final int DEGREE_BUCKETS = 33;
+
+    // ATTRIBUTS
+
+    private final long epoch;
+    private final long wallTime;
+    private final Cumul c;
+
+    // CONSTRUCTEUR
+
+    /** Le profil de l'instantané de numéro de modification epoch, calculé en wallTime
+     *  nanosecondes, à partir des comptes c
+     * @pre <pre>
+     *  c != null
+     *  wallTime >= 0 </pre>
+     */
+    ProfilGraphe(long epoch, long wallTime, Cumul c) {
+        Contract.checkCondition(c != null);
+        Contract.checkCondition(wallTime >= 0);
+
+        this.epoch = epoch;
+        this.wallTime = wallTime;
+        this.c = c;
+    }
+
+    // REQUETES
+
+    /** Retourne le numéro de modification de l'instantané profilé
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /** Retourne la durée du calcul, en nanosecondes
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /** Retourne le nombre de sommets
+     */
+    public int getVerticesNb() {
+        return (int) (c.users + c.pages);
+    }
+
+    /** Retourne le nombre d'utilisateurs
+     */
+    public long getUsersNb() {
+        return c.users;
+    }
+
+    /** Retourne le nombre de pages
+     */
+    public long getPagesNb() {
+        return c.pages;
+    }
+
+    /** Retourne le nombre d'arcs
+     */
+    public long getEdgesNb() {
+        return c.edges;
+    }
+
+    /** Retourne le nombre de boucles (arcs d'un sommet vers lui-même)
+     */
+    public long getSelfLoopsNb() {
+        return c.selfLoops;
+    }
+
+    /** Retourne le nombre d'arcs u -> v, u != v, dont l'arc inverse v -> u existe aussi
+     */
+    public long getReciprocalEdgesNb() {
+        return c.reciprocal;
+    }
+
+    /** Retourne la réciprocité : la part des arcs entre sommets distincts dont l'arc inverse existe,
+     *  0 s'il n'y en a aucun
+     */
+    public double getReciprocity() {
+        long edges = c.edges - c.selfLoops;
+
+        return edges == 0 ? 0 : (double) c.reciprocal / edges;
+    }
+
+    /** Retourne la distribution des degrés sortants, par puissances de 2
+     */
+    public long[] getOutDegreeHistogram() {
+        return trim(c.outDegrees);
+    }
+
+    /** Retourne la distribution des degrés entrants, par puissances de 2
+     */
+    public long[] getInDegreeHistogram() {
+        return trim(c.inDegrees);
+    }
+
+    /** Retourne le plus grand degré sortant
+     */
+    public int getMaxOutDegree() {
+        return c.maxOutDegree;
+    }
+
+    /** Retourne le plus grand degré entrant
+     */
+    public int getMaxInDegree() {
+        return c.maxInDegree;
+    }
+
+    /** Retourne le nombre de sommets sans arc sortant, pages comprises
+     */
+    public long getDanglingNb() {
+        return c.dangling;
+    }
+
+    /** Retourne le nombre d'utilisateurs qui ne suivent aucun sommet
+     */
+    public long getDanglingUsersNb() {
+        return c.danglingUsers;
+    }
+
+    /** Retourne le nombre de sommets sans aucun arc, ni sortant ni entrant
+     */
+    public long getIsolatedNb() {
+        return c.isolated;
+    }
+
+    /** Retourne la distribution des âges des utilisateurs : la case k compte ceux d'âge k
+     */
+    public long[] getAgeHistogram() {
+        return c.ages.clone();
+    }
+
+    /** Retourne l'âge moyen des utilisateurs, NaN s'il n'y en a aucun
+     */
+    public double getAverageAge() {
+        return (double) c.ageSum / c.users;
+    }
+
+    /** Retourne la distribution du nombre d'administrateurs des pages :
+     *  la case k compte les pages à k administrateurs
+     */
+    public long[] getAdminsHistogram() {
+        return c.admins.clone();
+    }
+
+    /** Retourne le nombre de liens d'administration
+     */
+    public long getAdminLinksNb() {
+        return c.adminLinks;
+    }
+
+    /** Retourne le profil au format JSON
+     */
+    public String toJson() {
+        StringBuilder b = new StringBuilder();
+
+        b.append("{\n");
+        b.append("  \"epoch\": ").append(epoch).append(",\n");
+        b.append("  \"wallTimeNs\": ").append(wallTime).append(",\n");
+        b.append("  \"vertices\": ").append(getVerticesNb()).append(",\n");
+        b.append("  \"users\": ").append(c.users).append(",\n");
+        b.append("  \"pages\": ").append(c.pages).append(",\n");
+        b.append("  \"edges\": ").append(c.edges).append(",\n");
+        b.append("  \"selfLoops\": ").append(c.selfLoops).append(",\n");
+        b.append("  \"reciprocalEdges\": ").append(c.reciprocal).append(",\n");
+        b.append("  \"reciprocity\": ").append(number(getReciprocity())).append(",\n");
+        b.append("  \"outDegree\": {\"max\": ").append(c.maxOutDegree)
+            .append(", \"histogram\": ").append(Arrays.toString(getOutDegreeHistogram())).append("},\n");
+        b.append("  \"inDegree\": {\"max\": ").append(c.maxInDegree)
+            .append(", \"histogram\": ").append(Arrays.toString(getInDegreeHistogram())).append("},\n");
+        b.append("  \"dangling\": ").append(c.dangling).append(",\n");
+        b.append("  \"danglingUsers\": ").append(c.danglingUsers).append(",\n");
+        b.append("  \"isolated\": ").append(c.isolated).append(",\n");
+        b.append("  \"ages\": {\"mean\": ").append(c.users == 0 ? "null" : number(getAverageAge()))
+            .append(", \"histogram\": ").append(Arrays.toString(c.ages)).append("},\n");
+        b.append("  \"admins\": {\"links\": ").append(c.adminLinks)
+            .append(", \"histogram\": ").append(Arrays.toString(c.admins)).append("}\n");
+        b.append("}\n");
+
+        return b.toString();
+    }
+
+    public String toString() {
+        return String.format(Locale.ROOT, "%d sommets (%d utilisateurs, %d pages), %d arcs, "
+            + "réciprocité %.3f, %d sans arc sortant, %d isolés",
+            getVerticesNb(), c.users, c.pages, c.edges, getReciprocity(), c.dangling, c.isolated);
+    }
+
+    // OUTILS
+
+    /** Retourne la case de la distribution des degrés du degré d
+     */
+    static int bucket(int d) {
+        return 32 - Integer.numberOfLeadingZeros(d);
+    }
+
+    private static long[] trim(long[] h) {
+        int n = h.length;
+        while (n > 1 && h[n - 1] == 0) {
+            n--;
+        }
+
+        return Arrays.copyOf(h, n);
+    }
+
+    private static String number(double x) {
+        return String.format(Locale.ROOT, "%.6f", x);
+    }
+
+    /**
+     * Les comptes d'une partie des sommets, cumulés par une tâche d'AnalyseurGraphe
+     * puis fusionnés avec ceux des autres tâches
+     */
+    static final class Cumul {
+        long users;
+        long pages;
+        long edges;
+        long selfLoops;
+        long reciprocal;
+        long dangling;
+        long danglingUsers;
+        long isolated;
+        long ageSum;
+        long adminLinks;
+        int maxOutDegree;
+        int maxInDegree;
+        long[] outDegrees = new long[DEGREE_BUCKETS];
+        long[] inDegrees = new long[DEGREE_BUCKETS];
+        long[] ages = new long[0];
+        long[] admins = new long[0];
+
+        /** Ajoute 1 à la case k de h, agrandi au besoin, et retourne h
+         */
+        static long[] increment(long[] h, int k) {
+            if (k >= h.length) {
+                h = Arrays.copyOf(h, Math.max(k + 1, 2 * h.length));
+            }
+            h[k]++;
+
+            return h;
+        }
+
+        /** Ajoute les comptes de other à ceux-ci
+         * @pre <pre>
+         *  other != null </pre>
+         */
+        void merge(Cumul other) {
+            users += other.users;
+            pages += other.pages;
+            edges += other.edges;
+            selfLoops += other.selfLoops;
+            reciprocal += other.reciprocal;
+            dangling += other.dangling;
+            danglingUsers += other.danglingUsers;
+            isolated += other.isolated;
+            ageSum += other.ageSum;
+            adminLinks += other.adminLinks;
+            maxOutDegree = Math.max(maxOutDegree, other.maxOutDegree);
+            maxInDegree = Math.max(maxInDegree, other.maxInDegree);
+            add(outDegrees, other.outDegrees);
+            add(inDegrees, other.inDegrees);
+            ages = sum(ages, other.ages);
+            admins = sum(admins, other.admins);
+        }
+
+        /** Réduit les distributions des âges et des administrateurs à leur dernière case non nulle
+         */
+        void trimHistograms() {
+            ages = ages.length == 0 ? ages : trim(ages);
+            admins = admins.length == 0 ? admins : trim(admins);
+        }
+
+        private static void add(long[] to, long[] from) {
+            for (int i = 0; i < from.length; i++) {
+                to[i] += from[i];
+            }
+        }
+
+        private static long[] sum(long[] h1, long[] h2) {
+            long[] r = h1.length >= h2.length ? h1 : h2;
+            add(r, r == h1 ? h2 : h1);
+
+            return r;
+        }
+    }
+}
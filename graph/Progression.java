@@ -0,0 +1,18 @@
+package graph;
+
+/**
+ * Cette interface définit le suivi de l'avancement d'une opération longue du graphe.
+ *
+ * Les opérations qui acceptent un suivi sont aussi annulables : elles vérifient
+ * l'interruption du thread appelant là où elles signalent leur avancement,
+ * et s'arrêtent alors sans modifier le graphe.
+ */
+public interface Progression {
+
+    /** Signale que done unités de travail sur total sont faites ;
+     *  appelé dans le thread qui exécute l'opération
+     * @pre <pre>
+     *  0 <= done <= total </pre>
+     */
+    void progressed(long done, long total);
+}
@@ -0,0 +1,251 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.Sommet;
+import accounts.Utilisateur;
+import util.Contract;
+
+/**
+ * Cette classe définit le registre des sommets d'un graphe : un index par ID
+ * (table à adressage ouvert sur des clés int) et un index par nom et par nom complet.
+ *
+ * Quand plusieurs sommets partagent un même ID ou un même nom, le registre
+ * retourne le premier enregistré, comme un parcours des sommets dans l'ordre d'ajout ;
+ * s'il est retiré, c'est le suivant qui est retourné.
+ *
+ * @cons <pre>
+ * $DESC$ Un registre vide
+ * $POST$
+ *  size() == 0 </pre>
+ */
+class RegistreSommets {
+
+    // CONSTANTES
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // ATTRIBUTS
+
+    // Table de hachage à sondage linéaire, la clé 0 marque une case vide
+    private int[] keys;
+    private Sommet[] values;
+    private int size;
+
+    // Sommets dont l'ID est déjà indexé pour un autre sommet, par ID dans l'ordre d'ajout
+    private Map<Integer, List<Sommet>> shadowed;
+
+    private Map<String, List<Sommet>> byName;
+    private Map<String, List<Sommet>> byFullName;
+
+    // CONSTRUCTEUR
+
+    RegistreSommets() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Sommet[INITIAL_CAPACITY];
+        size = 0;
+        shadowed = new HashMap<Integer, List<Sommet>>();
+        byName = new HashMap<String, List<Sommet>>();
+        byFullName = new HashMap<String, List<Sommet>>();
+    }
+
+    // REQUETES
+
+    /** Retourne le nombre d'ID indexés
+     */
+    int size() {
+        return size;
+    }
+
+    /** Retourne le sommet d'ID 'id', null s'il n'existe pas
+     * @pre <pre>
+     *  id > 0 </pre>
+     */
+    Sommet getById(int id) {
+        Contract.checkCondition(id > 0);
+
+        int mask = keys.length - 1;
+        for (int i = hash(id) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return values[i];
+            }
+        }
+
+        return null;
+    }
+
+    /** Retourne le premier sommet de nom 'name', null s'il n'existe pas
+     * @pre <pre>
+     *  name != null </pre>
+     */
+    Sommet getByName(String name) {
+        Contract.checkCondition(name != null);
+
+        return first(byName.get(name));
+    }
+
+    /** Retourne le premier sommet de nom complet 'fullName', null s'il n'existe pas
+     * @pre <pre>
+     *  fullName != null </pre>
+     */
+    Sommet getByFullName(String fullName) {
+        Contract.checkCondition(fullName != null);
+
+        return first(byFullName.get(fullName));
+    }
+
+    // COMMANDES
+
+    /** Enregistre le sommet s, dont l'ID doit déjà être fixé
+     * @pre <pre>
+     *  s != null
+     *  s.getId() > 0 </pre>
+     */
+    void add(Sommet s) {
+        Contract.checkCondition(s != null);
+        Contract.checkCondition(s.getId() > 0);
+
+        if (getById(s.getId()) == null) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            insert(s.getId(), s);
+            size++;
+        } else {
+            bucket(shadowed, s.getId()).add(s);
+        }
+
+        bucket(byName, s.getName()).add(s);
+        bucket(byFullName, fullName(s)).add(s);
+    }
+
+    /** Retire le sommet s du registre
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void remove(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        if (s.getId() > 0 && getById(s.getId()) == s) {
+            delete(s.getId());
+            size--;
+            
+            // Le suivant de même ID prend sa place
+            List<Sommet> l = shadowed.get(s.getId());
+            if (l != null) {
+                Sommet next = l.remove(0);
+                if (l.isEmpty()) {
+                    shadowed.remove(s.getId());
+                }
+                insert(next.getId(), next);
+                size++;
+            }
+        } else if (s.getId() > 0) {
+            unbucket(shadowed, s.getId(), s);
+        }
+
+        unbucket(byName, s.getName(), s);
+        unbucket(byFullName, fullName(s), s);
+    }
+
+    /** Vide le registre
+     * @post <pre>
+     *  size() == 0 </pre>
+     */
+    void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Sommet[INITIAL_CAPACITY];
+        size = 0;
+        shadowed.clear();
+        byName.clear();
+        byFullName.clear();
+    }
+
+    // OUTILS
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static String fullName(Sommet s) {
+        return s instanceof Utilisateur ? ((Utilisateur) s).getFullName() : s.getName();
+    }
+
+    private static Sommet first(List<Sommet> l) {
+        return l == null ? null : l.get(0);
+    }
+
+    private static <K> List<Sommet> bucket(Map<K, List<Sommet>> index, K key) {
+        List<Sommet> l = index.get(key);
+        if (l == null) {
+            l = new ArrayList<Sommet>(1);
+            index.put(key, l);
+        }
+
+        return l;
+    }
+
+    private static <K> void unbucket(Map<K, List<Sommet>> index, K key, Sommet s) {
+        List<Sommet> l = index.get(key);
+        if (l != null) {
+            l.remove(s);
+            if (l.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void insert(int id, Sommet s) {
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = s;
+    }
+
+    // Suppression par décalage arrière, pour ne pas laisser de marqueurs dans la table
+    private void delete(int id) {
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == 0) {
+                break;
+            }
+            int home = hash(keys[j]) & mask;
+            // La case j peut combler le trou i si sa position d'origine n'est pas dans ]i, j]
+            if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        values[i] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Sommet[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new Sommet[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
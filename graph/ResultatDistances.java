@@ -0,0 +1,101 @@
+package graph;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit les distances, en nombre d'arcs, entre un sommet source
+ * et les sommets d'un instantané du graphe
+ *
+ * @cons <pre>
+ * $DESC$ Les distances depuis le sommet d'indice source de l'instantané g
+ * $ARGS$ GrapheCSR g, int source, int[] distances
+ * $PRE$
+ *  g != null
+ *  0 <= source < g.getVerticesNb()
+ *  distances != null
+ *  distances.length == g.getVerticesNb()
+ * $POST$
+ *  getGraph() == g
+ *  getSource() == g.getVertice(source) </pre>
+ */
+public class ResultatDistances {
+
+    // CONSTANTES
+
+    /** Distance d'un sommet inaccessible depuis la source
+     */
+    public static final int UNREACHABLE = -1;
+
+    // ATTRIBUTS
+
+    private final GrapheCSR graph;
+    private final int source;
+    private final int[] distances;
+
+    // CONSTRUCTEUR
+
+    public ResultatDistances(GrapheCSR g, int source, int[] distances) {
+        Contract.checkCondition(g != null);
+        Contract.checkCondition(source >= 0 && source < g.getVerticesNb());
+        Contract.checkCondition(distances != null && distances.length == g.getVerticesNb());
+
+        this.graph = g;
+        this.source = source;
+        this.distances = distances;
+    }
+
+    // REQUETES
+
+    /** Retourne l'instantané sur lequel les distances ont été calculées
+     */
+    public GrapheCSR getGraph() {
+        return graph;
+    }
+
+    /** Retourne le sommet source
+     */
+    public Sommet getSource() {
+        return graph.getVertice(source);
+    }
+
+    /** Retourne la distance du sommet d'indice i, UNREACHABLE s'il est inaccessible
+     */
+    public int getDistance(int i) {
+        return distances[i];
+    }
+
+    /** Retourne la distance du sommet s, UNREACHABLE s'il est inaccessible
+     *  ou s'il n'appartient pas à l'instantané (ajouté au graphe depuis)
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    public int getDistance(Sommet s) {
+        Contract.checkCondition(s != null);
+        int i = graph.indexOf(s);
+
+        return i >= 0 ? distances[i] : UNREACHABLE;
+    }
+
+    /** Indique si le sommet s est accessible depuis la source
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    public boolean isReachable(Sommet s) {
+        return getDistance(s) != UNREACHABLE;
+    }
+
+    /** Retourne le nombre de sommets accessibles depuis la source, source comprise
+     */
+    public int getReachableNb() {
+        int nb = 0;
+
+        for (int d : distances) {
+            if (d != UNREACHABLE) {
+                nb++;
+            }
+        }
+
+        return nb;
+    }
+}
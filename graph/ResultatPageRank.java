@@ -0,0 +1,108 @@
+package graph;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit le résultat d'un calcul de page rank par MoteurPageRank
+ *
+ * @cons <pre>
+ * $DESC$ Le résultat du calcul sur l'instantané g
+ * $ARGS$ GrapheCSR g, double[] ranks, int iterations, double residual,
+ *        boolean converged, long wallTime
+ * $PRE$
+ *  g != null
+ *  ranks != null
+ *  ranks.length == g.getVerticesNb()
+ *  iterations >= 0
+ *  wallTime >= 0
+ * $POST$
+ *  getIterations() == iterations
+ *  getResidual() == residual
+ *  isConverged() == converged
+ *  getWallTime() == wallTime </pre>
+ */
+public class ResultatPageRank {
+
+    // ATTRIBUTS
+
+    private final GrapheCSR graph;
+    private final double[] ranks;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+    private final long wallTime;
+
+    // CONSTRUCTEUR
+
+    public ResultatPageRank(GrapheCSR g, double[] ranks, int iterations, double residual,
+            boolean converged, long wallTime) {
+        Contract.checkCondition(g != null);
+        Contract.checkCondition(ranks != null && ranks.length == g.getVerticesNb());
+        Contract.checkCondition(iterations >= 0);
+        Contract.checkCondition(wallTime >= 0);
+
+        this.graph = g;
+        this.ranks = ranks;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.converged = converged;
+        this.wallTime = wallTime;
+    }
+
+    // REQUETES
+
+    /** Retourne l'instantané sur lequel le page rank a été calculé
+     */
+    public GrapheCSR getGraph() {
+        return graph;
+    }
+
+    /** Retourne le page rank du sommet d'indice i dans l'instantané
+     */
+    public double getRank(int i) {
+        return ranks[i];
+    }
+
+    /** Retourne le page rank du sommet s
+     * @pre <pre>
+     *  s != null
+     *  getGraph().indexOf(s) >= 0 </pre>
+     */
+    public double getRank(Sommet s) {
+        Contract.checkCondition(s != null);
+        int i = graph.indexOf(s);
+        Contract.checkCondition(i >= 0);
+
+        return ranks[i];
+    }
+
+    /** Retourne le nombre d'itérations effectuées
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Retourne le résidu L1 entre les deux dernières itérations
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    /** Indique si le résidu est passé sous la tolérance avant la limite d'itérations
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /** Retourne la durée du calcul en nanosecondes
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public String toString() {
+        return "{iterations = " + iterations + ", residual = " + residual
+            + ", converged = " + converged + ", time = " + (wallTime / 1000000) + " ms}";
+    }
+}
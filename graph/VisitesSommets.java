@@ -0,0 +1,163 @@
+package graph;
+
+import java.util.Arrays;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit les sommets atteints par une recherche en largeur.
+ *
+ * Chaque sommet reçoit à sa première visite un numéro dense, dans l'ordre des visites,
+ * sous lequel sont rangés son prédécesseur et sa profondeur dans des tableaux d'entiers.
+ * Les sommets d'une même profondeur ont donc des numéros consécutifs.
+ * Le numéro d'un sommet est retrouvé par une table à adressage ouvert sur son identité,
+ * sans objet alloué par sommet visité.
+ *
+ * @cons <pre>
+ * $DESC$ Aucun sommet visité
+ * $POST$
+ *  size() == 0 </pre>
+ */
+final class VisitesSommets {
+
+    // CONSTANTES
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // ATTRIBUTS
+
+    // Table à sondage linéaire : les sommets et leurs numéros, une case vide a pour clé null
+    private Sommet[] keys;
+    private int[] numbers;
+
+    // Par numéro : le sommet, le numéro de son prédécesseur (-1 pour l'origine), sa profondeur
+    private Sommet[] vertices;
+    private int[] parents;
+    private int[] depths;
+    private int size;
+
+    // CONSTRUCTEUR
+
+    VisitesSommets() {
+        keys = new Sommet[INITIAL_CAPACITY * 2];
+        numbers = new int[INITIAL_CAPACITY * 2];
+        vertices = new Sommet[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        depths = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    // REQUETES
+
+    /** Retourne le nombre de sommets visités
+     */
+    int size() {
+        return size;
+    }
+
+    /** Retourne le numéro du sommet s, -1 s'il n'a pas été visité
+     */
+    int indexOf(Sommet s) {
+        int mask = keys.length - 1;
+        for (int i = hash(s) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == s) {
+                return numbers[i];
+            }
+        }
+
+        return -1;
+    }
+
+    /** Retourne le sommet de numéro i
+     * @pre <pre>
+     *  0 <= i < size() </pre>
+     */
+    Sommet getVertice(int i) {
+        Contract.checkCondition(i >= 0 && i < size);
+
+        return vertices[i];
+    }
+
+    /** Retourne le numéro du prédécesseur du sommet de numéro i, -1 pour l'origine
+     * @pre <pre>
+     *  0 <= i < size() </pre>
+     */
+    int getParent(int i) {
+        Contract.checkCondition(i >= 0 && i < size);
+
+        return parents[i];
+    }
+
+    /** Retourne la profondeur du sommet de numéro i
+     * @pre <pre>
+     *  0 <= i < size() </pre>
+     */
+    int getDepth(int i) {
+        Contract.checkCondition(i >= 0 && i < size);
+
+        return depths[i];
+    }
+
+    // COMMANDES
+
+    /** Visite le sommet s, atteint depuis le sommet de numéro parent à la profondeur depth,
+     *  et retourne son numéro
+     * @pre <pre>
+     *  s != null
+     *  indexOf(s) == -1
+     *  -1 <= parent < size() </pre>
+     * @post <pre>
+     *  result == old size()
+     *  indexOf(s) == result </pre>
+     */
+    int add(Sommet s, int parent, int depth) {
+        Contract.checkCondition(s != null);
+        Contract.checkCondition(parent >= -1 && parent < size);
+
+        if (size == vertices.length) {
+            vertices = Arrays.copyOf(vertices, size * 2);
+            parents = Arrays.copyOf(parents, size * 2);
+            depths = Arrays.copyOf(depths, size * 2);
+            rehash(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+        int i = hash(s) & mask;
+        while (keys[i] != null) {
+            Contract.checkCondition(keys[i] != s);
+            i = (i + 1) & mask;
+        }
+        keys[i] = s;
+        numbers[i] = size;
+
+        vertices[size] = s;
+        parents[size] = parent;
+        depths[size] = depth;
+
+        return size++;
+    }
+
+    // OUTILS
+
+    private static int hash(Sommet s) {
+        int h = System.identityHashCode(s) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // La table garde au moins deux cases par sommet
+    private void rehash(int capacity) {
+        keys = new Sommet[capacity];
+        numbers = new int[capacity];
+
+        int mask = capacity - 1;
+        for (int k = 0; k < size; k++) {
+            int i = hash(vertices[k]) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = vertices[k];
+            numbers[i] = k;
+        }
+    }
+}
@@ -6,13 +6,17 @@ import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
-import javax.swing.DefaultListModel;
+import javax.management.JMException;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
@@ -20,29 +24,48 @@ import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import accounts.Page;
 import accounts.Sommet;
 import accounts.Utilisateur;
 import exception.BadSyntaxException;
+import graph.EcouteurGraphe;
+import graph.EvenementGraphe;
 import graph.Graphe;
+import graph.OrdreSommets;
+import graph.Progression;
+import metrics.MetriquesJmx;
+import metrics.MetriquesMemoire;
 
 public class GraphApp {
 
+    // CONSTANTES
+    
+    // Fenêtre de regroupement des changements du modèle avant mise à jour de la vue (ms)
+    private static final long REFRESH_WINDOW = 50;
+    
+    // Nombre de sommets affichés par les classements, de quoi remplir une fenêtre
+    private static final int RANKING_SIZE = 100;
+    
+    // Nom JMX des métriques du modèle, exposées si la propriété système graph.metrics vaut true
+    private static final String METRICS_NAME = "graph:type=Metriques";
+    
     // ATTRIBUTS
     
     private Graphe model;
     private JFrame mainFrame;
     
     private JList<Sommet> userList;
-    private DefaultListModel<Sommet> userListModel;
+    private ModeleListeSommets userListModel;
     private JList<Sommet> pageList;
-    private DefaultListModel<Sommet> pageListModel;
+    private ModeleListeSommets pageListModel;
     
     private JButton addUser;
     private JButton addPage;
@@ -62,8 +85,21 @@ public class GraphApp {
     private JButton verticesSortedByPageRank;
     private JButton edgesButton;
     
+    private JButton[] actions;
+    
     private JFileChooser fileChooser;
     
+    // Suivi de la tâche de fond
+    private JLabel taskLabel;
+    private JProgressBar taskProgress;
+    private JButton cancelTask;
+    
+    // Tâche en cours, null s'il n'y en a pas ; pendant une tâche le modèle ne lui appartient qu'à elle :
+    // les actions sont désactivées, et les changements reçus sont reportés à la fin de la tâche
+    private Tache<?> task;
+    private List<EvenementGraphe> pendingEvents;
+    private boolean pageRankPending;
+    
     // CONSTRUCTEUR
     
     public GraphApp() {
@@ -76,7 +112,7 @@ public class GraphApp {
     // COMMANDES
     
     public void display() {
-        refresh();
+        reload();
         mainFrame.pack();
         mainFrame.setLocationRelativeTo(null);
         mainFrame.setVisible(true);
@@ -87,6 +123,17 @@ public class GraphApp {
     // Instanciation du modèle
     private void createModel() {
         model = new Graphe();
+        model.setIncrementalPageRank(true);
+        
+        if (Boolean.getBoolean("graph.metrics")) {
+            MetriquesMemoire metrics = new MetriquesMemoire();
+            model.setMetrics(metrics);
+            try {
+                MetriquesJmx.register(metrics, METRICS_NAME);
+            } catch (JMException e) {
+                System.err.println("Métriques non exposées par JMX : " + e.getMessage());
+            }
+        }
     }
     
     // Instanciation des composants majeurs
@@ -97,13 +144,16 @@ public class GraphApp {
         mainFrame = new JFrame("Graphe");
         mainFrame.setPreferredSize(new Dimension(width, height));
         
-        userListModel = new DefaultListModel<Sommet>();
-        pageListModel = new DefaultListModel<Sommet>();
+        userListModel = new ModeleListeSommets();
+        pageListModel = new ModeleListeSommets();
         
+        // Avec des lignes de taille fixe, la liste ne consulte que les lignes visibles
         userList = new JList<Sommet>(userListModel);
         userList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        userList.setPrototypeCellValue(new Page("Prénom assez long Nom assez long"));
         pageList = new JList<Sommet>(pageListModel);
         pageList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        pageList.setPrototypeCellValue(new Page("Prénom assez long Nom assez long"));
         
         addUser = new JButton("Ajouter Utilisateur");
         addPage = new JButton("Ajouter Page");
@@ -123,8 +173,24 @@ public class GraphApp {
         verticesSortedByPageRank = new JButton("Ensemble des sommets triés par Page Rank");
         edgesButton = new JButton("Ensemble des arcs");
         
+        actions = new JButton[] {
+            addUser, addPage, removeUser, removePage, userInfo, pageInfo,
+            followButton, stopFollowing, setAdmin, removeAdmin, saveGraph, loadGraph,
+            graphStats, verticesSortedByName, verticesSortedByOutDegree, verticesSortedByPageRank,
+            edgesButton
+        };
         
         fileChooser = new JFileChooser();
+        
+        taskLabel = new JLabel(" ");
+        taskProgress = new JProgressBar(0, 100);
+        taskProgress.setVisible(false);
+        cancelTask = new JButton("Annuler");
+        cancelTask.setEnabled(false);
+        
+        task = null;
+        pendingEvents = new ArrayList<EvenementGraphe>();
+        pageRankPending = false;
     }
     
     // Placement des composants
@@ -215,17 +281,28 @@ public class GraphApp {
         
         mainFrame.add(p, BorderLayout.CENTER);
         
+        p = new JPanel(new BorderLayout()); {
+            p.add(taskLabel, BorderLayout.WEST);
+            p.add(taskProgress, BorderLayout.CENTER);
+            p.add(cancelTask, BorderLayout.EAST);
+        }
+        
+        mainFrame.add(p, BorderLayout.SOUTH);
     }
     
-    // Création de l'observateur du modèle et des écouteurs de la vue
+    // Création de l'écouteur du modèle et des écouteurs de la vue
     private void createController() {
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
-        model.addObserver(new Observer() {
-            public void update(Observable o, Object arg) {
-                refresh();
+        model.addGraphListener(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> events) {
+                update(events);
             }
-        });
+        }, new Executor() {
+            public void execute(Runnable r) {
+                SwingUtilities.invokeLater(r);
+            }
+        }, REFRESH_WINDOW);
         
         addUser.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -387,7 +464,7 @@ public class GraphApp {
                                                 userList,
                                                 userList[0]);
                         if (u != null) {
-                            s.addAdmin(u);
+                            model.addAdmin(s, u);
                         }
                     } else {
                         JOptionPane.showMessageDialog(null, 
@@ -413,7 +490,7 @@ public class GraphApp {
                                                 listAdmins,
                                                 listAdmins[0]);
                         if (u != null) {
-                            s.removeAdmin(u);
+                            model.removeAdmin(s, u);
                         }
                     } else {
                         JOptionPane.showMessageDialog(null, 
@@ -429,14 +506,17 @@ public class GraphApp {
             public void actionPerformed(ActionEvent e) {
                 int returnVal = fileChooser.showSaveDialog(mainFrame);
                 if (returnVal == JFileChooser.APPROVE_OPTION) {
-                    try {
-                        model.saveGraph(fileChooser.getSelectedFile());
-                    } catch (IOException ex) {
-                        JOptionPane.showMessageDialog(null, 
-                                "Erreur lors de la sauvegarde du graphe.",
-                                "Erreur!",
-                                JOptionPane.ERROR_MESSAGE);
-                    }
+                    final File file = fileChooser.getSelectedFile();
+                    start(new Tache<Void>("Sauvegarde de " + file.getName()) {
+                        Void compute() throws Exception {
+                            model.saveGraph(file, this);
+                            return null;
+                        }
+                        
+                        void failed(Throwable cause) {
+                            showErrorDialog("Erreur lors de la sauvegarde du graphe.");
+                        }
+                    });
                 }
             }
         }); 
@@ -445,75 +525,216 @@ public class GraphApp {
             public void actionPerformed(ActionEvent e) {
                 int returnVal = fileChooser.showOpenDialog(mainFrame);
                 if (returnVal == JFileChooser.APPROVE_OPTION) {
-                    try {
-                        model.loadGraph(fileChooser.getSelectedFile());
-                    } catch (IOException ex) {
-                        JOptionPane.showMessageDialog(null,
-                                "Erreur lors de l'ouverture du fichier.",
-                                "Erreur!",
-                                JOptionPane.ERROR_MESSAGE);
-                    } catch (BadSyntaxException ex) {
-                        JOptionPane.showMessageDialog(null, 
-                                "Le fichier est corrompu",
-                                "Erreur!",
-                                JOptionPane.ERROR_MESSAGE);
-                    }
+                    final File file = fileChooser.getSelectedFile();
+                    start(new Tache<Void>("Chargement de " + file.getName()) {
+                        Void compute() throws Exception {
+                            model.loadGraph(file, this);
+                            return null;
+                        }
+                        
+                        void failed(Throwable cause) {
+                            if (cause instanceof BadSyntaxException) {
+                                showErrorDialog("Le fichier est corrompu");
+                            } else {
+                                showErrorDialog("Erreur lors de l'ouverture du fichier.");
+                            }
+                        }
+                    });
                 }
             }
         });
         
         graphStats.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                String dialogString = "Nombre de sommets: " + model.getVerticesNb()
-                        + "\nNombre d'arcs: " + model.getEdgesNb()
-                        + "\nEnsemble des sommets: " + model.getVertices().toString()
-                        + "\nNombre d'utilisateurs: " + model.getUsersNb()
-                        + "\nNombre de pages: " + model.getPagesNb()
-                        + "\nÂge moyen des utilisateurs: " + model.getAverageAge();
-                
-                showInfoDialog(dialogString, "Statistiques du graphe");
-                        
+                start(new Rapport("Calcul des statistiques", "Statistiques du graphe") {
+                    String compute() {
+                        return "Nombre de sommets: " + model.getVerticesNb()
+                            + "\nNombre d'arcs: " + model.getEdgesNb()
+                            + "\nEnsemble des sommets: " + model.getVertices().toString()
+                            + "\nNombre d'utilisateurs: " + model.getUsersNb()
+                            + "\nNombre de pages: " + model.getPagesNb()
+                            + "\nÂge moyen des utilisateurs: " + model.getAverageAge();
+                    }
+                });
             }
         });
         
         verticesSortedByName.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {                
-                showInfoDialog(model.getVerticesSortedByName().toString(), "Sommets triés par nom");
+            public void actionPerformed(ActionEvent e) {
+                start(new Rapport("Tri par nom", "Sommets triés par nom") {
+                    String compute() {
+                        return model.getVerticesSortedByName().toString();
+                    }
+                });
             }
         });
         
         verticesSortedByOutDegree.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                showInfoDialog(model.getVerticesSortedByOutDegree().toString(), "Sommets triés par degré sortant");
+                start(new Rapport("Tri par degré sortant", "Sommets triés par degré sortant") {
+                    String compute() {
+                        return ranking(OrdreSommets.OUT_DEGREE, Utilisateur.class);
+                    }
+                });
             }
         });
         
         verticesSortedByPageRank.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                showInfoDialog(model.getVerticesSortedByPageRank().toString(), "Sommets triés par page rank");
+                start(new Rapport("Tri par page rank", "Sommets triés par page rank") {
+                    String compute() {
+                        return ranking(OrdreSommets.PAGE_RANK, Sommet.class);
+                    }
+                });
             }
         });
         
         edgesButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                showInfoDialog(model.getEdges().toString(), "Ensemble des arcs du graphe");
+                start(new Rapport("Liste des arcs", "Ensemble des arcs du graphe") {
+                    String compute() {
+                        return model.getEdges().toString();
+                    }
+                });
+            }
+        });
+        
+        cancelTask.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (task != null) {
+                    task.cancel(true);
+                }
             }
         });
     }
     
-    private void refresh() {
-        model.generatePageRank();
+    // Reporte les changements du modèle dans les listes, sans les reconstruire,
+    // ou les met de côté jusqu'à la fin de la tâche en cours
+    private void update(List<EvenementGraphe> events) {
+        if (task != null) {
+            pendingEvents.addAll(events);
+            return;
+        }
         
-        userListModel.removeAllElements();
-        pageListModel.removeAllElements();
+        boolean structural = false;
+        for (EvenementGraphe e : events) {
+            switch (e.getType()) {
+                case GRAPH_RELOADED:
+                    reload();
+                    structural = true;
+                    break;
+                case VERTEX_ADDED:
+                    listModelOf(e.getSource()).add(e.getSource());
+                    structural = true;
+                    break;
+                case VERTEX_REMOVED:
+                    listModelOf(e.getSource()).remove(e.getSource());
+                    structural = true;
+                    break;
+                case EDGE_ADDED:
+                case EDGE_REMOVED:
+                    structural = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        if (structural) {
+            requestPageRank();
+        }
+    }
+    
+    private ModeleListeSommets listModelOf(Sommet s) {
+        return s instanceof Utilisateur ? userListModel : pageListModel;
+    }
+    
+    // Relit tous les sommets du modèle dans les listes
+    private void reload() {
+        List<Sommet> users = new ArrayList<Sommet>();
+        List<Sommet> pages = new ArrayList<Sommet>();
         
         for (Sommet s : model.getVertices()) {
             if (s instanceof Utilisateur) {
-                userListModel.addElement(s);
+                users.add(s);
             } else {
-                pageListModel.addElement(s);
+                pages.add(s);
             }
         }
+        
+        userListModel.setAll(users);
+        pageListModel.setAll(pages);
+    }
+    
+    // Recalcule le page rank en arrière-plan, après la tâche en cours s'il y en a une
+    private void requestPageRank() {
+        if (task != null) {
+            pageRankPending = true;
+            return;
+        }
+        
+        start(new Tache<Void>("Calcul du page rank") {
+            Void compute() {
+                model.generatePageRank(this);
+                return null;
+            }
+        });
+    }
+    
+    // Lance la tâche t ; le modèle lui est réservé jusqu'à sa fin
+    private void start(Tache<?> t) {
+        task = t;
+        setActionsEnabled(false);
+        
+        taskLabel.setText(t.label + "... ");
+        taskProgress.setIndeterminate(true);
+        taskProgress.setValue(0);
+        taskProgress.setVisible(true);
+        cancelTask.setEnabled(true);
+        
+        t.addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("progress".equals(e.getPropertyName())) {
+                    taskProgress.setIndeterminate(false);
+                    taskProgress.setValue((Integer) e.getNewValue());
+                }
+            }
+        });
+        t.execute();
+    }
+    
+    // Fin de la tâche t, une fois qu'elle ne touche plus au modèle
+    private void finished(Tache<?> t) {
+        task = null;
+        setActionsEnabled(true);
+        
+        taskLabel.setText(" ");
+        taskProgress.setVisible(false);
+        cancelTask.setEnabled(false);
+        
+        // Les changements reportés peuvent relancer le page rank, qui tient alors compte de tout
+        boolean pageRankWanted = pageRankPending;
+        pageRankPending = false;
+        
+        if (!pendingEvents.isEmpty()) {
+            List<EvenementGraphe> events = pendingEvents;
+            pendingEvents = new ArrayList<EvenementGraphe>();
+            update(events);
+        }
+        
+        if (pageRankWanted && task == null) {
+            requestPageRank();
+        }
+    }
+    
+    private void setActionsEnabled(boolean enabled) {
+        for (JButton b : actions) {
+            b.setEnabled(enabled);
+        }
+    }
+    
+    private void showErrorDialog(String message) {
+        JOptionPane.showMessageDialog(null, message, "Erreur!", JOptionPane.ERROR_MESSAGE);
     }
     
     private void showInfoDialog(String str, String dialogTitle) {
@@ -531,6 +752,98 @@ public class GraphApp {
                                         JOptionPane.INFORMATION_MESSAGE);   
     }
     
+    // Les premiers sommets de type type dans l'ordre order, sans trier tout le graphe.
+    // Seuls les utilisateurs suivent : le classement par degré sortant se limite à eux.
+    private String ranking(OrdreSommets order, Class<? extends Sommet> type) {
+        List<Sommet> top = model.getTopVertices(order, type, 0, RANKING_SIZE);
+        int total = type == Utilisateur.class ? model.getUsersNb() : model.getVerticesNb();
+        
+        StringBuilder b = new StringBuilder();
+        if (top.size() < total) {
+            b.append("Les ").append(top.size()).append(" premiers sommets sur ").append(total).append(" :\n");
+        }
+        for (int i = 0; i < top.size(); i++) {
+            b.append(i + 1).append(". ").append(top.get(i)).append('\n');
+        }
+        
+        return b.toString();
+    }
+    
+    /**
+     * Une opération sur le modèle exécutée hors du thread de l'interface.
+     * Elle signale son avancement à la barre de progression et s'arrête,
+     * si on l'annule, par l'interruption de son thread.
+     */
+    private abstract class Tache<T> extends SwingWorker<T, Void> implements Progression {
+        final String label;
+        
+        Tache(String label) {
+            this.label = label;
+        }
+        
+        public void progressed(long done, long total) {
+            setProgress(total > 0 ? (int) (done * 100 / total) : 0);
+        }
+        
+        // Exécutée hors du thread de l'interface
+        abstract T compute() throws Exception;
+        
+        // Exécutées dans le thread de l'interface, sauf si la tâche a été annulée
+        void succeeded(T result) {
+        }
+        
+        void failed(Throwable cause) {
+            showErrorDialog(label + " : " + cause.getMessage());
+        }
+        
+        /*
+         * done() est appelée dès l'annulation, alors que compute() peut encore toucher au modèle :
+         * la fin de la tâche est signalée par doInBackground() elle-même.
+         */
+        protected final T doInBackground() throws Exception {
+            try {
+                return compute();
+            } finally {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        conclude();
+                    }
+                });
+            }
+        }
+        
+        private void conclude() {
+            finished(this);
+            
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                succeeded(get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                failed(e.getCause());
+            }
+        }
+    }
+    
+    /**
+     * Une tâche dont le résultat est affiché dans une boîte de dialogue
+     */
+    private abstract class Rapport extends Tache<String> {
+        private final String dialogTitle;
+        
+        Rapport(String label, String dialogTitle) {
+            super(label);
+            this.dialogTitle = dialogTitle;
+        }
+        
+        void succeeded(String result) {
+            showInfoDialog(result, dialogTitle);
+        }
+    }
+    
     public static void main(String[] args) {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
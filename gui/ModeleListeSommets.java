@@ -0,0 +1,121 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+import accounts.Sommet;
+import util.Contract;
+
+/**
+ * Cette classe définit le modèle d'une liste de sommets affichée par une JList.
+ *
+ * Chaque ajout ou retrait ne signale à la liste que les lignes qu'il touche :
+ * un sommet est ajouté en fin de liste, et un sommet retiré est remplacé
+ * par le dernier, si bien que l'ajout et le retrait se font en temps constant.
+ * Associé à une hauteur de ligne fixe, il permet à la JList de ne consulter
+ * que les lignes visibles.
+ *
+ * @cons <pre>
+ * $DESC$ Une liste vide
+ * $POST$
+ *  getSize() == 0 </pre>
+ */
+class ModeleListeSommets extends AbstractListModel<Sommet> {
+
+    private static final long serialVersionUID = 1L;
+
+    // ATTRIBUTS
+
+    private final List<Sommet> rows;
+    private final Map<Sommet, Integer> positions;
+
+    // CONSTRUCTEUR
+
+    ModeleListeSommets() {
+        rows = new ArrayList<Sommet>();
+        positions = new IdentityHashMap<Sommet, Integer>();
+    }
+
+    // REQUETES
+
+    public int getSize() {
+        return rows.size();
+    }
+
+    public Sommet getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    /** Indique si le sommet s est dans la liste
+     */
+    boolean contains(Sommet s) {
+        return positions.containsKey(s);
+    }
+
+    // COMMANDES
+
+    /** Ajoute le sommet s en fin de liste, s'il n'y est pas déjà
+     * @pre <pre>
+     *  s != null </pre>
+     */
+    void add(Sommet s) {
+        Contract.checkCondition(s != null);
+
+        if (positions.containsKey(s)) {
+            return;
+        }
+
+        int i = rows.size();
+        rows.add(s);
+        positions.put(s, i);
+        fireIntervalAdded(this, i, i);
+    }
+
+    /** Retire le sommet s de la liste, s'il y est ; le dernier sommet prend sa place
+     */
+    void remove(Sommet s) {
+        Integer i = positions.remove(s);
+        if (i == null) {
+            return;
+        }
+
+        int last = rows.size() - 1;
+        Sommet moved = rows.remove(last);
+        if (i != last) {
+            rows.set(i, moved);
+            positions.put(moved, i);
+            fireContentsChanged(this, i, i);
+        }
+        fireIntervalRemoved(this, last, last);
+    }
+
+    /** Remplace le contenu de la liste par les sommets de vs, dans l'ordre
+     * @pre <pre>
+     *  vs != null </pre>
+     */
+    void setAll(Collection<? extends Sommet> vs) {
+        Contract.checkCondition(vs != null);
+
+        int old = rows.size();
+        rows.clear();
+        positions.clear();
+        if (old > 0) {
+            fireIntervalRemoved(this, 0, old - 1);
+        }
+
+        for (Sommet s : vs) {
+            if (!positions.containsKey(s)) {
+                positions.put(s, rows.size());
+                rows.add(s);
+            }
+        }
+        if (!rows.isEmpty()) {
+            fireIntervalAdded(this, 0, rows.size() - 1);
+        }
+    }
+}
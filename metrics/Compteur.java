@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * Cette interface définit un compteur monotone, incrémenté depuis plusieurs threads
+ */
+public interface Compteur {
+
+    /** Retourne la valeur du compteur
+     */
+    long getCount();
+
+    /** Ajoute 1 au compteur
+     */
+    void increment();
+
+    /** Ajoute n au compteur
+     * @pre <pre>
+     *  n >= 0 </pre>
+     */
+    void add(long n);
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+/**
+ * Cette interface définit un histogramme de durées en nanosecondes,
+ * alimenté depuis plusieurs threads.
+ */
+public interface Histogramme {
+
+    /** Retourne le nombre de durées enregistrées
+     */
+    long getCount();
+
+    /** Retourne la moyenne des durées enregistrées, 0 si aucune
+     */
+    double getMean();
+
+    /** Retourne la plus grande durée enregistrée, 0 si aucune
+     */
+    long getMax();
+
+    /** Retourne une borne supérieure de la durée de rang q parmi les durées enregistrées,
+     *  0 si aucune
+     * @pre <pre>
+     *  0 <= q <= 1 </pre>
+     */
+    long getPercentile(double q);
+
+    /** Enregistre la durée nanos
+     */
+    void record(long nanos);
+}
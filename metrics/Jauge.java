@@ -0,0 +1,12 @@
+package metrics;
+
+/**
+ * Cette interface définit une jauge : une valeur lue à la demande, par exemple
+ * la taille d'une structure. Elle peut être lue depuis n'importe quel thread.
+ */
+public interface Jauge {
+
+    /** Retourne la valeur courante de la jauge
+     */
+    long getValue();
+}
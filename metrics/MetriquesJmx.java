@@ -0,0 +1,174 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import util.Contract;
+
+/**
+ * Cette classe expose un registre de métriques comme un MBean dynamique, en lecture seule.
+ *
+ * Chaque compteur et chaque jauge donne un attribut Long de même nom ; chaque histogramme
+ * de nom h donne les attributs h.count, h.mean, h.p50, h.p99 et h.max (durées en nanosecondes).
+ * Les attributs sont recalculés à chaque lecture : les métriques créées après
+ * l'enregistrement du MBean apparaissent donc aussi (jconsole, VisualVM, ...).
+ *
+ * @cons <pre>
+ * $DESC$ Le MBean du registre registry
+ * $ARGS$ RegistreMetriques registry
+ * $PRE$
+ *  registry != null </pre>
+ */
+public class MetriquesJmx implements DynamicMBean {
+
+    // CONSTANTES
+
+    private static final String[] SUFFIXES = {".count", ".mean", ".p50", ".p99", ".max"};
+
+    // ATTRIBUTS
+
+    private final RegistreMetriques registry;
+
+    // CONSTRUCTEUR
+
+    public MetriquesJmx(RegistreMetriques registry) {
+        Contract.checkCondition(registry != null);
+
+        this.registry = registry;
+    }
+
+    // REQUETES
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Contract.checkCondition(attribute != null);
+
+        Compteur c = registry.getCounters().get(attribute);
+        if (c != null) {
+            return c.getCount();
+        }
+        Jauge g = registry.getGauges().get(attribute);
+        if (g != null) {
+            return g.getValue();
+        }
+
+        int dot = attribute.lastIndexOf('.');
+        if (dot > 0) {
+            Histogramme h = registry.getHistograms().get(attribute.substring(0, dot));
+            if (h != null) {
+                String suffix = attribute.substring(dot);
+                if (suffix.equals(".count")) {
+                    return h.getCount();
+                } else if (suffix.equals(".mean")) {
+                    return h.getMean();
+                } else if (suffix.equals(".p50")) {
+                    return h.getPercentile(0.5);
+                } else if (suffix.equals(".p99")) {
+                    return h.getPercentile(0.99);
+                } else if (suffix.equals(".max")) {
+                    return h.getMax();
+                }
+            }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        Contract.checkCondition(attributes != null);
+
+        AttributeList list = new AttributeList();
+        for (String a : attributes) {
+            try {
+                list.add(new Attribute(a, getAttribute(a)));
+            } catch (AttributeNotFoundException e) {
+                // Ignoré, comme le prévoit DynamicMBean
+            }
+        }
+
+        return list;
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+
+        for (String name : registry.getCounters().keySet()) {
+            attributes.add(info(name, Long.class, "compteur"));
+        }
+        for (Map.Entry<String, Histogramme> e : registry.getHistograms().entrySet()) {
+            for (String suffix : SUFFIXES) {
+                Class<?> type = suffix.equals(".mean") ? Double.class : Long.class;
+                attributes.add(info(e.getKey() + suffix, type, "histogramme, en nanosecondes"));
+            }
+        }
+        for (String name : registry.getGauges().keySet()) {
+            attributes.add(info(name, Long.class, "jauge"));
+        }
+
+        return new MBeanInfo(getClass().getName(), "Métriques",
+            attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+
+    // COMMANDES
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("attribut en lecture seule : " + attribute.getName());
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    /** Enregistre le registre registry sous le nom name auprès du serveur MBean de la plateforme
+     *  et retourne le nom effectif
+     * @pre <pre>
+     *  registry != null
+     *  name != null </pre>
+     * @throws <pre>
+     *  JMException: Le nom est invalide ou déjà enregistré </pre>
+     */
+    public static ObjectName register(RegistreMetriques registry, String name) throws JMException {
+        Contract.checkCondition(registry != null);
+        Contract.checkCondition(name != null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        return server.registerMBean(new MetriquesJmx(registry), new ObjectName(name)).getObjectName();
+    }
+
+    /** Retire le MBean de nom name du serveur MBean de la plateforme, s'il y est enregistré
+     * @pre <pre>
+     *  name != null </pre>
+     * @throws <pre>
+     *  JMException: Le MBean n'a pas pu être retiré </pre>
+     */
+    public static void unregister(ObjectName name) throws JMException {
+        Contract.checkCondition(name != null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    // OUTILS
+
+    private static MBeanAttributeInfo info(String name, Class<?> type, String description) {
+        return new MBeanAttributeInfo(name, type.getName(), description, true, false, false);
+    }
+}
@@ -0,0 +1,211 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import util.Contract;
+
+/**
+ * Cette classe définit le registre de métriques par défaut, conservées en mémoire.
+ *
+ * Les compteurs reposent sur des LongAdder, sans contention entre threads.
+ * Les histogrammes sont log-linéaires : chaque puissance de 2 est découpée en SUB_BUCKETS
+ * cases égales, si bien qu'un centile est connu à 1 / SUB_BUCKETS près, quelle que soit
+ * l'échelle, pour une taille fixe de 64 * SUB_BUCKETS compteurs.
+ *
+ * @cons <pre>
+ * $DESC$ Un registre vide
+ * $POST$
+ *  getCounters().isEmpty()
+ *  getHistograms().isEmpty()
+ *  getGauges().isEmpty() </pre>
+ */
+public class MetriquesMemoire implements RegistreMetriques {
+
+    // CONSTANTES
+
+    // Cases par puissance de 2, puissance de 2
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // ATTRIBUTS
+
+    private final ConcurrentMap<String, Compteur> counters;
+    private final ConcurrentMap<String, Histogramme> histograms;
+    private final ConcurrentMap<String, Jauge> gauges;
+
+    // CONSTRUCTEUR
+
+    public MetriquesMemoire() {
+        counters = new ConcurrentHashMap<String, Compteur>();
+        histograms = new ConcurrentHashMap<String, Histogramme>();
+        gauges = new ConcurrentHashMap<String, Jauge>();
+    }
+
+    // REQUETES
+
+    public Map<String, Compteur> getCounters() {
+        return sorted(counters);
+    }
+
+    public Map<String, Histogramme> getHistograms() {
+        return sorted(histograms);
+    }
+
+    public Map<String, Jauge> getGauges() {
+        return sorted(gauges);
+    }
+
+    // COMMANDES
+
+    public Compteur counter(String name) {
+        Contract.checkCondition(name != null);
+
+        Compteur c = counters.get(name);
+        if (c == null) {
+            Compteur created = new CompteurMemoire();
+            c = counters.putIfAbsent(name, created);
+            if (c == null) {
+                c = created;
+            }
+        }
+
+        return c;
+    }
+
+    public Histogramme histogram(String name) {
+        Contract.checkCondition(name != null);
+
+        Histogramme h = histograms.get(name);
+        if (h == null) {
+            Histogramme created = new HistogrammeMemoire();
+            h = histograms.putIfAbsent(name, created);
+            if (h == null) {
+                h = created;
+            }
+        }
+
+        return h;
+    }
+
+    public void gauge(String name, Jauge gauge) {
+        Contract.checkCondition(name != null);
+        Contract.checkCondition(gauge != null);
+
+        gauges.put(name, gauge);
+    }
+
+    // OUTILS
+
+    private static <T> SortedMap<String, T> sorted(Map<String, T> m) {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, T>(m));
+    }
+
+    private static class CompteurMemoire implements Compteur {
+        private final LongAdder count = new LongAdder();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            Contract.checkCondition(n >= 0);
+
+            count.add(n);
+        }
+    }
+
+    private static class HistogrammeMemoire implements Histogramme {
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMean() {
+            long n = count.sum();
+
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getPercentile(double q) {
+            Contract.checkCondition(q >= 0 && q <= 1);
+
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+
+            return max.get();
+        }
+
+        public void record(long nanos) {
+            long v = Math.max(0, nanos);
+
+            buckets.incrementAndGet(index(v));
+            count.increment();
+            sum.add(v);
+
+            long m = max.get();
+            while (v > m && !max.compareAndSet(m, v)) {
+                m = max.get();
+            }
+        }
+
+        // Les SUB_BUCKETS premières valeurs ont chacune leur case ; au-delà, la case
+        // dépend de la puissance de 2 de v et des SUB_BITS bits qui suivent le premier
+        private static int index(long v) {
+            if (v < SUB_BUCKETS) {
+                return (int) v;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Plus grande valeur rangée dans la case i
+        private static long upperBound(int i) {
+            if (i < SUB_BUCKETS) {
+                return i;
+            }
+
+            int exponent = i / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = i % SUB_BUCKETS;
+            long next = (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+
+            return next - 1 < 0 ? Long.MAX_VALUE : next - 1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Cette interface définit un registre de métriques nommées : compteurs, histogrammes et jauges.
+ *
+ * Un composant instrumenté demande ses métriques au registre une fois pour toutes,
+ * puis les alimente directement : le registre n'est pas consulté à chaque mesure.
+ * Une autre implémentation que MetriquesMemoire peut transmettre les métriques
+ * à un système de supervision existant.
+ */
+public interface RegistreMetriques {
+
+    /** Retourne le compteur de nom name, créé s'il n'existe pas
+     * @pre <pre>
+     *  name != null </pre>
+     */
+    Compteur counter(String name);
+
+    /** Retourne l'histogramme de nom name, créé s'il n'existe pas
+     * @pre <pre>
+     *  name != null </pre>
+     */
+    Histogramme histogram(String name);
+
+    /** Enregistre la jauge gauge sous le nom name, en remplaçant la précédente de même nom
+     * @pre <pre>
+     *  name != null
+     *  gauge != null </pre>
+     */
+    void gauge(String name, Jauge gauge);
+
+    /** Retourne les compteurs du registre, par nom
+     */
+    Map<String, Compteur> getCounters();
+
+    /** Retourne les histogrammes du registre, par nom
+     */
+    Map<String, Histogramme> getHistograms();
+
+    /** Retourne les jauges du registre, par nom
+     */
+    Map<String, Jauge> getGauges();
+}
@@ -0,0 +1,179 @@
+package accounts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests de l'ensemble de sommets, comparé à une liste sans doublons.
+ */
+public class EnsembleSommetsTest {
+
+    // OUTILS
+
+    private static List<Sommet> pages(int n) {
+        List<Sommet> vertices = new ArrayList<Sommet>(n);
+        for (int i = 0; i < n; i++) {
+            vertices.add(new Page("Page" + i));
+        }
+
+        return vertices;
+    }
+
+    private static List<Sommet> list(EnsembleSommets set) {
+        return new ArrayList<Sommet>(set);
+    }
+
+    // La liste expected garde l'ordre d'ajout, sans doublons
+    private static void assertSameContent(List<Sommet> expected, EnsembleSommets set) {
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, list(set));
+        for (Sommet s : expected) {
+            assertTrue(set.contains(s));
+        }
+    }
+
+    // TESTS
+
+    // Ajouts et retraits tirés au hasard, de part et d'autre du seuil de l'index
+    @Test
+    public void matchesList() {
+        Random random = new Random(1);
+        List<Sommet> vertices = pages(300);
+
+        for (int bound : new int[] {6, 20, 300}) {
+            EnsembleSommets set = new EnsembleSommets();
+            List<Sommet> expected = new ArrayList<Sommet>();
+
+            for (int k = 0; k < 5000; k++) {
+                Sommet s = vertices.get(random.nextInt(bound));
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(s), set.remove(s));
+                } else {
+                    boolean added = !expected.contains(s);
+                    if (added) {
+                        expected.add(s);
+                    }
+                    assertEquals(added, set.add(s));
+                }
+                assertEquals(expected.size(), set.size());
+            }
+
+            assertSameContent(expected, set);
+            for (Sommet s : vertices) {
+                assertEquals(expected.contains(s), set.contains(s));
+            }
+        }
+    }
+
+    // Un retrait laisse les autres sommets dans leur ordre, y compris après agrandissement
+    @Test
+    public void keepsInsertionOrder() {
+        List<Sommet> vertices = pages(100);
+        EnsembleSommets set = new EnsembleSommets();
+        List<Sommet> expected = new ArrayList<Sommet>();
+
+        for (int i = 0; i < 50; i++) {
+            set.add(vertices.get(i));
+            expected.add(vertices.get(i));
+        }
+        for (int i = 0; i < 50; i += 3) {
+            set.remove(vertices.get(i));
+            expected.remove(vertices.get(i));
+        }
+        for (int i = 50; i < 100; i++) {
+            set.add(vertices.get(i));
+            expected.add(vertices.get(i));
+        }
+
+        assertSameContent(expected, set);
+
+        // Un sommet retiré puis rajouté passe à la fin
+        Sommet first = expected.remove(0);
+        set.remove(first);
+        set.add(first);
+        expected.add(first);
+        assertSameContent(expected, set);
+    }
+
+    // Deux sommets de même nom sont distincts
+    @Test
+    public void comparesByIdentity() {
+        EnsembleSommets set = new EnsembleSommets();
+        Utilisateur u = new Utilisateur("Prenom", "Nom", 20);
+        Utilisateur v = new Utilisateur("Prenom", "Nom", 20);
+
+        assertTrue(set.add(u));
+        assertTrue(set.add(v));
+        assertEquals(2, set.size());
+        assertTrue(set.remove(v));
+        assertTrue(set.contains(u));
+        assertFalse(set.contains(v));
+        assertFalse(set.remove("Nom"));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        List<Sommet> vertices = pages(40);
+        EnsembleSommets set = new EnsembleSommets();
+        set.addAll(vertices);
+
+        List<Sommet> expected = new ArrayList<Sommet>();
+        int i = 0;
+        for (Iterator<Sommet> it = set.iterator(); it.hasNext(); i++) {
+            Sommet s = it.next();
+            if (i % 2 == 0) {
+                it.remove();
+            } else {
+                expected.add(s);
+            }
+        }
+
+        assertSameContent(expected, set);
+        for (int k = 0; k < vertices.size(); k += 2) {
+            assertFalse(set.contains(vertices.get(k)));
+        }
+    }
+
+    // Une modification pendant un parcours est détectée
+    @Test
+    public void failsFast() {
+        EnsembleSommets set = new EnsembleSommets();
+        set.addAll(pages(20));
+
+        Iterator<Sommet> it = set.iterator();
+        it.next();
+        set.add(new Page("Nouvelle"));
+        try {
+            it.next();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // Attendu
+        }
+    }
+
+    @Test
+    public void clear() {
+        List<Sommet> vertices = pages(30);
+        EnsembleSommets set = new EnsembleSommets();
+        set.addAll(vertices);
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.iterator().hasNext());
+        assertFalse(set.contains(vertices.get(0)));
+
+        set.add(vertices.get(5));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(vertices.get(5)));
+    }
+}
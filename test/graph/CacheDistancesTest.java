@@ -0,0 +1,147 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Sommet;
+
+/**
+ * Tests du cache borné des distances.
+ */
+public class CacheDistancesTest {
+
+    private GrapheCSR csr;
+    private List<Sommet> vertices;
+
+    @Before
+    public void setUp() {
+        Graphe g = Graphes.random(13, 50, 2);
+        csr = g.getCSR();
+        vertices = new ArrayList<Sommet>(g.getVertices());
+    }
+
+    // OUTILS
+
+    private ResultatDistances result(GrapheCSR g, int source) {
+        return new ParcoursLargeur().compute(g, source);
+    }
+
+    // Mémoire d'une entrée seule, instantané compris
+    private long entryBytes(int source) {
+        CacheDistances alone = new CacheDistances(1, Long.MAX_VALUE);
+        alone.put(vertices.get(source), result(csr, source), 0);
+
+        return alone.getBytes();
+    }
+
+    // TESTS
+
+    // La source la moins récemment utilisée est évincée la première
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        CacheDistances cache = new CacheDistances(2, Long.MAX_VALUE);
+        ResultatDistances r0 = result(csr, 0);
+        cache.put(vertices.get(0), r0, 1);
+        cache.put(vertices.get(1), result(csr, 1), 1);
+
+        assertSame(r0, cache.get(vertices.get(0), 1));
+        cache.put(vertices.get(2), result(csr, 2), 1);
+
+        assertEquals(2, cache.size());
+        assertSame(r0, cache.get(vertices.get(0), 1));
+        assertNull(cache.get(vertices.get(1), 1));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    // L'instantané partagé par les entrées n'est compté qu'une fois
+    @Test
+    public void countsSharedGraphOnce() {
+        long single = entryBytes(0);
+        GrapheCSR other = new GrapheCSR(vertices);
+
+        CacheDistances shared = new CacheDistances(10, Long.MAX_VALUE);
+        shared.put(vertices.get(0), result(csr, 0), 1);
+        assertEquals(single, shared.getBytes());
+        shared.put(vertices.get(1), result(csr, 1), 1);
+
+        CacheDistances separate = new CacheDistances(10, Long.MAX_VALUE);
+        separate.put(vertices.get(0), result(csr, 0), 1);
+        separate.put(vertices.get(1), result(other, 1), 1);
+
+        assertEquals(2 * single, separate.getBytes());
+        assertTrue(shared.getBytes() > single && shared.getBytes() < separate.getBytes());
+
+        // Remplacer la seule entrée qui gardait l'autre instantané libère sa mémoire
+        separate.put(vertices.get(1), result(csr, 1), 1);
+        assertEquals(shared.getBytes(), separate.getBytes());
+
+        shared.clear();
+        assertEquals(0, shared.getBytes());
+    }
+
+    // La borne de mémoire compte l'instantané que garde chaque entrée
+    @Test
+    public void boundsBytesWithGraphs() {
+        GrapheCSR other = new GrapheCSR(vertices);
+        long single = entryBytes(0);
+        CacheDistances cache = new CacheDistances(10, single + single / 2);
+
+        cache.put(vertices.get(0), result(csr, 0), 1);
+        cache.put(vertices.get(1), result(other, 1), 1);
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(vertices.get(0), 1));
+        assertEquals(single, cache.getBytes());
+    }
+
+    // Une modification vide le cache, un numéro plus ancien n'y change rien
+    @Test
+    public void epochsOnlyMoveForward() {
+        CacheDistances cache = new CacheDistances(10, Long.MAX_VALUE);
+        ResultatDistances r0 = result(csr, 0);
+        cache.put(vertices.get(0), r0, 2);
+
+        // Un calcul commencé avant la dernière modification
+        assertNull(cache.get(vertices.get(0), 1));
+        cache.put(vertices.get(1), result(csr, 1), 1);
+        assertEquals(1, cache.size());
+        assertSame(r0, cache.get(vertices.get(0), 2));
+
+        assertNull(cache.get(vertices.get(0), 3));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    // Le graphe remplit le cache et l'invalide à chaque modification
+    @Test
+    public void graphInvalidatesOnMutation() {
+        Graphe g = Graphes.random(14, 50, 2);
+        Sommet s = g.getVertices().iterator().next();
+
+        ResultatDistances r = g.getDistancesFrom(s);
+        assertSame(r, g.getDistancesFrom(s));
+
+        Sommet v = null;
+        for (Sommet u : g.getVertices()) {
+            if (u != s && !s.getNeighbors().contains(u)) {
+                v = u;
+                break;
+            }
+        }
+        g.addEdge(s, v);
+
+        assertEquals(1, g.getDistance(s, v));
+        assertEquals(1, g.getDistanceCache().getInvalidations());
+    }
+}
@@ -0,0 +1,132 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import accounts.Sommet;
+
+/**
+ * Tests du plus court chemin bidirectionnel, comparé à un parcours en largeur simple.
+ */
+public class CheminTest {
+
+    // OUTILS
+
+    // Parcours en largeur de référence depuis source, par les arcs sortants
+    private static Map<Sommet, Integer> plainBfs(Sommet source) {
+        Map<Sommet, Integer> dist = new IdentityHashMap<Sommet, Integer>();
+        dist.put(source, 0);
+
+        Deque<Sommet> queue = new ArrayDeque<Sommet>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            Sommet u = queue.poll();
+            for (Sommet v : u.getNeighbors()) {
+                if (!dist.containsKey(v)) {
+                    dist.put(v, dist.get(u) + 1);
+                    queue.add(v);
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    // Le chemin va de from à to en suivant des arcs existants
+    private static void assertValid(Chemin path, Sommet from, Sommet to) {
+        List<Sommet> vertices = path.getVertices();
+        assertSame(from, path.getSource());
+        assertSame(to, path.getTarget());
+        for (int i = 0; i + 1 < vertices.size(); i++) {
+            assertTrue(vertices.get(i).getNeighbors().contains(vertices.get(i + 1)));
+        }
+    }
+
+    // TESTS
+
+    @Test
+    public void matchesPlainBfs() {
+        Graphe g = Graphes.random(9, 300, 2);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+
+        for (int i = 0; i < vertices.size(); i += 11) {
+            Sommet from = vertices.get(i);
+            Map<Sommet, Integer> expected = plainBfs(from);
+            for (int j = 0; j < vertices.size(); j += 3) {
+                Sommet to = vertices.get(j);
+                Chemin path = g.getShortestPath(from, to);
+                if (expected.containsKey(to)) {
+                    assertEquals((int) expected.get(to), path.getDistance());
+                    assertValid(path, from, to);
+                } else {
+                    assertNull(path);
+                }
+            }
+        }
+    }
+
+    // Un chemin plus long que maxHops n'est pas retourné, un chemin d'au plus maxHops arcs l'est
+    @Test
+    public void maxHops() {
+        Graphe g = Graphes.random(10, 300, 2);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+
+        for (int i = 0; i < vertices.size(); i += 13) {
+            Sommet from = vertices.get(i);
+            Map<Sommet, Integer> expected = plainBfs(from);
+            for (Map.Entry<Sommet, Integer> e : expected.entrySet()) {
+                int d = e.getValue();
+                Chemin path = g.getShortestPath(from, e.getKey(), d);
+                assertEquals(d, path.getDistance());
+                assertValid(path, from, e.getKey());
+                if (d > 0) {
+                    assertNull(g.getShortestPath(from, e.getKey(), d - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameVertex() {
+        Graphe g = Graphes.random(11, 20, 2);
+        Sommet s = g.getVertices().iterator().next();
+
+        Chemin path = g.getShortestPath(s, s, 0);
+        assertEquals(0, path.getDistance());
+        assertSame(s, path.getSource());
+    }
+
+    // Le chemin suit les arcs ajoutés et retirés depuis la requête précédente
+    @Test
+    public void followsEdgeChanges() {
+        Graphe g = Graphes.random(12, 200, 2);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+        Sommet from = vertices.get(0);
+        Sommet to = vertices.get(vertices.size() - 2);
+
+        if (!from.getNeighbors().contains(to)) {
+            g.addEdge(from, to);
+        }
+        assertEquals(1, g.getShortestPath(from, to).getDistance());
+
+        g.removeEdge(from, to);
+        Integer expected = plainBfs(from).get(to);
+        Chemin path = g.getShortestPath(from, to);
+        if (expected == null) {
+            assertNull(path);
+        } else {
+            assertEquals((int) expected, path.getDistance());
+        }
+    }
+}
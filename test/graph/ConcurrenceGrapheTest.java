@@ -0,0 +1,197 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests du graphe lu et modifié depuis plusieurs threads.
+ */
+public class ConcurrenceGrapheTest {
+
+    // CONSTANTES
+
+    private static final int THREADS = 4;
+    private static final int USERS_PER_THREAD = 30;
+
+    // OUTILS
+
+    // Lance les tâches dans autant de threads, attend leur fin et relance la première erreur
+    private static void run(List<Runnable> tasks) throws Throwable {
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final Runnable task : tasks) {
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+    }
+
+    // TESTS
+
+    // Un écouteur synchrone est appelé hors des verrous : il peut modifier le graphe et en vérifier
+    // les statistiques, pendant que d'autres threads le modifient
+    @Test(timeout = 60000)
+    public void listenerMayMutate() throws Throwable {
+        final Graphe g = new Graphe();
+        g.setStatisticsCheck(true);
+        final List<List<Utilisateur>> groups = new ArrayList<List<Utilisateur>>();
+        for (int k = 0; k < THREADS; k++) {
+            List<Utilisateur> users = new ArrayList<Utilisateur>();
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                Utilisateur u = new Utilisateur("Prenom" + i, "Nom" + k, 20 + i);
+                g.addVertice(u);
+                users.add(u);
+            }
+            groups.add(users);
+        }
+
+        // Chaque arc ajouté par un thread est rendu par l'écouteur, dans l'autre sens
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        g.addGraphListener(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> events) {
+                if (inside.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                try {
+                    for (EvenementGraphe e : events) {
+                        if (e.getType() == EvenementGraphe.Type.EDGE_ADDED
+                                && e.getSource().getId() < e.getTarget().getId()) {
+                            g.addEdge(e.getTarget(), e.getSource());
+                        }
+                    }
+                    g.getEdgesNb();
+                } finally {
+                    inside.decrementAndGet();
+                }
+            }
+        });
+
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (final List<Utilisateur> users : groups) {
+            tasks.add(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < users.size(); i++) {
+                        for (int j = i + 1; j < users.size(); j += 3) {
+                            g.addEdge(users.get(i), users.get(j));
+                        }
+                    }
+                }
+            });
+        }
+        run(tasks);
+
+        assertFalse(overlapped.get());
+        int forward = 0;
+        for (List<Utilisateur> users : groups) {
+            for (int i = 0; i < users.size(); i++) {
+                for (int j = i + 1; j < users.size(); j += 3) {
+                    assertTrue(users.get(j).getNeighbors().contains(users.get(i)));
+                    forward++;
+                }
+            }
+        }
+        assertEquals(2 * forward, g.getEdgesNb());
+    }
+
+    // getVertices() est une copie en lecture seule, que les ajouts et suppressions ne dérangent pas
+    @Test(timeout = 60000)
+    public void verticesAreACopy() throws Throwable {
+        final Graphe g = Graphes.random(40, 500, 2);
+        Set<Sommet> vertices = g.getVertices();
+        assertSame(vertices, g.getVertices());
+        try {
+            vertices.add(new Page("P"));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Attendu
+        }
+
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        tasks.add(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    Page p = new Page("Temporaire" + i);
+                    g.addVertice(p);
+                    g.removeVertice(p);
+                }
+            }
+        });
+        tasks.add(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 200; i++) {
+                    int n = 0;
+                    for (Sommet s : g.getVertices()) {
+                        if (s instanceof Utilisateur) {
+                            n++;
+                        }
+                    }
+                    assertEquals(400, n);
+                }
+            }
+        });
+        run(tasks);
+
+        Page p = new Page("Dernière");
+        g.addVertice(p);
+        assertTrue(g.getVertices().contains(p));
+        assertFalse(vertices.contains(p));
+        assertEquals(500, vertices.size());
+    }
+
+    // Un arc déjà présent est refusé avant que rien ne change
+    @Test
+    public void rejectsDuplicateEdge() {
+        Graphe g = new Graphe();
+        Utilisateur u = new Utilisateur("Prenom", "U", 20);
+        Page p = new Page("P");
+        g.addVertice(u);
+        g.addVertice(p);
+        g.addEdge(u, p);
+        InstantaneGraphe snap = g.snapshot();
+        long epoch = g.getEpoch();
+
+        try {
+            g.addEdge(u, p);
+            fail();
+        } catch (AssertionError e) {
+            // Attendu
+        }
+
+        assertEquals(epoch, g.getEpoch());
+        assertEquals(1, g.getEdgesNb());
+        assertEquals(1, u.getNeighbors().size());
+        assertEquals(1, p.getFollowers().size());
+        assertEquals(1, snap.getEdgesNb());
+    }
+}
@@ -0,0 +1,156 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests des index ordonnés de sommets, lus par curseurs et par vues triées.
+ */
+public class CurseurSommetsTest {
+
+    // OUTILS
+
+    // Les sommets de g triés selon order, par un tri complet
+    private static List<Sommet> sorted(Graphe g, final OrdreSommets order) {
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+        Collections.sort(vertices, new Comparator<Sommet>() {
+            public int compare(Sommet s1, Sommet s2) {
+                return order.compare(s1, s2);
+            }
+        });
+
+        return vertices;
+    }
+
+    // Toutes les pages d'un nouveau curseur, mises bout à bout
+    private static List<Sommet> readAll(Graphe g, OrdreSommets order, int pageSize) {
+        CurseurSommets cursor = g.getVerticesCursor(order, pageSize);
+        List<Sommet> all = new ArrayList<Sommet>();
+
+        while (cursor.hasNextPage()) {
+            List<Sommet> page = cursor.nextPage();
+            assertTrue(page.size() > 0 && page.size() <= pageSize);
+            all.addAll(page);
+            assertEquals(all.size(), cursor.getPosition());
+        }
+        assertTrue(cursor.nextPage().isEmpty());
+
+        return all;
+    }
+
+    // La vue triée de g dans l'ordre order
+    private static Set<Sommet> sortedView(Graphe g, OrdreSommets order) {
+        switch (order) {
+            case NAME:
+                return g.getVerticesSortedByName();
+            case OUT_DEGREE:
+                return g.getVerticesSortedByOutDegree();
+            case IN_DEGREE:
+                return g.getVerticesSortedByInDegree();
+            default:
+                return g.getVerticesSortedByPageRank();
+        }
+    }
+
+    // Ajoute et retire des sommets et des arcs au hasard
+    private static void mutate(Graphe g, long seed) {
+        Random random = new Random(seed);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+
+        for (int k = 0; k < 300; k++) {
+            Sommet s = vertices.get(random.nextInt(vertices.size()));
+            Sommet v = vertices.get(random.nextInt(vertices.size()));
+            if (s instanceof Utilisateur && s != v) {
+                if (s.getNeighbors().contains(v)) {
+                    g.removeEdge(s, v);
+                } else {
+                    g.addEdge(s, v);
+                }
+            }
+        }
+        for (int k = 0; k < 20; k++) {
+            g.removeVertice(vertices.remove(random.nextInt(vertices.size())));
+            Utilisateur u = new Utilisateur("Prenom" + k, "Ajout" + k, 20);
+            g.addVertice(u);
+            g.addEdge(u, vertices.get(random.nextInt(vertices.size())));
+            vertices.add(u);
+        }
+    }
+
+    // TESTS
+
+    @Test
+    public void pagesFollowOrder() {
+        Graphe g = Graphes.random(50, 400, 3);
+        g.generatePageRank();
+
+        for (OrdreSommets order : OrdreSommets.values()) {
+            List<Sommet> expected = sorted(g, order);
+            assertEquals(order.name(), expected, readAll(g, order, 37));
+            assertEquals(order.name(), expected, new ArrayList<Sommet>(sortedView(g, order)));
+        }
+    }
+
+    // Les index construits sont tenus à jour par les mutations
+    @Test
+    public void indexesFollowMutations() {
+        Graphe g = Graphes.random(51, 400, 3);
+        for (OrdreSommets order : OrdreSommets.values()) {
+            g.getVerticesCursor(order, 10);
+        }
+
+        mutate(g, 51);
+        g.generatePageRank();
+
+        for (OrdreSommets order : OrdreSommets.values()) {
+            assertEquals(order.name(), sorted(g, order), readAll(g, order, 50));
+        }
+        assertEquals(sorted(g, OrdreSommets.NAME), new ArrayList<Sommet>(g.getVerticesSortedByName()));
+    }
+
+    // Une page reprend juste après le dernier sommet retourné, malgré les mutations intermédiaires
+    @Test
+    public void resumesAfterLastVertex() {
+        Graphe g = Graphes.random(52, 100, 2);
+        CurseurSommets cursor = g.getVerticesCursor(OrdreSommets.NAME, 10);
+
+        List<Sommet> first = cursor.nextPage();
+        Sommet last = first.get(first.size() - 1);
+        g.removeVertice(first.get(0));
+        g.addVertice(new Page("AAA"));
+
+        List<Sommet> expected = sorted(g, OrdreSommets.NAME);
+        int i = expected.indexOf(last);
+        assertEquals(expected.subList(i + 1, i + 11), cursor.nextPage());
+        assertEquals(20, cursor.getPosition());
+
+        // Le sommet retenu peut lui-même disparaître
+        g.removeVertice(expected.get(i + 10));
+        List<Sommet> third = cursor.nextPage();
+        assertSame(expected.get(i + 11), third.get(0));
+    }
+
+    @Test
+    public void emptyGraph() {
+        CurseurSommets cursor = new Graphe().getVerticesCursor(OrdreSommets.OUT_DEGREE, 5);
+
+        assertFalse(cursor.hasNextPage());
+        assertTrue(cursor.nextPage().isEmpty());
+        assertEquals(0, cursor.getPosition());
+    }
+}
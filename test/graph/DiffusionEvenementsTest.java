@@ -0,0 +1,182 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Utilisateur;
+
+/**
+ * Tests de la diffusion des événements : retenue, regroupement et omission
+ * des changements qui s'annulent.
+ */
+public class DiffusionEvenementsTest {
+
+    private DiffusionEvenements events;
+    private List<List<EvenementGraphe>> calls;
+    private Utilisateur u;
+    private Utilisateur v;
+    private Page p;
+
+    @Before
+    public void setUp() {
+        events = new DiffusionEvenements();
+        calls = new ArrayList<List<EvenementGraphe>>();
+        events.subscribe(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> received) {
+                calls.add(new ArrayList<EvenementGraphe>(received));
+            }
+        });
+
+        u = new Utilisateur("Prenom", "U", 20);
+        v = new Utilisateur("Prenom", "V", 30);
+        p = new Page("P");
+    }
+
+    // OUTILS
+
+    // Publie les événements pendant une retenue et retourne l'unique livraison qui suit
+    private List<EvenementGraphe> held(EvenementGraphe... published) {
+        events.hold();
+        for (EvenementGraphe e : published) {
+            events.publish(e);
+            events.flush();
+        }
+        events.release();
+        assertTrue(calls.isEmpty());
+        events.flush();
+
+        assertEquals(1, calls.size());
+        return calls.remove(0);
+    }
+
+    // TESTS
+
+    // Sans retenue, les événements publiés sont livrés par le flush() qui suit
+    @Test
+    public void deliversOnFlush() {
+        EvenementGraphe e = EvenementGraphe.edgeAdded(u, v, 1);
+        events.publish(e);
+        assertTrue(calls.isEmpty());
+        events.flush();
+
+        assertEquals(1, calls.size());
+        assertEquals(Arrays.asList(e), calls.get(0));
+        events.flush();
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void keepsOrder() {
+        EvenementGraphe a = EvenementGraphe.vertexAdded(u, 1);
+        EvenementGraphe b = EvenementGraphe.edgeAdded(u, v, 2);
+        EvenementGraphe c = EvenementGraphe.adminChanged(p, u, true, 3);
+
+        assertEquals(Arrays.asList(a, b, c), held(a, b, c));
+    }
+
+    // Un arc ou un lien ajouté puis retiré, ou retiré puis rétabli, disparaît
+    @Test
+    public void omitsCancellingChanges() {
+        EvenementGraphe kept = EvenementGraphe.edgeAdded(v, u, 1);
+
+        assertEquals(Arrays.asList(kept), held(
+            EvenementGraphe.edgeAdded(u, v, 1),
+            kept,
+            EvenementGraphe.edgeRemoved(u, v, 2),
+            EvenementGraphe.adminChanged(p, u, false, 3),
+            EvenementGraphe.adminChanged(p, u, true, 4)));
+    }
+
+    // Un sommet qui n'a existé que dans la fenêtre emporte tous ses événements
+    @Test
+    public void omitsTransientVertex() {
+        Utilisateur w = new Utilisateur("Prenom", "W", 40);
+        EvenementGraphe kept = EvenementGraphe.edgeAdded(u, v, 2);
+
+        assertEquals(Arrays.asList(kept), held(
+            EvenementGraphe.vertexAdded(w, 1),
+            kept,
+            EvenementGraphe.edgeAdded(w, u, 3),
+            EvenementGraphe.adminChanged(p, w, true, 4),
+            EvenementGraphe.vertexRemoved(w, 5)));
+    }
+
+    // Un sommet supprimé puis rajouté reste deux changements distincts
+    @Test
+    public void keepsRemovedThenAddedVertex() {
+        EvenementGraphe removed = EvenementGraphe.vertexRemoved(u, 1);
+        EvenementGraphe added = EvenementGraphe.vertexAdded(u, 2);
+
+        assertEquals(Arrays.asList(removed, added), held(removed, added));
+    }
+
+    // GRAPH_RELOADED remplace ce qui précède, une fenêtre trop longue se réduit à lui
+    @Test
+    public void reloadReplacesWindow() {
+        EvenementGraphe after = EvenementGraphe.edgeAdded(u, v, 3);
+        List<EvenementGraphe> received = held(
+            EvenementGraphe.edgeAdded(v, u, 1),
+            EvenementGraphe.graphReloaded(2),
+            after);
+        assertEquals(2, received.size());
+        assertEquals(EvenementGraphe.Type.GRAPH_RELOADED, received.get(0).getType());
+        assertSame(after, received.get(1));
+
+        events.hold();
+        for (int i = 0; i <= 1 << 16; i++) {
+            events.publish(EvenementGraphe.vertexAdded(new Page("P" + i), i));
+        }
+        events.release();
+        events.flush();
+        assertEquals(1, calls.get(0).size());
+        assertEquals(EvenementGraphe.Type.GRAPH_RELOADED, calls.get(0).get(0).getType());
+        assertEquals(1 << 16, calls.get(0).get(0).getEpoch());
+    }
+
+    // Un écouteur asynchrone reçoit en un appel les changements de sa fenêtre, par son Executor
+    @Test
+    public void coalescesAsynchronously() throws InterruptedException {
+        final List<List<EvenementGraphe>> received = new ArrayList<List<EvenementGraphe>>();
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        Executor executor = new Executor() {
+            public void execute(Runnable r) {
+                threads.add(Thread.currentThread());
+                r.run();
+            }
+        };
+
+        Graphe g = new Graphe();
+        g.addGraphListener(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> events) {
+                received.add(new ArrayList<EvenementGraphe>(events));
+                delivered.countDown();
+            }
+        }, executor, 1000);
+
+        g.addVertice(u);
+        g.addVertice(v);
+        g.addEdge(u, v);
+        g.addEdge(v, u);
+        g.removeEdge(u, v);
+
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertEquals(1, received.size());
+        assertEquals(3, received.get(0).size());
+        assertEquals(EvenementGraphe.Type.EDGE_ADDED, received.get(0).get(2).getType());
+        assertSame(v, received.get(0).get(2).getSource());
+        assertTrue(threads.get(0) != Thread.currentThread());
+    }
+}
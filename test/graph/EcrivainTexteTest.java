@@ -0,0 +1,134 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Page;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests de l'écriture du format texte.
+ */
+public class EcrivainTexteTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // OUTILS
+
+    private static byte[] write(Graphe g, Charset charset) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new EcrivainTexte(charset).write(g.snapshot(), Channels.newChannel(output), null);
+
+        return output.toByteArray();
+    }
+
+    private static Graphe small() {
+        Graphe g = new Graphe();
+        Utilisateur u = new Utilisateur("Zoé", "Dupont", 20);
+        Utilisateur v = new Utilisateur("Marc", "Martin", 31);
+        Page p = new Page("Café");
+        g.addVertice(u);
+        g.addVertice(v);
+        g.addVertice(p);
+        g.addEdge(u, v);
+        g.addEdge(u, p);
+        g.addAdmin(p, v);
+
+        return g;
+    }
+
+    // TESTS
+
+    @Test
+    public void writesLines() throws IOException {
+        String expected = "{id = 1, name = Dupont, firstname = Zoé, age = 20, neighbors = [2, 3]}\n"
+            + "{id = 2, name = Martin, firstname = Marc, age = 31, neighbors = []}\n"
+            + "{id = 3, name = Café, admins = [2]}\n";
+
+        assertEquals(expected, new String(write(small(), StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    // Une seule marque d'ordre des octets, en tête du fichier
+    @Test
+    public void utf16RoundTrip() throws IOException, BadSyntaxException {
+        Graphe g = Graphes.random(22, 300, 3);
+        Graphes.addAdmins(g, 22);
+        g.addVertice(new Page("Café « déjà vu »"));
+
+        byte[] bytes = write(g, StandardCharsets.UTF_16);
+        assertEquals((byte) 0xFE, bytes[0]);
+        assertEquals((byte) 0xFF, bytes[1]);
+        String text = new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE);
+        assertEquals(-1, text.indexOf('\uFEFF'));
+
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes);
+        Graphe loaded = new Graphe();
+        loaded.replace(LecteurTexte.read(file, StandardCharsets.UTF_16, ForkJoinPool.commonPool(), null));
+
+        assertEquals(Graphes.describe(g), Graphes.describe(loaded));
+    }
+
+    // Les enregistrements isolés forment eux aussi une seule suite encodée
+    @Test
+    public void isolatedRecords() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        EcrivainTexte writer = new EcrivainTexte(StandardCharsets.UTF_16);
+        writer.begin(Channels.newChannel(output));
+        writer.writeUser(1, "Dupont", "Zoé", 20, new int[] {2}, 1);
+        writer.writePage(2, "Café", new int[] {1}, 1);
+        writer.end();
+
+        String expected = "{id = 1, name = Dupont, firstname = Zoé, age = 20, neighbors = [2]}\n"
+            + "{id = 2, name = Café, admins = [1]}\n";
+        assertEquals(expected, new String(output.toByteArray(), StandardCharsets.UTF_16));
+        assertEquals(expected.getBytes(StandardCharsets.UTF_16).length, output.size());
+    }
+
+    // La sauvegarde est signalée aux écouteurs, au numéro de modification sauvegardé
+    @Test
+    public void saveNotifiesListeners() throws IOException {
+        Graphe g = small();
+        final List<EvenementGraphe> received = new ArrayList<EvenementGraphe>();
+        g.addGraphListener(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> events) {
+                received.addAll(events);
+            }
+        });
+
+        File file = folder.newFile();
+        g.saveGraph(file);
+        FileOutputStream output = new FileOutputStream(folder.newFile());
+        try {
+            g.saveGraph(output.getChannel());
+        } finally {
+            output.close();
+        }
+        g.saveGraphBinary(folder.newFile());
+
+        assertEquals(3, received.size());
+        for (EvenementGraphe e : received) {
+            assertEquals(EvenementGraphe.Type.GRAPH_SAVED, e.getType());
+            assertEquals(g.getEpoch(), e.getEpoch());
+        }
+        assertTrue(file.length() > 0);
+    }
+}
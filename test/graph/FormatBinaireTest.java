@@ -0,0 +1,115 @@
+package graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests du format binaire de sauvegarde.
+ */
+public class FormatBinaireTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // OUTILS
+
+    private static Graphe sample(long seed) {
+        Graphe g = Graphes.random(seed, 200, 3);
+        Graphes.addAdmins(g, seed);
+
+        return g;
+    }
+
+    // TESTS
+
+    @Test
+    public void roundTrip() throws IOException, BadSyntaxException {
+        Graphe g = sample(15);
+        File file = folder.newFile("graphe.bin");
+        g.saveGraphBinary(file);
+
+        Graphe loaded = new Graphe();
+        loaded.loadGraphBinary(file);
+
+        assertEquals(Graphes.describe(g), Graphes.describe(loaded));
+
+        // Les ID suivants ne reprennent pas ceux des sommets relus
+        Utilisateur u = new Utilisateur("Prenom", "Nom", 30);
+        loaded.addVertice(u);
+        for (Sommet s : g.getVertices()) {
+            assertTrue(u.getId() > s.getId());
+        }
+    }
+
+    // Une nouvelle sauvegarde remplace l'ancienne sans laisser de fichier temporaire
+    @Test
+    public void replacesExistingFile() throws IOException, BadSyntaxException {
+        File file = folder.newFile("graphe.bin");
+        sample(16).saveGraphBinary(file);
+
+        Graphe g = sample(17);
+        g.saveGraphBinary(file);
+
+        assertArrayEquals(new String[] {"graphe.bin"}, folder.getRoot().list());
+
+        Graphe loaded = new Graphe();
+        loaded.loadGraphBinary(file);
+        assertEquals(Graphes.describe(g), Graphes.describe(loaded));
+    }
+
+    // Une version autre que la version courante est refusée
+    @Test
+    public void rejectsOtherVersions() throws IOException {
+        File file = folder.newFile("graphe.bin");
+        sample(18).saveGraphBinary(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(4);
+            raf.writeInt(1);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            new Graphe().loadGraphBinary(file);
+            fail();
+        } catch (BadSyntaxException e) {
+            // Attendu
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        File file = folder.newFile("graphe.bin");
+        sample(19).saveGraphBinary(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 4);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            new Graphe().loadGraphBinary(file);
+            fail();
+        } catch (BadSyntaxException e) {
+            // Attendu
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests du générateur de graphes synthétiques : reproductibilité et forme des graphes produits.
+ */
+public class GenerateurGrapheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // OUTILS
+
+    private static Graphe generate(GenerateurGraphe.Modele model, int n, long seed) throws IOException {
+        Graphe g = new Graphe();
+        new GenerateurGraphe(model, n, seed).generate(g);
+
+        return g;
+    }
+
+    // TESTS
+
+    // Une même graine donne le même graphe, une autre graine un autre
+    @Test
+    public void reproducible() throws IOException {
+        for (GenerateurGraphe.Modele model : GenerateurGraphe.Modele.values()) {
+            String first = Graphes.describe(generate(model, 2000, 7));
+
+            assertEquals(model.name(), first, Graphes.describe(generate(model, 2000, 7)));
+            assertNotEquals(model.name(), first, Graphes.describe(generate(model, 2000, 8)));
+        }
+    }
+
+    // Le fichier écrit au fil de la génération se relit en le graphe construit
+    @Test
+    public void writeMatchesGenerate() throws IOException, BadSyntaxException {
+        for (GenerateurGraphe.Modele model : GenerateurGraphe.Modele.values()) {
+            File file = folder.newFile(model.name() + ".txt");
+            new GenerateurGraphe(model, 3000, 11).write(file);
+
+            Graphe loaded = new Graphe();
+            loaded.loadGraph(file);
+
+            assertEquals(model.name(), Graphes.describe(generate(model, 3000, 11)), Graphes.describe(loaded));
+        }
+    }
+
+    // Paramètres respectés : seuls les utilisateurs suivent, sans boucle, âges bornés,
+    // chaque page a entre 1 et getMaxAdmins() administrateurs, tous utilisateurs
+    @Test
+    public void respectsParameters() throws IOException {
+        for (GenerateurGraphe.Modele model : GenerateurGraphe.Modele.values()) {
+            GenerateurGraphe generator = new GenerateurGraphe(model, 5000, 3);
+            generator.setPageRatio(0.2);
+            generator.setMaxAdmins(2);
+            generator.setAgeDistribution(18, 60, 30, 10);
+            generator.setMeanDegree(6);
+            Graphe g = new Graphe();
+            generator.generate(g);
+
+            assertEquals(5000, g.getVerticesNb());
+            int pages = 0;
+            long userEdges = 0;
+            for (Sommet s : g.getVertices()) {
+                assertEquals(generator.isPage(s.getId()), s instanceof Page);
+                assertTrue(!s.getNeighbors().contains(s));
+                if (s instanceof Page) {
+                    pages++;
+                    Page p = (Page) s;
+                    assertTrue(p.getNeighbors().isEmpty());
+                    assertTrue(p.getAdmins().size() >= 1 && p.getAdmins().size() <= 2);
+                } else {
+                    int age = ((Utilisateur) s).getAge();
+                    assertTrue(age >= 18 && age <= 60);
+                    userEdges += s.getNeighbors().size();
+                }
+            }
+
+            assertEquals(model.name(), 0.2, pages / 5000.0, 0.03);
+            assertEquals(model.name(), 6, (double) userEdges / (5000 - pages), 1);
+        }
+    }
+
+    // Barabási-Albert concentre les suiveurs sur quelques célébrités
+    @Test
+    public void barabasiAlbertIsSkewed() throws IOException {
+        Graphe g = generate(GenerateurGraphe.Modele.BARABASI_ALBERT, 20000, 5);
+
+        int max = 0;
+        for (Sommet s : g.getVertices()) {
+            max = Math.max(max, s.getFollowers().size());
+        }
+
+        assertTrue(max > 20 * g.getEdgesNb() / g.getVerticesNb());
+    }
+}
@@ -0,0 +1,118 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests de GrapheCSR : l'instantané CSR décrit exactement les arcs du graphe.
+ */
+public class GrapheCSRTest {
+
+    // ATTRIBUTS
+
+    private Graphe graph;
+    private Utilisateur a;
+    private Utilisateur b;
+    private Utilisateur c;
+    private Page p;
+
+    // OUTILS
+
+    @Before
+    public void setUp() {
+        graph = new Graphe();
+        a = new Utilisateur("A", "A", 20);
+        b = new Utilisateur("B", "B", 30);
+        c = new Utilisateur("C", "C", 40);
+        p = new Page("P");
+        graph.addVertice(a);
+        graph.addVertice(b);
+        graph.addVertice(c);
+        graph.addVertice(p);
+        graph.addEdge(c, a);
+        graph.addEdge(a, b);
+        graph.addEdge(b, a);
+        graph.addEdge(c, p);
+        graph.addEdge(a, p);
+        graph.addEdge(c, c);
+    }
+
+    // Vérifie que g contient exactement les arcs des sommets, dans les deux sens
+    private static void assertMatches(GrapheCSR g, Graphe graph) {
+        assertEquals(graph.getVerticesNb(), g.getVerticesNb());
+        assertEquals(graph.getEdgesNb(), g.getEdgesNb());
+
+        for (int i = 0; i < g.getVerticesNb(); i++) {
+            Sommet s = g.getVertice(i);
+            assertEquals(i, g.indexOf(s));
+            assertEquals(s.getNeighbors().size(), g.getOutDegree(i));
+            assertEquals(s.getFollowers().size(), g.getInDegree(i));
+
+            int k = g.getOutStart(i);
+            for (Sommet v : s.getNeighbors()) {
+                assertSame(v, g.getVertice(g.getOutTargets()[k++]));
+            }
+            assertEquals(g.getOutEnd(i), k);
+
+            for (k = g.getInStart(i); k < g.getInEnd(i); k++) {
+                Sommet u = g.getVertice(g.getInTargets()[k]);
+                assertTrue(u.getNeighbors().contains(s));
+                if (k > g.getInStart(i)) {
+                    assertTrue(g.getInTargets()[k - 1] < g.getInTargets()[k]);
+                }
+            }
+        }
+    }
+
+    // TESTS
+
+    @Test
+    public void csrMatchesVertices() {
+        assertMatches(new GrapheCSR(graph.getVertices()), graph);
+    }
+
+    @Test
+    public void graphCSRMatchesVertices() {
+        assertMatches(graph.getCSR(), graph);
+    }
+
+    // Les arcs entrants sont triés par source : un arc se trouve par dichotomie
+    @Test
+    public void edgeFoundByBinarySearch() {
+        GrapheCSR g = graph.getCSR();
+        int ia = g.indexOf(a);
+        int ip = g.indexOf(p);
+        int[] in = g.getInTargets();
+
+        assertTrue(Arrays.binarySearch(in, g.getInStart(ip), g.getInEnd(ip), ia) >= 0);
+        assertTrue(Arrays.binarySearch(in, g.getInStart(ip), g.getInEnd(ip), g.indexOf(b)) < 0);
+    }
+
+    // L'instantané est conservé tant que le graphe ne change pas, puis reconstruit
+    @Test
+    public void cachedUntilModified() {
+        GrapheCSR g = graph.getCSR();
+        assertSame(g, graph.getCSR());
+
+        graph.removeEdge(a, b);
+        GrapheCSR h = graph.getCSR();
+        assertTrue(g != h);
+        assertEquals(g.getEdgesNb() - 1, h.getEdgesNb());
+        assertMatches(h, graph);
+    }
+
+    @Test
+    public void unknownVertex() {
+        assertEquals(-1, graph.getCSR().indexOf(new Page("Q")));
+    }
+}
@@ -0,0 +1,163 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests de non-régression de Graphe.
+ */
+public class GrapheTest {
+
+    // ATTRIBUTS
+
+    private Graphe graph;
+    private Utilisateur user;
+    private Page page;
+    private File file;
+
+    // OUTILS
+
+    @Before
+    public void setUp() throws IOException {
+        graph = new Graphe();
+        user = new Utilisateur("Prenom", "Nom", 20);
+        page = new Page("P");
+        graph.addVertice(user);
+        graph.addVertice(page);
+        graph.addEdge(user, page);
+
+        file = File.createTempFile("graphe", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private Page reload(File f, boolean binary) throws IOException, BadSyntaxException {
+        Graphe g = new Graphe();
+        if (binary) {
+            g.loadGraphBinary(f);
+        } else {
+            g.loadGraph(f);
+        }
+
+        return (Page) g.getVerticeById(page.getId());
+    }
+
+    // TESTS
+
+    // Un changement d'administrateurs change le numéro de modification :
+    // la sauvegarde suivante ne réutilise pas l'instantané d'avant le changement
+    @Test
+    public void saveAfterAddAdmin() throws Exception {
+        graph.saveGraph(file);
+        long epoch = graph.getEpoch();
+
+        graph.addAdmin(page, user);
+        assertTrue(graph.getEpoch() > epoch);
+
+        graph.saveGraph(file);
+        assertEquals(1, reload(file, false).getAdmins().size());
+    }
+
+    // L'image binaire d'un instantané lit ses administrateurs dans l'instantané,
+    // pas sur les pages modifiées depuis
+    @Test
+    public void captureReadsAdminsFromSnapshot() throws Exception {
+        InstantaneGraphe snap = graph.snapshot();
+
+        Utilisateur admin = new Utilisateur("Prenom", "Admin", 30);
+        graph.addVertice(admin);
+        graph.addAdmin(page, admin);
+
+        FormatBinaire.capture(snap, graph.getVerticesNb() + 1, 0).write(file, false);
+        assertTrue(reload(file, true).getAdmins().isEmpty());
+
+        graph.saveGraphBinary(file);
+        assertEquals(1, reload(file, true).getAdmins().size());
+    }
+
+    @Test
+    public void saveAfterRemoveAdmin() throws Exception {
+        graph.addAdmin(page, user);
+        graph.saveGraph(file);
+
+        graph.removeAdmin(page, user);
+        graph.saveGraph(file);
+        assertTrue(reload(file, false).getAdmins().isEmpty());
+    }
+
+    // Un arc journalisé deux fois est signalé comme une erreur du journal
+    @Test
+    public void replayDuplicateEdge() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            Graphe g = new Graphe();
+            g.openJournal(directory);
+            Utilisateur u = new Utilisateur("Prenom", "Nom", 20);
+            Page p = new Page("P");
+            g.addVertice(u);
+            g.addVertice(p);
+            g.addEdge(u, p);
+            g.getJournal().logEdge(true, u, p);
+            g.closeJournal();
+
+            try {
+                new Graphe().openJournal(directory);
+                fail();
+            } catch (BadSyntaxException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("arc déjà présent"));
+            }
+        } finally {
+            for (File f : directory.listFiles()) {
+                f.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    // Le journal compacté se relit avec ses administrateurs
+    @Test
+    public void replayAfterCompaction() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            Graphe g = new Graphe();
+            g.openJournal(directory);
+            Utilisateur u = new Utilisateur("Prenom", "Nom", 20);
+            Page p = new Page("P");
+            g.addVertice(u);
+            g.addVertice(p);
+            g.addEdge(u, p);
+            g.addAdmin(p, u);
+            g.compactJournal().get();
+            g.removeEdge(u, p);
+            g.closeJournal();
+
+            Graphe h = new Graphe();
+            h.openJournal(directory);
+            Page q = (Page) h.getVerticeById(p.getId());
+            assertEquals(1, q.getAdmins().size());
+            assertEquals(0, h.getEdgesNb());
+            h.closeJournal();
+        } finally {
+            for (File f : directory.listFiles()) {
+                f.delete();
+            }
+            directory.delete();
+        }
+    }
+}
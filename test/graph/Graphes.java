@@ -0,0 +1,124 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Graphes de test tirés au hasard, reproductibles d'une graine à l'autre.
+ */
+final class Graphes {
+
+    // CONSTRUCTEUR
+
+    private Graphes() {
+    }
+
+    // OUTILS
+
+    /** Retourne un graphe de n sommets, dont un sur cinq est une page, et d'environ
+     *  n * degree arcs tirés uniformément depuis les utilisateurs ; certains sommets
+     *  n'ont donc aucun arc sortant
+     */
+    static Graphe random(long seed, int n, int degree) {
+        Random random = new Random(seed);
+        Graphe g = new Graphe();
+        List<Sommet> vertices = new ArrayList<Sommet>(n);
+
+        for (int i = 0; i < n; i++) {
+            Sommet s = i % 5 == 4
+                ? new Page("Page" + i)
+                : new Utilisateur("Prenom" + i, "Nom" + i, 1 + random.nextInt(90));
+            g.addVertice(s);
+            vertices.add(s);
+        }
+
+        for (int k = 0; k < n * degree; k++) {
+            Sommet s = vertices.get(random.nextInt(n));
+            Sommet v = vertices.get(random.nextInt(n));
+            if (s instanceof Utilisateur && s != v && !s.getNeighbors().contains(v)) {
+                g.addEdge(s, v);
+            }
+        }
+
+        return g;
+    }
+
+    /** Retourne les page ranks des sommets de g, dans l'ordre de g.getVertices()
+     */
+    static double[] ranks(Graphe g) {
+        double[] pr = new double[g.getVerticesNb()];
+        int i = 0;
+        for (Sommet s : g.getVertices()) {
+            pr[i++] = s.getPageRank();
+        }
+
+        return pr;
+    }
+
+    /** Donne à chaque page de g jusqu'à trois administrateurs tirés parmi ses utilisateurs
+     */
+    static void addAdmins(Graphe g, long seed) {
+        Random random = new Random(seed);
+        List<Utilisateur> users = new ArrayList<Utilisateur>();
+        List<Page> pages = new ArrayList<Page>();
+
+        for (Sommet s : g.getVertices()) {
+            if (s instanceof Utilisateur) {
+                users.add((Utilisateur) s);
+            } else {
+                pages.add((Page) s);
+            }
+        }
+
+        for (Page p : pages) {
+            for (int k = random.nextInt(4); k > 0; k--) {
+                Utilisateur u = users.get(random.nextInt(users.size()));
+                if (!p.getAdmins().contains(u)) {
+                    g.addAdmin(p, u);
+                }
+            }
+        }
+    }
+
+    /** Retourne une description du contenu de g indépendante des objets : pour chaque sommet,
+     *  par ID croissant, son type, son nom, son âge, les ID de ses voisins dans l'ordre
+     *  et ceux de ses administrateurs
+     */
+    static String describe(Graphe g) {
+        TreeMap<Integer, String> lines = new TreeMap<Integer, String>();
+
+        for (Sommet s : g.getVertices()) {
+            StringBuilder b = new StringBuilder();
+            if (s instanceof Utilisateur) {
+                Utilisateur u = (Utilisateur) s;
+                b.append("U ").append(u.getFirstName()).append(' ').append(u.getName())
+                    .append(' ').append(u.getAge());
+            } else {
+                TreeSet<Integer> admins = new TreeSet<Integer>();
+                for (Utilisateur u : ((Page) s).getAdmins()) {
+                    admins.add(u.getId());
+                }
+                b.append("P ").append(s.getName()).append(" admins ").append(admins);
+            }
+            b.append(" ->");
+            for (Sommet v : s.getNeighbors()) {
+                b.append(' ').append(v.getId());
+            }
+            lines.put(s.getId(), b.toString());
+        }
+
+        StringBuilder b = new StringBuilder();
+        for (Integer id : lines.keySet()) {
+            b.append(id).append(": ").append(lines.get(id)).append('\n');
+        }
+
+        return b.toString();
+    }
+}
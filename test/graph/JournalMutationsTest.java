@@ -0,0 +1,185 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests du journal des mutations : relecture, et refus des mutations quand le journal échoue.
+ */
+public class JournalMutationsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private File image;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new File(folder.getRoot(), "journal");
+        image = folder.newFile("graphe.bin");
+
+        Graphe g = Graphes.random(30, 200, 3);
+        Graphes.addAdmins(g, 30);
+        g.saveGraphBinary(image);
+    }
+
+    // OUTILS
+
+    // Graphe journalisé dans directory, chargé depuis l'image puis modifié
+    private Graphe journaled() throws IOException, BadSyntaxException {
+        Graphe g = new Graphe();
+        g.openJournal(directory);
+        g.loadGraphBinary(image);
+
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+        g.removeVertice(vertices.get(0));
+        Utilisateur u = new Utilisateur("Éloïse", "Durand", 42);
+        Page p = new Page("Café");
+        g.addVertice(u);
+        g.addVertice(p);
+        g.addEdge(u, p);
+        g.addEdge(u, vertices.get(1));
+        g.addAdmin(p, u);
+        Sommet s = vertices.get(2);
+        if (!s.getNeighbors().isEmpty()) {
+            g.removeEdge(s, s.getNeighbors().iterator().next());
+        }
+
+        return g;
+    }
+
+    private static Graphe reopen(File directory) throws IOException, BadSyntaxException {
+        Graphe g = new Graphe();
+        g.openJournal(directory);
+        g.closeJournal();
+
+        return g;
+    }
+
+    private void deleteDirectory() {
+        for (File f : directory.listFiles()) {
+            assertTrue(f.delete());
+        }
+        assertTrue(directory.delete());
+    }
+
+    // Une mutation refusée par le journal laisse le graphe inchangé
+    private static void assertRefused(Graphe g) {
+        String before = Graphes.describe(g);
+        Utilisateur u = (Utilisateur) g.getVerticeById(16);
+        Sommet v = g.getVerticeById(17);
+
+        try {
+            g.addVertice(new Page("Refusée"));
+            fail();
+        } catch (UncheckedIOException e) {
+            // Attendu
+        }
+        try {
+            if (u.getNeighbors().contains(v)) {
+                g.removeEdge(u, v);
+            } else {
+                g.addEdge(u, v);
+            }
+            fail();
+        } catch (UncheckedIOException e) {
+            // Attendu
+        }
+        try {
+            g.beginBatch().addVertice(new Page("Refusée")).removeVertice(u).commit();
+            fail();
+        } catch (UncheckedIOException e) {
+            // Attendu
+        }
+
+        assertEquals(before, Graphes.describe(g));
+    }
+
+    // TESTS
+
+    @Test
+    public void replayRestoresGraph() throws IOException, BadSyntaxException {
+        Graphe g = journaled();
+        g.closeJournal();
+        assertFalse(g.isJournaled());
+
+        assertEquals(Graphes.describe(g), Graphes.describe(reopen(directory)));
+    }
+
+    // Après un échec d'écriture, les mutations sont refusées avant d'être appliquées ;
+    // le journal reste attaché tant que sa fermeture échoue
+    @Test
+    public void failedWriteRefusesMutations() throws IOException, BadSyntaxException {
+        Graphe g = journaled();
+        g.getJournal().sync();
+        deleteDirectory();
+
+        // Le compactage échoue, et la mutation suivante part dans un segment impossible à créer
+        g.compactJournal();
+        g.addVertice(new Utilisateur("Prenom", "Nom", 30));
+        try {
+            g.getJournal().sync();
+            fail();
+        } catch (IOException e) {
+            // Attendu
+        }
+
+        assertRefused(g);
+
+        try {
+            g.closeJournal();
+            fail();
+        } catch (IOException e) {
+            assertTrue(g.isJournaled());
+        }
+        assertRefused(g);
+
+        g.closeJournal();
+        assertFalse(g.isJournaled());
+        g.addVertice(new Page("Acceptée"));
+    }
+
+    // Un chargement dont l'instantané ne peut être écrit laisse le graphe inchangé
+    @Test
+    public void failedLoadKeepsGraph() throws Exception {
+        Graphe g = journaled();
+        g.getJournal().sync();
+        String before = Graphes.describe(g);
+        deleteDirectory();
+
+        try {
+            g.loadGraphBinary(image);
+            fail();
+        } catch (IOException e) {
+            // Attendu
+        }
+        assertEquals(before, Graphes.describe(g));
+
+        // L'échec n'est signalé qu'une fois : le journal compacte de nouveau une fois le répertoire recréé
+        assertTrue(directory.mkdirs());
+        g.addVertice(new Page("Après"));
+        g.compactJournal().get();
+        g.closeJournal();
+
+        assertEquals(Graphes.describe(g), Graphes.describe(reopen(directory)));
+    }
+}
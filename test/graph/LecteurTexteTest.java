@@ -0,0 +1,134 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests de la lecture du format texte.
+ */
+public class LecteurTexteTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // OUTILS
+
+    private static Graphe sample(long seed, int n) {
+        Graphe g = Graphes.random(seed, n, 3);
+        Graphes.addAdmins(g, seed);
+
+        Utilisateur u = new Utilisateur("Éloïse", "Dûrand, firstname = Zoé", 42);
+        Page p = new Page("Café « déjà vu »");
+        g.addVertice(u);
+        g.addVertice(p);
+        g.addEdge(u, p);
+        g.addAdmin(p, u);
+
+        return g;
+    }
+
+    private File write(Graphe g, Charset charset) throws IOException {
+        File file = folder.newFile();
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            new EcrivainTexte(charset).write(g.snapshot(), output.getChannel(), null);
+        } finally {
+            output.close();
+        }
+
+        return file;
+    }
+
+    private static Graphe read(File file, Charset charset) throws IOException, BadSyntaxException {
+        Graphe g = new Graphe();
+        g.replace(LecteurTexte.read(file, charset, ForkJoinPool.commonPool(), null));
+
+        return g;
+    }
+
+    // TESTS
+
+    // Plus d'une tranche de lignes, analysées en parallèle
+    @Test
+    public void roundTrip() throws IOException, BadSyntaxException {
+        Graphe g = sample(20, 20000);
+        File file = folder.newFile();
+        g.saveGraph(file);
+
+        Graphe loaded = new Graphe();
+        loaded.loadGraph(file);
+
+        assertEquals(Graphes.describe(g), Graphes.describe(loaded));
+    }
+
+    // Le fichier est relu dans le jeu de caractères dans lequel il a été écrit
+    @Test
+    public void explicitCharset() throws IOException, BadSyntaxException {
+        Graphe g = sample(21, 100);
+        File file = write(g, StandardCharsets.ISO_8859_1);
+
+        assertEquals(Graphes.describe(g), Graphes.describe(read(file, StandardCharsets.ISO_8859_1)));
+        assertNotEquals(Graphes.describe(g), Graphes.describe(read(file, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void rejectsBadLine() throws IOException {
+        File file = folder.newFile();
+        Writer output = new OutputStreamWriter(new FileOutputStream(file), Graphe.TEXT_CHARSET);
+        try {
+            output.write("{id = 1, name = Nom, firstname = Prenom, age = 20, neighbors = []}\n");
+            output.write("{id = 2, name = Page, admins = [1}\n");
+        } finally {
+            output.close();
+        }
+
+        try {
+            new Graphe().loadGraph(file);
+            fail();
+        } catch (BadSyntaxException e) {
+            // Attendu
+        }
+    }
+
+    @Test
+    public void rejectsUnknownNeighbor() throws IOException {
+        File file = folder.newFile();
+        Writer output = new OutputStreamWriter(new FileOutputStream(file), Graphe.TEXT_CHARSET);
+        try {
+            output.write("{id = 1, name = Nom, firstname = Prenom, age = 20, neighbors = [3]}\n");
+            output.write("{id = 2, name = Page, admins = [1]}\n");
+        } finally {
+            output.close();
+        }
+
+        Graphe g = new Graphe();
+        try {
+            g.loadGraph(file);
+            fail();
+        } catch (BadSyntaxException e) {
+            // Le graphe est inchangé
+            for (Sommet s : g.getVertices()) {
+                fail("sommet inattendu " + s);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests des lots de mutations : vérification de tout le lot, application et livraison unique.
+ */
+public class LotMutationsTest {
+
+    private Graphe graph;
+    private Utilisateur u;
+    private Utilisateur v;
+    private Page p;
+    private List<List<EvenementGraphe>> calls;
+
+    @Before
+    public void setUp() {
+        graph = new Graphe();
+        u = new Utilisateur("Prenom", "U", 20);
+        v = new Utilisateur("Prenom", "V", 30);
+        p = new Page("P");
+        graph.addVertice(u);
+        graph.addVertice(v);
+        graph.addVertice(p);
+        graph.addEdge(u, v);
+
+        calls = new ArrayList<List<EvenementGraphe>>();
+        graph.addGraphListener(new EcouteurGraphe() {
+            public void graphChanged(List<EvenementGraphe> events) {
+                calls.add(new ArrayList<EvenementGraphe>(events));
+            }
+        });
+    }
+
+    // OUTILS
+
+    // Le lot est refusé, sans rien appliquer ni rien livrer
+    private void assertRejected(LotMutations batch) {
+        String before = Graphes.describe(graph);
+        long epoch = graph.getEpoch();
+
+        try {
+            batch.commit();
+            fail();
+        } catch (AssertionError e) {
+            // Attendu
+        }
+
+        assertFalse(batch.isCommitted());
+        assertEquals(before, Graphes.describe(graph));
+        assertEquals(epoch, graph.getEpoch());
+        assertTrue(calls.isEmpty());
+    }
+
+    // TESTS
+
+    @Test
+    public void commitNotifiesOnce() {
+        Utilisateur w = new Utilisateur("Prenom", "W", 40);
+        LotMutations batch = graph.beginBatch()
+            .addVertice(w)
+            .addEdges(w, Arrays.asList(u, v, p))
+            .removeEdge(u, v)
+            .addAdmin(p, w);
+        assertEquals(6, batch.size());
+        assertEquals(3, batch.getAddedEdgesNb());
+
+        batch.commit();
+
+        assertTrue(batch.isCommitted());
+        assertTrue(w.getNeighbors().containsAll(Arrays.asList(u, v, p)));
+        assertFalse(u.getNeighbors().contains(v));
+        assertTrue(p.getAdmins().contains(w));
+        assertEquals(3, graph.getEdgesNb());
+
+        assertEquals(1, calls.size());
+        List<EvenementGraphe> events = calls.get(0);
+        assertEquals(6, events.size());
+        assertEquals(EvenementGraphe.Type.VERTEX_ADDED, events.get(0).getType());
+        assertEquals(EvenementGraphe.Type.EDGE_REMOVED, events.get(4).getType());
+        assertEquals(EvenementGraphe.Type.ADMIN_CHANGED, events.get(5).getType());
+    }
+
+    // Chaque mutation est vérifiée dans l'état laissé par les précédentes du lot
+    @Test
+    public void validatesAgainstEarlierMutations() {
+        Utilisateur w = new Utilisateur("Prenom", "W", 40);
+        graph.beginBatch()
+            .addVertice(w)
+            .addEdge(w, u)
+            .removeEdge(w, u)
+            .addEdge(w, u)
+            .addAdmin(p, w)
+            .removeAdmin(p, w)
+            .commit();
+
+        assertTrue(w.getNeighbors().contains(u));
+        assertTrue(p.getAdmins().isEmpty());
+    }
+
+    // Une suppression de sommet emporte ses arcs : ils ne peuvent plus être retirés
+    @Test
+    public void removedVertexLosesEdges() {
+        assertRejected(graph.beginBatch()
+            .removeVertice(v)
+            .addVertice(v)
+            .removeEdge(u, v));
+
+        graph.beginBatch()
+            .removeVertice(v)
+            .addVertice(v)
+            .addEdge(u, v)
+            .commit();
+        assertTrue(u.getNeighbors().contains(v));
+        assertEquals(1, graph.getEdgesNb());
+    }
+
+    // La dernière mutation invalide fait refuser les précédentes
+    @Test
+    public void rejectsWholeBatch() {
+        Utilisateur w = new Utilisateur("Prenom", "W", 40);
+
+        assertRejected(graph.beginBatch().addVertice(w).addEdge(w, u).addEdge(u, v));
+        assertRejected(graph.beginBatch().addVertice(w).removeEdge(v, u));
+        assertRejected(graph.beginBatch().addEdge(p, u));
+        assertRejected(graph.beginBatch().addVertice(w).addVertice(w));
+        assertRejected(graph.beginBatch().removeVertice(u).addEdge(u, p));
+        assertRejected(graph.beginBatch().addAdmin(p, u).removeAdmin(p, v));
+
+        for (Sommet s : graph.getVertices()) {
+            assertTrue(s != w);
+        }
+    }
+
+    // Un lot ne s'applique qu'une fois, et ne se complète plus ensuite
+    @Test
+    public void committedOnce() {
+        LotMutations batch = graph.beginBatch().addEdge(v, u);
+        batch.commit();
+
+        try {
+            batch.commit();
+            fail();
+        } catch (AssertionError e) {
+            // Attendu
+        }
+        try {
+            batch.addEdge(u, p);
+            fail();
+        } catch (AssertionError e) {
+            // Attendu
+        }
+        assertEquals(1, calls.size());
+    }
+}
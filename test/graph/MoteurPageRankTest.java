@@ -0,0 +1,102 @@
+package graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Utilisateur;
+
+/**
+ * Tests du moteur de page rank parallèle, comparé au calcul de Graphe.generatePageRank().
+ */
+public class MoteurPageRankTest {
+
+    // CONSTANTES
+
+    private static final double DELTA = 1e-8;
+
+    // OUTILS
+
+    private static MoteurPageRank engine(ForkJoinPool pool) {
+        MoteurPageRank engine = new MoteurPageRank();
+        engine.setPool(pool);
+        engine.setTolerance(1e-13);
+        engine.setMaxIterations(1000);
+
+        return engine;
+    }
+
+    // TESTS
+
+    // Assez d'arcs pour que chaque itération soit découpée en plusieurs tâches
+    @Test
+    public void matchesSequentialSweep() {
+        Graphe g = Graphes.random(4, 4000, 6);
+        g.generatePageRank();
+        double[] sequential = Graphes.ranks(g);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ResultatPageRank result = g.generatePageRank(engine(pool));
+            assertTrue(result.isConverged());
+            assertArrayEquals(sequential, Graphes.ranks(g), DELTA);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Les deux calculs ont la même échelle, même avec des sommets sans arc sortant :
+    // le dernier exécuté ne change pas les page ranks
+    @Test
+    public void sameScaleWithDanglingVertices() {
+        Graphe g = new Graphe();
+        Utilisateur a = new Utilisateur("A", "A", 20);
+        Utilisateur b = new Utilisateur("B", "B", 20);
+        Page p = new Page("P");
+        g.addVertice(a);
+        g.addVertice(b);
+        g.addVertice(p);
+        g.addEdge(a, b);
+        g.addEdge(a, p);
+        g.addEdge(b, p);
+
+        g.generatePageRank(engine(ForkJoinPool.commonPool()));
+        double[] parallel = Graphes.ranks(g);
+        g.generatePageRank();
+
+        assertArrayEquals(parallel, Graphes.ranks(g), DELTA);
+        assertTrue(parallel[0] + parallel[1] + parallel[2] < 1);
+    }
+
+    // Le découpage ne dépend pas du nombre de threads
+    @Test
+    public void independentOfParallelism() {
+        GrapheCSR csr = Graphes.random(5, 4000, 6).getCSR();
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            ResultatPageRank r1 = engine(one).compute(csr);
+            ResultatPageRank r4 = engine(four).compute(csr);
+            assertEquals(r1.getIterations(), r4.getIterations());
+            for (int i = 0; i < csr.getVerticesNb(); i++) {
+                assertEquals(r1.getRank(i), r4.getRank(i), 1e-15);
+            }
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    public void emptyGraph() {
+        ResultatPageRank r = new MoteurPageRank().compute(new Graphe().getCSR());
+
+        assertEquals(0, r.getIterations());
+        assertTrue(r.isConverged());
+    }
+}
@@ -0,0 +1,97 @@
+package graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests du page rank incrémental, comparé au recalcul complet de Graphe.
+ */
+public class PageRankIncrementalTest {
+
+    // CONSTANTES
+
+    private static final double DELTA = 1e-8;
+
+    // OUTILS
+
+    // Page ranks de g par un recalcul complet, le mode incrémental étant ensuite rétabli
+    private static double[] fullRanks(Graphe g) {
+        g.setIncrementalPageRank(false);
+        g.generatePageRank();
+        double[] pr = Graphes.ranks(g);
+        g.setIncrementalPageRank(true);
+
+        return pr;
+    }
+
+    // TESTS
+
+    // Des ajouts et retraits d'arcs et de sommets ne sont propagés que localement,
+    // et donnent les mêmes page ranks qu'un recalcul complet
+    @Test
+    public void matchesFullRecompute() {
+        Graphe g = Graphes.random(1, 300, 4);
+        g.setIncrementalPageRank(true);
+        g.setPageRankMaxDelta(1e9);
+        g.generatePageRank();
+
+        Random random = new Random(2);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+        for (int k = 0; k < 40; k++) {
+            Sommet s = vertices.get(random.nextInt(vertices.size()));
+            Sommet v = vertices.get(random.nextInt(vertices.size()));
+            if (!(s instanceof Utilisateur) || s == v) {
+                continue;
+            }
+            if (s.getNeighbors().contains(v)) {
+                g.removeEdge(s, v);
+            } else {
+                g.addEdge(s, v);
+            }
+        }
+
+        Utilisateur u = new Utilisateur("Nouveau", "Nouveau", 20);
+        g.addVertice(u);
+        g.addEdge(u, vertices.get(0));
+        g.addEdge((Utilisateur) vertices.get(1), u);
+        g.removeVertice(vertices.get(2));
+
+        g.generatePageRank();
+        double[] incremental = Graphes.ranks(g);
+
+        assertArrayEquals(fullRanks(g), incremental, DELTA);
+    }
+
+    // Entre deux générations, l'ajout d'un arc vers une nouvelle page la place au-dessus
+    // d'une page sans suiveur, comme le ferait un recalcul complet
+    @Test
+    public void newEdgeRaisesTarget() {
+        Graphe g = Graphes.random(3, 100, 3);
+        g.setIncrementalPageRank(true);
+        g.generatePageRank();
+
+        Page empty = new Page("Vide");
+        Page followed = new Page("Suivie");
+        g.addVertice(empty);
+        g.addVertice(followed);
+        for (Sommet s : new ArrayList<Sommet>(g.getVertices())) {
+            if (s instanceof Utilisateur && s.getId() % 7 == 0) {
+                g.addEdge(s, followed);
+            }
+        }
+        g.generatePageRank();
+
+        assertTrue(followed.getPageRank() > empty.getPageRank());
+        assertArrayEquals(fullRanks(g), Graphes.ranks(g), DELTA);
+    }
+}
@@ -0,0 +1,97 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Utilisateur;
+
+/**
+ * Tests du parcours en largeur à direction optimisée, comparé à un parcours en largeur simple.
+ */
+public class ParcoursLargeurTest {
+
+    // OUTILS
+
+    // Parcours en largeur de référence, par les seuls arcs sortants
+    private static int[] plainBfs(GrapheCSR g, int source) {
+        int[] dist = new int[g.getVerticesNb()];
+        Arrays.fill(dist, ResultatDistances.UNREACHABLE);
+        dist[source] = 0;
+
+        Deque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (int k = g.getOutStart(u); k < g.getOutEnd(u); k++) {
+                int v = g.getOutTargets()[k];
+                if (dist[v] == ResultatDistances.UNREACHABLE) {
+                    dist[v] = dist[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    private static void assertMatches(GrapheCSR g, ParcoursLargeur bfs) {
+        for (int source = 0; source < g.getVerticesNb(); source += 7) {
+            int[] expected = plainBfs(g, source);
+            ResultatDistances result = bfs.compute(g, source);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("source " + source + ", sommet " + i, expected[i], result.getDistance(i));
+            }
+        }
+    }
+
+    // TESTS
+
+    @Test
+    public void defaultThresholds() {
+        assertMatches(Graphes.random(6, 500, 5).getCSR(), new ParcoursLargeur());
+    }
+
+    // Un alpha de 1 passe en bottom-up dès que possible, un beta très grand n'en revient jamais
+    @Test
+    public void bottomUp() {
+        ParcoursLargeur bfs = new ParcoursLargeur();
+        bfs.setAlpha(1);
+        bfs.setBeta(Integer.MAX_VALUE);
+
+        assertMatches(Graphes.random(7, 500, 5).getCSR(), bfs);
+    }
+
+    // Un alpha très grand ne passe jamais en bottom-up
+    @Test
+    public void topDown() {
+        ParcoursLargeur bfs = new ParcoursLargeur();
+        bfs.setAlpha(Integer.MAX_VALUE);
+
+        assertMatches(Graphes.random(8, 500, 2).getCSR(), bfs);
+    }
+
+    // Un sommet ajouté après le calcul des distances en cache est inaccessible,
+    // sans échec de contrat ; les distances suivantes le prennent en compte
+    @Test
+    public void vertexAddedAfterComputation() {
+        Graphe g = new Graphe();
+        Utilisateur a = new Utilisateur("A", "A", 20);
+        g.addVertice(a);
+        ResultatDistances cached = g.getDistancesFrom(a);
+
+        Page p = new Page("P");
+        g.addVertice(p);
+        assertEquals(ResultatDistances.UNREACHABLE, cached.getDistance(p));
+        assertEquals(ResultatDistances.UNREACHABLE, g.getDistance(a, p));
+
+        g.addEdge(a, p);
+        assertEquals(1, g.getDistance(a, p));
+        assertEquals(0, g.getDistance(a, a));
+    }
+}
@@ -0,0 +1,195 @@
+package graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests du profil du graphe : comptes exacts sur un petit graphe, comparaison à un parcours
+ * direct sur un grand, et indépendance vis-à-vis du découpage parallèle.
+ */
+public class ProfilGrapheTest {
+
+    // OUTILS
+
+    // Les comptes du profil, relevés directement sur les sommets du graphe
+    private static String direct(Graphe g) {
+        long users = 0;
+        long pages = 0;
+        long edges = 0;
+        long reciprocal = 0;
+        long dangling = 0;
+        long danglingUsers = 0;
+        long isolated = 0;
+        long adminLinks = 0;
+        long[] out = new long[33];
+        long[] in = new long[33];
+        for (Sommet s : g.getVertices()) {
+            int outDegree = s.getNeighbors().size();
+            int inDegree = s.getFollowers().size();
+            edges += outDegree;
+            out[ProfilGraphe.bucket(outDegree)]++;
+            in[ProfilGraphe.bucket(inDegree)]++;
+            for (Sommet v : s.getNeighbors()) {
+                if (v.getNeighbors().contains(s)) {
+                    reciprocal++;
+                }
+            }
+            if (outDegree == 0) {
+                dangling++;
+                if (inDegree == 0) {
+                    isolated++;
+                }
+            }
+            if (s instanceof Utilisateur) {
+                users++;
+                if (outDegree == 0) {
+                    danglingUsers++;
+                }
+            } else {
+                pages++;
+                adminLinks += ((Page) s).getAdmins().size();
+            }
+        }
+
+        return users + " " + pages + " " + edges + " " + reciprocal + " " + dangling + " "
+            + danglingUsers + " " + isolated + " " + adminLinks + " " + Arrays.toString(trim(out))
+            + " " + Arrays.toString(trim(in));
+    }
+
+    // Les mêmes comptes, lus dans le profil
+    private static String counts(ProfilGraphe p) {
+        return p.getUsersNb() + " " + p.getPagesNb() + " " + p.getEdgesNb() + " "
+            + p.getReciprocalEdgesNb() + " " + p.getDanglingNb() + " " + p.getDanglingUsersNb() + " "
+            + p.getIsolatedNb() + " " + p.getAdminLinksNb() + " "
+            + Arrays.toString(p.getOutDegreeHistogram()) + " " + Arrays.toString(p.getInDegreeHistogram());
+    }
+
+    private static long[] trim(long[] h) {
+        int n = h.length;
+        while (n > 1 && h[n - 1] == 0) {
+            n--;
+        }
+
+        return Arrays.copyOf(h, n);
+    }
+
+    // TESTS
+
+    @Test
+    public void buckets() {
+        assertEquals(0, ProfilGraphe.bucket(0));
+        assertEquals(1, ProfilGraphe.bucket(1));
+        assertEquals(2, ProfilGraphe.bucket(2));
+        assertEquals(2, ProfilGraphe.bucket(3));
+        assertEquals(3, ProfilGraphe.bucket(4));
+        assertEquals(31, ProfilGraphe.bucket(Integer.MAX_VALUE));
+    }
+
+    // u <-> v, u -> p, w isolé, p administrée par u et v
+    @Test
+    public void smallGraph() {
+        Graphe g = new Graphe();
+        Utilisateur u = new Utilisateur("Prenom", "U", 20);
+        Utilisateur v = new Utilisateur("Prenom", "V", 30);
+        Utilisateur w = new Utilisateur("Prenom", "W", 30);
+        Page p = new Page("P");
+        g.addVertice(u);
+        g.addVertice(v);
+        g.addVertice(w);
+        g.addVertice(p);
+        g.addEdge(u, v);
+        g.addEdge(v, u);
+        g.addEdge(u, p);
+        g.addAdmin(p, u);
+        g.addAdmin(p, v);
+
+        ProfilGraphe profile = g.getProfile();
+
+        assertEquals(g.getEpoch(), profile.getEpoch());
+        assertEquals(4, profile.getVerticesNb());
+        assertEquals(3, profile.getUsersNb());
+        assertEquals(1, profile.getPagesNb());
+        assertEquals(3, profile.getEdgesNb());
+        assertEquals(0, profile.getSelfLoopsNb());
+        assertEquals(2, profile.getReciprocalEdgesNb());
+        assertEquals(2.0 / 3, profile.getReciprocity(), 1e-9);
+        assertArrayEquals(new long[] {2, 1, 1}, profile.getOutDegreeHistogram());
+        assertArrayEquals(new long[] {1, 3}, profile.getInDegreeHistogram());
+        assertEquals(2, profile.getMaxOutDegree());
+        assertEquals(1, profile.getMaxInDegree());
+        assertEquals(2, profile.getDanglingNb());
+        assertEquals(1, profile.getDanglingUsersNb());
+        assertEquals(1, profile.getIsolatedNb());
+        assertEquals(80.0 / 3, profile.getAverageAge(), 1e-9);
+        long[] ages = profile.getAgeHistogram();
+        assertEquals(31, ages.length);
+        assertEquals(1, ages[20]);
+        assertEquals(2, ages[30]);
+        assertArrayEquals(new long[] {0, 0, 1}, profile.getAdminsHistogram());
+        assertEquals(2, profile.getAdminLinksNb());
+
+        // Les tableaux retournés sont des copies
+        profile.getAgeHistogram()[20] = 5;
+        assertEquals(1, profile.getAgeHistogram()[20]);
+    }
+
+    // Assez d'arcs pour que le calcul soit découpé en plusieurs tranches
+    @Test
+    public void matchesDirectCount() {
+        Graphe g = Graphes.random(80, 20000, 4);
+        Graphes.addAdmins(g, 80);
+
+        ProfilGraphe profile = g.getProfile();
+        assertEquals(direct(g), counts(profile));
+        assertEquals(g.getAverageAge(), profile.getAverageAge(), 1e-4);
+        assertEquals(g.getVerticesNb(), profile.getVerticesNb());
+
+        AnalyseurGraphe sequential = new AnalyseurGraphe();
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            sequential.setPool(pool);
+            ProfilGraphe single = g.getProfile(sequential);
+            assertEquals(profile.toJson().replaceFirst("\"wallTimeNs\": \\d+", ""),
+                single.toJson().replaceFirst("\"wallTimeNs\": \\d+", ""));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Le profil est celui de l'instantané : les mutations qui suivent ne le changent pas
+    @Test
+    public void profileIsFrozen() {
+        Graphe g = Graphes.random(81, 500, 3);
+        ProfilGraphe profile = g.getProfile();
+        String before = profile.toJson();
+
+        g.addVertice(new Page("Nouvelle"));
+        g.removeVertice(g.getVertices().iterator().next());
+
+        assertEquals(before, profile.toJson());
+        assertTrue(g.getEpoch() > profile.getEpoch());
+    }
+
+    @Test
+    public void emptyGraph() {
+        ProfilGraphe profile = new Graphe().getProfile();
+
+        assertEquals(0, profile.getVerticesNb());
+        assertEquals(0, profile.getEdgesNb());
+        assertEquals(0, profile.getReciprocity(), 0);
+        assertTrue(Double.isNaN(profile.getAverageAge()));
+        assertArrayEquals(new long[] {0}, profile.getOutDegreeHistogram());
+        assertEquals(0, profile.getAgeHistogram().length);
+        assertTrue(profile.toJson().contains("\"mean\": null"));
+    }
+}
@@ -0,0 +1,129 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests de RegistreSommets, comparé à la recherche par parcours des sommets dans l'ordre d'ajout.
+ */
+public class RegistreSommetsTest {
+
+    // ATTRIBUTS
+
+    private RegistreSommets registry;
+    private List<Sommet> vertices;
+
+    // OUTILS
+
+    @Before
+    public void setUp() {
+        registry = new RegistreSommets();
+        vertices = new ArrayList<Sommet>();
+    }
+
+    private void add(Sommet s, int id) {
+        s.setId(id);
+        registry.add(s);
+        vertices.add(s);
+    }
+
+    private void remove(Sommet s) {
+        registry.remove(s);
+        vertices.remove(s);
+    }
+
+    // Recherche linéaire de référence
+    private Sommet scanById(int id) {
+        for (Sommet s : vertices) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    // TESTS
+
+    @Test
+    public void findsById() {
+        for (int i = 1; i <= 1000; i++) {
+            add(new Page("P" + i), i * 7);
+        }
+        for (int i = 1; i <= 7000; i++) {
+            assertSame(scanById(i), registry.getById(i));
+        }
+        assertEquals(1000, registry.size());
+    }
+
+    // Les retraits par décalage arrière laissent les autres ID accessibles
+    @Test
+    public void removeKeepsOthers() {
+        List<Sommet> all = new ArrayList<Sommet>();
+        for (int i = 1; i <= 500; i++) {
+            Sommet s = new Page("P" + i);
+            add(s, i);
+            all.add(s);
+        }
+        for (int i = 0; i < all.size(); i += 3) {
+            remove(all.get(i));
+        }
+        for (int i = 1; i <= 500; i++) {
+            assertSame(scanById(i), registry.getById(i));
+        }
+    }
+
+    // Le premier sommet d'un ID partagé est retourné, puis le suivant une fois le premier retiré
+    @Test
+    public void duplicateIdPromoted() {
+        Page first = new Page("A");
+        Page second = new Page("B");
+        Page third = new Page("C");
+        add(first, 5);
+        add(second, 5);
+        add(third, 5);
+
+        assertSame(first, registry.getById(5));
+        remove(second);
+        assertSame(first, registry.getById(5));
+        remove(first);
+        assertSame(third, registry.getById(5));
+        remove(third);
+        assertNull(registry.getById(5));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void findsByName() {
+        Utilisateur u = new Utilisateur("Jean", "Martin", 30);
+        Utilisateur v = new Utilisateur("Paul", "Martin", 40);
+        add(u, 1);
+        add(v, 2);
+
+        assertSame(u, registry.getByName("Martin"));
+        assertSame(v, registry.getByFullName(v.getFullName()));
+        remove(u);
+        assertSame(v, registry.getByName("Martin"));
+        assertNull(registry.getByFullName(u.getFullName()));
+    }
+
+    @Test
+    public void clear() {
+        add(new Page("P"), 1);
+        registry.clear();
+
+        assertNull(registry.getById(1));
+        assertNull(registry.getByName("P"));
+        assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,141 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+import exception.BadSyntaxException;
+
+/**
+ * Tests des statistiques tenues à jour par les mutations, et de leur vérification.
+ */
+public class StatistiquesGrapheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // OUTILS
+
+    // Compare les statistiques de g à celles d'un parcours complet
+    private static void assertStatistics(Graphe g) {
+        int users = 0;
+        int pages = 0;
+        long ages = 0;
+        int edges = 0;
+        for (Sommet s : g.getVertices()) {
+            if (s instanceof Utilisateur) {
+                users++;
+                ages += ((Utilisateur) s).getAge();
+            } else {
+                pages++;
+            }
+            edges += s.getNeighbors().size();
+        }
+
+        assertEquals(users, g.getUsersNb());
+        assertEquals(pages, g.getPagesNb());
+        assertEquals(edges, g.getEdgesNb());
+        assertEquals(users + pages, g.getVerticesNb());
+        assertEquals((float) ages / users, g.getAverageAge(), 1e-4);
+    }
+
+    // TESTS
+
+    // Ajouts et suppressions, directs ou par lot, tiennent les compteurs à jour
+    @Test
+    public void followsMutations() {
+        Graphe g = Graphes.random(70, 300, 3);
+        assertStatistics(g);
+
+        Random random = new Random(70);
+        List<Sommet> vertices = new ArrayList<Sommet>(g.getVertices());
+        for (int k = 0; k < 50; k++) {
+            g.removeVertice(vertices.remove(random.nextInt(vertices.size())));
+            Sommet s = k % 3 == 0 ? new Page("Ajout" + k) : new Utilisateur("Prenom" + k, "Ajout" + k, 15 + k);
+            g.addVertice(s);
+            vertices.add(s);
+            assertStatistics(g);
+        }
+
+        Utilisateur w = new Utilisateur("Prenom", "Lot", 99);
+        Page p = new Page("Lot");
+        g.beginBatch()
+            .addVertice(w)
+            .addVertice(p)
+            .addEdge(w, p)
+            .removeVertice(vertices.get(0))
+            .commit();
+        assertStatistics(g);
+    }
+
+    // Un chargement recalcule les compteurs, quel que soit le contenu précédent
+    @Test
+    public void loadRecomputes() throws IOException, BadSyntaxException {
+        Graphe source = Graphes.random(71, 400, 3);
+        File text = folder.newFile("graphe.txt");
+        File binary = folder.newFile("graphe.bin");
+        source.saveGraph(text);
+        source.saveGraphBinary(binary);
+
+        Graphe g = Graphes.random(72, 100, 2);
+        g.loadGraph(text);
+        assertStatistics(g);
+        assertEquals(source.getAverageAge(), g.getAverageAge(), 1e-4);
+
+        g = Graphes.random(73, 100, 2);
+        g.loadGraphBinary(binary);
+        assertStatistics(g);
+        assertEquals(source.getUsersNb(), g.getUsersNb());
+    }
+
+    @Test
+    public void noUsers() {
+        Graphe g = new Graphe();
+        assertTrue(Float.isNaN(g.getAverageAge()));
+
+        g.addVertice(new Page("P"));
+        assertEquals(1, g.getPagesNb());
+        assertEquals(0, g.getUsersNb());
+        assertTrue(Float.isNaN(g.getAverageAge()));
+    }
+
+    // La vérification compare chaque lecture à un parcours complet, et échoue sur un écart
+    @Test
+    public void checkDetectsDrift() {
+        Graphe g = Graphes.random(74, 100, 2);
+        assertFalse(g.isStatisticsCheck());
+        g.setStatisticsCheck(true);
+        assertTrue(g.isStatisticsCheck());
+        assertStatistics(g);
+
+        // Un arc ajouté sans passer par le graphe n'est pas compté
+        Utilisateur u = new Utilisateur("Prenom", "U", 20);
+        Page p = new Page("P");
+        g.addVertice(u);
+        g.addVertice(p);
+        u.addNeighbor(p);
+        try {
+            g.getEdgesNb();
+            fail();
+        } catch (AssertionError e) {
+            // Attendu
+        }
+
+        g.setStatisticsCheck(false);
+        g.getEdgesNb();
+    }
+}
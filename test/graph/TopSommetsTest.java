@@ -0,0 +1,110 @@
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import accounts.Page;
+import accounts.Sommet;
+import accounts.Utilisateur;
+
+/**
+ * Tests des classements partiels : les premiers sommets d'un ordre, filtrés par type et paginés.
+ */
+public class TopSommetsTest {
+
+    // CONSTANTES
+
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends Sommet>[] TYPES = new Class[] {
+        Sommet.class, Utilisateur.class, Page.class
+    };
+
+    // OUTILS
+
+    // Les sommets de type type de g triés selon order, par un tri complet
+    private static List<Sommet> sorted(Graphe g, final OrdreSommets order, Class<? extends Sommet> type) {
+        List<Sommet> vertices = new ArrayList<Sommet>();
+        for (Sommet s : g.getVertices()) {
+            if (type.isInstance(s)) {
+                vertices.add(s);
+            }
+        }
+        Collections.sort(vertices, new Comparator<Sommet>() {
+            public int compare(Sommet s1, Sommet s2) {
+                return order.compare(s1, s2);
+            }
+        });
+
+        return vertices;
+    }
+
+    // Compare chaque classement partiel de g à la tranche correspondante du tri complet
+    private static void assertMatchesSort(Graphe g) {
+        for (OrdreSommets order : OrdreSommets.values()) {
+            for (Class<? extends Sommet> type : TYPES) {
+                List<Sommet> expected = sorted(g, order, type);
+                String what = order.name() + " " + type.getSimpleName();
+                int[][] slices = {{0, 10}, {0, expected.size() + 5}, {25, 30}, {expected.size() - 3, 10},
+                                  {expected.size() + 1, 10}};
+                for (int[] slice : slices) {
+                    int from = Math.min(slice[0], expected.size());
+                    int to = Math.min(from + slice[1], expected.size());
+                    assertEquals(what, expected.subList(from, to), g.getTopVertices(order, type, slice[0], slice[1]));
+                }
+            }
+        }
+    }
+
+    // TESTS
+
+    // Par le tas borné, sans index construit
+    @Test
+    public void heapMatchesSort() {
+        Graphe g = Graphes.random(60, 500, 3);
+        g.generatePageRank();
+
+        assertMatchesSort(g);
+    }
+
+    // Par la lecture des index, une fois construits
+    @Test
+    public void indexMatchesSort() {
+        Graphe g = Graphes.random(61, 500, 3);
+        g.generatePageRank();
+        for (OrdreSommets order : OrdreSommets.values()) {
+            g.getVerticesCursor(order, 10);
+        }
+
+        assertMatchesSort(g);
+    }
+
+    // Le filtre par type ne retient que des sommets de ce type
+    @Test
+    public void filtersByType() {
+        Graphe g = Graphes.random(62, 300, 3);
+
+        for (Sommet s : g.getTopVertices(OrdreSommets.IN_DEGREE, Page.class, 0, 300)) {
+            assertTrue(s instanceof Page);
+        }
+        assertEquals(g.getPagesNb(), g.getTopVertices(OrdreSommets.NAME, Page.class, 0, 300).size());
+        assertEquals(g.getUsersNb(), g.getTopVertices(OrdreSommets.OUT_DEGREE, Utilisateur.class, 0, 300).size());
+    }
+
+    @Test
+    public void countZero() {
+        Graphe g = Graphes.random(63, 100, 2);
+
+        for (OrdreSommets order : OrdreSommets.values()) {
+            assertTrue(g.getTopVertices(order, Sommet.class, 0, 0).isEmpty());
+            assertTrue(g.getTopVertices(order, Sommet.class, 50, 0).isEmpty());
+        }
+        assertTrue(new Graphe().getTopVertices(OrdreSommets.PAGE_RANK, Sommet.class, 0, 10).isEmpty());
+    }
+}